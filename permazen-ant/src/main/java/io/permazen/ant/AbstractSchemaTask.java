@@ -0,0 +1,184 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.ant;
+
+import io.permazen.PermazenConfig;
+import io.permazen.annotation.PermazenType;
+import io.permazen.core.Database;
+import io.permazen.encoding.EncodingRegistry;
+import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.spring.PermazenClassScanner;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.types.Reference;
+
+/**
+ * Support superclass for ant tasks that operate on a set of Permazen model classes.
+ *
+ * <p>
+ * This class handles the {@code classpath}, {@code classpathref}, {@code packages}, {@code classes},
+ * and {@code encodingRegistryClass} attributes; see {@link SchemaGeneratorTask} for details.
+ */
+public abstract class AbstractSchemaTask extends Task {
+
+    private Path classPath;
+    private String encodingRegistryClassName;
+    private final LinkedHashSet<String> classes = new LinkedHashSet<>();
+    private final LinkedHashSet<String> packages = new LinkedHashSet<>();
+
+    public void setClasses(String classes) {
+        this.classes.addAll(Arrays.asList(classes.split("[\\s,]+")));
+    }
+
+    public void setPackages(String packages) {
+        this.packages.addAll(Arrays.asList(packages.split("[\\s,]+")));
+    }
+
+    public Path createClasspath() {
+        this.classPath = new Path(this.getProject());
+        return this.classPath;
+    }
+
+    public void setClasspath(Path classPath) {
+        this.classPath = classPath;
+    }
+
+    public void setClasspathRef(Reference ref) {
+        this.classPath = (Path)ref.getReferencedObject(this.getProject());
+    }
+
+    public void setEncodingRegistryClass(String encodingRegistryClassName) {
+        this.encodingRegistryClassName = encodingRegistryClassName;
+    }
+
+    /**
+     * @throws BuildException if operation fails
+     */
+    @Override
+    public void execute() {
+
+        // Sanity check
+        this.checkAttributes();
+        if (this.classPath == null)
+            throw new BuildException("\"classpath\" attribute is required specifying search path for scanned classes");
+
+        // Set up mysterious classloader stuff
+        final AntClassLoader loader = this.getProject().createClassLoader(this.classPath);
+        final ClassLoader currentLoader = this.getClass().getClassLoader();
+        if (currentLoader != null)
+            loader.setParent(currentLoader);
+        loader.setThreadContextLoader();
+        try {
+
+            // Model classes
+            final HashSet<Class<?>> modelClasses = new HashSet<>();
+
+            // Do package scanning
+            if (!this.packages.isEmpty()) {
+
+                // Join list
+                final StringBuilder buf = new StringBuilder();
+                for (String packageName : this.packages) {
+                    if (buf.length() > 0)
+                        buf.append(' ');
+                    buf.append(packageName);
+                }
+                final String packageNames = buf.toString();
+
+                // Scan for @PermazenType classes
+                this.flog("scanning for @PermazenType annotations in packages: %s", packageNames);
+                for (String className : new PermazenClassScanner().scanForClasses(packageNames)) {
+                    this.flog("adding Permazen model class %s", className);
+                    try {
+                        modelClasses.add(Class.forName(className, false, Thread.currentThread().getContextClassLoader()));
+                    } catch (ClassNotFoundException e) {
+                        throw new BuildException(String.format("failed to load class \"%s\"", className), e);
+                    }
+                }
+            }
+
+            // Do specific class scanning
+            for (String className : this.classes) {
+
+                // Load class
+                final Class<?> cl;
+                try {
+                    cl = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new BuildException(String.format("failed to load class \"%s\"", className), e);
+                }
+
+                // Add model classes
+                if (cl.isAnnotationPresent(PermazenType.class)) {
+                    this.flog("adding Permazen model %s", cl);
+                    modelClasses.add(cl);
+                }
+            }
+
+            // Instantiate EncodingRegistry
+            EncodingRegistry encodingRegistry = null;
+            if (this.encodingRegistryClassName != null) {
+                try {
+                    encodingRegistry = Class.forName(this.encodingRegistryClassName,
+                       false, Thread.currentThread().getContextClassLoader())
+                      .asSubclass(EncodingRegistry.class).getConstructor().newInstance();
+                } catch (Exception e) {
+                    throw new BuildException(String.format(
+                      "failed to instantiate class \"%s\"", this.encodingRegistryClassName), e);
+                }
+            }
+
+            // Set up database
+            final Database db = new Database(new MemoryKVDatabase());
+            db.setEncodingRegistry(encodingRegistry);
+
+            // Set up config
+            final PermazenConfig config = PermazenConfig.builder()
+              .database(db)
+              .modelClasses(modelClasses)
+              .build();
+
+            // Perform task
+            this.execute(config);
+        } finally {
+            loader.resetThreadContextLoader();
+            loader.cleanup();
+        }
+    }
+
+    /**
+     * Verify task-specific attributes prior to execution.
+     *
+     * <p>
+     * The implementation in {@link AbstractSchemaTask} does nothing.
+     *
+     * @throws BuildException if an attribute is missing or invalid
+     */
+    protected void checkAttributes() {
+    }
+
+    /**
+     * Perform this task.
+     *
+     * <p>
+     * This method is invoked with the configured classpath installed as the thread context loader.
+     *
+     * @param config configuration containing the model classes found and an in-memory {@link Database}
+     * @throws BuildException if operation fails
+     */
+    protected abstract void execute(PermazenConfig config);
+
+    protected void flog(String format, Object... args) {
+        this.log(String.format(format, args));
+    }
+}
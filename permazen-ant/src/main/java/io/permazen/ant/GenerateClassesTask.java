@@ -0,0 +1,114 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.ant;
+
+import io.permazen.Permazen;
+import io.permazen.PermazenConfig;
+import io.permazen.annotation.PermazenType;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.tools.ant.BuildException;
+
+/**
+ * Ant task that generates, at build time, the Java subclasses Permazen would otherwise generate at runtime.
+ *
+ * <p>
+ * This task scans the configured classpath for classes with {@link PermazenType &#64;PermazenType} annotations,
+ * generates their Permazen subclasses, and writes the resulting class files, plus an index resource used to locate
+ * and verify them, into the specified directory, which would normally be the class output directory for the
+ * model classes. At runtime, {@link Permazen} loads these classes instead of generating them, which reduces
+ * startup time. Generated classes that no longer match their model classes are ignored at runtime.
+ * See {@link Permazen#writeGeneratedClasses Permazen.writeGeneratedClasses()} for details.
+ *
+ * <p>
+ * The following attributes are supported by this task:
+ *
+ * <div style="margin-left: 20px;">
+ * <table class="striped">
+ * <caption>Supported Tasks</caption>
+ * <tr style="bgcolor:#ccffcc">
+ *  <th style="font-weight: bold; text-align: left">Attribute</th>
+ *  <th style="font-weight: bold; text-align: left">Required?</th>
+ *  <th style="font-weight: bold; text-align: left">Description</th>
+ * </tr>
+ * <tr>
+ *  <td>{@code dir}</td>
+ *  <td>Yes</td>
+ *  <td>
+ *      <p>
+ *      The directory into which generated classes are written.
+ *      </p>
+ * </td>
+ * </tr>
+ * <tr>
+ *  <td>{@code classpath} or {@code classpathref}, {@code packages}, {@code classes}, {@code encodingRegistryClass}</td>
+ *  <td>&nbsp;</td>
+ *  <td>
+ *      <p>
+ *      Same as for {@link SchemaGeneratorTask}.
+ *      </p>
+ * </td>
+ * </tr>
+ * </table>
+ * </div>
+ *
+ * <p>
+ * To install this task into ant:
+ *
+ * <pre><code class="language-xml">
+ *  &lt;project xmlns:permazen="urn:io.permazen.ant" ... &gt;
+ *      ...
+ *      &lt;taskdef uri="urn:io.permazen.ant" name="generate-classes"
+ *        classname="io.permazen.ant.GenerateClassesTask" classpathref="permazen.classpath"/&gt;
+ * </code></pre>
+ *
+ * <p>
+ * Example of generating classes into the class output directory:
+ *
+ * <pre><code class="language-xml">
+ *  &lt;permazen:generate-classes classpathref="myclasses.classpath"
+ *    dir="build/classes" packages="com.example.model"/&gt;
+ * </code></pre>
+ *
+ * @see Permazen#writeGeneratedClasses
+ */
+public class GenerateClassesTask extends AbstractSchemaTask {
+
+    private File dir;
+
+    public void setDir(File dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    protected void checkAttributes() {
+        if (this.dir == null)
+            throw new BuildException("\"dir\" attribute is required specifying output directory");
+    }
+
+    @Override
+    protected void execute(PermazenConfig config) {
+
+        // Build Permazen
+        this.log("generating Permazen classes from schema classes");
+        final Permazen pdb;
+        try {
+            pdb = config.newPermazen();
+        } catch (Exception e) {
+            throw new BuildException(String.format("schema generation failed: %s", e), e);
+        }
+
+        // Write classes
+        this.flog("writing generated Permazen classes to \"%s\"", this.dir);
+        try {
+            pdb.writeGeneratedClasses(this.dir.toPath());
+        } catch (IOException e) {
+            throw new BuildException(String.format("error writing generated classes to \"%s\": %s", this.dir, e), e);
+        }
+    }
+}
@@ -13,10 +13,8 @@ import io.permazen.core.Database;
 import io.permazen.core.TransactionConfig;
 import io.permazen.encoding.DefaultEncodingRegistry;
 import io.permazen.encoding.EncodingRegistry;
-import io.permazen.kv.simple.MemoryKVDatabase;
 import io.permazen.schema.SchemaId;
 import io.permazen.schema.SchemaModel;
-import io.permazen.spring.PermazenClassScanner;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -25,17 +23,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 
-import org.apache.tools.ant.AntClassLoader;
 import org.apache.tools.ant.BuildException;
-import org.apache.tools.ant.Task;
 import org.apache.tools.ant.types.FileSet;
-import org.apache.tools.ant.types.Path;
-import org.apache.tools.ant.types.Reference;
 import org.apache.tools.ant.types.Resource;
 
 /**
@@ -173,7 +164,7 @@ import org.apache.tools.ant.types.Resource;
  * </td>
  * </tr>
  * <tr>
- *  <td>{@code encodingRegistry}</td>
+ *  <td>{@code encodingRegistryClass}</td>
  *  <td>No</td>
  *  <td>
  *      <p>
@@ -233,7 +224,7 @@ import org.apache.tools.ant.types.Resource;
  * @see Permazen
  * @see SchemaModel
  */
-public class SchemaGeneratorTask extends Task {
+public class SchemaGeneratorTask extends AbstractSchemaTask {
 
     public static final String MODE_VERIFY = "verify";
     public static final String MODE_GENERATE = "generate";
@@ -244,19 +235,10 @@ public class SchemaGeneratorTask extends Task {
     private String verifiedProperty;
     private String schemaIdProperty;
     private File file;
-    private Path classPath;
-    private String encodingRegistryClassName;
     private final ArrayList<FileSet> oldSchemasList = new ArrayList<>();
-    private final LinkedHashSet<String> classes = new LinkedHashSet<>();
-    private final LinkedHashSet<String> packages = new LinkedHashSet<>();
 
-    public void setClasses(String classes) {
-        this.classes.addAll(Arrays.asList(classes.split("[\\s,]+")));
-    }
-
-    public void setPackages(String packages) {
-        this.packages.addAll(Arrays.asList(packages.split("[\\s,]+")));
-    }
+    private boolean generate;
+    private boolean verify;
 
     public void setMode(String mode) {
         this.mode = mode;
@@ -278,225 +260,123 @@ public class SchemaGeneratorTask extends Task {
         this.file = file;
     }
 
-    public Path createClasspath() {
-        this.classPath = new Path(this.getProject());
-        return this.classPath;
-    }
-
-    public void setClasspath(Path classPath) {
-        this.classPath = classPath;
-    }
-
-    public void setClasspathRef(Reference ref) {
-        this.classPath = (Path)ref.getReferencedObject(this.getProject());
-    }
-
-    public void setEncodingRegistryClass(String encodingRegistryClassName) {
-        this.encodingRegistryClassName = encodingRegistryClassName;
-    }
-
     public void addOldSchemas(FileSet oldSchemas) {
         this.oldSchemasList.add(oldSchemas);
     }
 
-    /**
-     * @throws BuildException if operation fails
-     */
     @Override
-    public void execute() {
-
-        // Sanity check
+    protected void checkAttributes() {
         if (this.file == null)
             throw new BuildException("\"file\" attribute is required specifying output/verify file");
-        boolean generate = false;
-        boolean verify = false;
+        this.generate = false;
+        this.verify = false;
         switch (this.mode) {
         case MODE_VERIFY:
-            verify = true;
+            this.verify = true;
             break;
         case MODE_GENERATE:
-            generate = true;
+            this.generate = true;
             break;
         case MODE_GENERATE_AND_VERIFY:
-            generate = true;
-            verify = true;
+            this.generate = true;
+            this.verify = true;
             break;
         default:
             throw new BuildException(String.format(
               "\"mode\" attribute must be one of \"%s\", or \"%s\", or \"%s\"",
               MODE_VERIFY, MODE_GENERATE, MODE_GENERATE_AND_VERIFY));
         }
-        if (this.classPath == null)
-            throw new BuildException("\"classpath\" attribute is required specifying search path for scanned classes");
 
         // Create directory containing file
-        if (generate && this.file.getParent() != null && !this.file.getParentFile().exists() && !this.file.getParentFile().mkdirs())
+        if (this.generate && this.file.getParent() != null
+          && !this.file.getParentFile().exists() && !this.file.getParentFile().mkdirs())
             throw new BuildException(String.format("error creating directory \"%s\"", this.file.getParentFile()));
+    }
 
-        // Set up mysterious classloader stuff
-        final AntClassLoader loader = this.getProject().createClassLoader(this.classPath);
-        final ClassLoader currentLoader = this.getClass().getClassLoader();
-        if (currentLoader != null)
-            loader.setParent(currentLoader);
-        loader.setThreadContextLoader();
-        try {
-
-            // Model classes
-            final HashSet<Class<?>> modelClasses = new HashSet<>();
-
-            // Do package scanning
-            if (!this.packages.isEmpty()) {
-
-                // Join list
-                final StringBuilder buf = new StringBuilder();
-                for (String packageName : this.packages) {
-                    if (buf.length() > 0)
-                        buf.append(' ');
-                    buf.append(packageName);
-                }
-                final String packageNames = buf.toString();
-
-                // Scan for @PermazenType classes
-                this.flog("scanning for @PermazenType annotations in packages: %s", packageNames);
-                for (String className : new PermazenClassScanner().scanForClasses(packageNames)) {
-                    this.flog("adding Permazen model class %s", className);
-                    try {
-                        modelClasses.add(Class.forName(className, false, Thread.currentThread().getContextClassLoader()));
-                    } catch (ClassNotFoundException e) {
-                        throw new BuildException(String.format("failed to load class \"%s\"", className), e);
-                    }
-                }
-            }
-
-            // Do specific class scanning
-            for (String className : this.classes) {
-
-                // Load class
-                final Class<?> cl;
-                try {
-                    cl = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
-                } catch (ClassNotFoundException e) {
-                    throw new BuildException(String.format("failed to load class \"%s\"", className), e);
-                }
-
-                // Add model classes
-                if (cl.isAnnotationPresent(PermazenType.class)) {
-                    this.flog("adding Permazen model %s", cl);
-                    modelClasses.add(cl);
-                }
-            }
-
-            // Instantiate EncodingRegistry
-            EncodingRegistry encodingRegistry = null;
-            if (this.encodingRegistryClassName != null) {
-                try {
-                    encodingRegistry = Class.forName(this.encodingRegistryClassName,
-                       false, Thread.currentThread().getContextClassLoader())
-                      .asSubclass(EncodingRegistry.class).getConstructor().newInstance();
-                } catch (Exception e) {
-                    throw new BuildException(String.format(
-                      "failed to instantiate class \"%s\"", this.encodingRegistryClassName), e);
-                }
-            }
-
-            // Set up database
-            final Database db = new Database(new MemoryKVDatabase());
-            db.setEncodingRegistry(encodingRegistry);
-
-            // Set up config
-            final PermazenConfig config = PermazenConfig.builder()
-              .database(db)
-              .modelClasses(modelClasses)
-              .build();
-
-            // Build schema model
-            this.log("generating Permazen schema from schema classes");
-            final SchemaModel schemaModel;
-            try {
-                schemaModel = config.newPermazen().getSchemaModel(false);
-            } catch (Exception e) {
-                throw new BuildException(String.format("schema generation failed: %s", e), e);
-            }
-            final SchemaId schemaId = schemaModel.getSchemaId();
-            this.flog("schema ID is \"%s\"", schemaId);
-
-            // Parse verification file
-            SchemaModel verifyModel = null;
-            if (verify)  {
+    @Override
+    protected void execute(PermazenConfig config) {
 
-                // Read file
-                this.flog("reading Permazen verification file \"%s\"", this.file);
-                try (BufferedInputStream input = new BufferedInputStream(new FileInputStream(this.file))) {
-                    verifyModel = SchemaModel.fromXML(input);
-                } catch (IOException e) {
-                    throw new BuildException(String.format("error reading schema from \"%s\": %s", this.file, e), e);
-                }
+        // Build schema model
+        this.log("generating Permazen schema from schema classes");
+        final SchemaModel schemaModel;
+        try {
+            schemaModel = config.newPermazen().getSchemaModel(false);
+        } catch (Exception e) {
+            throw new BuildException(String.format("schema generation failed: %s", e), e);
+        }
+        final SchemaId schemaId = schemaModel.getSchemaId();
+        this.flog("schema ID is \"%s\"", schemaId);
+
+        // Parse verification file
+        SchemaModel verifyModel = null;
+        if (this.verify)  {
+
+            // Read file
+            this.flog("reading Permazen verification file \"%s\"", this.file);
+            try (BufferedInputStream input = new BufferedInputStream(new FileInputStream(this.file))) {
+                verifyModel = SchemaModel.fromXML(input);
+            } catch (IOException e) {
+                throw new BuildException(String.format("error reading schema from \"%s\": %s", this.file, e), e);
             }
+        }
 
-            // Generate new file
-            if (generate) {
-                this.flog("writing generated Permazen schema to \"%s\"", this.file);
-                try (BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(this.file))) {
-                    schemaModel.toXML(output, false, true);
-                } catch (IOException e) {
-                    throw new BuildException(String.format("error writing schema to \"%s\": %s", this.file, e), e);
-                }
+        // Generate new file
+        if (this.generate) {
+            this.flog("writing generated Permazen schema to \"%s\"", this.file);
+            try (BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(this.file))) {
+                schemaModel.toXML(output, false, true);
+            } catch (IOException e) {
+                throw new BuildException(String.format("error writing schema to \"%s\": %s", this.file, e), e);
             }
+        }
 
-            // Compare
-            boolean verified = true;
-            if (verify) {
-                final boolean matched = schemaModel.equals(verifyModel);
-                if (!matched)
-                    verified = false;
-                this.flog("schema verification %s", matched ? "succeeded" : "failed");
-                if (!matched)
-                    this.log(schemaModel.differencesFrom(verifyModel).toString());
-            }
+        // Compare
+        boolean verified = true;
+        if (this.verify) {
+            final boolean matched = schemaModel.equals(verifyModel);
+            if (!matched)
+                verified = false;
+            this.flog("schema verification %s", matched ? "succeeded" : "failed");
+            if (!matched)
+                this.log(schemaModel.differencesFrom(verifyModel).toString());
+        }
 
-            // Check for conflicts with other schema versions
-            if (verify && verified) {
-                for (FileSet oldSchemas : this.oldSchemasList) {
-                    for (Iterator<?> i = oldSchemas.iterator(); i.hasNext(); ) {
-                        final Resource resource = (Resource)i.next();
-                        this.flog("checking schema for conflicts with %s", resource);
-                        final SchemaModel otherSchema;
-                        try (BufferedInputStream input = new BufferedInputStream(resource.getInputStream())) {
-                            otherSchema = SchemaModel.fromXML(input);
-                        } catch (IOException e) {
-                            throw new BuildException(String.format("error reading schema from \"%s\": %s", resource, e), e);
-                        }
-                        final TransactionConfig txConfig = TransactionConfig.builder()
-                          .schemaModel(otherSchema)
-                          .build();
-                        try {
-                            db.createTransaction(txConfig).commit();
-                        } catch (Exception e) {
-                            this.flog("schema conflicts with %s: %s", resource, e);
-                            verified = false;
-                        }
+        // Check for conflicts with other schema versions
+        if (this.verify && verified) {
+            final Database db = config.getDatabase();
+            for (FileSet oldSchemas : this.oldSchemasList) {
+                for (Iterator<?> i = oldSchemas.iterator(); i.hasNext(); ) {
+                    final Resource resource = (Resource)i.next();
+                    this.flog("checking schema for conflicts with %s", resource);
+                    final SchemaModel otherSchema;
+                    try (BufferedInputStream input = new BufferedInputStream(resource.getInputStream())) {
+                        otherSchema = SchemaModel.fromXML(input);
+                    } catch (IOException e) {
+                        throw new BuildException(String.format("error reading schema from \"%s\": %s", resource, e), e);
+                    }
+                    final TransactionConfig txConfig = TransactionConfig.builder()
+                      .schemaModel(otherSchema)
+                      .build();
+                    try {
+                        db.createTransaction(txConfig).commit();
+                    } catch (Exception e) {
+                        this.flog("schema conflicts with %s: %s", resource, e);
+                        verified = false;
                     }
                 }
             }
+        }
 
-            // Set verified property
-            if (verify && this.verifiedProperty != null)
-                this.getProject().setProperty(this.verifiedProperty, "" + verified);
-
-            // Set auto-generated schema version property
-            if (this.schemaIdProperty != null)
-                this.getProject().setProperty(this.schemaIdProperty, "" + schemaId);
+        // Set verified property
+        if (this.verify && this.verifiedProperty != null)
+            this.getProject().setProperty(this.verifiedProperty, "" + verified);
 
-            // Check verification results
-            if (verify && !verified && this.failOnError)
-                throw new BuildException("schema verification failed");
-        } finally {
-            loader.resetThreadContextLoader();
-            loader.cleanup();
-        }
-    }
+        // Set auto-generated schema version property
+        if (this.schemaIdProperty != null)
+            this.getProject().setProperty(this.schemaIdProperty, "" + schemaId);
 
-    private void flog(String format, Object... args) {
-        this.log(String.format(format, args));
+        // Check verification results
+        if (this.verify && !verified && this.failOnError)
+            throw new BuildException("schema verification failed");
     }
 }
@@ -8,6 +8,11 @@ package io.permazen.cli.cmd;
 import io.permazen.ValidationMode;
 import io.permazen.cli.Session;
 import io.permazen.cli.SessionMode;
+import io.permazen.core.Index;
+import io.permazen.core.IndexStatistics;
+import io.permazen.core.ObjType;
+import io.permazen.core.SimpleField;
+import io.permazen.core.Transaction;
 import io.permazen.encoding.EncodingRegistry;
 import io.permazen.schema.SchemaId;
 import io.permazen.schema.SchemaModel;
@@ -15,11 +20,12 @@ import io.permazen.schema.SchemaModel;
 import java.io.PrintStream;
 import java.util.EnumSet;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class InfoCommand extends AbstractCommand implements Session.Action {
 
     public InfoCommand() {
-        super("info");
+        super("info -i:indexes -u:update");
     }
 
     @Override
@@ -27,9 +33,23 @@ public class InfoCommand extends AbstractCommand implements Session.Action {
         return "Shows general information about the CLI database";
     }
 
+    @Override
+    public String getHelpDetail() {
+        return "Shows general information about the CLI database.\n"
+          + "\n"
+          + "The \"-i\" flag also shows the most recently gathered statistics for each index in the current schema.\n"
+          + "The \"-u\" flag first gathers and records fresh statistics for every index, which requires a full scan\n"
+          + "of each index; it implies \"-i\".";
+    }
+
     @Override
     public Session.Action getAction(Session session, Map<String, Object> params) {
-        return this;
+        final boolean update = params.containsKey("update");
+        if (!update && !params.containsKey("indexes"))
+            return this;
+        if (session.getMode().equals(SessionMode.KEY_VALUE))
+            throw new IllegalArgumentException("index statistics are not available in " + SessionMode.KEY_VALUE + " mode");
+        return new IndexStatisticsAction(update);
     }
 
     @Override
@@ -71,6 +91,33 @@ public class InfoCommand extends AbstractCommand implements Session.Action {
         }
     }
 
+    static void printIndexStatistics(PrintStream writer, Transaction tx) {
+
+        // Gather indexes in the current schema
+        final TreeMap<Integer, Index> indexes = new TreeMap<>();
+        for (ObjType objType : tx.getSchema().getObjTypes().values()) {
+            objType.getFieldsAndSubFields().values().stream()
+              .filter(SimpleField.class::isInstance)
+              .map(field -> (SimpleField<?>)field)
+              .filter(SimpleField::isIndexed)
+              .forEach(field -> indexes.putIfAbsent(field.getStorageId(), field.getIndex()));
+            objType.getCompositeIndexes().values()
+              .forEach(index -> indexes.putIfAbsent(index.getStorageId(), index));
+        }
+
+        // Show statistics
+        writer.println("  Index Statistics:");
+        if (indexes.isEmpty())
+            writer.println("    None");
+        for (Index index : indexes.values()) {
+            final IndexStatistics statistics = index.getStatistics(tx);
+            writer.println(String.format("    %s (storage ID %d): %s", index, index.getStorageId(), statistics != null ?
+              String.format("%d entries, %d distinct values, %d histogram buckets",
+                statistics.getEntryCount(), statistics.getDistinctValueCount(), statistics.getHistogram().size()) :
+              "Not gathered"));
+        }
+    }
+
     static SchemaId getSchemaId(Session session) {
         final SchemaModel schemaModel = InfoCommand.getSchemaModel(session);
         return schemaModel != null ? schemaModel.getSchemaId() : null;
@@ -82,4 +129,24 @@ public class InfoCommand extends AbstractCommand implements Session.Action {
             schemaModel = session.getPermazen().getSchemaModel();
         return schemaModel;
     }
+
+// IndexStatisticsAction
+
+    private class IndexStatisticsAction implements Session.RetryableTransactionalAction {
+
+        private final boolean update;
+
+        IndexStatisticsAction(boolean update) {
+            this.update = update;
+        }
+
+        @Override
+        public void run(Session session) throws Exception {
+            InfoCommand.this.run(session);
+            final Transaction tx = session.getTransaction();
+            if (this.update)
+                tx.updateIndexStatistics();
+            InfoCommand.printIndexStatistics(session.getOutput(), tx);
+        }
+    }
 }
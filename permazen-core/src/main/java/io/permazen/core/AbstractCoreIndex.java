@@ -10,19 +10,36 @@ import com.google.common.base.Preconditions;
 import io.permazen.core.util.CoreUtil;
 import io.permazen.encoding.Encoding;
 import io.permazen.index.Index;
+import io.permazen.kv.KVPair;
+import io.permazen.kv.KVPairIterator;
 import io.permazen.kv.KVStore;
 import io.permazen.kv.KeyFilter;
 import io.permazen.kv.KeyRange;
 import io.permazen.kv.KeyRanges;
 import io.permazen.util.Bounds;
+import io.permazen.util.ByteData;
+import io.permazen.util.ByteUtil;
+import io.permazen.util.CloseableIterator;
+import io.permazen.util.ImmutableNavigableMap;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Support superclass for the various core index classes.
  *
  * <p>
+ * The aggregation methods ({@link #count()}, and the {@code countBy*()} methods of subclasses) scan the encoded
+ * index keys directly: only the indexed values that form each group are decoded, and only once per group; target
+ * values are never decoded. Each also has a parallel variant, which splits the index into sub-ranges based on the
+ * first byte of the first indexed value and scans them concurrently; this requires that the underlying
+ * {@link KVStore} support concurrent access, which is true of most implementations.
+ *
+ * <p>
  * Instances are immutable.
  *
  * @param <T> index target type
@@ -67,8 +84,121 @@ public abstract class AbstractCoreIndex<T> implements Index<T> {
      */
     public abstract AbstractCoreIndex<T> filter(int index, KeyFilter keyFilter);
 
+    @Override
+    public long count() {
+        return this.count(false);
+    }
+
+    /**
+     * Count the number of entries in this index, optionally scanning the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return number of index entries
+     * @see #count()
+     */
+    public long count(boolean parallel) {
+        return this.scan(0, parallel).counts.stream().mapToLong(Long::longValue).sum();
+    }
+
 // Package Methods
 
+    /**
+     * Count the index entries in this instance, grouped by the distinct values of the first {@code numValues} indexed values.
+     *
+     * @param keyEncoding encoding for the first {@code numValues} indexed values
+     * @param numValues number of indexed values in each group
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from group to number of index entries
+     */
+    @SuppressWarnings("unchecked")
+    <K> NavigableMap<K, Long> countBy(Encoding<K> keyEncoding, int numValues, boolean parallel) {
+        assert numValues > 0 && numValues < this.indexView.encodings.length;
+        final Counts counts = this.scan(numValues, parallel);
+        final int size = counts.groups.size();
+        final K[] keys = (K[])new Object[size];
+        final Long[] values = counts.counts.toArray(new Long[size]);
+        final int prefixLength = this.indexView.prefix.size();
+        for (int i = 0; i < size; i++) {
+            final ByteData.Reader reader = counts.groups.get(i).newReader(prefixLength);
+            keys[i] = keyEncoding.read(reader);
+        }
+        return new ImmutableNavigableMap<>(keys, values, keyEncoding);
+    }
+
+    // Scan index entries, grouping them by their first "numValues" encoded values
+    private Counts scan(int numValues, boolean parallel) {
+        final ByteData prefix = this.indexView.prefix;
+        final KeyFilter keyFilter = this.indexView.hasFilters() ?
+          new IndexKeyFilter(this.kv, this.indexView, this.indexView.encodings.length) : null;
+        if (!parallel)
+            return this.scan(KeyRange.forPrefix(prefix), keyFilter, numValues);
+
+        // Every index entry has at least one byte following the prefix, and groups never span sub-ranges
+        final List<Counts> results = IntStream.range(0, 0x100)
+          .parallel()
+          .mapToObj(b -> this.scan(KeyRange.forPrefix(prefix.concat(ByteData.of(b))), keyFilter, numValues))
+          .collect(Collectors.toList());
+        final Counts counts = new Counts();
+        results.forEach(counts::addAll);
+        return counts;
+    }
+
+    private Counts scan(KeyRange range, KeyFilter keyFilter, int numValues) {
+        final ByteData prefix = this.indexView.prefix;
+        final Encoding<?>[] encodings = this.indexView.encodings;
+        final boolean prefixMode = this.indexView.prefixMode;
+        final Counts counts = new Counts();
+        final KVPairIterator seekable = prefixMode || keyFilter != null ?
+          new KVPairIterator(this.kv, range, keyFilter, false) : null;
+        try (CloseableIterator<KVPair> i = seekable != null ? seekable : this.kv.getRange(range)) {
+            while (i.hasNext()) {
+                final ByteData key = i.next().getKey();
+
+                // Find the end of the group and the end of the index entry (which may be followed by more data in prefix mode)
+                final ByteData.Reader reader = key.newReader(prefix.size());
+                for (int j = 0; j < numValues; j++)
+                    encodings[j].skip(reader);
+                final int groupLength = reader.getOffset();
+                for (int j = numValues; j < encodings.length; j++)
+                    encodings[j].skip(reader);
+
+                // Update counts
+                counts.add(key.substring(0, groupLength));
+
+                // In prefix mode, skip over the remainder of this index entry
+                if (prefixMode)
+                    seekable.setNextTarget(ByteUtil.getKeyAfterPrefix(reader.dataReadSoFar()));
+            }
+        }
+        return counts;
+    }
+
+    // Group counts in key order
+    private static final class Counts {
+
+        final ArrayList<ByteData> groups = new ArrayList<>();
+        final ArrayList<Long> counts = new ArrayList<>();
+
+        void add(ByteData group) {
+            this.add(group, 1);
+        }
+
+        void add(ByteData group, long count) {
+            final int last = this.groups.size() - 1;
+            if (last >= 0 && this.groups.get(last).equals(group))
+                this.counts.set(last, this.counts.get(last) + count);
+            else {
+                this.groups.add(group);
+                this.counts.add(count);
+            }
+        }
+
+        void addAll(Counts that) {
+            for (int i = 0; i < that.groups.size(); i++)
+                this.add(that.groups.get(i), that.counts.get(i));
+        }
+    }
+
     /**
      * Get a view of this index with the specified value restricted using the given bounds.
      *
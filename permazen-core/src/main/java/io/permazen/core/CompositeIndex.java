@@ -6,21 +6,95 @@
 package io.permazen.core;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 import io.permazen.encoding.Encoding;
+import io.permazen.encoding.Tuple3Encoding;
+import io.permazen.encoding.Tuple4Encoding;
+import io.permazen.encoding.Tuple5Encoding;
 import io.permazen.schema.SchemaCompositeIndex;
+import io.permazen.tuple.Tuple;
+import io.permazen.util.ByteData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A composite index on two or more fields in an {@link ObjType}.
+ *
+ * <p>
+ * A composite index may also have {@linkplain #getIncludedFields included fields}, whose values are stored
+ * in each index entry; see {@link Transaction#queryCompositeIndexIncludedValues}.
  */
 public class CompositeIndex extends Index {
 
+    final List<SimpleField<?>> includedFields;
+    final List<Encoding<?>> includedEncodings;
+
 // Constructor
 
-    CompositeIndex(Schema schema, SchemaCompositeIndex index, ObjType objType, Iterable<? extends SimpleField<?>> fields) {
+    CompositeIndex(Schema schema, SchemaCompositeIndex index, ObjType objType,
+      Iterable<? extends SimpleField<?>> fields, Iterable<? extends SimpleField<?>> includedFields) {
         super(schema, index, index.getName(), objType, fields);
         assert this.fields.size() >= 2;
         assert this.fields.stream().noneMatch(field -> field.parent != null);
+        this.includedFields = Collections.unmodifiableList(Lists.newArrayList(includedFields));
+        assert this.includedFields.stream().noneMatch(field -> field.parent != null || this.fields.contains(field));
+        final ArrayList<Encoding<?>> encodingList = new ArrayList<>(this.includedFields.size());
+        for (SimpleField<?> field : this.includedFields)
+            encodingList.add(Index.genericize(field.getEncoding()));
+        this.includedEncodings = Collections.unmodifiableList(encodingList);
+    }
+
+// Public methods
+
+    /**
+     * Get the included fields, if any.
+     *
+     * <p>
+     * The values of included fields are not part of the index key; instead, they are stored in each index entry,
+     * so they can be read directly from the index without accessing the indexed object.
+     *
+     * @return list of included fields, possibly empty
+     */
+    public List<SimpleField<?>> getIncludedFields() {
+        return this.includedFields;
+    }
+
+    /**
+     * View the index entries in this index along with their {@linkplain #getIncludedFields included field} values.
+     *
+     * @param tx transaction
+     * @return view of this index's entries and included values in {@code tx}
+     * @throws IllegalArgumentException if {@code tx} is null
+     * @see Transaction#queryCompositeIndexIncludedValues Transaction.queryCompositeIndexIncludedValues()
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public IncludedValuesMap getIncludedValues(Transaction tx) {
+        Preconditions.checkArgument(tx != null, "null tx");
+        final Encoding<?>[] keyEncodings = new Encoding<?>[this.encodings.size() + 1];
+        this.encodings.toArray(keyEncodings);
+        keyEncodings[keyEncodings.length - 1] = Encodings.OBJ_ID;
+        final Encoding<? extends Tuple> keyEncoding;
+        switch (keyEncodings.length) {
+        case 3:
+            keyEncoding = new Tuple3Encoding(keyEncodings[0], keyEncodings[1], keyEncodings[2]);
+            break;
+        case 4:
+            keyEncoding = new Tuple4Encoding(keyEncodings[0], keyEncodings[1], keyEncodings[2], keyEncodings[3]);
+            break;
+        case 5:
+            keyEncoding = new Tuple5Encoding(keyEncodings[0], keyEncodings[1], keyEncodings[2], keyEncodings[3], keyEncodings[4]);
+            break;
+        // COMPOSITE-INDEX
+        default:
+            throw new RuntimeException("internal error");
+        }
+        final ByteData.Writer writer = ByteData.newWriter();
+        Encodings.UNSIGNED_INT.write(writer, this.storageId);
+        return new IncludedValuesMap(tx.kvt,
+          (Encoding<Tuple>)keyEncoding, writer.toByteData(), keyEncodings, this.includedEncodings);
     }
 
 // IndexSwitch
@@ -40,6 +114,24 @@ public class CompositeIndex extends Index {
 
 // Package Methods
 
+    /**
+     * Build the value of the index entry for the given object, which encodes its included field values.
+     *
+     * @param tx transaction containing the object, or null to use default values
+     * @param id object ID
+     * @return index entry value (empty if this index has no included fields)
+     */
+    ByteData buildIncludedValue(Transaction tx, ObjId id) {
+        if (this.includedFields.isEmpty())
+            return ByteData.empty();
+        final ByteData.Writer writer = ByteData.newWriter();
+        for (SimpleField<?> field : this.includedFields) {
+            final ByteData value = tx != null ? tx.kvt.get(field.buildKey(id)) : null;     // can be null (default value)
+            writer.write(value != null ? value : field.encoding.getDefaultValueBytes());
+        }
+        return writer.toByteData();
+    }
+
     @Override
     public AbstractCoreIndex<ObjId> getIndex(Transaction tx) {
         switch (this.encodings.size()) {
@@ -79,6 +79,23 @@ public class CoreIndex1<V, T> extends AbstractCoreIndex<T> implements Index1<V,
         return indexMap;
     }
 
+    @Override
+    public NavigableMap<V, Long> countByValue() {
+        return this.countByValue(false);
+    }
+
+    /**
+     * Count the number of entries in this index having each distinct indexed value, optionally scanning
+     * the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from indexed value to number of index entries
+     * @see #countByValue()
+     */
+    public NavigableMap<V, Long> countByValue(boolean parallel) {
+        return this.countBy(this.getIndex1View().getValueEncoding(), 1, parallel);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public CoreIndex1<V, T> withValueBounds(Bounds<V> bounds) {
@@ -5,6 +5,7 @@
 
 package io.permazen.core;
 
+import io.permazen.encoding.Tuple2Encoding;
 import io.permazen.encoding.Tuple3Encoding;
 import io.permazen.index.Index1;
 import io.permazen.index.Index2;
@@ -86,6 +87,41 @@ public class CoreIndex2<V1, V2, T> extends AbstractCoreIndex<T> implements Index
         return indexMap;
     }
 
+    @Override
+    public NavigableMap<Tuple2<V1, V2>, Long> countByValues() {
+        return this.countByValues(false);
+    }
+
+    /**
+     * Count the number of entries in this index having each distinct indexed value tuple, optionally scanning
+     * the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from indexed value tuple to number of index entries
+     * @see #countByValues()
+     */
+    public NavigableMap<Tuple2<V1, V2>, Long> countByValues(boolean parallel) {
+        final Index2View<V1, V2, T> iv = this.getIndex2View();
+        return this.countBy(new Tuple2Encoding<>(iv.getValue1Encoding(), iv.getValue2Encoding()), 2, parallel);
+    }
+
+    @Override
+    public NavigableMap<V1, Long> countByValue1() {
+        return this.countByValue1(false);
+    }
+
+    /**
+     * Count the number of entries in this index having each distinct first value, optionally scanning
+     * the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from first value to number of index entries
+     * @see #countByValue1()
+     */
+    public NavigableMap<V1, Long> countByValue1(boolean parallel) {
+        return this.countBy(this.getIndex2View().getValue1Encoding(), 1, parallel);
+    }
+
     @Override
     public NavigableMap<V1, Index1<V2, T>> asMapOfIndex1() {
 
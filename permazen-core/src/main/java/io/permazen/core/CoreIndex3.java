@@ -5,6 +5,7 @@
 
 package io.permazen.core;
 
+import io.permazen.encoding.Tuple3Encoding;
 import io.permazen.encoding.Tuple4Encoding;
 import io.permazen.index.Index1;
 import io.permazen.index.Index2;
@@ -90,6 +91,42 @@ public class CoreIndex3<V1, V2, V3, T> extends AbstractCoreIndex<T> implements I
         return indexMap;
     }
 
+    @Override
+    public NavigableMap<Tuple3<V1, V2, V3>, Long> countByValues() {
+        return this.countByValues(false);
+    }
+
+    /**
+     * Count the number of entries in this index having each distinct indexed value tuple, optionally scanning
+     * the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from indexed value tuple to number of index entries
+     * @see #countByValues()
+     */
+    public NavigableMap<Tuple3<V1, V2, V3>, Long> countByValues(boolean parallel) {
+        final Index3View<V1, V2, V3, T> iv = this.getIndex3View();
+        return this.countBy(new Tuple3Encoding<>(iv.getValue1Encoding(), iv.getValue2Encoding(), iv.getValue3Encoding()),
+          3, parallel);
+    }
+
+    @Override
+    public NavigableMap<V1, Long> countByValue1() {
+        return this.countByValue1(false);
+    }
+
+    /**
+     * Count the number of entries in this index having each distinct first value, optionally scanning
+     * the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from first value to number of index entries
+     * @see #countByValue1()
+     */
+    public NavigableMap<V1, Long> countByValue1(boolean parallel) {
+        return this.countBy(this.getIndex3View().getValue1Encoding(), 1, parallel);
+    }
+
     @Override
     public NavigableMap<Tuple2<V1, V2>, Index1<V3, T>> asMapOfIndex1() {
 
@@ -5,6 +5,7 @@
 
 package io.permazen.core;
 
+import io.permazen.encoding.Tuple4Encoding;
 import io.permazen.encoding.Tuple5Encoding;
 import io.permazen.index.Index1;
 import io.permazen.index.Index2;
@@ -94,6 +95,42 @@ public class CoreIndex4<V1, V2, V3, V4, T> extends AbstractCoreIndex<T> implemen
         return indexMap;
     }
 
+    @Override
+    public NavigableMap<Tuple4<V1, V2, V3, V4>, Long> countByValues() {
+        return this.countByValues(false);
+    }
+
+    /**
+     * Count the number of entries in this index having each distinct indexed value tuple, optionally scanning
+     * the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from indexed value tuple to number of index entries
+     * @see #countByValues()
+     */
+    public NavigableMap<Tuple4<V1, V2, V3, V4>, Long> countByValues(boolean parallel) {
+        final Index4View<V1, V2, V3, V4, T> iv = this.getIndex4View();
+        return this.countBy(new Tuple4Encoding<>(iv.getValue1Encoding(), iv.getValue2Encoding(),
+          iv.getValue3Encoding(), iv.getValue4Encoding()), 4, parallel);
+    }
+
+    @Override
+    public NavigableMap<V1, Long> countByValue1() {
+        return this.countByValue1(false);
+    }
+
+    /**
+     * Count the number of entries in this index having each distinct first value, optionally scanning
+     * the index in parallel.
+     *
+     * @param parallel true to scan sub-ranges of the index in parallel
+     * @return immutable mapping from first value to number of index entries
+     * @see #countByValue1()
+     */
+    public NavigableMap<V1, Long> countByValue1(boolean parallel) {
+        return this.countBy(this.getIndex4View().getValue1Encoding(), 1, parallel);
+    }
+
     @Override
     public NavigableMap<Tuple3<V1, V2, V3>, Index1<V4, T>> asMapOfIndex1() {
 
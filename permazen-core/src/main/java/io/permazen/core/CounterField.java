@@ -6,10 +6,19 @@
 package io.permazen.core;
 
 import com.google.common.base.Preconditions;
+import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
 
 import io.permazen.core.util.ObjIdMap;
+import io.permazen.kv.KVPair;
+import io.permazen.kv.KVStore;
+import io.permazen.kv.KeyRange;
 import io.permazen.schema.CounterSchemaField;
+import io.permazen.util.ByteData;
+import io.permazen.util.CloseableIterator;
+import io.permazen.util.UnsignedIntEncoder;
+
+import java.util.ArrayList;
 
 /**
  * Counter fields.
@@ -22,11 +31,33 @@ import io.permazen.schema.CounterSchemaField;
  * <p>
  * Note: during {@link io.permazen.annotation.OnSchemaChange &#64;OnSchemaChange} notifications, counter field
  * values appear as {@code Long}s.
+ *
+ * <p><b>Aggregate Counters</b></p>
+ *
+ * <p>
+ * An aggregate counter field is maintained automatically as either the number of objects of some other type that
+ * refer to the containing object through a reference field, or the sum of an integral field in those objects.
+ * The counter is adjusted (via {@link io.permazen.kv.KVTransaction#adjustCounter adjustCounter()}) whenever such an
+ * object is created, deleted, copied, or migrated, or has its reference or summed field changed, so reading the
+ * aggregate is a single key lookup. Objects whose schema does not define the aggregate don't contribute to it;
+ * after adding an aggregate to an existing schema, use {@code jsck} to rebuild its values.
  */
 public class CounterField extends Field<Long> {
 
+    final String aggregateTypeName;
+    final String aggregateReferenceName;
+    final String aggregateSumName;
+
+    // Resolved by Schema.initialize()
+    ObjType aggregateType;
+    ReferenceField aggregateReference;
+    SimpleField<?> aggregateSum;
+
     CounterField(ObjType objType, CounterSchemaField schemaField) {
         super(objType, schemaField, TypeToken.of(Long.class));
+        this.aggregateTypeName = schemaField.getAggregateObjectType();
+        this.aggregateReferenceName = schemaField.getAggregateReference();
+        this.aggregateSumName = schemaField.getAggregateSum();
     }
 
 // Public methods
@@ -42,6 +73,79 @@ public class CounterField extends Field<Long> {
         return this.getValue(tx, id) == 0;
     }
 
+    /**
+     * Determine whether this field is an aggregate counter.
+     *
+     * @return true if this field's value is maintained automatically
+     */
+    public boolean isAggregate() {
+        return this.aggregateTypeName != null;
+    }
+
+    /**
+     * Get the object type whose instances are aggregated by this counter, if any.
+     *
+     * @return aggregated object type, or null if this is not an aggregate counter
+     */
+    public ObjType getAggregateType() {
+        return this.aggregateType;
+    }
+
+    /**
+     * Get the reference field through which aggregated objects refer to objects containing this counter, if any.
+     *
+     * @return aggregated reference field, or null if this is not an aggregate counter
+     */
+    public ReferenceField getAggregateReference() {
+        return this.aggregateReference;
+    }
+
+    /**
+     * Get the field whose values are summed by this counter, if any.
+     *
+     * @return summed field, or null if this counter counts objects or is not an aggregate counter
+     */
+    public SimpleField<?> getAggregateSum() {
+        return this.aggregateSum;
+    }
+
+    /**
+     * Compute the correct value for this aggregate counter in the given object from scratch.
+     *
+     * <p>
+     * This scans the index of the {@linkplain #getAggregateReference aggregated reference field} for referring objects
+     * of the {@linkplain #getAggregateType aggregated type}, which is useful for verifying or rebuilding the counter.
+     *
+     * @param kv key/value store
+     * @param id object containing this counter
+     * @return aggregate value
+     * @throws IllegalStateException if this is not an aggregate counter
+     * @throws IllegalArgumentException if a summed field value is invalid
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public long computeAggregate(KVStore kv, ObjId id) {
+        Preconditions.checkArgument(kv != null, "null kv");
+        Preconditions.checkArgument(id != null, "null id");
+        Preconditions.checkState(this.isAggregate(), "not an aggregate counter");
+
+        // Build index prefix for referrers
+        final ByteData.Writer writer = ByteData.newWriter();
+        UnsignedIntEncoder.write(writer, this.aggregateReference.storageId);
+        this.aggregateReference.encoding.write(writer, id);
+        final ByteData prefix = writer.toByteData();
+
+        // Scan referrers of the aggregated type
+        long total = 0;
+        try (CloseableIterator<KVPair> i = kv.getRange(KeyRange.forPrefix(prefix))) {
+            while (i.hasNext()) {
+                final ObjId referrer = new ObjId(i.next().getKey().newReader(prefix.size()));
+                if (referrer.getStorageId() == this.aggregateType.storageId)
+                    total += this.getContribution(kv, referrer);
+            }
+        }
+        return total;
+    }
+
     @Override
     public <R> R visit(FieldSwitch<R> target) {
         Preconditions.checkArgument(target != null, "null target");
@@ -55,8 +159,60 @@ public class CounterField extends Field<Long> {
 
 // Package Methods
 
+    // Aggregate counter values are derived from the referring objects in the destination transaction, so are not copied
     @Override
     void copy(ObjId srcId, ObjId dstId, Transaction srcTx, Transaction dstTx, ObjIdMap<ObjId> objectIdMap) {
+        if (this.isAggregate())
+            return;
         dstTx.writeCounterField(dstId, this.name, srcTx.readCounterField(srcId, this.name, false), false);
     }
+
+    /**
+     * Resolve the aggregated type and fields. Invoked after all object types in the schema are initialized.
+     */
+    void resolveAggregate(Schema schema) {
+        if (!this.isAggregate())
+            return;
+        this.aggregateType = schema.getObjType(this.aggregateTypeName);
+        this.aggregateReference = (ReferenceField)this.aggregateType.simpleFields.get(this.aggregateReferenceName);
+        assert this.aggregateReference != null;
+        this.linkAggregateField(this.aggregateReference);
+        if (this.aggregateSumName != null) {
+            this.aggregateSum = this.aggregateType.simpleFields.get(this.aggregateSumName);
+            assert this.aggregateSum != null;
+            final Class<?> sumType = Primitives.wrap(this.aggregateSum.getTypeToken().getRawType());
+            if (sumType != Byte.class && sumType != Short.class && sumType != Integer.class && sumType != Long.class) {
+                throw new InvalidSchemaException(String.format(
+                  "invalid %s: aggregate sum %s in %s does not have an integral type",
+                  this, this.aggregateSum, this.aggregateType));
+            }
+            this.linkAggregateField(this.aggregateSum);
+        }
+        this.aggregateType.aggregateCounters.add(this);
+    }
+
+    private void linkAggregateField(SimpleField<?> field) {
+        if (field.aggregateCounters == null)
+            field.aggregateCounters = new ArrayList<>(2);
+        field.aggregateCounters.add(this);
+    }
+
+    /**
+     * Get the amount the given aggregated object contributes to this counter.
+     */
+    long getContribution(KVStore kv, ObjId referrer) {
+        return this.aggregateSum != null ? this.decodeSum(kv.get(this.aggregateSum.buildKey(referrer))) : 1;
+    }
+
+    /**
+     * Decode an encoded value of the {@linkplain #getAggregateSum summed field}.
+     *
+     * @param value encoded value, or null for the default value
+     */
+    long decodeSum(ByteData value) {
+        assert this.aggregateSum != null;
+        final Object obj = value != null ?
+          this.aggregateSum.encoding.read(value.newReader()) : this.aggregateSum.encoding.getDefaultValue();
+        return obj != null ? ((Number)obj).longValue() : 0;
+    }
 }
@@ -341,6 +341,8 @@ public class Database {
         final ByteData schemaPrefix = Layout.getSchemaTablePrefix();
         final ByteData storageIdPrefix = Layout.getStorageIdTablePrefix();
         final ByteData endOfStorageIdTable = ByteUtil.getKeyAfterPrefix(storageIdPrefix);
+        final ByteData indexStatisticsPrefix = Layout.getIndexStatisticsPrefix();
+        final ByteData endOfIndexStatistics = ByteUtil.getKeyAfterPrefix(indexStatisticsPrefix);
         final ByteData schemaIndexPrefix = Layout.getSchemaIndexKeyPrefix();
 
         // Extract config info
@@ -462,11 +464,16 @@ public class Database {
         final EncodingRegistry txEncodingRegistry = this.getEncodingRegistry();
         final BundleState bundleState = new BundleState(txEncodingRegistry, SchemaBundle.Encoded.readFrom(kvstore));
 
-        // There should not be any meta data between the storage ID table and the object version index
-        try (CloseableIterator<KVPair> i = kvstore.getRange(endOfStorageIdTable, schemaIndexPrefix)) {
-            if (i.hasNext()) {
-                throw new InconsistentDatabaseException(String.format(
-                  "database contains unrecognized garbage at key %s", ByteUtil.toString(i.next().getKey())));
+        // There should not be any meta data between the storage ID table and the object version index,
+        // other than the index statistics table
+        for (KeyRange range : new KeyRange[] {
+          new KeyRange(endOfStorageIdTable, indexStatisticsPrefix),
+          new KeyRange(endOfIndexStatistics, schemaIndexPrefix) }) {
+            try (CloseableIterator<KVPair> i = kvstore.getRange(range)) {
+                if (i.hasNext()) {
+                    throw new InconsistentDatabaseException(String.format(
+                      "database contains unrecognized garbage at key %s", ByteUtil.toString(i.next().getKey())));
+                }
             }
         }
 
@@ -0,0 +1,129 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import com.google.common.base.Preconditions;
+
+import io.permazen.encoding.Encoding;
+import io.permazen.kv.KVPair;
+import io.permazen.kv.KVStore;
+import io.permazen.kv.KeyFilter;
+import io.permazen.kv.KeyRange;
+import io.permazen.kv.KeyRanges;
+import io.permazen.tuple.Tuple;
+import io.permazen.util.Bounds;
+import io.permazen.util.ByteData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Read-only {@link NavigableMap} view of a {@link CompositeIndex} that maps each index entry to the values of the
+ * index's {@linkplain CompositeIndex#getIncludedFields included fields}.
+ *
+ * <p>
+ * The map keys are {@link Tuple}s containing the indexed field values followed by the target object's {@link ObjId};
+ * for example, the keys of an index on two fields are {@link io.permazen.tuple.Tuple3}s. The map values are lists
+ * containing the included field values, in the order in which the fields were declared. Because the included values
+ * are read directly from the index entries, no object data is accessed.
+ *
+ * <p>
+ * Instances are immutable.
+ *
+ * @see Transaction#queryCompositeIndexIncludedValues Transaction.queryCompositeIndexIncludedValues()
+ */
+public class IncludedValuesMap extends EncodingMap<Tuple, List<Object>> {
+
+    private final Encoding<?>[] encodings;
+    private final List<Encoding<?>> includedEncodings;
+
+    // Primary constructor
+    IncludedValuesMap(KVStore kv, Encoding<Tuple> keyEncoding, ByteData prefix,
+      Encoding<?>[] encodings, List<Encoding<?>> includedEncodings) {
+        super(kv, keyEncoding, false, prefix);
+        this.encodings = encodings;
+        this.includedEncodings = includedEncodings;
+    }
+
+    // Internal constructor
+    private IncludedValuesMap(KVStore kv, Encoding<Tuple> keyEncoding, boolean reversed, ByteData prefix,
+      KeyRange keyRange, KeyFilter keyFilter, Bounds<Tuple> bounds,
+      Encoding<?>[] encodings, List<Encoding<?>> includedEncodings) {
+        super(kv, keyEncoding, false, reversed, prefix, keyRange, keyFilter, bounds);
+        this.encodings = encodings;
+        this.includedEncodings = includedEncodings;
+    }
+
+// Public methods
+
+    /**
+     * Restrict this instance to index entries whose leading indexed field values equal the given values.
+     *
+     * <p>
+     * This is more efficient than an equivalent {@link #filter filter()} because the restriction is applied
+     * to the range of keys that are scanned.
+     *
+     * @param values zero or more leading indexed field values
+     * @return restricted view of this instance
+     * @throws IllegalArgumentException if {@code values} is null
+     * @throws IllegalArgumentException if {@code values} contains too many values, or a value of the wrong type
+     */
+    public IncludedValuesMap withValues(Object... values) {
+        Preconditions.checkArgument(values != null, "null values");
+        Preconditions.checkArgument(values.length < this.encodings.length, "too many values");
+        if (values.length == 0)
+            return this;
+        final ByteData.Writer writer = ByteData.newWriter();
+        writer.write(this.prefix);
+        for (int i = 0; i < values.length; i++)
+            this.encodings[i].validateAndWrite(writer, values[i]);
+        final KeyRange range = KeyRange.forPrefix(writer.toByteData());
+        final ByteData min = KeyRange.compare(range.getMin(), this.keyRange.getMin()) > 0 ? range.getMin() : this.keyRange.getMin();
+        final ByteData max = KeyRange.compare(range.getMax(), this.keyRange.getMax()) < 0 ? range.getMax() : this.keyRange.getMax();
+        final KeyRange newKeyRange = KeyRange.compare(min, max) < 0 ? new KeyRange(min, max) : KeyRange.empty(min);
+        return this.createSubMap(this.reversed, newKeyRange, this.keyFilter, this.bounds);
+    }
+
+    /**
+     * Filter the index entries in this instance by the given component of the map key.
+     *
+     * @param index zero-based index into the map key {@link Tuple}; the last component is the target object ID
+     * @param filter key filter applied to the encoded value of the key component
+     * @return filtered view of this instance
+     * @throws IllegalArgumentException if {@code filter} is null
+     * @throws IllegalArgumentException if {@code index} is out of range
+     */
+    public IncludedValuesMap filter(int index, KeyFilter filter) {
+        Preconditions.checkArgument(index >= 0 && index < this.encodings.length, "invalid index");
+        Preconditions.checkArgument(filter != null, "null filter");
+        if (filter instanceof KeyRanges && ((KeyRanges)filter).isFull())
+            return this;
+        final KeyFilter[] filters = new KeyFilter[this.encodings.length];
+        filters[index] = filter;
+        return (IncludedValuesMap)this.filterKeys(
+          new IndexKeyFilter(this.kv, this.prefix, this.encodings, filters, this.encodings.length));
+    }
+
+// AbstractKVNavigableMap
+
+    @Override
+    protected IncludedValuesMap createSubMap(boolean newReversed,
+      KeyRange newKeyRange, KeyFilter newKeyFilter, Bounds<Tuple> newBounds) {
+        return new IncludedValuesMap(this.kv, this.keyEncoding, newReversed, this.prefix,
+          newKeyRange, newKeyFilter, newBounds, this.encodings, this.includedEncodings);
+    }
+
+    @Override
+    protected List<Object> decodeValue(KVPair pair) {
+        final ByteData.Reader reader = pair.getValue().newReader();
+        final ArrayList<Object> values = new ArrayList<>(this.includedEncodings.size());
+        for (Encoding<?> encoding : this.includedEncodings)
+            values.add(encoding.read(reader));
+        return Collections.unmodifiableList(values);
+    }
+}
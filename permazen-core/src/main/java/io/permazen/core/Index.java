@@ -97,6 +97,19 @@ public abstract class Index extends SchemaItem {
      */
     public abstract AbstractCoreIndex<ObjId> getIndex(Transaction tx);
 
+    /**
+     * Get the most recently gathered statistics for this index in the given transaction.
+     *
+     * @param tx transaction
+     * @return statistics for this index, or null if none have been gathered
+     * @throws IllegalArgumentException if {@code tx} is null
+     * @see Transaction#getIndexStatistics Transaction.getIndexStatistics()
+     */
+    public IndexStatistics getStatistics(Transaction tx) {
+        Preconditions.checkArgument(tx != null, "null tx");
+        return tx.getIndexStatistics(this.storageId);
+    }
+
     /**
      * Get the key in the underlying key/value store corresponding to the given value tuple in this index.
      *
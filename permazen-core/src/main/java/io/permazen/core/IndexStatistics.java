@@ -0,0 +1,297 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import com.google.common.base.Preconditions;
+
+import io.permazen.util.ByteData;
+import io.permazen.util.LongEncoder;
+import io.permazen.util.UnsignedIntEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Statistics describing the contents of an {@link Index}.
+ *
+ * <p>
+ * Statistics include the total number of index entries, the number of distinct indexed values (or value tuples,
+ * in the case of a composite index), and an equi-depth histogram of the indexed values. Values are represented
+ * in their encoded form, which sorts consistently with the values themselves; use {@link Index#getKey(Object[])}
+ * (minus the storage ID prefix) or the index's {@link Index#getEncodings encodings} to encode values.
+ *
+ * <p>
+ * Index statistics are not updated as the database changes. Instead, they are gathered on demand by
+ * {@link Transaction#updateIndexStatistics(int) Transaction.updateIndexStatistics()}, which scans the index
+ * and records the results in the database meta-data area. Therefore, they should be considered estimates.
+ *
+ * <p>
+ * Instances are immutable.
+ *
+ * @see Transaction#getIndexStatistics
+ * @see Index#getStatistics
+ */
+public final class IndexStatistics {
+
+    /**
+     * Default maximum number of buckets in an index histogram ({@value #DEFAULT_HISTOGRAM_BUCKETS}).
+     */
+    public static final int DEFAULT_HISTOGRAM_BUCKETS = 32;
+
+    private final long entryCount;
+    private final long distinctValueCount;
+    private final NavigableMap<ByteData, Long> histogram;
+
+    /**
+     * Constructor.
+     *
+     * @param entryCount total number of index entries
+     * @param distinctValueCount number of distinct indexed values
+     * @param histogram mapping from encoded value to the number of index entries having that value or any lower value
+     * @throws IllegalArgumentException if {@code histogram} is null
+     * @throws IllegalArgumentException if {@code entryCount} or {@code distinctValueCount} is negative
+     * @throws IllegalArgumentException if {@code distinctValueCount} is greater than {@code entryCount}
+     * @throws IllegalArgumentException if {@code histogram} counts are not strictly increasing or exceed {@code entryCount}
+     */
+    public IndexStatistics(long entryCount, long distinctValueCount, NavigableMap<ByteData, Long> histogram) {
+        Preconditions.checkArgument(histogram != null, "null histogram");
+        Preconditions.checkArgument(entryCount >= 0, "negative entryCount");
+        Preconditions.checkArgument(distinctValueCount >= 0, "negative distinctValueCount");
+        Preconditions.checkArgument(distinctValueCount <= entryCount, "distinctValueCount > entryCount");
+        Preconditions.checkArgument((entryCount == 0) == histogram.isEmpty(), "inconsistent histogram");
+        long prevCount = 0;
+        for (Long count : histogram.values()) {
+            Preconditions.checkArgument(count != null && count > prevCount && count <= entryCount, "invalid histogram");
+            prevCount = count;
+        }
+        this.entryCount = entryCount;
+        this.distinctValueCount = distinctValueCount;
+        this.histogram = Collections.unmodifiableNavigableMap(new TreeMap<>(histogram));
+    }
+
+// Accessors
+
+    /**
+     * Get the total number of entries in the index.
+     *
+     * @return number of index entries
+     */
+    public long getEntryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * Get the number of distinct values (or value tuples) in the index.
+     *
+     * @return number of distinct indexed values
+     */
+    public long getDistinctValueCount() {
+        return this.distinctValueCount;
+    }
+
+    /**
+     * Get the index histogram.
+     *
+     * <p>
+     * The returned map contains a subset of the indexed values, always including the lowest and highest values.
+     * Each value is mapped to the number of index entries having that value or any lower value.
+     *
+     * @return unmodifiable mapping from encoded value to cumulative entry count
+     */
+    public NavigableMap<ByteData, Long> getHistogram() {
+        return this.histogram;
+    }
+
+// Estimates
+
+    /**
+     * Estimate the number of index entries having a specific value.
+     *
+     * @param value encoded value
+     * @return estimated number of index entries having {@code value}
+     * @throws IllegalArgumentException if {@code value} is null
+     */
+    public long estimateEntries(ByteData value) {
+        Preconditions.checkArgument(value != null, "null value");
+        if (this.entryCount == 0 || value.compareTo(this.histogram.firstKey()) < 0 || value.compareTo(this.histogram.lastKey()) > 0)
+            return 0;
+        return this.averageEntriesPerValue();
+    }
+
+    /**
+     * Estimate the number of index entries having values in the given range.
+     *
+     * @param minValue minimum encoded value (inclusive), or null for no minimum
+     * @param maxValue maximum encoded value (exclusive), or null for no maximum
+     * @return estimated number of index entries having values in the range
+     */
+    public long estimateEntries(ByteData minValue, ByteData maxValue) {
+        final long min = minValue != null ? this.estimateEntriesBelow(minValue) : 0;
+        final long max = maxValue != null ? this.estimateEntriesBelow(maxValue) : this.entryCount;
+        return Math.max(max - min, 0);
+    }
+
+    // Estimate the number of index entries having a value strictly less than the given value
+    private long estimateEntriesBelow(ByteData value) {
+        final Map.Entry<ByteData, Long> lower = this.histogram.lowerEntry(value);
+        if (lower == null)
+            return 0;
+        final Map.Entry<ByteData, Long> ceiling = this.histogram.ceilingEntry(value);
+        if (ceiling == null)
+            return this.entryCount;
+        final long gap = ceiling.getValue() - lower.getValue();
+        if (ceiling.getKey().equals(value))
+            return ceiling.getValue() - Math.min(this.averageEntriesPerValue(), gap);
+        return lower.getValue() + gap / 2;
+    }
+
+    private long averageEntriesPerValue() {
+        return this.distinctValueCount > 0 ? (this.entryCount + this.distinctValueCount - 1) / this.distinctValueCount : 0;
+    }
+
+// Encoding
+
+    /**
+     * Encode this instance.
+     *
+     * @param writer destination for encoded statistics
+     * @throws IllegalArgumentException if {@code writer} is null
+     */
+    public void encode(ByteData.Writer writer) {
+        Preconditions.checkArgument(writer != null, "null writer");
+        LongEncoder.write(writer, this.entryCount);
+        LongEncoder.write(writer, this.distinctValueCount);
+        UnsignedIntEncoder.write(writer, this.histogram.size());
+        for (Map.Entry<ByteData, Long> entry : this.histogram.entrySet()) {
+            final ByteData value = entry.getKey();
+            UnsignedIntEncoder.write(writer, value.size());
+            writer.write(value);
+            LongEncoder.write(writer, entry.getValue());
+        }
+    }
+
+    /**
+     * Decode an instance previously encoded by {@link #encode encode()}.
+     *
+     * @param data encoded statistics
+     * @return decoded statistics
+     * @throws IllegalArgumentException if {@code data} is null or invalid
+     */
+    public static IndexStatistics decode(ByteData data) {
+        Preconditions.checkArgument(data != null, "null data");
+        final ByteData.Reader reader = data.newReader();
+        try {
+            final long entryCount = LongEncoder.read(reader);
+            final long distinctValueCount = LongEncoder.read(reader);
+            final int histogramSize = UnsignedIntEncoder.read(reader);
+            final TreeMap<ByteData, Long> histogram = new TreeMap<>();
+            for (int i = 0; i < histogramSize; i++) {
+                final ByteData value = reader.readBytes(UnsignedIntEncoder.read(reader));
+                final long count = LongEncoder.read(reader);
+                Preconditions.checkArgument(histogram.isEmpty() || value.compareTo(histogram.lastKey()) > 0,
+                  "mis-ordered histogram");
+                histogram.put(value, count);
+            }
+            Preconditions.checkArgument(reader.remain() == 0, "trailing garbage");
+            return new IndexStatistics(entryCount, distinctValueCount, histogram);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated data", e);
+        }
+    }
+
+// Gathering
+
+    /**
+     * Gather statistics from the encoded values in an index.
+     *
+     * @param values encoded value (or value tuple) for each index entry, in sorted order
+     * @param maxBuckets maximum number of histogram buckets
+     * @return gathered statistics
+     */
+    static IndexStatistics gather(Iterator<ByteData> values, int maxBuckets) {
+        assert values != null;
+        assert maxBuckets > 0;
+        final ArrayList<ByteData> bounds = new ArrayList<>();
+        final ArrayList<Long> counts = new ArrayList<>();
+        long bucketDepth = 1;
+        long entryCount = 0;
+        long distinctValueCount = 0;
+        ByteData prevValue = null;
+        while (values.hasNext()) {
+            final ByteData value = values.next();
+            if (prevValue != null && !value.equals(prevValue)) {
+
+                // Record the previous value as a bucket boundary if the current bucket is full (always record the first value)
+                if (counts.isEmpty() || entryCount - counts.get(counts.size() - 1) >= bucketDepth) {
+                    bounds.add(prevValue);
+                    counts.add(entryCount);
+                }
+
+                // If there are too many buckets, double the bucket depth and merge adjacent buckets
+                if (bounds.size() > 2 * maxBuckets) {
+                    bucketDepth *= 2;
+                    int j = 1;
+                    for (int i = 1; i < bounds.size(); i++) {
+                        if (counts.get(i) - counts.get(j - 1) >= bucketDepth || i == bounds.size() - 1) {
+                            bounds.set(j, bounds.get(i));
+                            counts.set(j, counts.get(i));
+                            j++;
+                        }
+                    }
+                    bounds.subList(j, bounds.size()).clear();
+                    counts.subList(j, counts.size()).clear();
+                }
+            }
+            if (!value.equals(prevValue))
+                distinctValueCount++;
+            entryCount++;
+            prevValue = value;
+        }
+
+        // Record the last value
+        final TreeMap<ByteData, Long> histogram = new TreeMap<>();
+        for (int i = 0; i < bounds.size(); i++)
+            histogram.put(bounds.get(i), counts.get(i));
+        if (prevValue != null)
+            histogram.put(prevValue, entryCount);
+        return new IndexStatistics(entryCount, distinctValueCount, histogram);
+    }
+
+// Object
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName()
+          + "[entries=" + this.entryCount
+          + ",distinctValues=" + this.distinctValueCount
+          + ",buckets=" + this.histogram.size()
+          + "]";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (obj == null || obj.getClass() != this.getClass())
+            return false;
+        final IndexStatistics that = (IndexStatistics)obj;
+        return this.entryCount == that.entryCount
+          && this.distinctValueCount == that.distinctValueCount
+          && this.histogram.equals(that.histogram);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.getClass().hashCode()
+          ^ Long.hashCode(this.entryCount)
+          ^ Long.hashCode(this.distinctValueCount)
+          ^ this.histogram.hashCode();
+    }
+}
@@ -70,6 +70,15 @@ class JSMap<K, V> extends EncodingMap<K, V> {
         if (this.field.valueField instanceof ReferenceField)
             this.tx.checkDeletedAssignment(this.id, (ReferenceField)this.field.valueField, (ObjId)newValueObj);
 
+        // Blind write? If so, put entry and key index entry without recording any read
+        if (this.isBlindWrite()) {
+            final ByteData oldValue = this.tx.readWithoutConflict(key);
+            this.tx.kvt.put(key, newValue);
+            if (this.field.keyField.indexed)
+                this.field.addIndexEntry(this.tx, this.id, this.field.keyField, key, newValue);
+            return oldValue != null ? this.decodeValue(new KVPair(key, oldValue)) : null;
+        }
+
         // Get old value, if any
         final ByteData oldValue = this.tx.kvt.get(key);
         final V oldValueObj;
@@ -121,6 +130,15 @@ class JSMap<K, V> extends EncodingMap<K, V> {
 
     private V doRemove(final K keyObj, ByteData key) {
 
+        // Blind write? If so, remove entry and key index entry without recording any read
+        if (this.isBlindWrite()) {
+            final ByteData oldValue = this.tx.readWithoutConflict(key);
+            this.tx.kvt.remove(key);
+            if (this.field.keyField.indexed)
+                this.field.removeIndexEntry(this.tx, this.id, this.field.keyField, key, null);
+            return oldValue != null ? this.decodeValue(new KVPair(key, oldValue)) : null;
+        }
+
         // Get old value, if any
         final ByteData oldValue = this.tx.kvt.get(key);
         if (oldValue == null)
@@ -190,6 +208,11 @@ class JSMap<K, V> extends EncodingMap<K, V> {
         return new JSMap<>(this.tx, this.field, this.id, newReversed, newKeyRange, newKeyFilter, newBounds);
     }
 
+    // Blind writes are not possible when the value is indexed, because we need the old value to remove its index entry
+    private boolean isBlindWrite() {
+        return !this.field.valueField.indexed && this.tx.isBlindCollectionWrite(this.id, this.field);
+    }
+
     private ByteData encodeValue(Object obj) {
         final ByteData.Writer writer = ByteData.newWriter();
         this.field.valueField.encoding.validateAndWrite(writer, obj);
@@ -63,6 +63,15 @@ class JSSet<E> extends EncodingSet<E> {
         if (this.field.elementField instanceof ReferenceField)
             this.tx.checkDeletedAssignment(this.id, (ReferenceField)this.field.elementField, (ObjId)newValue);
 
+        // Blind write? If so, add element and index entry without recording any read
+        if (this.tx.isBlindCollectionWrite(this.id, this.field)) {
+            final boolean added = this.tx.readWithoutConflict(key) == null;
+            this.tx.kvt.put(key, ByteData.empty());
+            if (this.field.elementField.indexed)
+                this.field.addIndexEntry(this.tx, this.id, this.field.elementField, key, null);
+            return added;
+        }
+
         // Check if already added
         if (this.tx.kvt.get(key) != null)
             return false;
@@ -129,6 +138,15 @@ class JSSet<E> extends EncodingSet<E> {
 
     private boolean doRemove(final E oldValue, ByteData key) {
 
+        // Blind write? If so, remove element and index entry without recording any read
+        if (this.tx.isBlindCollectionWrite(this.id, this.field)) {
+            final boolean removed = this.tx.readWithoutConflict(key) != null;
+            this.tx.kvt.remove(key);
+            if (this.field.elementField.indexed)
+                this.field.removeIndexEntry(this.tx, this.id, this.field.elementField, key, null);
+            return removed;
+        }
+
         // See if already removed
         if (this.tx.kvt.get(key) == null)
             return false;
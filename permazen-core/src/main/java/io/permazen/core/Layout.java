@@ -27,7 +27,7 @@ import java.util.zip.InflaterInputStream;
  * <p>
  * The key/value space is divided into a data area and a meta-data area. The data area contains object data as
  * well as simple and composite index data. The meta-data area contains a recognizable signature, database format version,
- * all recorded schemas, the object schema index, and a range reserved for user applications.
+ * all recorded schemas, index statistics, the object schema index, and a range reserved for user applications.
  *
  * @see <a href="https://github.com/permazen/permazen/blob/master/LAYOUT.md">LAYOUT.md</a>
  */
@@ -63,6 +63,16 @@ public final class Layout {
      */
     public static final int METADATA_STORAGE_ID_TABLE_BYTE = 0x02;
 
+    /**
+     * The single byte that follows {@link #METADATA_PREFIX_BYTE} to indicate the index statistics table.
+     *
+     * <p>
+     * This table was added without changing the {@linkplain #CURRENT_FORMAT_VERSION format version}, because it is
+     * optional and may be cleared at any time. Older versions ignore it, except that older versions of {@code Jsck}
+     * will report it as unrecognized meta-data and, when repairing, delete it.
+     */
+    public static final int METADATA_INDEX_STATISTICS_BYTE = 0x03;
+
     /**
      * The single byte that follows {@link #METADATA_PREFIX_BYTE} to indicate the object schema index.
      */
@@ -93,6 +103,9 @@ public final class Layout {
     private static final ByteData STORAGE_ID_TABLE_PREFIX = ByteData.of(
       METADATA_PREFIX_BYTE, METADATA_STORAGE_ID_TABLE_BYTE);
 
+    private static final ByteData INDEX_STATISTICS_PREFIX = ByteData.of(
+      METADATA_PREFIX_BYTE, METADATA_INDEX_STATISTICS_BYTE);
+
     private static final ByteData SCHEMA_INDEX_PREFIX = ByteData.of(
       METADATA_PREFIX_BYTE, METADATA_SCHEMA_INDEX_BYTE);
 
@@ -167,6 +180,20 @@ public final class Layout {
         return writer.toByteData();
     }
 
+    /**
+     * Get the common prefix of all index statistics table keys.
+     *
+     * <p>
+     * Index statistics are keyed by index storage ID; use {@link #buildTableKey buildTableKey()} to build the key
+     * for a specific index.
+     *
+     * @return index statistics table key prefix
+     * @see IndexStatistics
+     */
+    public static ByteData getIndexStatisticsPrefix() {
+        return INDEX_STATISTICS_PREFIX;
+    }
+
     /**
      * Get the common prefix of all object schema index entries.
      *
@@ -270,6 +297,7 @@ public final class Layout {
      *
      * <p>
      * Upon return, the {@link KVStore} will still contain meta-data, but not any objects.
+     * Index statistics, which describe object data, are also deleted.
      *
      * @param kv key/value database
      */
@@ -277,23 +305,25 @@ public final class Layout {
 
         // Get ranges
         final KeyRange metaDataRange = KeyRange.forPrefix(Layout.getMetaDataKeyPrefix());
+        final KeyRange statisticsRange = KeyRange.forPrefix(Layout.getIndexStatisticsPrefix());
         final KeyRange schemaIndexRange = KeyRange.forPrefix(Layout.getSchemaIndexKeyPrefix());
+        assert metaDataRange.contains(statisticsRange);
         assert metaDataRange.contains(schemaIndexRange);
 
         // Delete everything except meta-data
         kv.removeRange(null, metaDataRange.getMin());
         kv.removeRange(metaDataRange.getMax(), null);
 
-        // Delete the object schema index
-        kv.removeRange(metaDataRange.getMin(), schemaIndexRange.getMin());
-        kv.removeRange(schemaIndexRange.getMax(), metaDataRange.getMax());
+        // Delete index statistics and the object schema index
+        kv.removeRange(statisticsRange.getMin(), statisticsRange.getMax());
+        kv.removeRange(schemaIndexRange.getMin(), schemaIndexRange.getMax());
     }
 
     /**
      * Copy non-object meta-data from one {@link KVStore} to another.
      *
      * <p>
-     * This copies all meta-data except the object schema index. Any existing key/value pairs
+     * This copies all meta-data except index statistics and the object schema index. Any existing key/value pairs
      * in the destination meta-data range are not removed prior to the copy.
      *
      * @param src source key/value database
@@ -303,11 +333,15 @@ public final class Layout {
 
         // Get ranges
         final KeyRange metaDataRange = KeyRange.forPrefix(Layout.getMetaDataKeyPrefix());
+        final KeyRange statisticsRange = KeyRange.forPrefix(Layout.getIndexStatisticsPrefix());
         final KeyRange schemaIndexRange = KeyRange.forPrefix(Layout.getSchemaIndexKeyPrefix());
+        assert metaDataRange.contains(statisticsRange);
         assert metaDataRange.contains(schemaIndexRange);
+        assert statisticsRange.getMax().compareTo(schemaIndexRange.getMin()) <= 0;
 
         // Copy meta-data
-        Layout.copyRange(src, dst, metaDataRange.getMin(), schemaIndexRange.getMin());
+        Layout.copyRange(src, dst, metaDataRange.getMin(), statisticsRange.getMin());
+        Layout.copyRange(src, dst, statisticsRange.getMax(), schemaIndexRange.getMin());
         Layout.copyRange(src, dst, schemaIndexRange.getMax(), metaDataRange.getMax());
     }
 
@@ -36,6 +36,7 @@ public class ObjType extends SchemaItem {
     final TreeMap<String, CounterField> counterFields = new TreeMap<>();
     final TreeMap<String, ReferenceField> referenceFieldsAndSubFields = new TreeMap<>();    // includes sub-fields
     final TreeMap<String, CompositeIndex> compositeIndexes = new TreeMap<>();               // composite indexes
+    final ArrayList<CounterField> aggregateCounters = new ArrayList<>();                    // aggregates fed by this type
 
 // Constructor
 
@@ -124,8 +125,9 @@ public class ObjType extends SchemaItem {
 
         // Build composite indexes
         for (SchemaCompositeIndex schemaIndex : schemaType.getSchemaCompositeIndexes().values()) {
-            final List<SimpleField<?>> fieldList = this.getCompositeIndexFields(schemaIndex);
-            final CompositeIndex index = new CompositeIndex(schema, schemaIndex, this, fieldList);
+            final List<SimpleField<?>> fieldList = this.getCompositeIndexFields(schemaIndex, schemaIndex.getIndexedFields());
+            final List<SimpleField<?>> includedList = this.getCompositeIndexFields(schemaIndex, schemaIndex.getIncludedFields());
+            final CompositeIndex index = new CompositeIndex(schema, schemaIndex, this, fieldList, includedList);
             this.compositeIndexes.put(index.name, index);
         }
 
@@ -141,6 +143,11 @@ public class ObjType extends SchemaItem {
                         simpleField.compositeIndexMap = new HashMap<>(2);
                     simpleField.compositeIndexMap.put(index, posn);
                 }
+                if (index.includedFields.contains(simpleField)) {
+                    if (simpleField.includingIndexes == null)
+                        simpleField.includingIndexes = new ArrayList<>(2);
+                    simpleField.includingIndexes.add(index);
+                }
             }
         }
     }
@@ -263,9 +270,9 @@ public class ObjType extends SchemaItem {
 
 // Internal methods
 
-    private List<SimpleField<?>> getCompositeIndexFields(SchemaCompositeIndex index) {
-        final List<SimpleField<?>> fieldList = new ArrayList<>(index.getIndexedFields().size());
-        for (String fieldName : index.getIndexedFields()) {
+    private List<SimpleField<?>> getCompositeIndexFields(SchemaCompositeIndex index, List<String> fieldNames) {
+        final List<SimpleField<?>> fieldList = new ArrayList<>(fieldNames.size());
+        for (String fieldName : fieldNames) {
             final SimpleField<?> field = (SimpleField<?>)this.fields.get(fieldName);
             if (field == null) {
                 throw new IllegalArgumentException(String.format(
@@ -273,7 +280,6 @@ public class ObjType extends SchemaItem {
             }
             fieldList.add(field);
         }
-        assert fieldList.size() > 1;
         return fieldList;
     }
 }
@@ -88,6 +88,12 @@ public class Schema {
             objType.initialize(schemaType, encodingRegistry);
         }
 
+        // Link aggregate counter fields to the object types and fields they aggregate
+        for (ObjType objType : this.objTypesByName.values()) {
+            for (CounterField field : objType.counterFields.values())
+                field.resolveAggregate(this);
+        }
+
         // This is an optimization for handling DeleteAction. Because the same reference field can be configured with
         // a different DeleteAction in different object types, which can come from the same or different schemas,
         // when an object is deleted, we have to be careful to only apply DeleteAction's matching the schema and object
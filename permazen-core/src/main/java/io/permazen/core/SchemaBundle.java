@@ -789,6 +789,11 @@ public class SchemaBundle {
         /**
          * Rewrite the schema and storage ID tables in the given key/value store with the contents of this instance.
          *
+         * <p>
+         * Any {@linkplain Layout#getIndexStatisticsPrefix index statistics} recorded for storage IDs that no longer
+         * appear in the storage ID table (e.g., because the only schemas containing the index have been removed)
+         * are also removed.
+         *
          * @param kv key/value store
          * @throws IllegalArgumentException if {@code kv} is null
          */
@@ -797,12 +802,35 @@ public class SchemaBundle {
             kv.removeRange(Layout.getSchemaTablePrefix(), ByteUtil.getKeyAfterPrefix(Layout.getStorageIdTablePrefix()));
             this.writeTable(kv, Layout.getSchemaTablePrefix(), this.schemaBytes);
             this.writeTable(kv, Layout.getStorageIdTablePrefix(), this.storageIdBytes);
+            this.removeObsoleteIndexStatistics(kv);
         }
 
         private void writeTable(KVStore kv, ByteData prefix, NavigableMap<Integer, ByteData> table) {
             table.forEach((index, bytes) -> kv.put(Layout.buildTableKey(prefix, index), bytes));
         }
 
+        // Remove index statistics for storage IDs that are no longer assigned; a storage ID that is still assigned
+        // maps to the same schema ID, and therefore the same index, as when its statistics were gathered.
+        private void removeObsoleteIndexStatistics(KVStore kv) {
+            final ByteData prefix = Layout.getIndexStatisticsPrefix();
+            final ArrayList<ByteData> obsoleteKeys = new ArrayList<>();
+            try (CloseableIterator<KVPair> i = kv.getRange(prefix, ByteUtil.getKeyAfterPrefix(prefix))) {
+                while (i.hasNext()) {
+                    final ByteData key = i.next().getKey();
+                    final ByteData.Reader reader = key.newReader(prefix.size());
+                    final int storageId;
+                    try {
+                        storageId = UnsignedIntEncoder.read(reader);
+                    } catch (IllegalArgumentException e) {
+                        continue;                                       // leave invalid keys for Jsck to report
+                    }
+                    if (reader.remain() == 0 && !this.storageIdBytes.containsKey(storageId))
+                        obsoleteKeys.add(key);
+                }
+            }
+            obsoleteKeys.forEach(kv::remove);
+        }
+
     // Private Methods
 
         /**
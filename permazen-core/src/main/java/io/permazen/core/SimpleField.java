@@ -9,9 +9,15 @@ import com.google.common.base.Preconditions;
 
 import io.permazen.core.util.ObjIdMap;
 import io.permazen.encoding.Encoding;
+import io.permazen.kv.KeyRange;
+import io.permazen.kv.KeyRanges;
 import io.permazen.schema.SimpleSchemaField;
+import io.permazen.util.BoundType;
+import io.permazen.util.Bounds;
 import io.permazen.util.ByteData;
+import io.permazen.util.ByteUtil;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Set;
@@ -28,12 +34,17 @@ import java.util.Set;
  *  <li>They can be indexed.</li>
  * </ul>
  *
+ * <p>
+ * The index on a simple field may be a <i>partial index</i> that omits entries for certain values;
+ * see {@link #getIndexExcludes}.
+ *
  * @param <T> Java type for the field's values
  */
 public class SimpleField<T> extends Field<T> {
 
     final Encoding<T> encoding;
     final boolean indexed;
+    final KeyRanges indexExcludes;          // encoded values not indexed, or null if not a partial index
 
     // Parent field if sub-field
     ComplexField<?> parent;
@@ -44,10 +55,53 @@ public class SimpleField<T> extends Field<T> {
     // Maps composite index to this field's offset in index field list, or null if none
     HashMap<CompositeIndex, Integer> compositeIndexMap;
 
+    // Composite indexes that include this field's value in their index entries, or null if none
+    ArrayList<CompositeIndex> includingIndexes;
+
+    // Aggregate counters (in other object types) that this field is the reference or summed field for, or null if none
+    ArrayList<CounterField> aggregateCounters;
+
     SimpleField(ObjType objType, SimpleSchemaField field, Encoding<T> encoding, boolean indexed) {
         super(objType, field, encoding.getTypeToken());
         this.encoding = encoding;
         this.indexed = indexed;
+        this.indexExcludes = indexed && field.hasPartialIndex() ? this.buildIndexExcludes(field) : null;
+    }
+
+    private KeyRanges buildIndexExcludes(SimpleSchemaField field) {
+        final KeyRange nullRange = this.encoding.supportsNull() ? new KeyRange(this.encodeRaw(null)) : null;
+        final KeyRanges ranges = KeyRanges.empty();
+        if (field.isIndexExcludesNull() && nullRange != null)
+            ranges.add(nullRange);
+        for (Bounds<String> bounds : field.getIndexExcludes()) {
+            final KeyRanges range;
+            try {
+                final ByteData min = bounds.hasLowerBound() ?
+                  this.encodeBound(bounds.getLowerBound(), bounds.getLowerBoundType() == BoundType.EXCLUSIVE) : ByteData.empty();
+                final ByteData max = bounds.hasUpperBound() ?
+                  this.encodeBound(bounds.getUpperBound(), bounds.getUpperBoundType() == BoundType.INCLUSIVE) : null;
+                Preconditions.checkArgument(max == null || min.compareTo(max) < 0, "range is empty");
+                range = new KeyRanges(min, max);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSchemaException(String.format(
+                  "invalid index exclude %s for %s: %s", bounds, this, e.getMessage()), e);
+            }
+            if (nullRange != null)                  // ranges only ever contain non-null values
+                range.remove(nullRange);
+            ranges.add(range);
+        }
+        return ranges.readOnlySnapshot();
+    }
+
+    private ByteData encodeBound(String string, boolean next) {
+        final ByteData bytes = this.encodeRaw(this.encoding.fromString(string));
+        return next ? ByteUtil.getNextKey(bytes) : bytes;
+    }
+
+    private ByteData encodeRaw(T value) {
+        final ByteData.Writer writer = ByteData.newWriter();
+        this.encoding.write(writer, value);
+        return writer.toByteData();
     }
 
 // Public methods
@@ -70,6 +124,21 @@ public class SimpleField<T> extends Field<T> {
         return this.indexed;
     }
 
+    /**
+     * Get the encoded values that are excluded from this field's index, if this field has a partial index.
+     *
+     * <p>
+     * Objects whose encoded field value is contained in the returned ranges have no entry in this field's index.
+     * Because encoded values sort consistently with the values themselves, a query on this field's index that is
+     * restricted to values outside of these ranges sees every matching object, while any other query may not.
+     *
+     * @return immutable ranges of excluded encoded values, or null if this field is not indexed or its index is not partial
+     * @see SimpleSchemaField#getIndexExcludes
+     */
+    public KeyRanges getIndexExcludes() {
+        return this.indexExcludes;
+    }
+
     /**
      * Get the parent field if this field is a sub-field of a complex field.
      *
@@ -162,6 +231,20 @@ public class SimpleField<T> extends Field<T> {
         dstTx.writeSimpleField(dstId, this.name, value, false);
     }
 
+    /**
+     * Determine whether an object with the given encoded value in this field should have an entry in this field's index.
+     *
+     * @param value encoded field value, or null for the default value
+     * @return true if this field is indexed and {@code value} is not excluded from the index
+     */
+    boolean hasIndexEntry(ByteData value) {
+        if (!this.indexed)
+            return false;
+        if (this.indexExcludes == null)
+            return true;
+        return !this.indexExcludes.contains(value != null ? value : this.encoding.getDefaultValueBytes());
+    }
+
     protected boolean remapsObjectId() {
         return false;
     }
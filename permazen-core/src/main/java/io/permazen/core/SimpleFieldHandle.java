@@ -0,0 +1,76 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A precompiled reference to a {@link SimpleField}, for repeated access by name to the same field in objects of the same type.
+ *
+ * <p>
+ * Accessing a field via {@link Transaction#readSimpleField(ObjId, SimpleFieldHandle, boolean)} or
+ * {@link Transaction#writeSimpleField(ObjId, SimpleFieldHandle, Object, boolean)} is equivalent to accessing it via
+ * the corresponding methods taking the field's name, but avoids looking up the field by name on each access.
+ * Instead, the {@link SimpleField}, which carries the field's storage ID, encoded key suffix, and
+ * {@link io.permazen.encoding.Encoding Encoding}, is resolved the first time the handle is used with
+ * a particular {@link ObjType} (i.e., once per schema) and then cached.
+ *
+ * <p>
+ * Instances may be shared among transactions and threads.
+ */
+@ThreadSafe
+public final class SimpleFieldHandle {
+
+    private final String name;
+
+    private volatile SimpleField<?> field;              // field most recently resolved
+
+    /**
+     * Constructor.
+     *
+     * @param name field name
+     * @throws IllegalArgumentException if {@code name} is null
+     */
+    public SimpleFieldHandle(String name) {
+        Preconditions.checkArgument(name != null, "null name");
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the field.
+     *
+     * @return field name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Resolve this handle in the given object type.
+     *
+     * @param objType object type
+     * @return corresponding field
+     * @throws UnknownFieldException if no {@link SimpleField} with this instance's name exists in {@code objType}
+     */
+    SimpleField<?> resolve(ObjType objType) {
+        SimpleField<?> result = this.field;
+        if (result == null || result.objType != objType) {
+            if ((result = objType.simpleFields.get(this.name)) == null)
+                throw new UnknownFieldException(objType, this.name, "simple field");
+            this.field = result;
+        }
+        return result;
+    }
+
+// Object
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "[" + this.name + "]";
+    }
+}
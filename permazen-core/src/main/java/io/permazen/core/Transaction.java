@@ -6,9 +6,11 @@
 package io.permazen.core;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 
 import io.permazen.core.util.ObjIdMap;
 import io.permazen.core.util.ObjIdSet;
+import io.permazen.encoding.Encoding;
 import io.permazen.kv.CloseableKVStore;
 import io.permazen.kv.KVDatabase;
 import io.permazen.kv.KVPair;
@@ -32,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -136,6 +139,8 @@ import org.slf4j.LoggerFactory;
  *  <li>{@link #queryCompositeIndex3 queryCompositeIndex3()} - Query a composite index on three fields</li>
  *  <li>{@link #queryCompositeIndex3 queryCompositeIndex4()} - Query a composite index on four fields</li>
  *  <!-- COMPOSITE-INDEX -->
+ *  <li>{@link #queryCompositeIndexIncludedValues queryCompositeIndexIncludedValues()}
+ *      - Query a composite index's entries along with the values of its included fields</li>
  *  <li>{@link #querySchemaIndex querySchemaIndex()} - Query the index that groups objects by their schema</li>
  * </ul>
  *
@@ -256,6 +261,7 @@ public class Transaction {
     @GuardedBy("this")
     private final ThreadLocal<TreeMap<Integer, ArrayList<FieldChangeNotifier<?, ?>>>> pendingFieldChangeNotifications
       = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> blindCollectionWrites = new ThreadLocal<>();
     @GuardedBy("this")
     private final ObjIdMap<ObjInfo> objInfoCache = new ObjIdMap<>();
     @GuardedBy("this")
@@ -797,6 +803,64 @@ public class Transaction {
         this.kvt.withWeakConsistency(action);
     }
 
+    /**
+     * Perform the given action with "blind" (read-free) set and map field mutations enabled.
+     *
+     * <p>
+     * Normally, adding or removing a {@link SetField} element or {@link MapField} entry first reads the existing
+     * content to determine whether anything actually changed, so that index entries can be updated and any
+     * {@link FieldMonitor}s notified. That read becomes part of the transaction's read set, and so transactions that
+     * only add distinct members to the same set can conflict with each other.
+     *
+     * <p>
+     * While in this mode, {@link NavigableSet#add add()} and {@link NavigableSet#remove remove()} on sets, and
+     * {@link NavigableMap#put put()} and {@link NavigableMap#remove remove()} on maps whose values are not indexed,
+     * write the content and index keys unconditionally. The existing content is still consulted to compute the
+     * method's return value, but that read is performed {@linkplain #withWeakConsistency with weak consistency}
+     * and therefore the return value is only advisory.
+     *
+     * <p>
+     * Blind mutations only apply to fields that have no registered {@link FieldMonitor}s in this transaction;
+     * fields with monitors are always mutated normally so that notifications remain accurate.
+     *
+     * <p>
+     * The mode is only applied for the current thread, and it ends when this method returns.
+     *
+     * @param action the action to perform
+     * @throws IllegalArgumentException if {@code action} is null
+     */
+    public void withBlindCollectionWrites(Runnable action) {
+        Preconditions.checkArgument(action != null, "null action");
+        final Boolean previous = this.blindCollectionWrites.get();
+        this.blindCollectionWrites.set(true);
+        try {
+            action.run();
+        } finally {
+            this.blindCollectionWrites.set(previous);
+        }
+    }
+
+    /**
+     * Determine whether the given field in the given object may be mutated blindly by the current thread.
+     *
+     * @see #withBlindCollectionWrites
+     */
+    synchronized boolean isBlindCollectionWrite(ObjId id, ComplexField<?> field) {
+        return this.blindCollectionWrites.get() != null
+          && (this.disableListenerNotifications || !this.hasFieldMonitor(id, field.storageId));
+    }
+
+    /**
+     * Read a key without adding it to the transaction's read set, if supported.
+     *
+     * @see #withWeakConsistency
+     */
+    ByteData readWithoutConflict(ByteData key) {
+        final ByteData[] value = new ByteData[1];
+        this.kvt.withWeakConsistency(() -> value[0] = this.kvt.get(key));
+        return value[0];
+    }
+
 // Object Lifecycle
 
     /**
@@ -974,19 +1038,23 @@ public class Transaction {
         // Write object schema index entry
         this.kvt.put(Layout.buildSchemaIndexKey(id, schema.getSchemaIndex()), ByteData.empty());
 
-        // Initialize counters to zero
+        // Initialize counters to zero, or for aggregate counters, from any objects already referring to this one
         if (!objType.counterFields.isEmpty()) {
-            for (CounterField field : objType.counterFields.values())
-                this.kvt.put(field.buildKey(id), this.kvt.encodeCounter(0));
+            for (CounterField field : objType.counterFields.values()) {
+                final long value = field.isAggregate() ? field.computeAggregate(this.kvt, id) : 0;
+                this.kvt.put(field.buildKey(id), this.kvt.encodeCounter(value));
+            }
         }
 
         // Write simple field index entries
-        objType.indexedSimpleFields
-          .forEach(field -> this.kvt.put(Transaction.buildSimpleIndexEntry(field, id, null), ByteData.empty()));
+        for (SimpleField<?> field : objType.indexedSimpleFields) {
+            if (field.hasIndexEntry(null))
+                this.kvt.put(Transaction.buildSimpleIndexEntry(field, id, null), ByteData.empty());
+        }
 
         // Write composite index entries
         for (CompositeIndex index : objType.compositeIndexes.values())
-            this.kvt.put(Transaction.buildDefaultCompositeIndexEntry(id, index), ByteData.empty());
+            this.kvt.put(Transaction.buildDefaultCompositeIndexEntry(id, index), index.buildIncludedValue(null, id));
 
         // Notify listeners
         if (!this.disableListenerNotifications && this.createListeners != null) {
@@ -1157,8 +1225,11 @@ public class Transaction {
         // Delete object's simple field index entries
         final ObjId id = info.getId();
         final ObjType type = info.getObjType();
-        type.indexedSimpleFields
-          .forEach(field -> this.kvt.remove(Transaction.buildSimpleIndexEntry(field, id, this.kvt.get(field.buildKey(id)))));
+        for (SimpleField<?> field : type.indexedSimpleFields) {
+            final ByteData value = this.kvt.get(field.buildKey(id));
+            if (field.hasIndexEntry(value))
+                this.kvt.remove(Transaction.buildSimpleIndexEntry(field, id, value));
+        }
 
         // Delete object's composite index entries
         for (CompositeIndex index : type.compositeIndexes.values())
@@ -1168,6 +1239,10 @@ public class Transaction {
         for (ComplexField<?> field : type.complexFields.values())
             field.removeIndexEntries(this, id);
 
+        // Remove object's contributions to aggregate counters
+        if (!type.aggregateCounters.isEmpty())
+            this.adjustAggregates(id, type, -1);
+
         // Delete object meta-data and all field content
         final ByteData minKey = info.getId().getBytes();
         final ByteData maxKey = ByteUtil.getKeyAfterPrefix(minKey);
@@ -1416,13 +1491,15 @@ public class Transaction {
             // Create object's simple (non-subfield) field index entries
             for (SimpleField<?> field : dstType.indexedSimpleFields) {
                 final ByteData fieldValue = dstTx.kvt.get(field.buildKey(dstId));     // can be null (if field has default value)
+                if (!field.hasIndexEntry(fieldValue))
+                    continue;
                 final ByteData indexKey = Transaction.buildSimpleIndexEntry(field, dstId, fieldValue);
                 dstTx.kvt.put(indexKey, ByteData.empty());
             }
 
             // Create object's composite index entries
             for (CompositeIndex index : dstType.compositeIndexes.values())
-                dstTx.kvt.put(Transaction.buildCompositeIndexEntry(dstTx, dstId, index), ByteData.empty());
+                dstTx.kvt.put(Transaction.buildCompositeIndexEntry(dstTx, dstId, index), index.buildIncludedValue(dstTx, dstId));
 
             // Create object's complex field index entries
             for (ComplexField<?> field : dstType.complexFields.values()) {
@@ -1431,6 +1508,14 @@ public class Transaction {
                         field.addIndexEntries(dstTx, dstId, subField);
                 }
             }
+
+            // Recompute object's aggregate counters from the destination transaction, then add its own contributions
+            for (CounterField field : dstType.counterFields.values()) {
+                if (field.isAggregate())
+                    dstTx.kvt.put(field.buildKey(dstId), dstTx.kvt.encodeCounter(field.computeAggregate(dstTx.kvt, dstId)));
+            }
+            if (!dstType.aggregateCounters.isEmpty())
+                dstTx.adjustAggregates(dstId, dstType, 1);
         }
 
         // Done
@@ -1639,6 +1724,11 @@ public class Transaction {
         // If so, we need to remember the removed fields' values so we can provide them to listerners
         final NavigableMap<String, Object> oldValueMap = listeners != null ? new TreeMap<>() : null;
 
+    //////// Remove the object's contributions to aggregate counters under the old schema
+
+        if (!oldType.aggregateCounters.isEmpty())
+            this.adjustAggregates(id, oldType, -1);
+
     //////// Remove the index entries corresponding to removed composite indexes
 
         // Remove index entries for composite indexes that are going away
@@ -1738,15 +1828,17 @@ public class Transaction {
                     final SimpleField<?> newField = (SimpleField<?>)entry.getValue();
                     final boolean reset = newField == null;
 
-                    // Add/remove indexes as needed
+                    // Add/remove indexes as needed; a partial index may exclude the value in one schema but not the other
                     final ByteData key = Field.buildKey(id, oldField.storageId);
-                    if (oldField.indexed && (reset || !newField.indexed)) {
-                        final ByteData value = Transaction.this.kvt.get(key);
+                    final ByteData value = oldField.indexed || (newField != null && newField.indexed) ?
+                      Transaction.this.kvt.get(key) : null;
+                    final boolean oldEntry = oldField.hasIndexEntry(value);
+                    final boolean newEntry = newField != null && newField.hasIndexEntry(!reset ? value : null);
+                    if (oldEntry && (reset || !newEntry))
                         Transaction.this.kvt.remove(Transaction.buildSimpleIndexEntry(oldField, id, value));
-                    }
-                    if (newField != null && newField.indexed && (reset || !oldField.indexed)) {
-                        final ByteData value = !reset ? Transaction.this.kvt.get(key) : null;
-                        Transaction.this.kvt.put(Transaction.buildSimpleIndexEntry(newField, id, value), ByteData.empty());
+                    if (newEntry && (reset || !oldEntry)) {
+                        Transaction.this.kvt.put(Transaction.buildSimpleIndexEntry(newField, id, !reset ? value : null),
+                          ByteData.empty());
                     }
 
                     // Reset field value if needed
@@ -1814,7 +1906,7 @@ public class Transaction {
                 @Override
                 @SuppressWarnings("shadow")
                 public <T> Void caseSimpleField(SimpleField<T> newField) {
-                    if (newField.indexed)
+                    if (newField.hasIndexEntry(null))
                         Transaction.this.kvt.put(Transaction.buildSimpleIndexEntry(newField, id, null), ByteData.empty());
                     return null;
                 }
@@ -1829,7 +1921,8 @@ public class Transaction {
                 @SuppressWarnings("shadow")
                 public Void caseCounterField(CounterField newField) {
                     final ByteData key = Field.buildKey(id, newField.storageId);
-                    Transaction.this.kvt.put(key, Transaction.this.kvt.encodeCounter(0L));
+                    final long value = newField.isAggregate() ? newField.computeAggregate(Transaction.this.kvt, id) : 0L;
+                    Transaction.this.kvt.put(key, Transaction.this.kvt.encodeCounter(value));
                     return null;
                 }
             });
@@ -1837,11 +1930,11 @@ public class Transaction {
 
     //////// Add composite index entries for newly added composite indexes
 
-        // Add index entries for composite indexes that are newly added
+        // Add index entries for composite indexes that are newly added; also refresh included values, which may have been reset
         newType.compositeIndexes.forEach((name, newIndex) -> {
             final Index oldIndex = oldType.compositeIndexes.get(name);
-            if (oldIndex == null || !oldIndex.getSchemaId().equals(newIndex.getSchemaId()))
-                this.kvt.put(this.buildCompositeIndexEntry(id, newIndex), ByteData.empty());
+            if (oldIndex == null || !oldIndex.getSchemaId().equals(newIndex.getSchemaId()) || !newIndex.includedFields.isEmpty())
+                this.kvt.put(this.buildCompositeIndexEntry(id, newIndex), newIndex.buildIncludedValue(this, id));
         });
 
     //////// Update object schema and corresponding schema index entry
@@ -1855,6 +1948,11 @@ public class Transaction {
         this.kvt.remove(Layout.buildSchemaIndexKey(id, oldSchemaIndex));
         this.kvt.put(Layout.buildSchemaIndexKey(id, newSchemaIndex), ByteData.empty());
 
+    //////// Add the object's contributions to aggregate counters under the new schema
+
+        if (!newType.aggregateCounters.isEmpty())
+            this.adjustAggregates(id, newType, 1);
+
     //////// Notify listeners
 
         // Lock down old field values map and notify listeners about schema change
@@ -2035,6 +2133,44 @@ public class Transaction {
         if (field == null)
             throw new UnknownFieldException(info.getObjType(), name, "simple field");
 
+        // Read field
+        return this.doReadSimpleField(id, field);
+    }
+
+    /**
+     * Read the value of a {@link SimpleField} from an object, optionally migrating the object's schema,
+     * using a precompiled {@link SimpleFieldHandle}.
+     *
+     * <p>
+     * This method is equivalent to {@link #readSimpleField(ObjId, String, boolean) readSimpleField()} but
+     * avoids looking up the field by name each time it is invoked.
+     *
+     * @param id object ID of the object
+     * @param handle field handle
+     * @param migrateSchema true to first automatically migrate the object's schema, false to not change it
+     * @return value of the field in the object
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @throws DeletedObjectException if no object with ID equal to {@code id} is found
+     * @throws UnknownTypeException if {@code id} specifies an unknown object type
+     * @throws UnknownFieldException if no {@link SimpleField} corresponding to {@code handle} exists in the object
+     * @throws IllegalArgumentException if {@code id} or {@code handle} is null
+     * @throws TypeNotInSchemaException {@code migrateSchema} is true and the object's schema could not be migrated because
+     *   the object's type does not exist in this transaction's schema
+     */
+    public synchronized Object readSimpleField(ObjId id, SimpleFieldHandle handle, boolean migrateSchema) {
+
+        // Sanity check
+        Preconditions.checkArgument(id != null, "null id");
+        Preconditions.checkArgument(handle != null, "null handle");
+        this.checkStaleFieldAccess(id, handle.getName());
+
+        // Get object info and field, then read field
+        return this.doReadSimpleField(id, handle.resolve(this.getObjInfo(id, migrateSchema).getObjType()));
+    }
+
+    private Object doReadSimpleField(ObjId id, SimpleField<?> field) {
+        assert Thread.holdsLock(this);
+
         // Read field
         final ByteData key = field.buildKey(id);
         final ByteData value = this.kvt.get(key);
@@ -2067,6 +2203,32 @@ public class Transaction {
         this.mutateAndNotify(id, () -> this.doWriteSimpleField(id, name, value, migrateSchema));
     }
 
+    /**
+     * Change the value of a {@link SimpleField} in an object, optionally updating the object's schema,
+     * using a precompiled {@link SimpleFieldHandle}.
+     *
+     * <p>
+     * This method is equivalent to {@link #writeSimpleField(ObjId, String, Object, boolean) writeSimpleField()} but
+     * avoids looking up the field by name each time it is invoked.
+     *
+     * @param id object ID of the object
+     * @param handle field handle
+     * @param value new value for the field
+     * @param migrateSchema true to first automatically migrate the object's schema, false to not change it
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @throws DeletedObjectException if no object with ID equal to {@code id} is found
+     * @throws UnknownTypeException if {@code id} specifies an unknown object type
+     * @throws UnknownFieldException if no {@link SimpleField} corresponding to {@code handle} exists in the object
+     * @throws TypeNotInSchemaException {@code migrateSchema} is true and the object's schema could not be migrated because
+     *   the object's type does not exist in this transaction's schema
+     * @throws IllegalArgumentException if {@code value} is not an appropriate value for the field
+     * @throws IllegalArgumentException if {@code id} or {@code handle} is null
+     */
+    public void writeSimpleField(final ObjId id, final SimpleFieldHandle handle, final Object value, final boolean migrateSchema) {
+        Preconditions.checkArgument(handle != null, "null handle");
+        this.mutateAndNotify(id, () -> this.doWriteSimpleField(id, handle, value, migrateSchema));
+    }
+
     private synchronized void doWriteSimpleField(ObjId id, String name, final Object newObj, boolean migrateSchema) {
 
         // Get object info
@@ -2078,6 +2240,17 @@ public class Transaction {
         if (field == null)
             throw new UnknownFieldException(info.getObjType(), name, "simple field");
 
+        // Write field
+        this.doWriteSimpleField(id, field, newObj);
+    }
+
+    private synchronized void doWriteSimpleField(ObjId id, SimpleFieldHandle handle, final Object newObj, boolean migrateSchema) {
+        this.doWriteSimpleField(id, handle.resolve(this.getObjInfo(id, migrateSchema).getObjType()), newObj);
+    }
+
+    private void doWriteSimpleField(ObjId id, SimpleField<?> field, final Object newObj) {
+        assert Thread.holdsLock(this);
+
         // Check for deleted assignment
         if (field instanceof ReferenceField)
             this.checkDeletedAssignment(id, (ReferenceField)field, (ObjId)newObj);
@@ -2089,9 +2262,13 @@ public class Transaction {
         // Before setting the new value, read the old value if one of the following is true:
         //  - The field is being monitored -> we need to filter out "changes" that don't actually change anything
         //  - The field is indexed -> we need the old value so we can remove the old index entry
+        //  - The field is included in a composite index -> we can avoid rewriting index entries if nothing changed
+        //  - The field feeds an aggregate counter -> we need the old value to back out its contribution
         ByteData oldValue = null;
         if (field.indexed
           || field.compositeIndexMap != null
+          || field.includingIndexes != null
+          || field.aggregateCounters != null
           || (!this.disableListenerNotifications && this.hasFieldMonitor(id, field.storageId))) {
 
             // Get old value
@@ -2108,10 +2285,12 @@ public class Transaction {
         else
             this.kvt.remove(key);
 
-        // Update simple index, if any
+        // Update simple index, if any, skipping values excluded from a partial index
         if (field.indexed) {
-            this.kvt.remove(Transaction.buildSimpleIndexEntry(field, id, oldValue));
-            this.kvt.put(Transaction.buildSimpleIndexEntry(field, id, newValue), ByteData.empty());
+            if (field.hasIndexEntry(oldValue))
+                this.kvt.remove(Transaction.buildSimpleIndexEntry(field, id, oldValue));
+            if (field.hasIndexEntry(newValue))
+                this.kvt.put(Transaction.buildSimpleIndexEntry(field, id, newValue), ByteData.empty());
         }
 
         // Update affected composite indexes, if any
@@ -2157,10 +2336,20 @@ public class Transaction {
 
                 // Add new composite index entry
                 final ByteData newIndexEntry = newWriter.toByteData();
-                this.kvt.put(newIndexEntry, ByteData.empty());
+                this.kvt.put(newIndexEntry, index.buildIncludedValue(this, id));
             }
         }
 
+        // Update included values in affected composite indexes, if any
+        if (field.includingIndexes != null) {
+            for (CompositeIndex index : field.includingIndexes)
+                this.kvt.put(this.buildCompositeIndexEntry(id, index), index.buildIncludedValue(this, id));
+        }
+
+        // Update aggregate counters fed by this field, if any
+        if (field.aggregateCounters != null)
+            this.updateAggregates(id, field, oldValue, newValue);
+
         // Notify monitors
         if (!this.disableListenerNotifications) {
             final Object oldObj = oldValue != null ? field.encoding.read(oldValue.newReader()) : field.encoding.getDefaultValue();
@@ -2339,6 +2528,7 @@ public class Transaction {
      * @throws UnknownFieldException if no {@link CounterField} corresponding to {@code name} exists in the object
      * @throws TypeNotInSchemaException {@code migrateSchema} is true and the object's schema could not be migrated because
      *   the object's type does not exist in this transaction's schema
+     * @throws IllegalArgumentException if the field is an {@linkplain CounterField#isAggregate aggregate counter}
      * @throws IllegalArgumentException if {@code id} is null
      */
     public synchronized void writeCounterField(final ObjId id, final String name, final long value, final boolean migrateSchema) {
@@ -2355,6 +2545,7 @@ public class Transaction {
         final CounterField field = info.getObjType().counterFields.get(name);
         if (field == null)
             throw new UnknownFieldException(info.getObjType(), name, "counter field");
+        Transaction.checkNotAggregate(field);
 
         // Set value
         final ByteData key = field.buildKey(id);
@@ -2378,6 +2569,7 @@ public class Transaction {
      * @throws UnknownFieldException if no {@link CounterField} corresponding to {@code name} exists in the object
      * @throws TypeNotInSchemaException {@code migrateSchema} is true and the object's schema could not be migrated because
      *   the object's type does not exist in this transaction's schema
+     * @throws IllegalArgumentException if the field is an {@linkplain CounterField#isAggregate aggregate counter}
      * @throws IllegalArgumentException if {@code id} is null
      */
     public synchronized void adjustCounterField(ObjId id, String name, long offset, boolean migrateSchema) {
@@ -2398,6 +2590,7 @@ public class Transaction {
         final CounterField field = info.getObjType().counterFields.get(name);
         if (field == null)
             throw new UnknownFieldException(info.getObjType(), name, "counter field");
+        Transaction.checkNotAggregate(field);
 
         // Adjust counter value
         this.kvt.adjustCounter(field.buildKey(id), offset);
@@ -2624,6 +2817,71 @@ public class Transaction {
         return info;
     }
 
+// Aggregate Counters
+
+    /**
+     * Update the aggregate counters fed by a field after the field's value has changed.
+     */
+    private void updateAggregates(ObjId id, SimpleField<?> field, ByteData oldValue, ByteData newValue) {
+        assert Thread.holdsLock(this);
+        for (CounterField counter : field.aggregateCounters) {
+
+            // If the reference changed, move the object's contribution from the old target to the new target
+            if (field == counter.aggregateReference) {
+                final long amount = counter.getContribution(this.kvt, id);
+                this.adjustAggregate(counter, Transaction.decodeReference(counter.aggregateReference, oldValue), -amount);
+                this.adjustAggregate(counter, Transaction.decodeReference(counter.aggregateReference, newValue), amount);
+                continue;
+            }
+
+            // The summed field changed, so adjust the target by the difference
+            assert field == counter.aggregateSum;
+            this.adjustAggregate(counter, this.readAggregateTarget(counter, id),
+              counter.decodeSum(newValue) - counter.decodeSum(oldValue));
+        }
+    }
+
+    /**
+     * Add or remove all of an object's contributions to the aggregate counters its type feeds.
+     *
+     * @param sign 1 to add, -1 to remove
+     */
+    private void adjustAggregates(ObjId id, ObjType objType, int sign) {
+        assert Thread.holdsLock(this);
+        for (CounterField counter : objType.aggregateCounters)
+            this.adjustAggregate(counter, this.readAggregateTarget(counter, id), sign * counter.getContribution(this.kvt, id));
+    }
+
+    /**
+     * Adjust an aggregate counter in the target object, if the target exists and (still) has the counter field.
+     */
+    private void adjustAggregate(CounterField counter, ObjId target, long offset) {
+        if (target == null || offset == 0 || target.getStorageId() != counter.objType.storageId)
+            return;
+        final ObjInfo info = this.getObjInfoIfExists(target, false);
+        if (info == null || !(info.getObjType().fieldsByStorageId.get(counter.storageId) instanceof CounterField))
+            return;
+        this.kvt.adjustCounter(counter.buildKey(target), offset);
+    }
+
+    /**
+     * Verify the given counter field is not an aggregate counter, whose value may only be maintained automatically.
+     */
+    private static void checkNotAggregate(CounterField field) {
+        if (field.isAggregate()) {
+            throw new IllegalArgumentException(String.format(
+              "%s is an aggregate counter whose value is maintained automatically and can't be modified directly", field));
+        }
+    }
+
+    private ObjId readAggregateTarget(CounterField counter, ObjId id) {
+        return Transaction.decodeReference(counter.aggregateReference, this.kvt.get(counter.aggregateReference.buildKey(id)));
+    }
+
+    private static ObjId decodeReference(ReferenceField field, ByteData value) {
+        return value != null ? field.encoding.read(value.newReader()) : null;
+    }
+
 // Field Change Notifications
 
     /**
@@ -3317,6 +3575,10 @@ public class Transaction {
      * <p>
      * Use this method to acquire a plain {@link CoreIndex1} on complex sub-fields.
      *
+     * <p>
+     * If the field has a partial index (see {@link SimpleField#getIndexExcludes}), objects whose field value
+     * is excluded from the index will not appear in the returned view.
+     *
      * @param storageId the storage ID associated with the field
      * @return read-only, real-time view of the index
      * @throws UnknownIndexException if no such index exists
@@ -3402,6 +3664,26 @@ public class Transaction {
 
     // COMPOSITE-INDEX
 
+    /**
+     * Query a {@link CompositeIndex} to find all index entries along with the values of the index's
+     * {@linkplain CompositeIndex#getIncludedFields included fields}, which are read directly from the index
+     * entries without accessing the indexed objects.
+     *
+     * <p>
+     * The returned map's keys are tuples containing the indexed field values followed by the target object ID.
+     * Use {@link IncludedValuesMap#withValues IncludedValuesMap.withValues()} to efficiently restrict the
+     * entries to those having specific leading indexed field values.
+     *
+     * @param storageId the storage ID associated with the composite index
+     * @return read-only, real-time view of the index entries and their included field values
+     * @throws UnknownIndexException if no such composite index exists
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @see CompositeIndex#getIncludedValues
+     */
+    public IncludedValuesMap queryCompositeIndexIncludedValues(int storageId) {
+        return this.findIndex(storageId, CompositeIndex.class).getIncludedValues(this);
+    }
+
     private <CI extends AbstractCoreIndex<ObjId>> CI findCompositeIndex(int storageId, int numFields, Class<CI> coreIndexType) {
         final CompositeIndex index = this.findIndex(storageId, CompositeIndex.class);
         final AbstractCoreIndex<ObjId> coreIndex = index.getIndex(this);
@@ -3429,6 +3711,106 @@ public class Transaction {
         }
     }
 
+// Index Statistics
+
+    /**
+     * Get the most recently gathered statistics for a simple or composite index.
+     *
+     * <p>
+     * Index statistics are not maintained automatically; they reflect the state of the index as of the most recent
+     * invocation of {@link #updateIndexStatistics(int) updateIndexStatistics()} for the index.
+     *
+     * @param storageId the storage ID associated with the field (if simple) or composite index
+     * @return index statistics, or null if none have been gathered
+     * @throws UnknownIndexException if no such index exists
+     * @throws InconsistentDatabaseException if the recorded statistics are invalid
+     * @throws StaleTransactionException if this transaction is no longer usable
+     */
+    public synchronized IndexStatistics getIndexStatistics(int storageId) {
+        this.findAnyIndex(storageId);
+        final ByteData key = Layout.buildTableKey(Layout.getIndexStatisticsPrefix(), storageId);
+        final ByteData value = this.kvt.get(key);
+        if (value == null)
+            return null;
+        try {
+            return IndexStatistics.decode(value);
+        } catch (IllegalArgumentException e) {
+            throw new InconsistentDatabaseException(String.format(
+              "invalid statistics for index with storage ID %d: %s", storageId, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Gather and record statistics for a simple or composite index.
+     *
+     * <p>
+     * This scans the entire index, so it may be expensive for large indexes. The resulting statistics are recorded
+     * in the database meta-data area, replacing any previously recorded statistics, and returned.
+     *
+     * @param storageId the storage ID associated with the field (if simple) or composite index
+     * @return updated index statistics
+     * @throws UnknownIndexException if no such index exists
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @throws io.permazen.kv.KVTransactionException if the transaction is read-only
+     */
+    public synchronized IndexStatistics updateIndexStatistics(int storageId) {
+        final Index index = this.findAnyIndex(storageId);
+        final IndexStatistics statistics = this.gatherIndexStatistics(index);
+        final ByteData.Writer writer = ByteData.newWriter();
+        statistics.encode(writer);
+        this.kvt.put(Layout.buildTableKey(Layout.getIndexStatisticsPrefix(), storageId), writer.toByteData());
+        return statistics;
+    }
+
+    /**
+     * Gather and record statistics for every simple and composite index in every schema.
+     *
+     * @return mapping from index storage ID to updated index statistics
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @throws io.permazen.kv.KVTransactionException if the transaction is read-only
+     * @see #updateIndexStatistics(int)
+     */
+    public synchronized NavigableMap<Integer, IndexStatistics> updateIndexStatistics() {
+        if (this.stale)
+            throw new StaleTransactionException(this);
+        final TreeMap<Integer, IndexStatistics> map = new TreeMap<>();
+        for (Map.Entry<Integer, SchemaId> entry : this.schemaBundle.getSchemaIdsByStorageId().entrySet()) {
+            final SchemaItem item = this.schemaBundle.getSchemaItem(entry.getValue(), SchemaItem.class);
+            if (item instanceof Index || (item instanceof SimpleField && ((SimpleField<?>)item).isIndexed()))
+                map.put(entry.getKey(), this.updateIndexStatistics(entry.getKey()));
+        }
+        return map;
+    }
+
+    // Find the simple or composite index having the given storage ID
+    private synchronized Index findAnyIndex(int storageId) {
+        if (this.stale)
+            throw new StaleTransactionException(this);
+        final SchemaId schemaId = this.schemaBundle.getSchemaIdsByStorageId().get(storageId);
+        final SchemaItem item = schemaId != null ? this.schemaBundle.getSchemaItem(schemaId, SchemaItem.class) : null;
+        if (item instanceof SimpleField)
+            return ((SimpleField<?>)item).getIndex();
+        if (item instanceof Index)
+            return (Index)item;
+        throw new UnknownIndexException(String.format("storage ID %d", storageId),
+          String.format("no index with storage ID %d found", storageId));
+    }
+
+    // Scan the index, extracting the encoded value tuple from each index entry
+    private IndexStatistics gatherIndexStatistics(Index index) {
+        final ByteData prefix = UnsignedIntEncoder.encode(index.getStorageId());
+        try (CloseableIterator<KVPair> i = this.kvt.getRange(KeyRange.forPrefix(prefix))) {
+            final Iterator<ByteData> values = Iterators.transform(i, pair -> {
+                final ByteData key = pair.getKey();
+                final ByteData.Reader reader = key.newReader(prefix.size());
+                for (Encoding<?> encoding : index.getEncodings())
+                    encoding.skip(reader);
+                return key.substring(prefix.size(), reader.getOffset());
+            });
+            return IndexStatistics.gather(values, IndexStatistics.DEFAULT_HISTOGRAM_BUCKETS);
+        }
+    }
+
 // Internal Methods
 
     /**
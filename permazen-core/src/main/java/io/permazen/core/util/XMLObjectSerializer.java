@@ -568,7 +568,8 @@ public class XMLObjectSerializer extends AbstractXMLStreaming {
                         throw this.newInvalidInputException(reader, e,
                           "invalid counter value for field \"%s\": %s", field.getName(), e.getMessage());
                     }
-                    tempTx.writeCounterField(id, field.getName(), value, false);
+                    if (!((CounterField)field).isAggregate())                 // aggregate values are maintained automatically
+                        tempTx.writeCounterField(id, field.getName(), value, false);
                 } else if (field instanceof CollectionField) {
                     final SimpleField<?> elementField = ((CollectionField<?, ?>)field).getElementField();
                     final Collection<?> collection;
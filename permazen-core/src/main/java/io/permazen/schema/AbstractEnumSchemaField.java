@@ -83,8 +83,13 @@ public abstract class AbstractEnumSchemaField extends SimpleSchemaField {
 
     @Override
     void readSubElements(XMLStreamReader reader, int formatVersion) throws XMLStreamException {
-        while (this.expect(reader, true, XMLConstants.IDENTIFIER_TAG))
-            this.idents.add(reader.getElementText());
+        this.getIndexExcludes().clear();
+        while (this.expect(reader, true, XMLConstants.IDENTIFIER_TAG, XMLConstants.INDEX_EXCLUDE_TAG)) {
+            if (reader.getName().equals(XMLConstants.INDEX_EXCLUDE_TAG))
+                this.readIndexExclude(reader);
+            else
+                this.idents.add(reader.getElementText());
+        }
     }
 
 // XML Writing
@@ -101,6 +106,7 @@ public abstract class AbstractEnumSchemaField extends SimpleSchemaField {
             writer.writeCharacters(StringEncoder.encode(ident, false));
             writer.writeEndElement();
         }
+        this.writeIndexExcludes(writer);
         writer.writeEndElement();
     }
 
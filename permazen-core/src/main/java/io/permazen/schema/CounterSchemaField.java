@@ -5,19 +5,138 @@
 
 package io.permazen.schema;
 
+import io.permazen.core.InvalidSchemaException;
+import io.permazen.util.DiffGenerating;
+import io.permazen.util.Diffs;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Objects;
+
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
 /**
  * A counter field in a {@link SchemaObjectType}.
+ *
+ * <p>
+ * A counter field may optionally be an <i>aggregate</i> counter, whose value is maintained automatically as either the
+ * number of objects of some other type that refer to the containing object through a reference field, or the sum of
+ * some integral field in those referring objects. See {@link #getAggregateObjectType}.
  */
-public class CounterSchemaField extends SchemaField {
+public class CounterSchemaField extends SchemaField implements DiffGenerating<CounterSchemaField> {
 
     /**
      * The {@link ItemType} that this class represents.
      */
     public static final ItemType ITEM_TYPE = ItemType.COUNTER_FIELD;
 
+    private String aggregateObjectType;
+    private String aggregateReference;
+    private String aggregateSum;
+
+// Properties
+
+    /**
+     * Get the name of the object type whose instances are aggregated by this counter, if any.
+     *
+     * <p>
+     * If this is non-null, this field is an aggregate counter: its value is automatically maintained as the number
+     * of objects of the named type whose {@linkplain #getAggregateReference reference field} refers to the containing
+     * object or, if an {@linkplain #getAggregateSum aggregate sum field} is also configured, the sum of that field's
+     * values in those objects.
+     *
+     * @return name of the aggregated object type, or null if this is a plain counter field
+     */
+    public String getAggregateObjectType() {
+        return this.aggregateObjectType;
+    }
+
+    /**
+     * Set the name of the object type whose instances are aggregated by this counter.
+     *
+     * @param aggregateObjectType aggregated object type name, or null for a plain counter field
+     * @throws UnsupportedOperationException if this instance is locked down
+     */
+    public void setAggregateObjectType(String aggregateObjectType) {
+        this.verifyNotLockedDown(false);
+        this.aggregateObjectType = aggregateObjectType;
+    }
+
+    /**
+     * Get the name of the reference field in the {@linkplain #getAggregateObjectType aggregated object type}
+     * that refers back to objects containing this counter.
+     *
+     * <p>
+     * This must be a non-sub-field reference field. Required for aggregate counters, otherwise must be null.
+     *
+     * @return name of the aggregated reference field, or null if this is a plain counter field
+     */
+    public String getAggregateReference() {
+        return this.aggregateReference;
+    }
+
+    /**
+     * Set the name of the reference field through which aggregated objects refer to objects containing this counter.
+     *
+     * @param aggregateReference aggregated reference field name, or null for a plain counter field
+     * @throws UnsupportedOperationException if this instance is locked down
+     */
+    public void setAggregateReference(String aggregateReference) {
+        this.verifyNotLockedDown(false);
+        this.aggregateReference = aggregateReference;
+    }
+
+    /**
+     * Get the name of the field in the {@linkplain #getAggregateObjectType aggregated object type} whose values are summed.
+     *
+     * <p>
+     * This must be a non-sub-field simple field having an integral type ({@code byte}, {@code short}, {@code int},
+     * {@code long}, or their wrapper types). If null, the counter counts referring objects instead.
+     *
+     * @return name of the summed field, or null to count referring objects
+     */
+    public String getAggregateSum() {
+        return this.aggregateSum;
+    }
+
+    /**
+     * Set the name of the field in the aggregated object type whose values are summed.
+     *
+     * @param aggregateSum summed field name, or null to count referring objects
+     * @throws UnsupportedOperationException if this instance is locked down
+     */
+    public void setAggregateSum(String aggregateSum) {
+        this.verifyNotLockedDown(false);
+        this.aggregateSum = aggregateSum;
+    }
+
+    /**
+     * Determine whether this field is an aggregate counter.
+     *
+     * @return true if {@link #getAggregateObjectType} is not null
+     */
+    public boolean isAggregate() {
+        return this.aggregateObjectType != null;
+    }
+
+// Validation
+
+    @Override
+    void validate() {
+        super.validate();
+        if (this.aggregateObjectType == null) {
+            if (this.aggregateReference != null || this.aggregateSum != null) {
+                throw new InvalidSchemaException(String.format(
+                  "invalid %s: aggregate reference and sum fields require an aggregate object type", this));
+            }
+            return;
+        }
+        if (this.aggregateReference == null)
+            throw new InvalidSchemaException(String.format("invalid %s: aggregate counter has no reference field", this));
+    }
+
 // SchemaFieldSwitch
 
     @Override
@@ -25,28 +144,96 @@ public class CounterSchemaField extends SchemaField {
         return target.caseCounterSchemaField(this);
     }
 
+// Schema ID
+
+    @Override
+    public final ItemType getItemType() {
+        return ITEM_TYPE;
+    }
+
+    @Override
+    void writeSchemaIdHashData(DataOutputStream output, boolean forSchemaModel) throws IOException {
+        super.writeSchemaIdHashData(output, forSchemaModel);
+
+        // Omit when not an aggregate for compatibility with older schemas
+        if (forSchemaModel && this.aggregateObjectType != null) {
+            output.writeUTF(this.aggregateObjectType);
+            output.writeUTF(this.aggregateReference);
+            output.writeBoolean(this.aggregateSum != null);
+            if (this.aggregateSum != null)
+                output.writeUTF(this.aggregateSum);
+        }
+    }
+
+// DiffGenerating
+
+    @Override
+    public Diffs differencesFrom(CounterSchemaField that) {
+        final Diffs diffs = new Diffs(super.differencesFrom(that));
+        if (!Objects.equals(this.aggregateObjectType, that.aggregateObjectType)) {
+            diffs.add(String.format("changed %s from %s to %s",
+              "aggregate object type", that.aggregateObjectType, this.aggregateObjectType));
+        }
+        if (!Objects.equals(this.aggregateReference, that.aggregateReference)) {
+            diffs.add(String.format("changed %s from %s to %s",
+              "aggregate reference", that.aggregateReference, this.aggregateReference));
+        }
+        if (!Objects.equals(this.aggregateSum, that.aggregateSum))
+            diffs.add(String.format("changed %s from %s to %s", "aggregate sum", that.aggregateSum, this.aggregateSum));
+        return diffs;
+    }
+
+// XML Reading
+
+    @Override
+    void readAttributes(XMLStreamReader reader, int formatVersion, boolean requireName) throws XMLStreamException {
+        super.readAttributes(reader, formatVersion, requireName);
+        this.setAggregateObjectType(this.getAttr(reader, XMLConstants.AGGREGATE_OBJECT_TYPE_ATTRIBUTE, false));
+        this.setAggregateReference(this.getAttr(reader, XMLConstants.AGGREGATE_REFERENCE_ATTRIBUTE, false));
+        this.setAggregateSum(this.getAttr(reader, XMLConstants.AGGREGATE_SUM_ATTRIBUTE, false));
+    }
+
 // XML Writing
 
     @Override
     void writeXML(XMLStreamWriter writer, boolean includeStorageIds, boolean prettyPrint) throws XMLStreamException {
         this.writeEmptyItemElement(writer);
         this.writeAttributes(writer, includeStorageIds);
+        if (this.aggregateObjectType != null)
+            this.writeAttr(writer, XMLConstants.AGGREGATE_OBJECT_TYPE_ATTRIBUTE, this.aggregateObjectType);
+        if (this.aggregateReference != null)
+            this.writeAttr(writer, XMLConstants.AGGREGATE_REFERENCE_ATTRIBUTE, this.aggregateReference);
+        if (this.aggregateSum != null)
+            this.writeAttr(writer, XMLConstants.AGGREGATE_SUM_ATTRIBUTE, this.aggregateSum);
         if (prettyPrint)
             this.writeSchemaIdComment(writer);
     }
 
-// Schema ID
+// Object
 
     @Override
-    public final ItemType getItemType() {
-        return ITEM_TYPE;
+    public String toString() {
+        return "counter " + super.toString();
     }
 
-// Object
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!super.equals(obj))
+            return false;
+        final CounterSchemaField that = (CounterSchemaField)obj;
+        return Objects.equals(this.aggregateObjectType, that.aggregateObjectType)
+          && Objects.equals(this.aggregateReference, that.aggregateReference)
+          && Objects.equals(this.aggregateSum, that.aggregateSum);
+    }
 
     @Override
-    public String toString() {
-        return "counter " + super.toString();
+    public int hashCode() {
+        return super.hashCode()
+          ^ Objects.hashCode(this.aggregateObjectType)
+          ^ Objects.hashCode(this.aggregateReference)
+          ^ Objects.hashCode(this.aggregateSum);
     }
 
 // Cloneable
@@ -145,6 +145,10 @@ public class ReferenceSchemaField extends SimpleSchemaField {
         super.validate();
         if (this.inverseDelete == null)
             throw new InvalidSchemaException(String.format("invalid %s: no inverse delete action specified", this));
+        if (!this.getIndexExcludes().isEmpty()) {
+            throw new InvalidSchemaException(String.format(
+              "invalid %s: reference fields may only exclude null values from their index", this));
+        }
         switch (this.inverseDelete) {
         case IGNORE:
             if (!this.allowDeleted) {
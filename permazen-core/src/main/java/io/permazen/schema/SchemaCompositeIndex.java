@@ -23,6 +23,11 @@ import javax.xml.stream.XMLStreamWriter;
 
 /**
  * An index on two or more fields in a {@link SchemaObjectType}.
+ *
+ * <p>
+ * A composite index may also have included fields. The values of included fields are not part of the index key;
+ * instead, they are stored in each index entry so they can be read directly from the index without loading the
+ * corresponding object. This makes the index a "covering" index for queries that only need those fields.
  */
 public class SchemaCompositeIndex extends AbstractObjectTypeMember implements DiffGenerating<SchemaCompositeIndex> {
 
@@ -32,6 +37,7 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
     public static final ItemType ITEM_TYPE = ItemType.COMPOSITE_INDEX;
 
     private List<String> indexedFields = new ArrayList<>();
+    private List<String> includedFields = new ArrayList<>();
 
 // Properties
 
@@ -44,12 +50,22 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
         return this.indexedFields;
     }
 
+    /**
+     * Get the included fields, whose values are stored in each index entry but are not part of the index key.
+     *
+     * @return names of included fields, possibly empty
+     */
+    public List<String> getIncludedFields() {
+        return this.includedFields;
+    }
+
 // Lockdown
 
     @Override
     void lockDown1() {
         super.lockDown1();
         this.indexedFields = Collections.unmodifiableList(this.indexedFields);
+        this.includedFields = Collections.unmodifiableList(this.includedFields);
     }
 
 // Validation
@@ -73,6 +89,17 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
             if (!(field instanceof SimpleSchemaField))
                 throw new InvalidSchemaException(String.format("%s indexes invalid field \"%s\"", this, fieldName));
         }
+        for (String fieldName : this.includedFields) {
+            if (fieldName == null)
+                throw new InvalidSchemaException(String.format("invalid %s: included field list contains null", this));
+            if (!namesSeen.add(fieldName))
+                throw new InvalidSchemaException(String.format("invalid %s: duplicate field \"%s\"", this, fieldName));
+            final SchemaField field = this.getObjectType().getSchemaFields().get(fieldName);
+            if (field == null)
+                throw new InvalidSchemaException(String.format("%s includes unknown field \"%s\"", this, fieldName));
+            if (!(field instanceof SimpleSchemaField))
+                throw new InvalidSchemaException(String.format("%s includes invalid field \"%s\"", this, fieldName));
+        }
     }
 
 // XML Reading
@@ -80,12 +107,16 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
     @Override
     void readSubElements(XMLStreamReader reader, int formatVersion) throws XMLStreamException {
         this.indexedFields.clear();
-        while (this.expect(reader, true, XMLConstants.FIELD_TAG)) {
-            this.indexedFields.add(this.getAttr(reader, XMLConstants.NAME_ATTRIBUTE));
-            this.expectClose(reader);   // </IndexedField>
+        this.includedFields.clear();
+        while (this.expect(reader, true, XMLConstants.FIELD_TAG, XMLConstants.INCLUDED_FIELD_TAG)) {
+            final boolean included = reader.getName().equals(XMLConstants.INCLUDED_FIELD_TAG);
+            (included ? this.includedFields : this.indexedFields).add(this.getAttr(reader, XMLConstants.NAME_ATTRIBUTE));
+            this.expectClose(reader);   // </Field> or </IncludedField>
         }
         if (this.indexedFields instanceof ArrayList)
             ((ArrayList<?>)this.indexedFields).trimToSize();
+        if (this.includedFields instanceof ArrayList)
+            ((ArrayList<?>)this.includedFields).trimToSize();
     }
 
 // XML Writing
@@ -100,6 +131,10 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
             this.writeEmptyElement(writer, XMLConstants.FIELD_TAG);
             this.writeAttr(writer, XMLConstants.NAME_ATTRIBUTE, fieldName);
         }
+        for (String fieldName : this.includedFields) {
+            this.writeEmptyElement(writer, XMLConstants.INCLUDED_FIELD_TAG);
+            this.writeAttr(writer, XMLConstants.NAME_ATTRIBUTE, fieldName);
+        }
         writer.writeEndElement();           // </CompositeIndex>
     }
 
@@ -124,6 +159,19 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
                     field.writeSchemaIdHashData(output, false);
             }
         }
+
+        // Included fields affect how index entries are encoded; omit when empty for compatibility with older schemas
+        if (!this.includedFields.isEmpty()) {
+            output.writeInt(this.includedFields.size());
+            if (objectType != null) {
+                for (String fieldName : this.includedFields) {
+                    final SchemaField field = objectType.getSchemaFields().get(fieldName);
+                    output.writeBoolean(field != null);
+                    if (field != null)
+                        field.writeSchemaIdHashData(output, false);
+                }
+            }
+        }
     }
 
 // DiffGenerating
@@ -133,6 +181,8 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
         final Diffs diffs = new Diffs(super.differencesFrom(that));
         if (!this.indexedFields.equals(that.indexedFields))
             diffs.add(String.format("changed %s from %s to %s", "indexed fields", that.indexedFields, this.indexedFields));
+        if (!this.includedFields.equals(that.includedFields))
+            diffs.add(String.format("changed %s from %s to %s", "included fields", that.includedFields, this.includedFields));
         return diffs;
     }
 
@@ -150,12 +200,15 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
         if (!super.equals(obj))
             return false;
         final SchemaCompositeIndex that = (SchemaCompositeIndex)obj;
-        return this.indexedFields.equals(that.indexedFields);
+        return this.indexedFields.equals(that.indexedFields)
+          && this.includedFields.equals(that.includedFields);
     }
 
     @Override
     public int hashCode() {
-        return super.hashCode() ^ this.indexedFields.hashCode();
+        return super.hashCode()
+          ^ this.indexedFields.hashCode()
+          ^ this.includedFields.hashCode();
     }
 
 // Cloneable
@@ -165,6 +218,7 @@ public class SchemaCompositeIndex extends AbstractObjectTypeMember implements Di
     public SchemaCompositeIndex clone() {
         final SchemaCompositeIndex clone = (SchemaCompositeIndex)super.clone();
         clone.indexedFields = new ArrayList<>(clone.indexedFields);
+        clone.includedFields = new ArrayList<>(clone.includedFields);
         return clone;
     }
 }
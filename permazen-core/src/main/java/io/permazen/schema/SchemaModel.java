@@ -285,6 +285,38 @@ public class SchemaModel extends SchemaSupport implements DiffGenerating<SchemaM
             }
         });
 
+        // Verify aggregate counter fields refer to a valid reference field and sum field
+        this.visitSchemaItems(CounterSchemaField.class, field -> {
+            if (!field.isAggregate())
+                return;
+            final SchemaObjectType aggregateType = this.objectTypes.get(field.getAggregateObjectType());
+            if (aggregateType == null) {
+                throw new InvalidSchemaException(String.format(
+                  "invalid %s: unknown aggregate object type \"%s\"", field, field.getAggregateObjectType()));
+            }
+            final SchemaField reference = aggregateType.getSchemaFields().get(field.getAggregateReference());
+            if (!(reference instanceof ReferenceSchemaField)) {
+                throw new InvalidSchemaException(String.format(
+                  "invalid %s: aggregate reference \"%s\" is not a reference field in %s",
+                  field, field.getAggregateReference(), aggregateType));
+            }
+            final NavigableSet<String> refObjectTypes = ((ReferenceSchemaField)reference).getObjectTypes();
+            final String typeName = field.getObjectType().getName();
+            if (refObjectTypes != null && !refObjectTypes.contains(typeName)) {
+                throw new InvalidSchemaException(String.format(
+                  "invalid %s: aggregate reference %s in %s cannot refer to type \"%s\"",
+                  field, reference, aggregateType, typeName));
+            }
+            if (field.getAggregateSum() != null) {
+                final SchemaField sum = aggregateType.getSchemaFields().get(field.getAggregateSum());
+                if (sum == null || sum.getClass() != SimpleSchemaField.class) {
+                    throw new InvalidSchemaException(String.format(
+                      "invalid %s: aggregate sum \"%s\" is not a simple field in %s",
+                      field, field.getAggregateSum(), aggregateType));
+                }
+            }
+        });
+
         // Verify that non-zero storage ID's don't have any conflicts or duplicates
         final HashMap<Integer, Tuple2<SchemaId, SchemaItem>> prevSchemaIdMap = new HashMap<>();
         final HashMap<SchemaId, Tuple2<Integer, SchemaItem>> prevStorageIdMap = new HashMap<>();
@@ -334,7 +334,7 @@ public class SchemaObjectType extends SchemaItem implements DiffGenerating<Schem
                     }
                     @Override
                     public Diffs caseCounterSchemaField(CounterSchemaField field) {
-                        return new Diffs();
+                        return field.differencesFrom((CounterSchemaField)thatField);
                     }
                 });
                 if (!fieldDiffs.isEmpty())
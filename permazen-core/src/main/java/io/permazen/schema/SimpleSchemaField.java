@@ -8,11 +8,16 @@ package io.permazen.schema;
 import io.permazen.core.InvalidSchemaException;
 import io.permazen.encoding.EncodingId;
 import io.permazen.encoding.EncodingIds;
+import io.permazen.util.BoundType;
+import io.permazen.util.Bounds;
 import io.permazen.util.DiffGenerating;
 import io.permazen.util.Diffs;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -22,6 +27,11 @@ import javax.xml.stream.XMLStreamWriter;
 
 /**
  * A simple field in a {@link SchemaObjectType}.
+ *
+ * <p>
+ * The index on an indexed field may be a <i>partial index</i>, which omits entries for certain values; see
+ * {@link #getIndexExcludes} and {@link #isIndexExcludesNull}. Partial indexes are only supported on fields
+ * that are not sub-fields of a {@link ComplexSchemaField}.
  */
 public class SimpleSchemaField extends SchemaField implements DiffGenerating<SimpleSchemaField> {
 
@@ -33,6 +43,8 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
     private ComplexSchemaField parent;
     private EncodingId encodingId;
     private boolean indexed;
+    private boolean indexExcludesNull;
+    private List<Bounds<String>> indexExcludes = new ArrayList<>();
 
     @SuppressWarnings("this-escape")
     public SimpleSchemaField() {
@@ -122,6 +134,56 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
         this.indexed = indexed;
     }
 
+    /**
+     * Get whether the null value is excluded from this field's index.
+     *
+     * <p>
+     * If so, the index contains no entries for objects whose field value is null. This is useful for sparse fields
+     * that are null most of the time. Has no effect if the field's encoding does not support null values.
+     *
+     * @return true if null values are not indexed
+     */
+    public boolean isIndexExcludesNull() {
+        return this.indexExcludesNull;
+    }
+
+    /**
+     * Set whether the null value is excluded from this field's index.
+     *
+     * @param indexExcludesNull true if null values are not indexed
+     * @throws UnsupportedOperationException if this instance is locked down
+     */
+    public void setIndexExcludesNull(boolean indexExcludesNull) {
+        this.verifyNotLockedDown(false);
+        this.indexExcludesNull = indexExcludesNull;
+    }
+
+    /**
+     * Get the ranges of non-null values that are excluded from this field's index.
+     *
+     * <p>
+     * Each range's bounds are values in their {@linkplain io.permazen.encoding.Encoding#toString(Object) string form}.
+     * An unbounded range excludes all non-null values; a range whose lower and upper bounds are the same inclusive
+     * value excludes that single value. Objects whose field value lies in any of these ranges have no index entry.
+     *
+     * <p>
+     * Reference fields do not support excluded value ranges, because they rely on their index to find referring objects.
+     *
+     * @return excluded non-null value ranges, possibly empty
+     */
+    public List<Bounds<String>> getIndexExcludes() {
+        return this.indexExcludes;
+    }
+
+    /**
+     * Determine whether this field has a partial index.
+     *
+     * @return true if this field is indexed and some values are excluded from the index
+     */
+    public boolean hasPartialIndex() {
+        return this.indexed && (this.indexExcludesNull || !this.indexExcludes.isEmpty());
+    }
+
     /**
      * Determine if this field has a fixed encoding.
      *
@@ -140,6 +202,14 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
         return false;
     }
 
+// Lockdown
+
+    @Override
+    void lockDown1() {
+        super.lockDown1();
+        this.indexExcludes = Collections.unmodifiableList(this.indexExcludes);
+    }
+
 // Validation
 
     @Override
@@ -151,6 +221,18 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
             throw new InvalidSchemaException(String.format("invalid %s: %s", this, "encoding ID should be null"));
         if (this.isAlwaysIndexed() && !this.isIndexed())
             throw new InvalidSchemaException(String.format("invalid %s: %s", this, "field must always be indexed"));
+        if (this.indexExcludesNull || !this.indexExcludes.isEmpty()) {
+            if (!this.indexed)
+                throw new InvalidSchemaException(String.format("invalid %s: %s", this, "index excludes require an index"));
+            if (this.parent != null) {
+                throw new InvalidSchemaException(String.format("invalid %s: %s",
+                  this, "index excludes are not supported on complex sub-fields"));
+            }
+        }
+        for (Bounds<String> bounds : this.indexExcludes) {
+            if (bounds == null)
+                throw new InvalidSchemaException(String.format("invalid %s: %s", this, "index excludes contains null"));
+        }
     }
 
 // SchemaFieldSwitch
@@ -178,8 +260,23 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
         if (!this.hasFixedEncoding())
             output.writeUTF(this.encodingId.getId());
         output.writeBoolean(forSchemaModel);
-        if (forSchemaModel)
+        if (forSchemaModel) {
             output.writeBoolean(this.indexed);
+
+            // Omit when not a partial index for compatibility with older schemas
+            if (this.indexExcludesNull || !this.indexExcludes.isEmpty()) {
+                output.writeBoolean(this.indexExcludesNull);
+                output.writeInt(this.indexExcludes.size());
+                for (Bounds<String> bounds : this.indexExcludes) {
+                    output.writeUTF(bounds.getLowerBoundType().name());
+                    if (bounds.hasLowerBound())
+                        output.writeUTF(bounds.getLowerBound());
+                    output.writeUTF(bounds.getUpperBoundType().name());
+                    if (bounds.hasUpperBound())
+                        output.writeUTF(bounds.getUpperBound());
+                }
+            }
+        }
     }
 
 // DiffGenerating
@@ -191,6 +288,10 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
             diffs.add(String.format("changed field encoding ID from \"%s\" to \"%s\"", that.encodingId, this.encodingId));
         if (this.indexed != that.indexed)
             diffs.add((this.indexed ? "added" : "removed") + " index on field");
+        if (this.indexExcludesNull != that.indexExcludesNull)
+            diffs.add((this.indexExcludesNull ? "excluded" : "included") + " null values in index");
+        if (!this.indexExcludes.equals(that.indexExcludes))
+            diffs.add(String.format("changed %s from %s to %s", "index excludes", that.indexExcludes, this.indexExcludes));
         return diffs;
     }
 
@@ -211,6 +312,44 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
         final Boolean indexedAttr = this.getBooleanAttr(reader, XMLConstants.INDEXED_ATTRIBUTE, false);
         if (indexedAttr != null)
             this.setIndexed(indexedAttr);
+        final Boolean indexExcludesNullAttr = this.getBooleanAttr(reader, XMLConstants.INDEX_EXCLUDES_NULL_ATTRIBUTE, false);
+        if (indexExcludesNullAttr != null)
+            this.setIndexExcludesNull(indexExcludesNullAttr);
+    }
+
+    @Override
+    void readSubElements(XMLStreamReader reader, int formatVersion) throws XMLStreamException {
+        this.indexExcludes.clear();
+        while (this.expect(reader, true, XMLConstants.INDEX_EXCLUDE_TAG))
+            this.readIndexExclude(reader);
+    }
+
+    /**
+     * Read an {@code <IndexExclude>} element.
+     *
+     * <p>
+     * Start state: positioned at opening XML tag.
+     * Return state: positioned at closing XML tag.
+     */
+    void readIndexExclude(XMLStreamReader reader) throws XMLStreamException {
+        final String value = this.getAttr(reader, XMLConstants.VALUE_ATTRIBUTE, false);
+        final String min = this.getAttr(reader, XMLConstants.MIN_ATTRIBUTE, false);
+        final String max = this.getAttr(reader, XMLConstants.MAX_ATTRIBUTE, false);
+        final Boolean inclusiveMin = this.getBooleanAttr(reader, XMLConstants.INCLUSIVE_MIN_ATTRIBUTE, false);
+        final Boolean inclusiveMax = this.getBooleanAttr(reader, XMLConstants.INCLUSIVE_MAX_ATTRIBUTE, false);
+        if (value != null) {
+            if (min != null || max != null || inclusiveMin != null || inclusiveMax != null) {
+                throw this.newInvalidInputException(reader,
+                  "<%s> \"%s\" attribute may not be combined with range attributes",
+                  XMLConstants.INDEX_EXCLUDE_TAG, XMLConstants.VALUE_ATTRIBUTE);
+            }
+            this.indexExcludes.add(Bounds.eq(value));
+        } else {
+            final BoundType minType = min == null ? BoundType.NONE : BoundType.of(inclusiveMin == null || inclusiveMin);
+            final BoundType maxType = max == null ? BoundType.NONE : BoundType.of(inclusiveMax != null && inclusiveMax);
+            this.indexExcludes.add(new Bounds<>(min, minType, max, maxType));
+        }
+        this.expectClose(reader);           // </IndexExclude>
     }
 
 // XML Writing
@@ -222,10 +361,38 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
 
     void writeXML(XMLStreamWriter writer, boolean includeStorageIds, boolean prettyPrint, boolean includeName)
       throws XMLStreamException {
-        this.writeEmptyItemElement(writer);
+        if (this.indexExcludes.isEmpty())
+            this.writeEmptyItemElement(writer);
+        else
+            this.writeStartItemElement(writer);
         this.writeAttributes(writer, includeStorageIds, includeName);
         if (prettyPrint)
             this.writeSchemaIdComment(writer);
+        if (!this.indexExcludes.isEmpty()) {
+            this.writeIndexExcludes(writer);
+            writer.writeEndElement();
+        }
+    }
+
+    void writeIndexExcludes(XMLStreamWriter writer) throws XMLStreamException {
+        for (Bounds<String> bounds : this.indexExcludes) {
+            this.writeEmptyElement(writer, XMLConstants.INDEX_EXCLUDE_TAG);
+            if (bounds.getLowerBoundType() == BoundType.INCLUSIVE && bounds.getUpperBoundType() == BoundType.INCLUSIVE
+              && bounds.getLowerBound().equals(bounds.getUpperBound())) {
+                this.writeAttr(writer, XMLConstants.VALUE_ATTRIBUTE, bounds.getLowerBound());
+                continue;
+            }
+            if (bounds.hasLowerBound()) {
+                this.writeAttr(writer, XMLConstants.MIN_ATTRIBUTE, bounds.getLowerBound());
+                if (bounds.getLowerBoundType() == BoundType.EXCLUSIVE)
+                    this.writeAttr(writer, XMLConstants.INCLUSIVE_MIN_ATTRIBUTE, false);
+            }
+            if (bounds.hasUpperBound()) {
+                this.writeAttr(writer, XMLConstants.MAX_ATTRIBUTE, bounds.getUpperBound());
+                if (bounds.getUpperBoundType() == BoundType.INCLUSIVE)
+                    this.writeAttr(writer, XMLConstants.INCLUSIVE_MAX_ATTRIBUTE, true);
+            }
+        }
     }
 
     @Override
@@ -239,6 +406,8 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
             this.writeAttr(writer, XMLConstants.ENCODING_ATTRIBUTE, this.encodingId.getId());
         if (!this.isAlwaysIndexed() && this.indexed)
             this.writeAttr(writer, XMLConstants.INDEXED_ATTRIBUTE, this.indexed);
+        if (this.indexExcludesNull)
+            this.writeAttr(writer, XMLConstants.INDEX_EXCLUDES_NULL_ATTRIBUTE, this.indexExcludesNull);
     }
 
 // Object
@@ -266,20 +435,27 @@ public class SimpleSchemaField extends SchemaField implements DiffGenerating<Sim
         if (!super.equals(obj))
             return false;
         final SimpleSchemaField that = (SimpleSchemaField)obj;
-        return Objects.equals(this.encodingId, that.encodingId) && this.indexed == that.indexed;
+        return Objects.equals(this.encodingId, that.encodingId)
+          && this.indexed == that.indexed
+          && this.indexExcludesNull == that.indexExcludesNull
+          && this.indexExcludes.equals(that.indexExcludes);
     }
 
     @Override
     public int hashCode() {
         return super.hashCode()
           ^ Objects.hashCode(this.encodingId)
-          ^ Boolean.hashCode(this.indexed);
+          ^ Boolean.hashCode(this.indexed)
+          ^ (Boolean.hashCode(this.indexExcludesNull) << 3)
+          ^ this.indexExcludes.hashCode();
     }
 
 // Cloneable
 
     @Override
     public SimpleSchemaField clone() {
-        return (SimpleSchemaField)super.clone();
+        final SimpleSchemaField clone = (SimpleSchemaField)super.clone();
+        clone.indexExcludes = new ArrayList<>(clone.indexExcludes);
+        return clone;
     }
 }
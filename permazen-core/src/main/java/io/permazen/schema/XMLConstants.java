@@ -19,6 +19,8 @@ public final class XMLConstants {
     public static final QName ENUM_FIELD_TAG = new QName("EnumField");
     public static final QName FIELD_TAG = new QName("Field");
     public static final QName IDENTIFIER_TAG = new QName("Identifier");
+    public static final QName INCLUDED_FIELD_TAG = new QName("IncludedField");
+    public static final QName INDEX_EXCLUDE_TAG = new QName("IndexExclude");
     public static final QName LIST_FIELD_TAG = new QName("ListField");
     public static final QName MAP_FIELD_TAG = new QName("MapField");
     public static final QName OBJECT_TYPES_TAG = new QName("ObjectTypes");
@@ -29,15 +31,24 @@ public final class XMLConstants {
     public static final QName SIMPLE_FIELD_TAG = new QName("SimpleField");
 
     // Attributes
+    public static final QName AGGREGATE_OBJECT_TYPE_ATTRIBUTE = new QName("aggregateObjectType");
+    public static final QName AGGREGATE_REFERENCE_ATTRIBUTE = new QName("aggregateReference");
+    public static final QName AGGREGATE_SUM_ATTRIBUTE = new QName("aggregateSum");
     public static final QName ALLOW_DELETED_ATTRIBUTE = new QName("allowDeleted");
     public static final QName DIMENSIONS_ATTRIBUTE = new QName("dimensions");
     public static final QName ENCODING_ATTRIBUTE = new QName("encoding");
     public static final QName FORMAT_VERSION_ATTRIBUTE = new QName("formatVersion");
     public static final QName FORWARD_DELETE_ATTRIBUTE = new QName("forwardDelete");
+    public static final QName INCLUSIVE_MAX_ATTRIBUTE = new QName("inclusiveMax");
+    public static final QName INCLUSIVE_MIN_ATTRIBUTE = new QName("inclusiveMin");
     public static final QName INDEXED_ATTRIBUTE = new QName("indexed");
+    public static final QName INDEX_EXCLUDES_NULL_ATTRIBUTE = new QName("indexExcludesNull");
     public static final QName INVERSE_DELETE_ATTRIBUTE = new QName("inverseDelete");
+    public static final QName MAX_ATTRIBUTE = new QName("max");
+    public static final QName MIN_ATTRIBUTE = new QName("min");
     public static final QName NAME_ATTRIBUTE = new QName("name");
     public static final QName STORAGE_ID_ATTRIBUTE = new QName("storageId");
+    public static final QName VALUE_ATTRIBUTE = new QName("value");
 
     private XMLConstants() {
     }
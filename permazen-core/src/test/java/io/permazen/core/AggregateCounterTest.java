@@ -0,0 +1,146 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.schema.SchemaModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class AggregateCounterTest extends CoreAPITestSupport {
+
+    @Test
+    public void testAggregateCounter() throws Exception {
+
+        final SchemaModel schema = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Order\" storageId=\"10\">\n"
+          + "    <CounterField name=\"count\" storageId=\"11\" aggregateObjectType=\"Item\" aggregateReference=\"order\"/>\n"
+          + "    <CounterField name=\"total\" storageId=\"12\" aggregateObjectType=\"Item\" aggregateReference=\"order\""
+          + " aggregateSum=\"qty\"/>\n"
+          + "  </ObjectType>\n"
+          + "  <ObjectType name=\"Item\" storageId=\"20\">\n"
+          + "    <ReferenceField name=\"order\" storageId=\"21\"/>\n"
+          + "    <SimpleField name=\"qty\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"22\"/>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+        schema.lockDown(true);
+
+        // XML round trip
+        final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        schema.toXML(xml, true, true);
+        final SchemaModel schema2 = SchemaModel.fromXML(new ByteArrayInputStream(xml.toByteArray()));
+        schema2.lockDown(true);
+        Assert.assertEquals(schema2, schema);
+        Assert.assertEquals(schema2.getSchemaId(), schema.getSchemaId());
+
+        final Database db = new Database(new MemoryKVDatabase());
+        final Transaction tx = db.createTransaction(schema);
+
+        final ObjId order1 = tx.create("Order");
+        final ObjId order2 = tx.create("Order");
+        this.check(tx, order1, 0, 0);
+
+        // Create and point items
+        final ObjId item1 = tx.create("Item");
+        tx.writeSimpleField(item1, "qty", 5, false);
+        this.check(tx, order1, 0, 0);
+        tx.writeSimpleField(item1, "order", order1, false);
+        this.check(tx, order1, 1, 5);
+
+        final ObjId item2 = tx.create("Item");
+        tx.writeSimpleField(item2, "order", order1, false);
+        tx.writeSimpleField(item2, "qty", 3, false);
+        this.check(tx, order1, 2, 8);
+
+        // Change summed value
+        tx.writeSimpleField(item2, "qty", -1, false);
+        this.check(tx, order1, 2, 4);
+
+        // Move an item
+        tx.writeSimpleField(item1, "order", order2, false);
+        this.check(tx, order1, 1, -1);
+        this.check(tx, order2, 1, 5);
+
+        // Delete an item
+        tx.delete(item2);
+        this.check(tx, order1, 0, 0);
+
+        // New target objects see pre-existing referrers
+        final ObjId order3 = tx.create("Order");
+        tx.writeSimpleField(item1, "order", order3, false);
+        this.check(tx, order2, 0, 0);
+        this.check(tx, order3, 1, 5);
+
+        // Copying computes counter values from the destination's contents
+        final DetachedTransaction dtx = tx.createDetachedTransaction();
+        tx.copy(order3, dtx, false, false, null, null);
+        this.check(dtx, order3, 0, 0);
+        tx.copy(item1, dtx, false, false, null, null);
+        this.check(dtx, order3, 1, 5);
+        dtx.close();
+
+        // Aggregate counters can't be modified directly
+        try {
+            tx.writeCounterField(order3, "count", 10, false);
+            assert false : "expected exception";
+        } catch (IllegalArgumentException e) {
+            this.log.info("got expected {}", e.toString());
+        }
+        try {
+            tx.adjustCounterField(order3, "total", 1, false);
+            assert false : "expected exception";
+        } catch (IllegalArgumentException e) {
+            this.log.info("got expected {}", e.toString());
+        }
+        this.check(tx, order3, 1, 5);
+
+        tx.commit();
+    }
+
+    @Test
+    public void testInvalidAggregate() throws Exception {
+        this.checkInvalid("aggregateObjectType=\"Bogus\" aggregateReference=\"order\"");
+        this.checkInvalid("aggregateObjectType=\"Item\" aggregateReference=\"qty\"");
+        this.checkInvalid("aggregateObjectType=\"Item\" aggregateReference=\"order\" aggregateSum=\"name\"");
+        this.checkInvalid("aggregateObjectType=\"Item\"");
+        this.checkInvalid("aggregateReference=\"order\"");
+    }
+
+    private void checkInvalid(String attrs) throws Exception {
+        final SchemaModel schema = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Order\" storageId=\"10\">\n"
+          + "    <CounterField name=\"count\" storageId=\"11\" " + attrs + "/>\n"
+          + "  </ObjectType>\n"
+          + "  <ObjectType name=\"Item\" storageId=\"20\">\n"
+          + "    <ReferenceField name=\"order\" storageId=\"21\"/>\n"
+          + "    <SimpleField name=\"qty\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"22\"/>\n"
+          + "    <SimpleField name=\"name\" encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"23\"/>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+        try {
+            new Database(new MemoryKVDatabase()).createTransaction(schema).rollback();
+            assert false : "expected invalid schema: " + attrs;
+        } catch (InvalidSchemaException e) {
+            this.log.info("got expected {}", e.toString());
+        }
+    }
+
+    private void check(Transaction tx, ObjId id, long count, long total) {
+        Assert.assertEquals(tx.readCounterField(id, "count", false), count);
+        Assert.assertEquals(tx.readCounterField(id, "total", false), total);
+    }
+}
@@ -0,0 +1,110 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import io.permazen.kv.mvcc.BranchedKVTransaction;
+import io.permazen.kv.mvcc.TransactionConflictException;
+import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.schema.SchemaModel;
+import io.permazen.test.TestSupport;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BlindCollectionWriteTest extends CoreAPITestSupport {
+
+    private static final int SET_ELEMENT_STORAGE_ID = 21;
+    private static final int MAP_KEY_STORAGE_ID = 31;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBlindCollectionWrites() throws Exception {
+
+        final MemoryKVDatabase kvdb = new MemoryKVDatabase();
+        final Database db = new Database(kvdb);
+
+        final SchemaModel schema = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"1\">\n"
+          + "    <SetField name=\"set\" storageId=\"20\">\n"
+          + "        <SimpleField encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"21\" indexed=\"true\"/>\n"
+          + "    </SetField>"
+          + "    <MapField name=\"map\" storageId=\"30\">\n"
+          + "        <SimpleField encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"31\" indexed=\"true\"/>\n"
+          + "        <SimpleField encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"32\"/>\n"
+          + "    </MapField>"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+        final TransactionConfig config = TransactionConfig.builder().schemaModel(schema).build();
+
+        // Create object
+        final Transaction tx0 = db.createTransaction(config);
+        final ObjId id = tx0.create("Foo");
+        tx0.commit();
+
+        // Two transactions concurrently adding the same set element conflict normally
+        final Transaction tx1 = this.createBranchedTransaction(db, kvdb, config);
+        final Transaction tx2 = this.createBranchedTransaction(db, kvdb, config);
+        Assert.assertTrue(((NavigableSet<Integer>)tx1.readSetField(id, "set", false)).add(123));
+        Assert.assertTrue(((NavigableSet<Integer>)tx2.readSetField(id, "set", false)).add(123));
+        tx1.commit();
+        try {
+            tx2.commit();
+            assert false : "expected conflict";
+        } catch (TransactionConflictException e) {
+            this.log.debug("got expected {}", e.toString());
+        }
+
+        // But not when blind writes are enabled
+        final Transaction tx3 = this.createBranchedTransaction(db, kvdb, config);
+        final Transaction tx4 = this.createBranchedTransaction(db, kvdb, config);
+        tx3.withBlindCollectionWrites(() -> {
+            Assert.assertTrue(((NavigableSet<Integer>)tx3.readSetField(id, "set", false)).add(456));
+            Assert.assertFalse(((NavigableSet<Integer>)tx3.readSetField(id, "set", false)).add(456));
+            Assert.assertNull(((NavigableMap<Integer, String>)tx3.readMapField(id, "map", false)).put(1, "one"));
+        });
+        tx4.withBlindCollectionWrites(() -> {
+            Assert.assertTrue(((NavigableSet<Integer>)tx4.readSetField(id, "set", false)).add(456));
+            Assert.assertTrue(((NavigableSet<Integer>)tx4.readSetField(id, "set", false)).add(789));
+            Assert.assertNull(((NavigableMap<Integer, String>)tx4.readMapField(id, "map", false)).put(1, "uno"));
+        });
+        tx3.commit();
+        tx4.commit();
+
+        // Verify content and indexes
+        final Transaction tx = db.createTransaction(config);
+        TestSupport.checkSet(tx.readSetField(id, "set", false), TestSupport.buildSet(123, 456, 789));
+        Assert.assertEquals(tx.readMapField(id, "map", false), TestSupport.buildMap(1, "uno"));
+        Assert.assertEquals(tx.querySimpleIndex(SET_ELEMENT_STORAGE_ID).asMap().keySet(), TestSupport.buildSet(123, 456, 789));
+        Assert.assertEquals(tx.querySimpleIndex(MAP_KEY_STORAGE_ID).asMap().keySet(), TestSupport.buildSet(1));
+
+        // Blind removes keep index consistent
+        tx.withBlindCollectionWrites(() -> {
+            Assert.assertTrue(((NavigableSet<Integer>)tx.readSetField(id, "set", false)).remove(456));
+            Assert.assertFalse(((NavigableSet<Integer>)tx.readSetField(id, "set", false)).remove(999));
+            Assert.assertEquals(((NavigableMap<Integer, String>)tx.readMapField(id, "map", false)).remove(1), "uno");
+        });
+        TestSupport.checkSet(tx.readSetField(id, "set", false), TestSupport.buildSet(123, 789));
+        Assert.assertEquals(tx.querySimpleIndex(SET_ELEMENT_STORAGE_ID).asMap().keySet(), TestSupport.buildSet(123, 789));
+        Assert.assertTrue(tx.querySimpleIndex(MAP_KEY_STORAGE_ID).asMap().isEmpty());
+        Assert.assertEquals(Arrays.asList(tx.readSetField(id, "set", false).toArray()), Arrays.asList(123, 789));
+        tx.commit();
+    }
+
+    private Transaction createBranchedTransaction(Database db, MemoryKVDatabase kvdb, TransactionConfig config) {
+        final BranchedKVTransaction kvt = new BranchedKVTransaction(kvdb);
+        kvt.open();
+        return db.createTransaction(kvt, config);
+    }
+}
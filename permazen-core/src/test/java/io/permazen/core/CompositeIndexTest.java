@@ -13,7 +13,10 @@ import io.permazen.tuple.Tuple3;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class CompositeIndexTest extends CoreAPITestSupport {
@@ -100,4 +103,111 @@ public class CompositeIndexTest extends CoreAPITestSupport {
 
         tx.rollback();
     }
+
+    @Test
+    public void testIncludedFields() throws Exception {
+
+        final Database db = new Database(new MemoryKVDatabase());
+
+        final SchemaModel schema1 = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"10\">\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"11\"/>\n"
+          + "    <SimpleField name=\"s\" encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"12\"/>\n"
+          + "    <ReferenceField name=\"r\" storageId=\"13\" inverseDelete=\"NULLIFY\"/>\n"
+          + "    <SimpleField name=\"x\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"14\"/>\n"
+          + "    <CompositeIndex storageId=\"20\" name=\"is\">\n"
+          + "      <Field name=\"i\"/>\n"
+          + "      <Field name=\"s\"/>\n"
+          + "      <IncludedField name=\"r\"/>\n"
+          + "      <IncludedField name=\"x\"/>\n"
+          + "    </CompositeIndex>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+
+        // Included fields survive XML round trip and change the index's schema ID
+        Assert.assertEquals(SchemaModel.fromXML(new ByteArrayInputStream(
+          schema1.toString(true, false).getBytes(StandardCharsets.UTF_8))), schema1);
+        final SchemaModel schema2 = schema1.clone();
+        schema2.getSchemaObjectTypes().get("Foo").getSchemaCompositeIndexes().get("is").getIncludedFields().clear();
+        schema2.getSchemaObjectTypes().get("Foo").getSchemaCompositeIndexes().get("is").setStorageId(21);
+        schema1.lockDown(false);
+        schema2.lockDown(false);
+        Assert.assertNotEquals(
+          schema2.getSchemaObjectTypes().get("Foo").getSchemaCompositeIndexes().get("is").getSchemaId(),
+          schema1.getSchemaObjectTypes().get("Foo").getSchemaCompositeIndexes().get("is").getSchemaId());
+
+        Transaction tx = db.createTransaction(schema1);
+
+        final ObjId id1 = new ObjId("0a11111111111111");
+        final ObjId id2 = new ObjId("0a22222222222222");
+
+        tx.create(id1);
+        tx.create(id2);
+
+        final CompositeIndex ci = tx.getSchema().getObjType("Foo").getCompositeIndex("is");
+        Assert.assertEquals(ci.getIncludedFields().size(), 2);
+        final IncludedValuesMap map = tx.queryCompositeIndexIncludedValues(ci.getStorageId());
+
+        // Default values
+        TestSupport.checkMap(map, buildMap(
+          new Tuple3<>(0, null, id1), Arrays.asList(null, 0),
+          new Tuple3<>(0, null, id2), Arrays.asList(null, 0)));
+
+        // Change indexed fields
+        tx.writeSimpleField(id1, "i", 123, true);
+        tx.writeSimpleField(id1, "s", "foo", true);
+        tx.writeSimpleField(id2, "i", 456, true);
+
+        // Change included fields
+        tx.writeSimpleField(id1, "r", id2, true);
+        tx.writeSimpleField(id1, "x", 99, true);
+        tx.writeSimpleField(id2, "x", -1, true);
+        tx.writeSimpleField(id2, "s", "bar", true);
+
+        TestSupport.checkMap(map, buildMap(
+          new Tuple3<>(123, "foo", id1), Arrays.asList(id2, 99),
+          new Tuple3<>(456, "bar", id2), Arrays.asList(null, -1)));
+
+        // Restrict by leading values
+        TestSupport.checkMap(map.withValues(123), buildMap(
+          new Tuple3<>(123, "foo", id1), Arrays.asList(id2, 99)));
+        TestSupport.checkMap(map.withValues(456, "bar"), buildMap(
+          new Tuple3<>(456, "bar", id2), Arrays.asList(null, -1)));
+        Assert.assertTrue(map.withValues(456, "foo").isEmpty());
+        Assert.assertTrue(((IncludedValuesMap)map.tailMap(new Tuple3<>(200, "", id1), true)).withValues(123).isEmpty());
+
+        // Copy into detached transaction
+        final DetachedTransaction dtx = tx.createDetachedTransaction();
+        tx.copy(id1, dtx, false, false, null, null);
+        TestSupport.checkMap(dtx.queryCompositeIndexIncludedValues(ci.getStorageId()), buildMap(
+          new Tuple3<>(123, "foo", id1), Arrays.asList(id2, 99)));
+        dtx.close();
+
+        // Delete
+        tx.delete(id2);
+        TestSupport.checkMap(map, buildMap(
+          new Tuple3<>(123, "foo", id1), Arrays.asList(null, 99)));
+
+        tx.commit();
+
+        // Migrate to a schema where the index has no included fields
+        tx = db.createTransaction(schema2);
+        tx.migrateSchema(id1);
+        final CompositeIndex ci2 = tx.getSchema().getObjType("Foo").getCompositeIndex("is");
+        Assert.assertTrue(ci2.getIncludedFields().isEmpty());
+        Assert.assertTrue(tx.queryCompositeIndexIncludedValues(ci.getStorageId()).isEmpty());
+        TestSupport.checkMap(tx.queryCompositeIndexIncludedValues(ci2.getStorageId()), buildMap(
+          new Tuple3<>(123, "foo", id1), List.of()));
+        tx.commit();
+
+        // Migrate back again
+        tx = db.createTransaction(schema1);
+        tx.migrateSchema(id1);
+        TestSupport.checkMap(tx.queryCompositeIndexIncludedValues(ci.getStorageId()), buildMap(
+          new Tuple3<>(123, "foo", id1), Arrays.asList(null, 99)));
+        tx.rollback();
+    }
 }
@@ -0,0 +1,112 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.schema.SchemaModel;
+import io.permazen.tuple.Tuple2;
+import io.permazen.util.BoundType;
+import io.permazen.util.Bounds;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class IndexCountTest extends CoreAPITestSupport {
+
+    private static final int NUM_OBJECTS = 500;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIndexCount() throws Exception {
+
+        final Database db = new Database(new MemoryKVDatabase());
+
+        final SchemaModel schema = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"10\">\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:Integer\" storageId=\"11\" indexed=\"true\"/>\n"
+          + "    <SimpleField name=\"s\" encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"12\"/>\n"
+          + "    <ListField name=\"list\" storageId=\"13\">\n"
+          + "      <SimpleField encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"14\" indexed=\"true\"/>\n"
+          + "    </ListField>\n"
+          + "    <CompositeIndex storageId=\"20\" name=\"is\">\n"
+          + "      <Field name=\"i\"/>\n"
+          + "      <Field name=\"s\"/>\n"
+          + "    </CompositeIndex>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+
+        // Populate an in-memory transaction
+        final Transaction tx = db.createTransaction(schema);
+        final DetachedTransaction dtx = tx.createDetachedTransaction();
+        for (int i = 0; i < NUM_OBJECTS; i++) {
+            final ObjId id = dtx.create("Foo");
+            dtx.writeSimpleField(id, "i", this.random.nextInt(10) == 0 ? null : this.random.nextInt(300) - 100, false);
+            dtx.writeSimpleField(id, "s", "s" + this.random.nextInt(3), false);
+            final int listSize = this.random.nextInt(4);
+            final List<Integer> list = (List<Integer>)dtx.readListField(id, "list", false);
+            for (int j = 0; j < listSize; j++)
+                list.add(this.random.nextInt(5));
+        }
+
+        // Simple index
+        final CoreIndex1<Integer, ObjId> index1 = (CoreIndex1<Integer, ObjId>)dtx.querySimpleIndex(11);
+        this.checkCounts(index1);
+        this.checkCounts(index1.withValueBounds(new Bounds<>(-50, BoundType.INCLUSIVE, 50, BoundType.EXCLUSIVE)));
+        this.checkCounts(index1.withTargetBounds(new Bounds<>(index1.asSet().first().getValue2(), BoundType.EXCLUSIVE,
+          null, BoundType.NONE)));
+        Assert.assertEquals(index1.count(), NUM_OBJECTS);
+
+        // Composite index
+        final CoreIndex2<Integer, String, ObjId> index2 = (CoreIndex2<Integer, String, ObjId>)dtx.queryCompositeIndex2(20);
+        Assert.assertEquals(index2.count(), NUM_OBJECTS);
+        Assert.assertEquals(index2.count(true), NUM_OBJECTS);
+        final TreeMap<Tuple2<Integer, String>, Long> expected2 = new TreeMap<>(index2.asMap().comparator());
+        for (Map.Entry<Tuple2<Integer, String>, NavigableSet<ObjId>> entry : index2.asMap().entrySet())
+            expected2.put(entry.getKey(), (long)entry.getValue().size());
+        Assert.assertEquals(index2.countByValues(), expected2);
+        Assert.assertEquals(index2.countByValues(true), expected2);
+        Assert.assertEquals(index2.countByValue1(), index1.countByValue());
+        Assert.assertEquals(index2.countByValue1(true), index1.countByValue());
+
+        // Prefix views count distinct prefixes
+        this.checkCounts(index2.asIndex1());
+        Assert.assertEquals(index2.asIndex1().count(), index2.asIndex1().asSet().size());
+
+        // List element index includes list indexes
+        final CoreIndex2<Integer, ObjId, Integer> listIndex = (CoreIndex2<Integer, ObjId, Integer>)dtx.queryListElementIndex(14);
+        final long numElements = listIndex.asSet().size();
+        Assert.assertEquals(listIndex.count(), numElements);
+        Assert.assertEquals(listIndex.countByValue1().values().stream().mapToLong(Long::longValue).sum(), numElements);
+        this.checkCounts(listIndex.asIndex1());
+
+        dtx.close();
+        tx.rollback();
+    }
+
+    private <V, T> void checkCounts(CoreIndex1<V, T> index) {
+        final TreeMap<V, Long> expected = new TreeMap<>(index.asMap().comparator());
+        for (Map.Entry<V, NavigableSet<T>> entry : index.asMap().entrySet())
+            expected.put(entry.getKey(), (long)entry.getValue().size());
+        final NavigableMap<V, Long> actual = index.countByValue();
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(index.countByValue(true), expected);
+        Assert.assertEquals(actual.firstKey(), index.asMap().firstKey());
+        Assert.assertEquals(actual.lastKey(), index.asMap().lastKey());
+        Assert.assertEquals(index.count(), expected.values().stream().mapToLong(Long::longValue).sum());
+        Assert.assertEquals(index.count(true), index.count());
+    }
+}
@@ -0,0 +1,158 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import io.permazen.encoding.Encoding;
+import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.schema.SchemaModel;
+import io.permazen.util.ByteData;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class IndexStatisticsTest extends CoreAPITestSupport {
+
+    private static final int NUM_OBJECTS = 300;
+
+    private Encoding<Integer> encoding;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIndexStatistics() throws Exception {
+
+        final Database db = new Database(new MemoryKVDatabase());
+
+        final SchemaModel schema = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"10\">\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"11\" indexed=\"true\"/>\n"
+          + "    <SimpleField name=\"s\" encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"12\"/>\n"
+          + "    <SimpleField name=\"z\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"13\"/>\n"
+          + "    <CompositeIndex storageId=\"20\" name=\"is\">\n"
+          + "      <Field name=\"i\"/>\n"
+          + "      <Field name=\"s\"/>\n"
+          + "    </CompositeIndex>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+
+        // Populate database
+        final TreeMap<Integer, Integer> counts = new TreeMap<>();
+        final HashSet<List<Object>> tuples = new HashSet<>();
+        Transaction tx = db.createTransaction(schema);
+        this.encoding = (Encoding<Integer>)((SimpleField<?>)tx.getSchema().getObjType("Foo").getField("i")).getEncoding();
+        for (int i = 0; i < NUM_OBJECTS; i++) {
+            final ObjId id = tx.create("Foo");
+            final int value = (int)Math.abs(this.random.nextGaussian() * 30);
+            final String s = "s" + this.random.nextInt(3);
+            tx.writeSimpleField(id, "i", value, false);
+            tx.writeSimpleField(id, "s", s, false);
+            counts.merge(value, 1, Integer::sum);
+            tuples.add(List.of(value, s));
+        }
+        tx.commit();
+        tx = db.createTransaction(schema);
+
+        // No statistics yet
+        Assert.assertNull(tx.getIndexStatistics(11));
+        Assert.assertNull(tx.getIndexStatistics(20));
+        try {
+            tx.getIndexStatistics(13);
+            assert false : "expected exception";
+        } catch (UnknownIndexException e) {
+            this.log.debug("got expected {}", e.toString());
+        }
+
+        // Gather statistics
+        final IndexStatistics stats = tx.updateIndexStatistics(11);
+        this.log.debug("statistics: {} histogram: {}", stats, stats.getHistogram());
+        Assert.assertEquals(stats.getEntryCount(), NUM_OBJECTS);
+        Assert.assertEquals(stats.getDistinctValueCount(), counts.size());
+        final NavigableMap<ByteData, Long> histogram = stats.getHistogram();
+        Assert.assertTrue(histogram.size() <= 2 * IndexStatistics.DEFAULT_HISTOGRAM_BUCKETS + 1, "histogram too big");
+        Assert.assertEquals(histogram.firstKey(), this.encode(counts.firstKey()));
+        Assert.assertEquals(histogram.lastKey(), this.encode(counts.lastKey()));
+        Assert.assertEquals((long)histogram.lastEntry().getValue(), NUM_OBJECTS);
+
+        // Histogram counts should be exact
+        for (Map.Entry<ByteData, Long> entry : histogram.entrySet()) {
+            final long expected = counts.entrySet().stream()
+              .filter(e -> this.encode(e.getKey()).compareTo(entry.getKey()) <= 0)
+              .mapToLong(Map.Entry::getValue)
+              .sum();
+            Assert.assertEquals((long)entry.getValue(), expected);
+        }
+
+        // Estimates should be reasonably close
+        long maxGap = 0;
+        long prevCount = 0;
+        for (long count : histogram.values()) {
+            maxGap = Math.max(maxGap, count - prevCount);
+            prevCount = count;
+        }
+        for (int i = 0; i < 50; i++) {
+            final int min = this.random.nextInt(100);
+            final int max = min + this.random.nextInt(30);
+            final long actual = counts.subMap(min, max).values().stream().mapToLong(x -> x).sum();
+            final long estimate = stats.estimateEntries(this.encode(min), this.encode(max));
+            Assert.assertTrue(Math.abs(estimate - actual) <= 2 * maxGap,
+              String.format("range [%d, %d) actual %d estimate %d maxGap %d", min, max, actual, estimate, maxGap));
+        }
+        Assert.assertEquals(stats.estimateEntries(null, null), NUM_OBJECTS);
+        Assert.assertEquals(stats.estimateEntries(this.encode(-1)), 0);
+        Assert.assertEquals(stats.estimateEntries(this.encode(counts.lastKey() + 1)), 0);
+
+        // Encoding round trip
+        final ByteData.Writer writer = ByteData.newWriter();
+        stats.encode(writer);
+        Assert.assertEquals(IndexStatistics.decode(writer.toByteData()), stats);
+
+        // Gather all statistics
+        final NavigableMap<Integer, IndexStatistics> allStats = tx.updateIndexStatistics();
+        Assert.assertEquals(allStats.keySet(), Set.of(11, 20));
+        Assert.assertEquals(allStats.get(11), stats);
+        Assert.assertEquals(allStats.get(20).getEntryCount(), NUM_OBJECTS);
+        Assert.assertEquals(allStats.get(20).getDistinctValueCount(), tuples.size());
+        Assert.assertEquals(tx.getSchema().getObjType("Foo").getCompositeIndex("is").getStatistics(tx), allStats.get(20));
+
+        // Statistics are not copied into detached transactions
+        final DetachedTransaction dtx = tx.createDetachedTransaction();
+        Assert.assertNull(dtx.getIndexStatistics(11));
+        dtx.close();
+        tx.commit();
+
+        // Statistics persist
+        tx = db.createTransaction(schema);
+        Assert.assertEquals(tx.getIndexStatistics(11), stats);
+        tx.commit();
+    }
+
+    @Test
+    public void testEmptyIndex() throws Exception {
+        final IndexStatistics stats = IndexStatistics.gather(List.<ByteData>of().iterator(), 4);
+        Assert.assertEquals(stats.getEntryCount(), 0);
+        Assert.assertEquals(stats.getDistinctValueCount(), 0);
+        Assert.assertTrue(stats.getHistogram().isEmpty());
+        Assert.assertEquals(stats.estimateEntries(ByteData.of(1)), 0);
+        Assert.assertEquals(stats.estimateEntries(ByteData.of(1), ByteData.of(2)), 0);
+    }
+
+    private ByteData encode(int value) {
+        final ByteData.Writer writer = ByteData.newWriter();
+        this.encoding.write(writer, value);
+        return writer.toByteData();
+    }
+}
@@ -0,0 +1,144 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.schema.SchemaModel;
+import io.permazen.test.TestSupport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PartialIndexTest extends CoreAPITestSupport {
+
+    @Test
+    public void testPartialIndex() throws Exception {
+
+        final SchemaModel schema1 = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"10\">\n"
+          + "    <SimpleField name=\"s\" encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"11\" indexed=\"true\""
+          + " indexExcludesNull=\"true\"/>\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"12\" indexed=\"true\">\n"
+          + "      <IndexExclude value=\"0\"/>\n"
+          + "      <IndexExclude min=\"100\"/>\n"
+          + "    </SimpleField>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+        schema1.lockDown(true);
+
+        final SchemaModel schema2 = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"10\">\n"
+          + "    <SimpleField name=\"s\" encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"11\" indexed=\"true\"/>\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"12\" indexed=\"true\"/>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+        schema2.lockDown(true);
+
+        // XML round trip
+        final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        schema1.toXML(xml, true, true);
+        final SchemaModel schema1b = SchemaModel.fromXML(new ByteArrayInputStream(xml.toByteArray()));
+        schema1b.lockDown(true);
+        Assert.assertEquals(schema1b, schema1);
+        Assert.assertEquals(schema1b.getSchemaId(), schema1.getSchemaId());
+        Assert.assertNotEquals(schema2.getSchemaId(), schema1.getSchemaId());
+
+        final Database db = new Database(new MemoryKVDatabase());
+
+    // Version 1
+
+        Transaction tx = db.createTransaction(schema1);
+
+        // Default values are excluded
+        final ObjId id1 = tx.create("Foo");
+        TestSupport.checkMap(tx.querySimpleIndex(11).asMap(), buildMap());
+        TestSupport.checkMap(tx.querySimpleIndex(12).asMap(), buildMap());
+
+        // Index entries are added and removed as values move in and out of the excluded set
+        tx.writeSimpleField(id1, "s", "foo", false);
+        tx.writeSimpleField(id1, "i", 99, false);
+        TestSupport.checkMap(tx.querySimpleIndex(11).asMap(), buildMap("foo", buildSet(id1)));
+        TestSupport.checkMap(tx.querySimpleIndex(12).asMap(), buildMap(99, buildSet(id1)));
+        tx.writeSimpleField(id1, "i", 100, false);
+        TestSupport.checkMap(tx.querySimpleIndex(12).asMap(), buildMap());
+        tx.writeSimpleField(id1, "i", -5, false);
+        TestSupport.checkMap(tx.querySimpleIndex(12).asMap(), buildMap(-5, buildSet(id1)));
+        tx.writeSimpleField(id1, "s", null, false);
+        TestSupport.checkMap(tx.querySimpleIndex(11).asMap(), buildMap());
+
+        // Copies honor the exclusions
+        final ObjId id2 = tx.create("Foo");
+        tx.writeSimpleField(id2, "i", 1234, false);
+        final DetachedTransaction dtx = tx.createDetachedTransaction();
+        tx.copy(id2, dtx, true, false, null, null);
+        TestSupport.checkMap(dtx.querySimpleIndex(12).asMap(), buildMap());
+        dtx.close();
+
+        tx.commit();
+
+    // Version 2 - full indexes
+
+        tx = db.createTransaction(schema2);
+        tx.migrateSchema(id1);
+        tx.migrateSchema(id2);
+        TestSupport.checkMap(tx.querySimpleIndex(11).asMap(), buildMap(null, buildSet(id1, id2)));
+        TestSupport.checkMap(tx.querySimpleIndex(12).asMap(), buildMap(-5, buildSet(id1), 1234, buildSet(id2)));
+        tx.commit();
+
+    // Back to version 1
+
+        tx = db.createTransaction(schema1);
+        tx.migrateSchema(id1);
+        tx.migrateSchema(id2);
+        TestSupport.checkMap(tx.querySimpleIndex(11).asMap(), buildMap());
+        TestSupport.checkMap(tx.querySimpleIndex(12).asMap(), buildMap(-5, buildSet(id1)));
+
+        // Delete
+        tx.delete(id1);
+        TestSupport.checkMap(tx.querySimpleIndex(12).asMap(), buildMap());
+        tx.commit();
+    }
+
+    @Test
+    public void testInvalidSchema() throws Exception {
+        for (String field : new String[] {
+            "<SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"12\" indexExcludesNull=\"true\"/>",
+            "<SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"12\" indexed=\"true\">"
+              + "<IndexExclude value=\"0\" min=\"1\"/></SimpleField>",
+            "<SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"12\" indexed=\"true\">"
+              + "<IndexExclude value=\"bogus\"/></SimpleField>",
+            "<SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"12\" indexed=\"true\">"
+              + "<IndexExclude min=\"5\" max=\"5\"/></SimpleField>",
+            "<SetField name=\"set\" storageId=\"12\"><SimpleField encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"13\""
+              + " indexed=\"true\" indexExcludesNull=\"true\"/></SetField>",
+        }) {
+            try {
+                final SchemaModel schema = SchemaModel.fromXML(new ByteArrayInputStream((
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                  + "<Schema>\n"
+                  + "  <ObjectType name=\"Foo\" storageId=\"10\">\n"
+                  + "    " + field + "\n"
+                  + "  </ObjectType>\n"
+                  + "</Schema>\n"
+                  ).getBytes(StandardCharsets.UTF_8)));
+                new Database(new MemoryKVDatabase()).createTransaction(schema).rollback();
+                assert false : "expected exception for " + field;
+            } catch (InvalidSchemaException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+        }
+    }
+}
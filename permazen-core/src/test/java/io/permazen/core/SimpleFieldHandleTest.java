@@ -0,0 +1,80 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.core;
+
+import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.schema.SchemaModel;
+import io.permazen.test.TestSupport;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SimpleFieldHandleTest extends CoreAPITestSupport {
+
+    @Test
+    public void testSimpleFieldHandle() throws Exception {
+
+        final Database db = new Database(new MemoryKVDatabase());
+
+        final SchemaModel schema1 = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"1\">\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"2\" indexed=\"true\"/>\n"
+          + "    <SimpleField name=\"s\" encoding=\"urn:fdc:permazen.io:2020:String\" storageId=\"3\"/>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+        final SchemaModel schema2 = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Foo\" storageId=\"1\">\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"2\" indexed=\"true\"/>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+
+        final SimpleFieldHandle ihandle = new SimpleFieldHandle("i");
+        final SimpleFieldHandle shandle = new SimpleFieldHandle("s");
+
+        // Write and read via handles
+        Transaction tx = db.createTransaction(schema1);
+        final ObjId id = tx.create("Foo");
+        Assert.assertEquals(tx.readSimpleField(id, ihandle, true), 0);
+        Assert.assertNull(tx.readSimpleField(id, shandle, true));
+        tx.writeSimpleField(id, ihandle, 123, true);
+        tx.writeSimpleField(id, shandle, "abc", true);
+        Assert.assertEquals(tx.readSimpleField(id, "i", true), 123);
+        Assert.assertEquals(tx.readSimpleField(id, shandle, true), "abc");
+        Assert.assertEquals(tx.querySimpleIndex(2).asMap().keySet(), TestSupport.buildSet(123));
+        try {
+            tx.writeSimpleField(id, ihandle, "not an int", true);
+            assert false : "expected exception";
+        } catch (IllegalArgumentException e) {
+            this.log.debug("got expected {}", e.toString());
+        }
+        tx.commit();
+
+        // Same handles work in a new transaction with a different schema
+        tx = db.createTransaction(schema2);
+        Assert.assertEquals(tx.readSimpleField(id, ihandle, false), 123);
+        Assert.assertEquals(tx.readSimpleField(id, shandle, false), "abc");         // object still has old schema
+        Assert.assertEquals(tx.readSimpleField(id, ihandle, true), 123);            // migrates object
+        try {
+            tx.readSimpleField(id, shandle, true);
+            assert false : "expected exception";
+        } catch (UnknownFieldException e) {
+            this.log.debug("got expected {}", e.toString());
+        }
+        tx.writeSimpleField(id, ihandle, 456, true);
+        Assert.assertEquals(tx.readSimpleField(id, "i", true), 456);
+        Assert.assertEquals(tx.querySimpleIndex(2).asMap().keySet(), TestSupport.buildSet(456));
+        tx.commit();
+    }
+}
@@ -7,6 +7,7 @@ package io.permazen.jsck;
 
 import io.permazen.core.Encodings;
 import io.permazen.core.ObjId;
+import io.permazen.core.SimpleField;
 import io.permazen.util.ByteData;
 
 class CompositeIndex extends Index<io.permazen.core.CompositeIndex> {
@@ -33,4 +34,34 @@ class CompositeIndex extends Index<io.permazen.core.CompositeIndex> {
               index.getFields().get(i).getStorageId(), index.getEncodings().get(i), values[i]);
         }
     }
+
+    @Override
+    public ByteData validateIndexValue(JsckInfo info, ByteData key, ByteData value) {
+
+        // Handle the normal case
+        final io.permazen.core.CompositeIndex index = this.schemaItem;
+        if (index.getIncludedFields().isEmpty())
+            return super.validateIndexValue(info, key, value);
+
+        // Decode included field values
+        final ByteData.Reader reader = value.newReader();
+        try {
+            for (SimpleField<?> field : index.getIncludedFields())
+                this.validateEncodedBytes(reader, field.getEncoding());
+            this.validateEOF(reader);
+        } catch (IllegalArgumentException e) {
+
+            // Rebuild the value from the object's current field values
+            final ObjId id = new ObjId(key.substring(key.size() - ObjId.NUM_BYTES).newReader());
+            final ByteData.Writer writer = ByteData.newWriter();
+            for (SimpleField<?> field : index.getIncludedFields()) {
+                final ByteData fieldValue = info.getKVStore().get(this.buildFieldKey(id, field.getStorageId()).toByteData());
+                writer.write(fieldValue != null ? fieldValue : field.getEncoding().getDefaultValueBytes());
+            }
+            return writer.toByteData();
+        }
+
+        // Agreement with the object's field values is verified when the object itself is checked
+        return null;
+    }
 }
@@ -35,6 +35,18 @@ abstract class Index<I extends io.permazen.core.Index> extends Storage<I> {
      */
     protected abstract void validateIndexEntryContent(JsckInfo info, ByteData.Reader reader);
 
+    /**
+     * Validate the value associated with an index entry, which has already been validated.
+     *
+     * <p>
+     * The default implementation requires the value to be empty.
+     *
+     * @return the corrected value, or null if {@code value} is valid
+     */
+    public ByteData validateIndexValue(JsckInfo info, ByteData key, ByteData value) {
+        return value.isEmpty() ? null : ByteData.empty();
+    }
+
     /**
      * Validate the object simple field has the expected value. This assumes the object exists and has already been validated.
      *
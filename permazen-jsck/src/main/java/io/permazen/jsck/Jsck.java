@@ -11,6 +11,7 @@ import com.google.common.collect.PeekingIterator;
 
 import io.permazen.core.Encodings;
 import io.permazen.core.Field;
+import io.permazen.core.IndexStatistics;
 import io.permazen.core.InvalidSchemaException;
 import io.permazen.core.Layout;
 import io.permazen.core.ObjId;
@@ -32,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -83,6 +85,7 @@ public class Jsck {
         final ByteData formatVersionKey = Layout.getFormatVersionKey();
         final ByteData schemaTablePrefix = Layout.getSchemaTablePrefix();
         final ByteData storageIdTablePrefix = Layout.getStorageIdTablePrefix();
+        final ByteData indexStatisticsPrefix = Layout.getIndexStatisticsPrefix();
         final ByteData schemaIndexKeyPrefix = Layout.getSchemaIndexKeyPrefix();
         final ByteData userMetaDataKeyPrefix = Layout.getUserMetaDataKeyPrefix();
 
@@ -90,11 +93,13 @@ public class Jsck {
         assert schemaTablePrefix.byteAt(0) == Layout.METADATA_PREFIX_BYTE;
         assert schemaIndexKeyPrefix.byteAt(0) == Layout.METADATA_PREFIX_BYTE;
         assert storageIdTablePrefix.byteAt(0) == Layout.METADATA_PREFIX_BYTE;
+        assert indexStatisticsPrefix.byteAt(0) == Layout.METADATA_PREFIX_BYTE;
         assert userMetaDataKeyPrefix.byteAt(0) == Layout.METADATA_PREFIX_BYTE;
 
         assert schemaTablePrefix.compareTo(formatVersionKey) > 0;
         assert storageIdTablePrefix.compareTo(schemaTablePrefix) > 0;
-        assert schemaIndexKeyPrefix.compareTo(storageIdTablePrefix) > 0;
+        assert indexStatisticsPrefix.compareTo(storageIdTablePrefix) > 0;
+        assert schemaIndexKeyPrefix.compareTo(indexStatisticsPrefix) > 0;
         assert userMetaDataKeyPrefix.compareTo(schemaIndexKeyPrefix) > 0;
 
         // Check empty space before format version
@@ -233,9 +238,16 @@ public class Jsck {
         // Build storage objects
         info.inventoryStorages();
 
-        // Check empty space between storage ID table and object version index
-        this.checkEmpty(info, new KeyRange(ByteUtil.getKeyAfterPrefix(storageIdTablePrefix), schemaIndexKeyPrefix),
-          "the key range between storage ID table and object schema index");
+        // Check empty space between storage ID table and index statistics table
+        this.checkEmpty(info, new KeyRange(ByteUtil.getKeyAfterPrefix(storageIdTablePrefix), indexStatisticsPrefix),
+          "the key range between storage ID table and index statistics table");
+
+        // Check index statistics table
+        this.checkIndexStatistics(info);
+
+        // Check empty space between index statistics table and object version index
+        this.checkEmpty(info, new KeyRange(ByteUtil.getKeyAfterPrefix(indexStatisticsPrefix), schemaIndexKeyPrefix),
+          "the key range between index statistics table and object schema index");
 
         // Check empty space between object schema index and user meta-data area
         this.checkEmpty(info, new KeyRange(ByteUtil.getKeyAfterPrefix(schemaIndexKeyPrefix), userMetaDataKeyPrefix),
@@ -389,9 +401,12 @@ public class Jsck {
                         continue;
                     }
 
-                    // Validate value, which should be empty
-                    if (!pair.getValue().isEmpty())
-                        info.handle(new InvalidValue(pair, ByteData.empty()).setDetail(index, "value should be empty"));
+                    // Validate value, which should be empty unless the index has included fields
+                    final ByteData correctedValue = index.validateIndexValue(info, pair.getKey(), pair.getValue());
+                    if (correctedValue != null) {
+                        info.handle(new InvalidValue(pair, correctedValue).setDetail(index,
+                          correctedValue.isEmpty() ? "value should be empty" : "invalid included field values"));
+                    }
                 }
             }
         });
@@ -504,6 +519,53 @@ public class Jsck {
         }
     }
 
+    private void checkIndexStatistics(JsckInfo info) {
+
+        // Get storage ID's of all indexes
+        final Set<Integer> indexStorageIds = info.getStorages().stream()
+          .filter(Index.class::isInstance)
+          .map(Storage::getStorageId)
+          .collect(Collectors.toSet());
+
+        // Check statistics entries
+        final ByteData prefix = Layout.getIndexStatisticsPrefix();
+        final KeyRange keyRange = KeyRange.forPrefix(prefix);
+        info.info("checking the index statistics table %s", keyRange);
+        try (CloseableIterator<KVPair> i = info.getKVStore().getRange(keyRange)) {
+            while (i.hasNext()) {
+                final KVPair pair = i.next();
+
+                // Decode storage ID
+                final int storageId;
+                try {
+                    final ByteData.Reader reader = pair.getKey().newReader(prefix.size());
+                    storageId = Encodings.UNSIGNED_INT.read(reader);
+                    if (reader.remain() > 0) {
+                        throw new IllegalArgumentException(String.format(
+                          "trailing garbage %s follows storage ID %d", Jsck.ds(reader, reader.getOffset()), storageId));
+                    }
+                } catch (IllegalArgumentException e) {
+                    info.handle(new InvalidKey(pair).setDetail(
+                      "invalid index statistics table key %s: %s", Jsck.ds(pair.getKey()), e.getMessage()));
+                    continue;
+                }
+                if (!indexStorageIds.contains(storageId)) {
+                    info.handle(new InvalidKey(pair).setDetail(
+                      "invalid index statistics table key %s: no index has storage ID %d", Jsck.ds(pair.getKey()), storageId));
+                    continue;
+                }
+
+                // Decode statistics
+                try {
+                    IndexStatistics.decode(pair.getValue());
+                } catch (IllegalArgumentException e) {
+                    info.handle(new InvalidValue(pair).setDetail(
+                      "invalid statistics for index with storage ID %d: %s", storageId, e.getMessage()));
+                }
+            }
+        }
+    }
+
     private <T> Map<Integer, T> checkTable(boolean schemaTable, JsckInfo info,
       Map<Integer, T> overrides, Function<T, ByteData> encoder, Function<ByteData, T> decoder) {
 
@@ -324,11 +324,43 @@ class ObjectType extends Storage<ObjType> {
         }
 
         // Decode value
+        final long value;
         try {
-            info.getKVStore().decodeCounter(pair.getValue());
+            value = info.getKVStore().decodeCounter(pair.getValue());
         } catch (IllegalArgumentException e) {
-            info.handle(new InvalidValue(pair).setDetail(id, field, "(resetting to zero): %s", e.getMessage()));
+            if (field.isAggregate())
+                this.rebuildAggregateCounter(info, id, field, pair, e.getMessage());
+            else
+                info.handle(new InvalidValue(pair).setDetail(id, field, "(resetting to zero): %s", e.getMessage()));
+            return;
+        }
+
+        // Verify aggregate counter value
+        if (field.isAggregate()) {
+            final long expected;
+            try {
+                expected = field.computeAggregate(info.getKVStore(), id);
+            } catch (IllegalArgumentException e) {
+                if (info.isDetailEnabled())
+                    info.detail("can't verify aggregate %s in object %s: %s", field, id, e.getMessage());
+                return;
+            }
+            if (value != expected) {
+                info.handle(new InvalidValue(pair, info.getKVStore().encodeCounter(expected))
+                  .setDetail(id, field, "incorrect aggregate value %d (should be %d)", value, expected));
+            }
+        }
+    }
+
+    private void rebuildAggregateCounter(JsckInfo info, ObjId id, CounterField field, KVPair pair, String problem) {
+        long expected;
+        try {
+            expected = field.computeAggregate(info.getKVStore(), id);
+        } catch (IllegalArgumentException e) {
+            expected = 0;
         }
+        info.handle(new InvalidValue(pair, info.getKVStore().encodeCounter(expected))
+          .setDetail(id, field, "(rebuilding aggregate value %d): %s", expected, problem));
     }
 
     private <T> boolean validateSimpleFieldValue(JsckInfo info,
@@ -361,6 +393,8 @@ class ObjectType extends Storage<ObjType> {
     }
 
     private <T> void verifySimpleIndexEntry(JsckInfo info, ObjId id, SimpleField<T> field, ByteData value) {
+        if (field.getIndexExcludes() != null && field.getIndexExcludes().contains(value))     // excluded from partial index
+            return;
         this.verifySimpleIndexEntry(info, id, field.getStorageId(), "" + field.getIndex(), value, ByteData.empty());
     }
 
@@ -380,7 +414,7 @@ class ObjectType extends Storage<ObjType> {
         writer.write(suffix);
 
         // Verify index entry
-        this.verifyIndexEntry(info, id, writer.toByteData(), description);
+        this.verifyIndexEntry(info, id, writer.toByteData(), ByteData.empty(), description);
     }
 
     /**
@@ -404,8 +438,17 @@ class ObjectType extends Storage<ObjType> {
         }
         id.writeTo(writer);
 
+        // Build expected value containing included field values, if any
+        final ByteData.Writer valueWriter = ByteData.newWriter();
+        for (SimpleField<?> field : index.getIncludedFields()) {
+            ByteData value = simpleFieldValues.get(field.getName());
+            if (value == null)
+                value = field.getEncoding().getDefaultValueBytes();
+            valueWriter.write(value);
+        }
+
         // Verify index entry
-        this.verifyIndexEntry(info, id, writer.toByteData(), "" + index);
+        this.verifyIndexEntry(info, id, writer.toByteData(), valueWriter.toByteData(), "" + index);
     }
 
     private void verifySchemaIndexEntry(JsckInfo info, ObjId id, int schemaIndex) {
@@ -418,18 +461,19 @@ class ObjectType extends Storage<ObjType> {
         id.writeTo(writer);
 
         // Verify index entry
-        this.verifyIndexEntry(info, id, writer.toByteData(), "object schema index");
+        this.verifyIndexEntry(info, id, writer.toByteData(), ByteData.empty(), "object schema index");
     }
 
-    private void verifyIndexEntry(JsckInfo info, ObjId id, ByteData key, String description) {
+    private void verifyIndexEntry(JsckInfo info, ObjId id, ByteData key, ByteData expectedValue, String description) {
         if (info.isDetailEnabled())
             info.detail("checking object %s %s entry", id, description);
         final ByteData value = info.getKVStore().get(key);
         if (value == null)
-            info.handle(new MissingKey(String.format("missing index entry for %s", description), key, ByteData.empty()));
-        else if (!value.isEmpty()) {
+            info.handle(new MissingKey(String.format("missing index entry for %s", description), key, expectedValue));
+        else if (!value.equals(expectedValue)) {
             info.handle(new InvalidValue(String.format(
-              "invalid non-empty value for %s", description), key, value, ByteData.empty()));
+              "invalid %s value for %s", expectedValue.isEmpty() ? "non-empty" : "included field", description),
+              key, value, expectedValue));
         }
     }
 }
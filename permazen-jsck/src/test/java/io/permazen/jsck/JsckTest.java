@@ -19,12 +19,16 @@ import io.permazen.annotation.PermazenType;
 import io.permazen.core.Encodings;
 import io.permazen.core.Layout;
 import io.permazen.core.ObjId;
+import io.permazen.core.Transaction;
 import io.permazen.kv.KVStore;
 import io.permazen.kv.KeyRange;
 import io.permazen.kv.test.KVTestSupport;
 import io.permazen.kv.util.MemoryKVStore;
+import io.permazen.schema.SchemaModel;
 import io.permazen.util.ByteData;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -36,6 +40,7 @@ import java.util.Objects;
 import java.util.function.Consumer;
 
 import org.slf4j.event.Level;
+import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -152,6 +157,38 @@ public class JsckTest extends KVTestSupport {
         this.repairAndCompare(this.getConfig(true), kv.clone(), kv.clone());
     }
 
+    @Test
+    public void testRemoveSchemaIndexStatistics() throws Exception {
+
+        // Setup db and gather index statistics
+        final MemoryKVStore kv = this.populate();
+        final Transaction tx = this.pdb.createDetachedTransaction(kv, ValidationMode.AUTOMATIC).getTransaction();
+        tx.updateIndexStatistics();
+
+        // Add another schema and gather statistics for its index
+        final SchemaModel otherSchema = SchemaModel.fromXML(new ByteArrayInputStream((
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<Schema>\n"
+          + "  <ObjectType name=\"Other\" storageId=\"1000\">\n"
+          + "    <SimpleField name=\"i\" encoding=\"urn:fdc:permazen.io:2020:int\" storageId=\"1001\" indexed=\"true\"/>\n"
+          + "  </ObjectType>\n"
+          + "</Schema>\n"
+          ).getBytes(StandardCharsets.UTF_8)));
+        otherSchema.lockDown(true);
+        Assert.assertTrue(tx.addSchema(otherSchema));
+        tx.updateIndexStatistics(1001);
+        final ByteData statisticsKey = Layout.buildTableKey(Layout.getIndexStatisticsPrefix(), 1001);
+        Assert.assertNotNull(kv.get(statisticsKey));
+
+        // Remove the schema; its index statistics should go with it
+        Assert.assertTrue(tx.removeSchema(otherSchema.getSchemaId()));
+        Assert.assertNull(kv.get(statisticsKey));
+
+        // Run checker - remaining statistics should still be valid
+        final long count = new Jsck(this.getConfig(false)).check(kv, issue -> log.info(String.format("JSCK: %s", issue)));
+        Assert.assertEquals(count, 0);
+    }
+
     private void mutateAndCompare(JsckConfig config, boolean repair, MemoryKVStore actual, MemoryKVStore expected,
       Iterable<? extends Consumer<? super KVStore>> mutations) {
 
@@ -39,7 +39,7 @@ public class CandidateRole extends NonLeaderRole {
      */
     public int getVotesRequired() {
         synchronized (this.raft) {
-            return this.raft.currentConfig.size() / 2 + 1;
+            return this.raft.getNumVotingMembers() / 2 + 1;
         }
     }
 
@@ -50,7 +50,7 @@ public class CandidateRole extends NonLeaderRole {
      */
     public int getVotesReceived() {
         synchronized (this.raft) {
-            return this.votes.size() + (this.raft.isClusterMember() ? 1 : 0);
+            return this.votes.size() + (this.raft.isVotingMember() ? 1 : 0);
         }
     }
 
@@ -66,7 +66,7 @@ public class CandidateRole extends NonLeaderRole {
             return;
 
         // Request votes from other peers
-        final HashSet<String> voters = new HashSet<>(this.raft.currentConfig.keySet());
+        final HashSet<String> voters = this.raft.getVotingMembers();
         voters.remove(this.raft.identity);
         if (this.log.isDebugEnabled())
             this.debug("entering candidate role in term {}; requesting votes from {}", this.raft.currentTerm, voters);
@@ -97,7 +97,7 @@ public class CandidateRole extends NonLeaderRole {
         assert Thread.holdsLock(this.raft);
 
         // Tally votes
-        final int allVotes = this.raft.currentConfig.size();
+        final int allVotes = this.raft.getNumVotingMembers();
         final int numVotes = this.getVotesReceived();
         final int votesRequired = this.getVotesRequired();
         if (this.log.isDebugEnabled())
@@ -125,12 +125,12 @@ public class CandidateRole extends NonLeaderRole {
 // MessageSwitch
 
     @Override
-    void caseAppendRequest(AppendRequest msg, NewLogEntry newLogEntry) {
+    void caseAppendRequest(AppendRequest msg, NewLogEntry[] newLogEntries) {
         assert Thread.holdsLock(this.raft);
         if (this.log.isDebugEnabled())
             this.debug("rec'd {} in {}; reverting to follower", msg, this);
         this.raft.changeRole(new FollowerRole(this.raft, msg.getSenderId(), this.raft.returnAddress));
-        this.raft.receiveMessage(this.raft.returnAddress, msg, -1, newLogEntry);
+        this.raft.receiveMessage(this.raft.returnAddress, msg, -1, newLogEntries);
     }
 
 // MessageSwitch
@@ -160,6 +160,13 @@ public class CandidateRole extends NonLeaderRole {
     void caseGrantVote(GrantVote msg) {
         assert Thread.holdsLock(this.raft);
 
+        // Ignore votes from nodes that aren't voting members (e.g., learners)
+        if (!this.raft.isVotingMember(msg.getSenderId())) {
+            if (this.log.isDebugEnabled())
+                this.debug("ignoring {} from non-voting node \"{}\"", msg, msg.getSenderId());
+            return;
+        }
+
         // Record vote
         this.votes.add(msg.getSenderId());
         if (this.log.isDebugEnabled())
@@ -186,7 +193,7 @@ public class CandidateRole extends NonLeaderRole {
     boolean checkState() {
         assert Thread.holdsLock(this.raft);
         assert this.electionTimer.isRunning();
-        assert this.raft.isClusterMember();
+        assert this.raft.isVotingMember();
         return true;
     }
 }
@@ -7,6 +7,7 @@ package io.permazen.kv.raft;
 
 import io.permazen.kv.raft.msg.AppendResponse;
 
+import java.util.ArrayDeque;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.NavigableSet;
@@ -32,6 +33,8 @@ public class Follower {
 
     @GuardedBy("raft")
     private final Timer updateTimer;                    // heartbeat/update timer
+    @GuardedBy("raft")
+    private final Timer snapshotTimer;                  // snapshot install range request timer
 
     // Used to avoid sending data for log entry back to the follower if the follower, as the originator, already has the data
     @GuardedBy("raft")
@@ -42,6 +45,11 @@ public class Follower {
     @GuardedBy("raft")
     private final TreeSet<Timestamp> commitLeaseTimeouts = new TreeSet<>();
 
+    // Used to implement windowed flow control when pipelining requests to synchronized followers. Each element is the index
+    // of the last log entry in an outstanding (i.e., sent but not yet acknowledged) AppendRequest, in increasing order.
+    @GuardedBy("raft")
+    private final ArrayDeque<Long> inflightRequests = new ArrayDeque<>();
+
     @GuardedBy("raft")
     private long nextIndex;                             // index of the next log entry to send to peer
     @GuardedBy("raft")
@@ -53,6 +61,8 @@ public class Follower {
     @GuardedBy("raft")
     private Timestamp snapshotTimestamp;                // timestamp of the most recent snapshot install
     @GuardedBy("raft")
+    private Timestamp rewindTimestamp;                  // timestamp of the most recent rewind due to a negative response
+    @GuardedBy("raft")
     private boolean synced;                             // if previous AppendEntryRequest was successful
     @GuardedBy("raft")
     private SnapshotTransmit snapshotTransmit;          // in-progress snapshot transfer, if any
@@ -71,6 +81,7 @@ public class Follower {
         this.nextIndex = lastLogIndex + 1;
         this.updateService = new Service(leader, "update follower \"" + this.identity + "\"", () -> leader.updateFollower(this));
         this.updateTimer = new Timer(this.raft, "update timer for \"" + this.identity + "\"", this.updateService);
+        this.snapshotTimer = new Timer(this.raft, "snapshot timer for \"" + this.identity + "\"", this.updateService);
     }
 
 // Status
@@ -110,6 +121,8 @@ public class Follower {
     void setNextIndex(final long nextIndex) {
         assert Thread.holdsLock(this.raft);
         this.nextIndex = nextIndex;
+        while (!this.inflightRequests.isEmpty() && this.inflightRequests.peekLast() >= nextIndex)
+            this.inflightRequests.removeLast();                     // those log entries will be sent again
     }
 
     /**
@@ -157,6 +170,34 @@ public class Follower {
         this.snapshotTimestamp = snapshotTimestamp;
     }
 
+    /**
+     * Get the (leader's) timestamp of the most recent rewind of this follower's
+     * {@linkplain #getNextIndex next index} due to a negative {@link AppendResponse}, if any.
+     *
+     * @return follower rewind timestamp, or null if none has occurred
+     */
+    public Timestamp getRewindTimestamp() {
+        synchronized (this.raft) {
+            return this.rewindTimestamp;
+        }
+    }
+    void setRewindTimestamp(final Timestamp rewindTimestamp) {
+        assert Thread.holdsLock(this.raft);
+        this.rewindTimestamp = rewindTimestamp;
+    }
+
+    /**
+     * Get the number of {@link io.permazen.kv.raft.msg.AppendRequest}s containing log entries that have been sent
+     * to this follower but not yet acknowledged.
+     *
+     * @return number of outstanding requests
+     */
+    public int getNumInflightRequests() {
+        synchronized (this.raft) {
+            return this.inflightRequests.size();
+        }
+    }
+
     /**
      * Get the leader commit index most recently sent to this follower.
      *
@@ -210,7 +251,23 @@ public class Follower {
 
     boolean hasLogEntry(long index) {
         assert Thread.holdsLock(this.raft);
-        return this.matchIndex >= index && this.raft.isClusterMember(this.identity);
+        return this.matchIndex >= index && this.raft.isVotingMember(this.identity);
+    }
+
+    void addInflightRequest(long lastIndex) {
+        assert Thread.holdsLock(this.raft);
+        this.inflightRequests.addLast(lastIndex);
+    }
+
+    void acknowledgeInflightRequests(long matchIndex) {
+        assert Thread.holdsLock(this.raft);
+        while (!this.inflightRequests.isEmpty() && this.inflightRequests.peekFirst() <= matchIndex)
+            this.inflightRequests.removeFirst();
+    }
+
+    void clearInflightRequests() {
+        assert Thread.holdsLock(this.raft);
+        this.inflightRequests.clear();
     }
 
     SnapshotTransmit getSnapshotTransmit() {
@@ -237,6 +294,11 @@ public class Follower {
         return this.updateTimer;
     }
 
+    Timer getSnapshotTimer() {
+        assert Thread.holdsLock(this.raft);
+        return this.snapshotTimer;
+    }
+
     Service getUpdateService() {
         return this.updateService;
     }
@@ -252,6 +314,8 @@ public class Follower {
             this.matchIndex = Math.min(this.matchIndex, this.snapshotTransmit.getSnapshotIndex());
             this.snapshotTransmit.close();
             this.snapshotTransmit = null;
+            this.snapshotTimer.cancel();
+            this.inflightRequests.clear();
             this.setSynced(false);
         }
     }
@@ -262,6 +326,7 @@ public class Follower {
         assert Thread.holdsLock(this.raft);
         this.cancelSnapshotTransmit();
         this.updateTimer.cancel();
+        this.snapshotTimer.cancel();
     }
 
 // Object
@@ -277,6 +342,7 @@ public class Follower {
               + (this.leaderTimestamp != null ?
                 ",leaderTimestamp=" + String.format("%+dms", this.leaderTimestamp.offsetFromNow()) : "")
               + ",synced=" + this.synced
+              + (!this.inflightRequests.isEmpty() ? ",inflightRequests=" + this.inflightRequests : "")
               + (!this.skipDataLogEntries.isEmpty() ? ",skipDataLogEntries=" + this.skipDataLogEntries : "")
               + (this.snapshotTransmit != null ? ",snapshotTransmit=" + this.snapshotTransmit : "")
               + "]";
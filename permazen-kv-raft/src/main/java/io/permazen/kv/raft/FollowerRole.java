@@ -15,6 +15,7 @@ import io.permazen.kv.raft.msg.CommitRequest;
 import io.permazen.kv.raft.msg.CommitResponse;
 import io.permazen.kv.raft.msg.GrantVote;
 import io.permazen.kv.raft.msg.InstallSnapshot;
+import io.permazen.kv.raft.msg.InstallSnapshotResponse;
 import io.permazen.kv.raft.msg.Message;
 import io.permazen.kv.raft.msg.PingRequest;
 import io.permazen.kv.raft.msg.PingResponse;
@@ -29,6 +30,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import javax.annotation.concurrent.GuardedBy;
@@ -41,6 +43,9 @@ import org.dellroad.stuff.util.LongMap;
  */
 public class FollowerRole extends NonLeaderRole {
 
+    // Read index request ID's are negative, so they can't collide with transaction ID's in CommitRequest's
+    private static final AtomicLong READ_INDEX_REQUEST_COUNTER = new AtomicLong();
+
     @GuardedBy("raft")
     private String leader;                                                          // our leader, if known
     @GuardedBy("raft")
@@ -59,6 +64,21 @@ public class FollowerRole extends NonLeaderRole {
     private Timestamp leaderLeaseTimeout;                                           // latest rec'd leader lease timeout
     @GuardedBy("raft")
     private HashMap<String, Timestamp> probeTimestamps;                             // used only when probing majority
+    @GuardedBy("raft")
+    private final HashSet<RaftKVTransaction> readIndexWaiters = new HashSet<>();    // read-only tx's awaiting next read index
+    @GuardedBy("raft")
+    private final HashSet<RaftKVTransaction> readIndexRequests = new HashSet<>();   // read-only tx's awaiting read index response
+    @GuardedBy("raft")
+    private long readIndexRequestId;                                                // outstanding read index request, or zero
+    @GuardedBy("raft")
+    private Timestamp readIndexRequestTime;                                         // when outstanding read index request was sent
+    @GuardedBy("raft")
+    private long unsyncedMatchIndex;                                                // matched log entries awaiting sync, or zero
+    @GuardedBy("raft")
+    private Timestamp unsyncedLeaderTimestamp;                                      // leader timestamp for their ack
+
+    // Service tasks
+    private final Service readIndexService = new Service(this, "send read index request", this::checkSendReadIndexRequest);
 
 // Constructors
 
@@ -71,7 +91,7 @@ public class FollowerRole extends NonLeaderRole {
     }
 
     FollowerRole(RaftKVDatabase raft, String leader, String leaderAddress, String votedFor) {
-        super(raft, raft.isClusterMember());
+        super(raft, raft.isVotingMember());
         this.leader = leader;
         this.leaderAddress = leaderAddress;
         this.votedFor = votedFor;
@@ -141,7 +161,7 @@ public class FollowerRole extends NonLeaderRole {
     private int calculateProbedNodes() {
         assert Thread.holdsLock(this.raft);
         assert this.probeTimestamps != null;
-        int numProbed = this.raft.isClusterMember() ? 1 : 0;
+        int numProbed = this.raft.isVotingMember() ? 1 : 0;
         final Timestamp now = new Timestamp();
         for (Iterator<Timestamp> i = this.probeTimestamps.values().iterator(); i.hasNext(); ) {
             final Timestamp timestamp = i.next();
@@ -191,6 +211,11 @@ public class FollowerRole extends NonLeaderRole {
 
         // Cleanup pending requests and commit writes
         this.commitRequests.clear();
+        this.readIndexWaiters.clear();
+        this.readIndexRequests.clear();
+        this.readIndexRequestId = 0;
+        this.readIndexRequestTime = null;
+        this.resetUnsyncedMatch();
         this.pendingWrites.values().forEach(PendingWrite::cleanup);
         this.pendingWrites.clear();
 
@@ -203,8 +228,32 @@ public class FollowerRole extends NonLeaderRole {
     @Override
     void outputQueueEmpty(String address) {
         assert Thread.holdsLock(this.raft);
-        if (address.equals(this.leaderAddress))
+        if (address.equals(this.leaderAddress)) {
             this.raft.requestService(this.checkReadyTransactionsService);       // TODO: track specific transactions
+            this.raft.requestService(this.readIndexService);
+        }
+    }
+
+    @Override
+    void logSyncCompleted(IOException error) {
+        assert Thread.holdsLock(this.raft);
+        super.logSyncCompleted(error);
+
+        // If the sync failed, we'll try again when the next AppendRequest arrives
+        if (error != null || this.unsyncedMatchIndex == 0)
+            return;
+        assert this.leader != null;
+
+        // Acknowledge the newly synced log entries
+        final long ackIndex = Math.min(this.unsyncedMatchIndex, this.raft.getLastSyncedIndex());
+        if (this.log.isTraceEnabled())
+            this.trace("acknowledging log entries through {} now synced", ackIndex);
+        this.raft.sendMessage(new AppendResponse(this.raft.clusterId, this.raft.identity, this.leader,
+          this.raft.currentTerm, this.unsyncedLeaderTimestamp, true, ackIndex, this.raft.log.getLastIndex()));
+
+        // If there's more to acknowledge, keep syncing
+        if (ackIndex >= Math.min(this.unsyncedMatchIndex, this.raft.log.getLastIndex()) || this.raft.startLogSync())
+            this.resetUnsyncedMatch();
     }
 
     @Override
@@ -216,6 +265,8 @@ public class FollowerRole extends NonLeaderRole {
         this.leaderAddress = null;
         this.leaderLeaseTimeout = null;
         this.lastLeaderMessageTime = null;
+        this.resetReadIndexRequest();
+        this.resetUnsyncedMatch();
 
         // Is probing enabled? If not convert immediately into a candidate
         if (!this.raft.followerProbingEnabled) {
@@ -232,9 +283,9 @@ public class FollowerRole extends NonLeaderRole {
             this.probeTimestamps = new HashMap<>(this.raft.currentConfig.size() - 1);
         }
 
-        // Send out a(nother) round of probes to all other nodes
+        // Send out a(nother) round of probes to all other voting nodes
         final Timestamp now = new Timestamp();
-        for (String peer : this.raft.currentConfig.keySet()) {
+        for (String peer : this.raft.getVotingMembers()) {
             if (peer.equals(this.raft.identity))
                 continue;
             this.raft.sendMessage(new PingRequest(this.raft.clusterId, this.raft.identity, peer, this.raft.currentTerm, now));
@@ -260,15 +311,15 @@ public class FollowerRole extends NonLeaderRole {
      */
     private void updateElectionTimer() {
         assert Thread.holdsLock(this.raft);
-        final boolean isClusterMember = this.raft.isClusterMember();
+        final boolean isVotingMember = this.raft.isVotingMember();
         final boolean electionTimerRunning = this.electionTimer.isRunning();
-        if (isClusterMember && !electionTimerRunning) {
+        if (isVotingMember && !electionTimerRunning) {
             if (this.log.isTraceEnabled())
-                this.trace("starting up election timer because I'm now part of the current config");
+                this.trace("starting up election timer because I'm now a voting member in the current config");
             this.restartElectionTimer();
-        } else if (!isClusterMember && electionTimerRunning) {
+        } else if (!isVotingMember && electionTimerRunning) {
             if (this.log.isTraceEnabled())
-                this.trace("stopping election timer because I'm no longer part of the current config");
+                this.trace("stopping election timer because I'm no longer a voting member in the current config");
             this.electionTimer.cancel();
         }
     }
@@ -304,7 +355,7 @@ public class FollowerRole extends NonLeaderRole {
         assert (tx.getState().equals(TxState.EXECUTING) && !addsLogEntry) || tx.getState().equals(TxState.COMMIT_READY);
 
         // Did we already send a CommitRequest for this transaction?
-        if (this.commitRequests.contains(tx)) {
+        if (this.commitRequests.contains(tx) || this.readIndexRequests.contains(tx)) {
             if (this.log.isTraceEnabled())
                 this.trace("not sending CommitRequest for tx {} because request already sent", tx);
             return;
@@ -329,11 +380,12 @@ public class FollowerRole extends NonLeaderRole {
                 return;
             }
 
-            // Otherwise, we can only handle an initial config change that is adding the local node
-            if (configChange == null || !configChange[0].equals(this.raft.identity) || configChange[1] == null) {
+            // Otherwise, we can only handle an initial config change that is adding the local node as a voting member
+            if (configChange == null || !configChange[0].equals(this.raft.identity)
+              || configChange[1] == null || RaftKVDatabase.isLearnerAddress(configChange[1])) {
                 throw new RetryKVTransactionException(tx, String.format(
                   "unconfigured node: an initial configuration change adding the local node"
-                  + " (\"%s\") as the first member of a new cluster is required", this.raft.identity));
+                  + " (\"%s\") as the first (voting) member of a new cluster is required", this.raft.identity));
             }
 
             // Create a new cluster if needed
@@ -360,6 +412,7 @@ public class FollowerRole extends NonLeaderRole {
             final LogEntry logEntry;
             try {
                 logEntry = this.raft.appendLogEntry(this.raft.currentTerm, new NewLogEntry(tx));
+                this.raft.syncLog();
             } catch (Exception e) {
                 throw new KVTransactionException(tx, "error attempting to persist transaction", e);
             }
@@ -392,6 +445,13 @@ public class FollowerRole extends NonLeaderRole {
             return;
         }
 
+        // Read-only transactions only need to learn the leader's current commit index, so they share read index requests
+        if (!addsLogEntry) {
+            this.readIndexWaiters.add(tx);
+            this.checkSendReadIndexRequest();
+            return;
+        }
+
         // If we don't have a leader yet, or leader's queue is full, we must wait
         if (this.leader == null || this.raft.isTransmitting(this.leaderAddress)) {
             if (this.log.isTraceEnabled()) {
@@ -421,13 +481,14 @@ public class FollowerRole extends NonLeaderRole {
             assert !readsData.hasRemaining();
             readsData.flip();
 
-            // Serialize mutations into a temporary file (but do not close or durably persist yet)
+            // Serialize mutations into a temporary file (but do not close or durably persist yet). If log segments are enabled,
+            // the file's contents are copied into a log segment when appended, so the file itself never needs to be durable.
             final Writes writes = tx.view.getWrites();          // synchronization not req'd here because tx is COMMIT_READY
             final File file = new File(this.raft.logDir,
               String.format("%s%019d%s", RaftKVDatabase.TX_FILE_PREFIX, tx.txId, RaftKVDatabase.TEMP_FILE_SUFFIX));
             final FileWriter fileWriter;
             try {
-                fileWriter = new FileWriter(file, this.raft.disableSync);
+                fileWriter = new FileWriter(file, this.raft.disableSync || this.raft.logSegmentSize != 0);
             } catch (IOException e) {
                 throw new KVTransactionException(tx, "error saving transaction mutations to temporary file", e);
             }
@@ -472,10 +533,85 @@ public class FollowerRole extends NonLeaderRole {
             tx.setNoLongerRebasable();
     }
 
+    /**
+     * Send a read index request to the leader on behalf of all read-only transactions waiting for one.
+     *
+     * <p>
+     * A read-only transaction only needs to learn the leader's current commit index (and possibly a minimum leader lease
+     * timeout) as of some time after the transaction started waiting, so any number of them can share one
+     * {@link CommitRequest}. At most one such request is outstanding at a time; transactions that start waiting in
+     * the meantime are included in the next request, which is sent when the response arrives. This bounds the number
+     * of read index round trips to the leader at one per round trip time, no matter how many concurrent read-only
+     * transactions there are.
+     */
+    private void checkSendReadIndexRequest() {
+        assert Thread.holdsLock(this.raft);
+
+        // Anything to do?
+        if (this.readIndexWaiters.isEmpty())
+            return;
+
+        // Wait for the response to any outstanding request, unless it's been so long that it has probably been lost
+        if (this.readIndexRequestId != 0) {
+            if (this.readIndexRequestTime.offsetFromNow() > -this.raft.minElectionTimeout)
+                return;
+            if (this.log.isDebugEnabled())
+                this.debug("no response to read index request {} from \"{}\"; resending", this.readIndexRequestId, this.leader);
+            this.resetReadIndexRequest();
+        }
+
+        // If we are installing a snapshot, or don't have a leader yet, or leader's queue is full, we must wait
+        if (this.snapshotReceive != null || this.leader == null || this.raft.isTransmitting(this.leaderAddress)) {
+            if (this.log.isTraceEnabled())
+                this.trace("not sending read index request for {} transaction(s) yet", this.readIndexWaiters.size());
+            return;
+        }
+
+        // Send read index request to leader
+        final long requestId = -FollowerRole.READ_INDEX_REQUEST_COUNTER.incrementAndGet();
+        final CommitRequest msg = new CommitRequest(this.raft.clusterId, this.raft.identity, this.leader,
+          this.raft.currentTerm, requestId, this.raft.log.getLastTerm(), this.raft.log.getLastIndex(), null, null);
+        if (this.log.isTraceEnabled())
+            this.trace("sending {} to \"{}\" for {} read-only transaction(s)", msg, this.leader, this.readIndexWaiters.size());
+        if (!this.raft.sendMessage(msg)) {
+            for (RaftKVTransaction tx : new ArrayList<>(this.readIndexWaiters))
+                this.raft.fail(tx, new RetryKVTransactionException(tx, "error sending commit request to leader"));
+            return;
+        }
+
+        // Record outstanding request
+        this.readIndexRequests.addAll(this.readIndexWaiters);
+        this.readIndexWaiters.clear();
+        this.readIndexRequestId = requestId;
+        this.readIndexRequestTime = new Timestamp();
+    }
+
+    /**
+     * Forget any outstanding read index request; its transactions go back to waiting for the next one.
+     */
+    private void resetReadIndexRequest() {
+        assert Thread.holdsLock(this.raft);
+        this.readIndexWaiters.addAll(this.readIndexRequests);
+        this.readIndexRequests.clear();
+        this.readIndexRequestId = 0;
+        this.readIndexRequestTime = null;
+    }
+
+    /**
+     * Forget any log entries waiting to be acknowledged after the current background log sync completes.
+     */
+    private void resetUnsyncedMatch() {
+        assert Thread.holdsLock(this.raft);
+        this.unsyncedMatchIndex = 0;
+        this.unsyncedLeaderTimestamp = null;
+    }
+
     @Override
     void cleanupForTransaction(RaftKVTransaction tx) {
         assert Thread.holdsLock(this.raft);
         this.commitRequests.remove(tx);
+        this.readIndexWaiters.remove(tx);
+        this.readIndexRequests.remove(tx);
         final PendingWrite pendingWrite = this.pendingWrites.remove(tx.txId);
         if (pendingWrite != null)
             pendingWrite.cleanup();
@@ -499,7 +635,7 @@ public class FollowerRole extends NonLeaderRole {
     }
 
     @Override
-    void caseAppendRequest(AppendRequest msg, NewLogEntry newLogEntry) {
+    void caseAppendRequest(AppendRequest msg, NewLogEntry[] newLogEntries) {
         assert Thread.holdsLock(this.raft);
 
         // Cancel probing
@@ -527,14 +663,17 @@ public class FollowerRole extends NonLeaderRole {
             if (this.log.isDebugEnabled())
                 this.debug("updated leader to \"{}\" at {}", this.leader, this.leaderAddress);
             this.raft.requestService(this.checkReadyTransactionsService);     // allows COMMIT_READY transactions to be sent
+            this.resetReadIndexRequest();
         }
 
+        // Send a read index request if any read-only transactions are waiting for one
+        if (!this.readIndexWaiters.isEmpty() || this.readIndexRequestId != 0)
+            this.raft.requestService(this.readIndexService);
+
         // Get message info
         final long leaderCommitIndex = msg.getLeaderCommit();
         final long leaderPrevTerm = msg.getPrevLogTerm();
         final long leaderPrevIndex = msg.getPrevLogIndex();
-        final long logTerm = msg.getLogEntryTerm();
-        final long logIndex = leaderPrevIndex + 1;
 
         // Update timestamp last heard from leader
         this.lastLeaderMessageTime = new Timestamp();
@@ -562,7 +701,7 @@ public class FollowerRole extends NonLeaderRole {
             this.restartElectionTimer();
 
         // Get my last log entry's index
-        long lastLogIndex = this.raft.log.getLastIndex();
+        final long lastLogIndex = this.raft.log.getLastIndex();
 
         // Check whether our previous log entry term matches that of leader; if not, or it doesn't exist, request fails
         // Note: if log entry index is prior to my last applied log entry index, Raft guarantees that term must match
@@ -576,115 +715,39 @@ public class FollowerRole extends NonLeaderRole {
             return;
         }
 
-        // Check whether the message actually contains a log entry we can append; if so, append it
-        boolean success = true;
-        if (leaderPrevIndex >= this.raft.log.getLastAppliedIndex() && !msg.isProbe()) {
-
-            // Check for a conflicting (i.e., never committed, then overwritten) log entry that we need to clear away first
-            if (logIndex <= lastLogIndex && logTerm != this.raft.log.getTermAtIndex(logIndex)) {
-
-                // Delete conflicting log entry, and all entries that follow it, from the log
-                this.raft.log.discardLogEntries(logIndex, msg);
-                try {
-                    this.raft.logDirChannel.force(true);
-                } catch (IOException e) {
-                    this.warn("error fsync()'ing log directory {}", this.raft.logDir, e);
-                }
-
-                // Rebuild current config
-                this.raft.currentConfig = this.raft.log.buildCurrentConfig();
-
-                // Update last log entry index
-                lastLogIndex = this.raft.log.getLastIndex();
-
-                // Fail any transactions that are based on any of the discarded log entries
-                for (RaftKVTransaction tx : new ArrayList<>(this.raft.openTransactions.values())) {
-                    if (tx.getBaseIndex() >= logIndex && !tx.getConsistency().equals(Consistency.UNCOMMITTED)) {
-                        this.raft.fail(tx, new RetryKVTransactionException(tx,
-                          "base log entry " + tx.getBaseIndex() + "t" + tx.getBaseTerm() + " overwritten by new leader"));
-                    }
+        // Append the log entries contained in the message, stopping at the first one we can't append
+        final int numLogEntries = msg.getNumLogEntries();
+        int numMatched = 0;
+        boolean appended = false;
+        while (numMatched < numLogEntries) {
+            final long logIndex = leaderPrevIndex + 1 + numMatched;
+            final long logTerm = msg.getLogEntryTerm(numMatched);
+            final NewLogEntry newLogEntry = newLogEntries != null ? newLogEntries[numMatched] : null;
+
+            // Log entries prior to my last applied log entry are committed, so Raft guarantees that they match
+            if (logIndex > this.raft.log.getLastAppliedIndex()) {
+
+                // Append the log entry if we don't already have it
+                if (logIndex > this.raft.log.getLastIndex() || logTerm != this.raft.log.getTermAtIndex(logIndex)) {
+                    if (!this.appendLogEntry(msg, logIndex, logTerm, newLogEntry))
+                        break;
+                    appended = true;
                 }
             }
+            numMatched++;
+        }
 
-            // Append the new log entry - if we don't already have it
-            if (logIndex > lastLogIndex) {
-                assert logIndex == lastLogIndex + 1;
-                LogEntry logEntry = null;
-                do {
-
-                    // If message contains no data, we expect to get the data from the corresponding transaction
-                    if (newLogEntry == null) {
-
-                        // Find the matching pending commit write, if any
-                        final PendingWrite pendingWrite = this.pendingWrites.values().stream().filter(pw -> {
-                            final RaftKVTransaction tx = pw.getTx();
-                            return tx.getState().equals(TxState.COMMIT_WAITING)
-                              && tx.getCommitTerm() == logTerm && tx.getCommitIndex() == logIndex;
-                          }).findAny().orElse(null);
-                        if (pendingWrite == null) {
-                            if (this.raft.isPerfLogEnabled()) {
-                                this.perfLog("rec'd {} but no read-write transaction matching commit {}t{} found; rejecting",
-                                  msg, logIndex, logTerm);
-                            }
-                            break;
-                        }
-
-                        // Commit's writes are no longer pending
-                        final RaftKVTransaction tx = pendingWrite.getTx();
-                        this.pendingWrites.remove(tx.txId);
-
-                        // Close and durably persist the associated temporary file
-                        try {
-                            pendingWrite.getFileWriter().close();
-                        } catch (IOException e) {
-                            this.error("error closing temporary transaction file for {}", tx, e);
-                            pendingWrite.cleanup();
-                            break;
-                        }
-
-                        // Append a new log entry using temporary file
-                        try {
-                            logEntry = this.raft.appendLogEntry(logTerm,
-                              new NewLogEntry(tx, pendingWrite.getFileWriter().getFile()));
-                        } catch (Exception e) {
-                            this.error("error appending new log entry for {}", tx, e);
-                            pendingWrite.cleanup();
-                            break;
-                        }
-
-                        // Debug
-                        if (this.log.isDebugEnabled())
-                            this.debug("now waiting for commit of {}t{} to commit {}", tx.getCommitIndex(), tx.getCommitTerm(), tx);
-                    } else {
-
-                        // Append new log entry normally using the data from the request
-                        try {
-                            logEntry = this.raft.appendLogEntry(logTerm, newLogEntry);
-                        } catch (Exception e) {
-                            this.error("error appending new log entry", e);
-                            break;
-                        }
-                    }
-                } while (false);
-
-                // Start/stop election timer as needed
-                if (logEntry != null && logEntry.getConfigChange() != null)
-                    this.updateElectionTimer();
-
-                // Success?
-                success = logEntry != null;
-
-                // Rebase transactions
-                if (success)
-                    this.rebaseTransactions(false);
+        // Rebase transactions
+        if (appended)
+            this.rebaseTransactions(false);
 
-                // Update last log entry index
-                lastLogIndex = this.raft.log.getLastIndex();
-            }
-        }
+        // The request succeeds if it was a probe or we matched at least one log entry; only log entries
+        // up through the last one matched are known to match the leader's log, so they bound the commit index.
+        final boolean success = numMatched > 0 || numLogEntries == 0;
+        final long matchIndex = leaderPrevIndex + numMatched;
 
         // Update my commit index
-        final long newCommitIndex = Math.min(Math.max(leaderCommitIndex, this.raft.commitIndex), lastLogIndex);
+        final long newCommitIndex = Math.min(Math.max(leaderCommitIndex, this.raft.commitIndex), matchIndex);
         if (newCommitIndex > this.raft.commitIndex) {
             if (this.log.isDebugEnabled())
                 this.debug("updating leader commit index from {} -> {}", this.raft.commitIndex, newCommitIndex);
@@ -702,11 +765,19 @@ public class FollowerRole extends NonLeaderRole {
               this.raft.log.getLastAppliedTerm(), this.raft.log.getUnapplied());
         }
 
-        // Send reply
+        // Send reply. We only acknowledge log entries after they have been durably persisted; any that haven't been yet
+        // are synced in the background, all with a single sync, and then acknowledged in a separate reply. Meanwhile,
+        // we reply immediately, acknowledging what we can, so the leader keeps hearing from us even while the disk is slow.
         if (success) {
+            long ackIndex = matchIndex;
+            if (matchIndex > this.raft.getLastSyncedIndex() && !this.raft.startLogSync()) {
+                ackIndex = this.raft.getLastSyncedIndex();
+                this.unsyncedMatchIndex = Math.max(this.unsyncedMatchIndex, matchIndex);
+                this.unsyncedLeaderTimestamp = msg.getLeaderTimestamp();
+            } else if (matchIndex >= this.unsyncedMatchIndex)
+                this.resetUnsyncedMatch();
             this.raft.sendMessage(new AppendResponse(this.raft.clusterId, this.raft.identity, msg.getSenderId(),
-              this.raft.currentTerm, msg.getLeaderTimestamp(), true, msg.isProbe() ? logIndex - 1 : logIndex,
-              this.raft.log.getLastIndex()));
+              this.raft.currentTerm, msg.getLeaderTimestamp(), true, ackIndex, this.raft.log.getLastIndex()));
         } else {
             this.raft.sendMessage(new AppendResponse(this.raft.clusterId, this.raft.identity, msg.getSenderId(),
               this.raft.currentTerm, msg.getLeaderTimestamp(), false, this.raft.log.getLastAppliedIndex(),
@@ -714,16 +785,120 @@ public class FollowerRole extends NonLeaderRole {
         }
     }
 
+    /**
+     * Append a log entry received from the leader, first discarding any conflicting log entry at the same index.
+     *
+     * @return true if the log entry was appended, false if it could not be
+     */
+    private boolean appendLogEntry(AppendRequest msg, long logIndex, long logTerm, NewLogEntry newLogEntry) {
+        assert Thread.holdsLock(this.raft);
+
+        // Check for a conflicting (i.e., never committed, then overwritten) log entry that we need to clear away first
+        if (logIndex <= this.raft.log.getLastIndex()) {
+            assert logTerm != this.raft.log.getTermAtIndex(logIndex);
+
+            // Delete conflicting log entry, and all entries that follow it, from the log
+            this.raft.log.discardLogEntries(logIndex, msg);
+            try {
+                this.raft.logDirChannel.force(true);
+            } catch (IOException e) {
+                this.warn("error fsync()'ing log directory {}", this.raft.logDir, e);
+            }
+
+            // Rebuild current config
+            this.raft.currentConfig = this.raft.log.buildCurrentConfig();
+
+            // Fail any transactions that are based on any of the discarded log entries
+            for (RaftKVTransaction tx : new ArrayList<>(this.raft.openTransactions.values())) {
+                if (tx.getBaseIndex() >= logIndex && !tx.getConsistency().equals(Consistency.UNCOMMITTED)) {
+                    this.raft.fail(tx, new RetryKVTransactionException(tx,
+                      "base log entry " + tx.getBaseIndex() + "t" + tx.getBaseTerm() + " overwritten by new leader"));
+                }
+            }
+        }
+        assert logIndex == this.raft.log.getLastIndex() + 1;
+
+        // Append the new log entry
+        LogEntry logEntry = null;
+        do {
+
+            // If message contains no data, we expect to get the data from the corresponding transaction
+            if (newLogEntry == null) {
+
+                // Find the matching pending commit write, if any
+                final PendingWrite pendingWrite = this.pendingWrites.values().stream().filter(pw -> {
+                    final RaftKVTransaction tx = pw.getTx();
+                    return tx.getState().equals(TxState.COMMIT_WAITING)
+                      && tx.getCommitTerm() == logTerm && tx.getCommitIndex() == logIndex;
+                  }).findAny().orElse(null);
+                if (pendingWrite == null) {
+                    if (this.raft.isPerfLogEnabled()) {
+                        this.perfLog("rec'd {} but no read-write transaction matching commit {}t{} found; rejecting",
+                          msg, logIndex, logTerm);
+                    }
+                    break;
+                }
+
+                // Commit's writes are no longer pending
+                final RaftKVTransaction tx = pendingWrite.getTx();
+                this.pendingWrites.remove(tx.txId);
+
+                // Close and durably persist the associated temporary file
+                try {
+                    pendingWrite.getFileWriter().close();
+                } catch (IOException e) {
+                    this.error("error closing temporary transaction file for {}", tx, e);
+                    pendingWrite.cleanup();
+                    break;
+                }
+
+                // Append a new log entry using temporary file
+                try {
+                    logEntry = this.raft.appendLogEntry(logTerm,
+                      new NewLogEntry(tx, pendingWrite.getFileWriter().getFile()));
+                } catch (Exception e) {
+                    this.error("error appending new log entry for {}", tx, e);
+                    pendingWrite.cleanup();
+                    break;
+                }
+
+                // Debug
+                if (this.log.isDebugEnabled())
+                    this.debug("now waiting for commit of {}t{} to commit {}", tx.getCommitIndex(), tx.getCommitTerm(), tx);
+            } else {
+
+                // Append new log entry normally using the data from the request
+                try {
+                    logEntry = this.raft.appendLogEntry(logTerm, newLogEntry);
+                } catch (Exception e) {
+                    this.error("error appending new log entry", e);
+                    break;
+                }
+            }
+        } while (false);
+
+        // Start/stop election timer as needed
+        if (logEntry != null && logEntry.getConfigChange() != null)
+            this.updateElectionTimer();
+
+        // Done
+        return logEntry != null;
+    }
+
     @Override
     void caseCommitResponse(CommitResponse msg) {
         assert Thread.holdsLock(this.raft);
 
+        // Is this a response to a read index request?
+        if (msg.getTxId() < 0) {
+            this.handleReadIndexResponse(msg);
+            return;
+        }
+
         // Find transaction
         final RaftKVTransaction tx = this.raft.openTransactions.get(msg.getTxId());
         if (tx == null)                                                                 // must have been rolled back locally
             return;
-        assert tx.getConsistency().equals(Consistency.LINEARIZABLE);
-        assert msg.getCommitLeaderLeaseTimeout() == null || !tx.addsLogEntry();
 
         // Sanity check whether we're expecting this response
         if (!this.commitRequests.remove(tx)) {
@@ -735,6 +910,42 @@ public class FollowerRole extends NonLeaderRole {
         // Check result
         if (this.log.isTraceEnabled())
             this.trace("rec'd " + msg + " for " + tx);
+        this.applyCommitResponse(tx, msg);
+    }
+
+    private void handleReadIndexResponse(CommitResponse msg) {
+        assert Thread.holdsLock(this.raft);
+
+        // Sanity check whether we're expecting this response
+        if (msg.getTxId() != this.readIndexRequestId) {
+            if (this.log.isDebugEnabled())
+                this.debug("rec'd {} for read index request not expecting a response; ignoring", msg);
+            return;
+        }
+
+        // Grab the transactions waiting for it
+        final ArrayList<RaftKVTransaction> txs = new ArrayList<>(this.readIndexRequests);
+        txs.sort(RaftKVTransaction.SORT_BY_ID);
+        this.readIndexRequests.clear();
+        this.readIndexRequestId = 0;
+        this.readIndexRequestTime = null;
+        if (this.log.isTraceEnabled())
+            this.trace("rec'd {} for {} read-only transaction(s)", msg, txs.size());
+
+        // Apply response to each transaction (unless it has since been rolled back locally)
+        for (RaftKVTransaction tx : txs) {
+            if (this.raft.openTransactions.get(tx.txId) == tx)
+                this.applyCommitResponse(tx, msg);
+        }
+
+        // Send the next read index request, if any transactions started waiting in the meantime
+        this.checkSendReadIndexRequest();
+    }
+
+    private void applyCommitResponse(RaftKVTransaction tx, CommitResponse msg) {
+        assert Thread.holdsLock(this.raft);
+        assert tx.getConsistency().equals(Consistency.LINEARIZABLE);
+        assert msg.getCommitLeaderLeaseTimeout() == null || !tx.addsLogEntry();
 
         // Do we already have a commit index & term? This would be unusual and can only happen with some leader change
         if (tx.hasCommitInfo()) {
@@ -836,20 +1047,26 @@ public class FollowerRole extends NonLeaderRole {
             if (this.raft.discardFlipFloppedStateMachine())
                 this.warn("detected left-over content in flip-flopped state machine; discarding");
             this.updateElectionTimer();
-            this.snapshotReceive = new SnapshotReceive(this.raft.kv,
-              this.raft.getFlipFloppedStateMachinePrefix(), term, index, msg.getSnapshotConfig());
+            this.snapshotReceive = new SnapshotReceive(this.raft.kv, this.raft.getFlipFloppedStateMachinePrefix(),
+              msg.isDigest() ? this.raft.getStateMachinePrefix() : null, term, index, msg.getSnapshotConfig());
             if (this.raft.isPerfLogEnabled()) {
-                this.perfLog("starting new snapshot install from \"{}\" of {}t{} with config {}",
-                  msg.getSenderId(), index, term, msg.getSnapshotConfig());
+                this.perfLog("starting new {} snapshot install from \"{}\" of {}t{} with config {}",
+                  msg.isDigest() ? "incremental" : "full", msg.getSenderId(), index, term, msg.getSnapshotConfig());
             }
         }
         assert this.snapshotReceive.matches(msg);
 
-        // Apply next chunk of key/value pairs
+        // Apply next chunk of key/value pairs or range digests
         if (this.raft.isPerfLogEnabled())
             this.perfLog("applying {} to {}", msg, this.snapshotReceive);
+        int[] missingRanges = null;
         try {
-            this.snapshotReceive.applyNextChunk(msg.getData());
+            if (msg.isDigest()) {
+                this.snapshotReceive.applyNextDigestChunk(msg.getData());
+                if (msg.isLastChunk())
+                    missingRanges = this.snapshotReceive.finishDigests();
+            } else
+                this.snapshotReceive.applyNextChunk(msg.getData());
         } catch (Exception e) {
             this.error("error applying snapshot to key/value store; aborting snapshot install", e);
             this.snapshotReceive = null;
@@ -858,8 +1075,19 @@ public class FollowerRole extends NonLeaderRole {
             return;
         }
 
+        // If that was the last range digest, request the key/value pairs in the ranges that didn't match
+        if (missingRanges != null) {
+            if (this.raft.isPerfLogEnabled()) {
+                this.perfLog("requesting {}/{} key ranges for snapshot install from \"{}\" of {}t{}",
+                  missingRanges.length, this.snapshotReceive.getNumRanges(), msg.getSenderId(), index, term);
+            }
+            this.raft.sendMessage(new InstallSnapshotResponse(this.raft.clusterId,
+              this.raft.identity, msg.getSenderId(), this.raft.currentTerm, term, index, missingRanges));
+            return;
+        }
+
         // If that was the last chunk, finalize persistent state
-        if (msg.isLastChunk()) {
+        if (msg.isLastChunk() && !msg.isDigest()) {
 
             // Flip-flop state machine
             final Map<String, String> snapshotConfig = this.snapshotReceive.getSnapshotConfig();
@@ -957,8 +1185,9 @@ public class FollowerRole extends NonLeaderRole {
             return;
         }
 
-        // Update peer's ping timestamp
-        this.probeTimestamps.put(msg.getSenderId(), msg.getTimestamp());
+        // Update peer's ping timestamp (only voting members count toward a majority)
+        if (this.raft.isVotingMember(msg.getSenderId()))
+            this.probeTimestamps.put(msg.getSenderId(), msg.getTimestamp());
 
         // Check new status
         this.checkProbeResult();
@@ -970,7 +1199,7 @@ public class FollowerRole extends NonLeaderRole {
 
         // Get the number of nodes successfully probed so far (including ourselves), and the minimum number required (a majority)
         final int numProbed = this.calculateProbedNodes();
-        final int numRequired = this.raft.currentConfig.size() / 2 + 1;
+        final int numRequired = this.raft.getNumVotingMembers() / 2 + 1;
         if (this.log.isTraceEnabled())
             this.trace("now we have probed {}/{} required nodes", numProbed, numRequired);
 
@@ -1028,6 +1257,10 @@ public class FollowerRole extends NonLeaderRole {
               + (this.votedFor != null ? ",votedFor=\"" + this.votedFor + "\"" : "")
               + (!pendingRequestIds.isEmpty() ? ",commitRequests=" + pendingRequestIds : "")
               + (!this.pendingWrites.isEmpty() ? ",pendingWrites=" + this.pendingWrites.keySet() : "")
+              + (!this.readIndexWaiters.isEmpty() ? ",readIndexWaiters=" + this.readIndexWaiters.size() : "")
+              + (this.readIndexRequestId != 0 ?
+                ",readIndexRequest=" + this.readIndexRequestId + "(" + this.readIndexRequests.size() + " tx's)" : "")
+              + (this.unsyncedMatchIndex != 0 ? ",unsyncedMatchIndex=" + this.unsyncedMatchIndex : "")
               + "]";
         }
     }
@@ -1038,7 +1271,7 @@ public class FollowerRole extends NonLeaderRole {
     boolean checkState() {
         assert Thread.holdsLock(this.raft);
         assert this.leaderAddress != null || this.leader == null;
-        assert this.electionTimer.isRunning() == this.raft.isClusterMember();
+        assert this.electionTimer.isRunning() == this.raft.isVotingMember();
         for (RaftKVTransaction tx : this.commitRequests) {
             switch (tx.getState()) {
             case EXECUTING:
@@ -1052,6 +1285,20 @@ public class FollowerRole extends NonLeaderRole {
             }
             assert !tx.hasCommitInfo();
         }
+        for (RaftKVTransaction tx : this.readIndexWaiters) {
+            assert !tx.addsLogEntry();
+            assert !this.readIndexRequests.contains(tx);
+        }
+        for (RaftKVTransaction tx : this.readIndexRequests) {
+            assert tx.getState().equals(TxState.EXECUTING) || tx.getState().equals(TxState.COMMIT_READY);
+            assert !tx.addsLogEntry();
+            assert !tx.hasCommitInfo();
+        }
+        assert this.readIndexRequestId <= 0;
+        assert (this.readIndexRequestId != 0) == (this.readIndexRequestTime != null);
+        assert (this.unsyncedMatchIndex != 0) == (this.unsyncedLeaderTimestamp != null);
+        assert this.unsyncedMatchIndex == 0 || this.leader != null;
+        assert this.readIndexRequestId != 0 || this.readIndexRequests.isEmpty();
         for (Map.Entry<Long, PendingWrite> entry : this.pendingWrites.entrySet()) {
             final long txId = entry.getKey();
             final PendingWrite pendingWrite = entry.getValue();
@@ -1074,10 +1321,14 @@ public class FollowerRole extends NonLeaderRole {
             break;
         case COMMIT_WAITING:
             assert !this.commitRequests.contains(tx);
+            assert !this.readIndexWaiters.contains(tx);
+            assert !this.readIndexRequests.contains(tx);
             break;
         default:
             assert !this.pendingWrites.containsKey(tx.txId);
             assert !this.commitRequests.contains(tx);
+            assert !this.readIndexWaiters.contains(tx);
+            assert !this.readIndexRequests.contains(tx);
             break;
         }
     }
@@ -10,6 +10,7 @@ import com.google.common.base.Preconditions;
 import io.permazen.kv.KVTransactionException;
 import io.permazen.kv.RetryKVTransactionException;
 import io.permazen.kv.mvcc.Conflict;
+import io.permazen.kv.mvcc.Mutations;
 import io.permazen.kv.mvcc.Reads;
 import io.permazen.kv.mvcc.Writes;
 import io.permazen.kv.raft.msg.AppendRequest;
@@ -18,6 +19,7 @@ import io.permazen.kv.raft.msg.CommitRequest;
 import io.permazen.kv.raft.msg.CommitResponse;
 import io.permazen.kv.raft.msg.GrantVote;
 import io.permazen.kv.raft.msg.InstallSnapshot;
+import io.permazen.kv.raft.msg.InstallSnapshotResponse;
 import io.permazen.kv.raft.msg.Message;
 import io.permazen.kv.raft.msg.RequestVote;
 
@@ -60,10 +62,13 @@ public class LeaderRole extends Role {
     private final Service updateLeaderCommitIndexService = new Service(this, "update commitIndex", this::updateLeaderCommitIndex);
     private final Service updateLeaseTimeoutService = new Service(this, "update lease timeout", this::updateLeaseTimeout);
     private final Service updateKnownFollowersService = new Service(this, "update known followers", this::updateKnownFollowers);
+    private final Service syncLogService = new Service(this, "sync log", this::syncLog);
+    private final Service probeFollowersService = new Service(this, "probe followers", this::updateAllSynchronizedFollowersNow);
 
     // Timers
     private final Timer timestampScrubTimer = new Timer(this.raft, "scrub timestamps",
       new Service(this, "scrub timestamps", this::scrubTimestamps));
+    private final Timer syncLogTimer = new Timer(this.raft, "sync log", this.syncLogService);
 
 // Constructors
 
@@ -176,6 +181,14 @@ public class LeaderRole extends Role {
         this.followerMap.values()
           .forEach(Follower::cleanup);
         this.timestampScrubTimer.cancel();
+        this.syncLogTimer.cancel();
+        if (this.raft.getLastSyncedIndex() < this.raft.log.getLastIndex()) {
+            try {
+                this.raft.syncLog();
+            } catch (IOException e) {
+                this.error("error syncing log entries", e);
+            }
+        }
         super.shutdown();
     }
 
@@ -223,21 +236,23 @@ public class LeaderRole extends Role {
      *  <li>After any log entry has been added to the log, if we have zero followers</li>
      *  <li>After a log entry that contains a configuration change has been added to the log</li>
      *  <li>After a follower's {@linkplain Follower#getMatchIndex match index} has advanced</li>
+     *  <li>After new log entries have been synced</li>
      * </ul>
      */
     private void updateLeaderCommitIndex() {
         assert Thread.holdsLock(this.raft);
 
-        // Find highest index for which a majority of cluster members have ack'd the corresponding log entry from my term
-        final int totalCount = this.raft.currentConfig.size();                          // total possible nodes
+        // Find highest index for which a majority of voting members have ack'd the corresponding log entry from my term
+        final int totalCount = this.raft.getNumVotingMembers();                         // total possible votes
         final int requiredCount = totalCount / 2 + 1;                                   // require a majority
-        final int startingCount = this.raft.isClusterMember() ? 1 : 0;                  // count myself, if member
+        final boolean member = this.raft.isVotingMember();                              // count myself, if voting member
+        final long lastSyncedIndex = this.raft.getLastSyncedIndex();                    // ...and if I have synced it
         long maxCommitIndex = this.raft.commitIndex;
         int commitCount = -1;
         for (long index = this.raft.commitIndex + 1; index <= this.raft.log.getLastIndex(); index++) {
 
             // Count the number of nodes (possibly including myself) that have a copy of the log entry at index
-            final int count = startingCount + this.countFollowersWithLogEntry(index);
+            final int count = (member && index <= lastSyncedIndex ? 1 : 0) + this.countFollowersWithLogEntry(index);
 
             // The log entry term must match my current term (exception: unless every node has it)
             final long term = this.raft.log.getTermAtIndex(index);
@@ -278,10 +293,50 @@ public class LeaderRole extends Role {
             // Notify all (up-to-date) followers with the updated leaderCommit
             this.updateAllSynchronizedFollowersNow();
 
-            // If we are no longer a member of the cluster, step down after the most recent config change is committed
-            if (!this.raft.isClusterMember() && this.raft.commitIndex >= this.findMostRecentConfigChange())
-                this.doStepDown("no longer a member of my own cluster");
+            // If we are no longer a voting member of the cluster, step down after the most recent config change is committed
+            if (!this.raft.isVotingMember() && this.raft.commitIndex >= this.findMostRecentConfigChange())
+                this.doStepDown("no longer a voting member of my own cluster");
+        }
+    }
+
+    /**
+     * Arrange for any unsynced log entries to be synced, either at the end of the current round of service
+     * or, if a {@linkplain RaftKVDatabase#setMaxSyncDelay maximum sync delay} is configured, when it expires.
+     * Meanwhile, any other new log entries appended will be included in the same sync.
+     */
+    private void scheduleSyncLog() {
+        assert Thread.holdsLock(this.raft);
+        if (this.raft.getLastSyncedIndex() >= this.raft.log.getLastIndex())
+            return;
+        if (this.raft.maxSyncDelay == 0)
+            this.raft.requestService(this.syncLogService);
+        else if (!this.syncLogTimer.isRunning())
+            this.syncLogTimer.timeoutAfter(this.raft.maxSyncDelay);
+    }
+
+    /**
+     * Start durably persisting all unsynced log entries with a single background sync; when it completes, update
+     * the commit index, which counts my own copy of a log entry only after it has been synced.
+     *
+     * <p>
+     * Because the sync happens without holding the lock, we continue sending log entries to followers meanwhile.
+     */
+    private void syncLog() {
+        assert Thread.holdsLock(this.raft);
+        this.syncLogTimer.cancel();
+        if (this.raft.startLogSync())
+            this.raft.requestService(this.updateLeaderCommitIndexService);
+    }
+
+    @Override
+    void logSyncCompleted(IOException error) {
+        assert Thread.holdsLock(this.raft);
+        if (error != null) {
+            this.error("error syncing log entries; will retry", error);
+            this.syncLogTimer.timeoutAfter(this.raft.heartbeatTimeout);
+            return;
         }
+        this.raft.requestService(this.updateLeaderCommitIndexService);
     }
 
     private int countFollowersWithLogEntry(long index) {
@@ -311,18 +366,17 @@ public class LeaderRole extends Role {
     private void updateLeaseTimeout() {
         assert Thread.holdsLock(this.raft);
 
-        // Only needed when we have followers
-        final int numFollowers = this.followerMap.size();
-        if (numFollowers == 0)
+        // Only needed when we have voting followers
+        if (!this.hasVotingFollowers())
             return;
 
-        // Get all cluster member leader timestamps, sorted in increasing order
-        final Timestamp[] leaderTimestamps = new Timestamp[this.raft.currentConfig.size()];
+        // Get all voting member leader timestamps, sorted in increasing order
+        final Timestamp[] leaderTimestamps = new Timestamp[this.raft.getNumVotingMembers()];
         int index = 0;
-        if (this.raft.isClusterMember())
+        if (this.raft.isVotingMember())
             leaderTimestamps[index++] = new Timestamp();                        // this represents my own vote
         for (Follower follower : this.followerMap.values()) {
-            if (this.raft.isClusterMember(follower.getIdentity()))
+            if (this.raft.isVotingMember(follower.getIdentity()))
                 leaderTimestamps[index++] = follower.getLeaderTimestamp();      // note follower timestamps could be null
         }
         Arrays.sort(leaderTimestamps, Timestamp.NULL_FIRST_SORT);
@@ -385,6 +439,12 @@ public class LeaderRole extends Role {
                     this.debug("scrubbing {} snapshot timestamp {}", follower, snapshotTimestamp);
                 follower.setSnapshotTimestamp(null);
             }
+            final Timestamp rewindTimestamp = follower.getRewindTimestamp();
+            if (rewindTimestamp != null && rewindTimestamp.isRolloverDanger()) {
+                if (this.log.isDebugEnabled())
+                    this.debug("scrubbing {} rewind timestamp {}", follower, rewindTimestamp);
+                follower.setRewindTimestamp(null);
+            }
             for (Iterator<Timestamp> i = follower.getCommitLeaseTimeouts().iterator(); i.hasNext(); ) {
                 final Timestamp leaseTimestamp = i.next();
                 if (leaseTimestamp.isRolloverDanger()) {
@@ -444,7 +504,7 @@ public class LeaderRole extends Role {
 
         // Add new followers
         for (String peer : adds) {
-            final String address = this.raft.currentConfig.get(peer);
+            final String address = this.raft.getPeerAddress(peer);
             final Follower follower = new Follower(this, peer, address, this.raft.log.getLastIndex());
             if (this.log.isDebugEnabled())
                 this.debug("adding new follower \"{}\" at {}", peer, address);
@@ -474,6 +534,7 @@ public class LeaderRole extends Role {
      *  <li>After receiving an {@link AppendResponse} that caused the follower's
      *      {@linkplain Follower#getNextIndex next index} to change</li>
      *  <li>After receiving the first positive {@link AppendResponse} to a probe</li>
+     *  <li>After receiving a negative {@link AppendResponse} (with update timer reset)</li>
      *  <li>After our {@code commitIndex} has advanced (all followers)</li>
      *  <li>After our {@code leaseTimeout} has advanced past one or more of a follower's
      *      {@linkplain Follower#getCommitLeaseTimeouts commit lease timeouts} (with update timer reset)</li>
@@ -507,25 +568,43 @@ public class LeaderRole extends Role {
         // Handle any in-progress snapshot install
         if ((snapshotTransmit = follower.getSnapshotTransmit()) != null) {
 
-            // Send the next chunk in transmission, if any
-            final long pairIndex = snapshotTransmit.getPairIndex();
-            final ByteBuffer chunk = snapshotTransmit.getNextChunk();
+            // If we are waiting for the follower to tell us which key ranges it needs, keep waiting (but not forever).
+            // We use a separate timer for this, because the update timer can be fired early for unrelated reasons.
             boolean synced = true;
-            if (chunk != null) {
-
-                // Send next chunk
-                final InstallSnapshot msg = new InstallSnapshot(this.raft.clusterId, this.raft.identity, peer,
-                  this.raft.currentTerm, snapshotTransmit.getSnapshotTerm(), snapshotTransmit.getSnapshotIndex(), pairIndex,
-                  pairIndex == 0 ? snapshotTransmit.getSnapshotConfig() : null, !snapshotTransmit.hasMoreChunks(), chunk);
-                if (this.raft.sendMessage(msg)) {
-                    follower.setSnapshotTimestamp(new Timestamp());
+            if (snapshotTransmit.isAwaitingRanges()) {
+                if (!follower.getSnapshotTimer().pollForTimeout()) {
+                    if (this.log.isTraceEnabled())
+                        this.trace("no update for \"{}\": waiting for snapshot install range request", peer);
                     return;
                 }
                 if (this.raft.isPerfLogEnabled())
-                    this.perfLog("canceling snapshot install for {} due to failure to send {}", follower, msg);
-
-                // Message failed -> snapshot is fatally wounded, so cancel it
+                    this.perfLog("canceling snapshot install for {} due to no response to range digests", follower);
                 synced = false;
+            } else {
+
+                // Send the next chunk in transmission, if any
+                final long pairIndex = snapshotTransmit.getPairIndex();
+                final boolean digest = snapshotTransmit.isSendingDigests();
+                final ByteBuffer chunk = snapshotTransmit.getNextChunk();
+                if (chunk != null) {
+
+                    // Send next chunk
+                    final InstallSnapshot msg = new InstallSnapshot(this.raft.clusterId, this.raft.identity, peer,
+                      this.raft.currentTerm, snapshotTransmit.getSnapshotTerm(), snapshotTransmit.getSnapshotIndex(), pairIndex,
+                      pairIndex == 0 ? snapshotTransmit.getSnapshotConfig() : null, !snapshotTransmit.hasMoreChunks(),
+                      digest, chunk);
+                    if (this.raft.sendMessage(msg)) {
+                        follower.setSnapshotTimestamp(new Timestamp());
+                        if (snapshotTransmit.isAwaitingRanges())
+                            follower.getSnapshotTimer().timeoutAfter(this.getSnapshotResponseTimeout());
+                        return;
+                    }
+                    if (this.raft.isPerfLogEnabled())
+                        this.perfLog("canceling snapshot install for {} due to failure to send {}", follower, msg);
+
+                    // Message failed -> snapshot is fatally wounded, so cancel it
+                    synced = false;
+                }
             }
             if (synced) {
                 if (this.raft.isPerfLogEnabled())
@@ -549,12 +628,12 @@ public class LeaderRole extends Role {
 
             // Don't wait for the update timer to expire if:
             //  (a) The follower is sync'd; AND
-            //      (y) We have a new log entry that the follower doesn't have; OR
+            //      (y) We have a new log entry that the follower doesn't have and the follower's window is not full; OR
             //      (y) We have a new leaderCommit that the follower doesn't have
             // The effect is that we will pipeline updates to synchronized followers.
             if (follower.isSynced()
               && (follower.getLeaderCommit() != this.raft.commitIndex
-               || follower.getNextIndex() <= this.raft.log.getLastIndex()))
+               || (follower.getNextIndex() <= this.raft.log.getLastIndex() && this.isAppendWindowOpen(follower))))
                 waitForTimerToExpire = false;
 
             // Wait for timer to expire
@@ -581,11 +660,12 @@ public class LeaderRole extends Role {
         // If the follower is so far behind that we no longer have the information it needs, we must do a snapshot install
         if ((logEntry == null || previousTerm == 0) && nextIndex <= this.raft.log.getLastAppliedIndex()) {
             final MostRecentView view = new MostRecentView(this.raft, this.raft.commitIndex);
+            final boolean incremental = InstallSnapshot.isIncrementalSupported(this.raft.getProtocolVersion(peer));
             follower.setSnapshotTransmit(new SnapshotTransmit(view.getTerm(),
-              view.getIndex(), view.getConfig(), view.getSnapshot(), view.getView()));
+              view.getIndex(), view.getConfig(), view.getSnapshot(), view.getView(), incremental));
             if (this.raft.isPerfLogEnabled()) {
-                this.perfLog("started snapshot install for out-of-date {} with nextIndex {} <= {}",
-                  follower, nextIndex, this.raft.log.getLastAppliedIndex());
+                this.perfLog("started {} snapshot install for out-of-date {} with nextIndex {} <= {}",
+                  incremental ? "incremental" : "full", follower, nextIndex, this.raft.log.getLastAppliedIndex());
             }
             follower.getSkipDataLogEntries().clear();               // avoid memory leak if snapshot leapfrogs follower log entries
             this.raft.requestService(follower.getUpdateService());
@@ -599,39 +679,64 @@ public class LeaderRole extends Role {
         // Restart update timer here (to avoid looping if an error occurs below)
         follower.getUpdateTimer().timeoutAfter(this.raft.heartbeatTimeout);
 
-        // Send actual data if follower is synced and there is a log entry to send; otherwise, just send a probe
+        // Send actual data if follower is synced, there is a log entry to send, and the follower's window is not full;
+        // otherwise, just send a probe
         final AppendRequest msg;
-        if (!follower.isSynced() || logEntry == null) {
+        if (!follower.isSynced() || logEntry == null || !this.isAppendWindowOpen(follower)) {
 
             // Create probe
             msg = new AppendRequest(this.raft.clusterId, this.raft.identity, peer, this.raft.currentTerm,
               new Timestamp(), this.leaseTimeout, this.raft.commitIndex, previousTerm, previousIndex);
         } else {
 
-            // If the log entry correspond's to follower's transaction, don't send the data because follower already has it.
-            // But only do this optimization the first time, in case something goes wrong on the follower's end.
-            ByteBuffer mutationData = null;
-            if (!follower.getSkipDataLogEntries().remove(logEntry)) {
-                try {
-                    mutationData = logEntry.getContent();
-                } catch (IOException e) {
-                    this.error("error reading log file {}", logEntry.getFile(), e);
-                    return;
+            // Gather a run of consecutive log entries, up to our configured size limit (but always at least one).
+            // Followers running older code can only accept one log entry per request.
+            final boolean multiple = AppendRequest.isMultipleLogEntriesSupported(this.raft.getProtocolVersion(peer));
+            final ArrayList<LogEntry> logEntries = new ArrayList<>();
+            long totalSize = 0;
+            for (long index = nextIndex; index <= this.raft.log.getLastIndex(); index++) {
+                final LogEntry nextLogEntry = index == nextIndex ? logEntry : this.raft.log.getEntryAtIndexIfKnown(index);
+                if (nextLogEntry == null)
+                    break;
+                final long size = follower.getSkipDataLogEntries().contains(nextLogEntry) ? 0 : nextLogEntry.getFileSize();
+                if (!logEntries.isEmpty() && (!multiple || totalSize + size > this.raft.maxAppendSize))
+                    break;
+                logEntries.add(nextLogEntry);
+                totalSize += size;
+            }
+
+            // Get log entry terms and data
+            final long[] logEntryTerms = new long[logEntries.size()];
+            final ByteBuffer[] mutationData = new ByteBuffer[logEntries.size()];
+            for (int i = 0; i < logEntries.size(); i++) {
+                final LogEntry nextLogEntry = logEntries.get(i);
+                logEntryTerms[i] = nextLogEntry.getTerm();
+
+                // If the log entry correspond's to follower's transaction, don't send the data because follower already has it.
+                // But only do this optimization the first time, in case something goes wrong on the follower's end.
+                if (!follower.getSkipDataLogEntries().remove(nextLogEntry)) {
+                    try {
+                        mutationData[i] = this.raft.logEntryCache.getContent(nextLogEntry);
+                    } catch (IOException e) {
+                        this.error("error reading log file {}", nextLogEntry.getFile(), e);
+                        return;
+                    }
                 }
             }
 
             // Create message
             msg = new AppendRequest(this.raft.clusterId, this.raft.identity, peer, this.raft.currentTerm, new Timestamp(),
-              this.leaseTimeout, this.raft.commitIndex, previousTerm, previousIndex, logEntry.getTerm(), mutationData);
+              this.leaseTimeout, this.raft.commitIndex, previousTerm, previousIndex, logEntryTerms, mutationData);
         }
 
         // Send update
         final boolean sent = this.raft.sendMessage(msg);
 
-        // Advance next index if a log entry was sent; we allow pipelining log entries when synchronized
+        // Advance next index if log entries were sent; we allow pipelining log entries when synchronized
         if (sent && !msg.isProbe()) {
             assert follower.isSynced();
-            follower.setNextIndex(Math.min(follower.getNextIndex(), this.raft.log.getLastIndex()) + 1);
+            follower.setNextIndex(msg.getLastLogIndex() + 1);
+            follower.addInflightRequest(msg.getLastLogIndex());
         }
 
         // Update the leaderCommit we sent to the follower
@@ -639,6 +744,26 @@ public class LeaderRole extends Role {
             follower.setLeaderCommit(msg.getLeaderCommit());
     }
 
+    /**
+     * Determine whether we may send another {@link AppendRequest} containing log entries to the given follower
+     * without first receiving a response to one of the requests already outstanding.
+     */
+    private boolean isAppendWindowOpen(Follower follower) {
+        assert Thread.holdsLock(this.raft);
+        return follower.getNumInflightRequests() < this.raft.maxAppendWindow;
+    }
+
+    /**
+     * Determine how long to wait for a follower to respond to snapshot install range digests.
+     *
+     * <p>
+     * The follower hears nothing from us while we wait, so we must give up before its election timer can expire.
+     */
+    private int getSnapshotResponseTimeout() {
+        assert Thread.holdsLock(this.raft);
+        return (this.raft.heartbeatTimeout + this.raft.minElectionTimeout) / 2;
+    }
+
     private void updateAllSynchronizedFollowersNow() {
         assert Thread.holdsLock(this.raft);
         this.followerMap.values()
@@ -756,7 +881,18 @@ public class LeaderRole extends Role {
      * If we already know that it's up-to-date as of now (because our lease currently extends into the future), return null.
      */
     private Timestamp getCurrentCommitMinLeaseTimeout() {
-        return this.followerMap.isEmpty() || this.isLeaderLeaseActiveNow() ? null : new Timestamp();
+        return !this.hasVotingFollowers() || this.isLeaderLeaseActiveNow() ? null : new Timestamp();
+    }
+
+    /**
+     * Determine whether any of our followers are voting members; if not, learners don't affect our leader lease.
+     */
+    private boolean hasVotingFollowers() {
+        for (Follower follower : this.followerMap.values()) {
+            if (this.raft.isVotingMember(follower.getIdentity()))
+                return true;
+        }
+        return false;
     }
 
     /**
@@ -788,7 +924,7 @@ public class LeaderRole extends Role {
 // Message
 
     @Override
-    void caseAppendRequest(AppendRequest msg, NewLogEntry newLogEntry) {
+    void caseAppendRequest(AppendRequest msg, NewLogEntry[] newLogEntries) {
         assert Thread.holdsLock(this.raft);
         this.failDuplicateLeader(msg);
     }
@@ -836,8 +972,32 @@ public class LeaderRole extends Role {
         // Check result and update follower's next index
         final boolean wasSynced = follower.isSynced();
         final long previousNextIndex = follower.getNextIndex();
-        if (!msg.isSuccess())
-            follower.setNextIndex(Math.max(follower.getNextIndex() - 1, 1));
+        final boolean windowWasFull = !this.isAppendWindowOpen(follower);
+        if (msg.isSuccess())
+            follower.acknowledgeInflightRequests(msg.getMatchIndex());
+        else {
+
+            // Ignore a negative response to a request that was sent prior to the most recent rewind; when we pipeline
+            // requests, every outstanding request after the first mismatch fails, but we have already handled that
+            if (follower.getRewindTimestamp() != null && msg.getLeaderTimestamp().compareTo(follower.getRewindTimestamp()) < 0) {
+                if (this.log.isTraceEnabled())
+                    this.trace("rec'd {} sent prior to most recent rewind; ignoring", msg);
+                return;
+            }
+
+            // Rewind all the way back to the follower's last applied log entry, which is committed and therefore must match,
+            // if we still know that log entry's term; otherwise, back up one log entry at a time
+            long rewindIndex = msg.getMatchIndex() + 1;
+            if (rewindIndex > 1 && this.raft.log.getTermAtIndexIfKnown(rewindIndex - 1) == 0)
+                rewindIndex = follower.getNextIndex() - 1;
+            follower.setNextIndex(Math.max(Math.min(rewindIndex, follower.getNextIndex() - 1), 1));
+            follower.setRewindTimestamp(new Timestamp());
+            follower.clearInflightRequests();
+
+            // Send the next probe immediately instead of waiting for the update timer to expire
+            follower.updateNow();
+            updateFollowerAgain = true;
+        }
         follower.setSynced(msg.isSuccess());
         if (follower.isSynced() != wasSynced)
             updateFollowerAgain = true;
@@ -851,6 +1011,10 @@ public class LeaderRole extends Role {
         // Update follower again if next index has changed
         updateFollowerAgain |= follower.getNextIndex() != previousNextIndex;
 
+        // Update follower again if this response reopened a full window and there are log entries waiting to be sent
+        updateFollowerAgain |= windowWasFull && this.isAppendWindowOpen(follower)
+          && follower.getNextIndex() <= this.raft.log.getLastIndex();
+
         // Debug
         if (this.log.isTraceEnabled())
             this.trace("updated follower: {}, update again = {}", follower, updateFollowerAgain);
@@ -909,8 +1073,10 @@ public class LeaderRole extends Role {
                 // Remember that this follower is now going to be waiting for this particular leaseTimeout
                 follower.getCommitLeaseTimeouts().add(minimumLeaseTimeout);
 
-                // Send immediate probes to all (up-to-date) followers in an attempt to increase our leaseTimeout quickly
-                this.updateAllSynchronizedFollowersNow();
+                // Send immediate probes to all (up-to-date) followers in an attempt to increase our leaseTimeout quickly.
+                // We do this as a service so that read-only commit requests received together, e.g., read index requests
+                // from several followers, all share the same round of probes and therefore the same lease check.
+                this.raft.requestService(this.probeFollowersService);
             }
 
             // Send response with commit term+index set from our last log entry
@@ -980,6 +1146,44 @@ public class LeaderRole extends Role {
         this.failDuplicateLeader(msg);
     }
 
+    @Override
+    void caseInstallSnapshotResponse(InstallSnapshotResponse msg) {
+        assert Thread.holdsLock(this.raft);
+
+        // Find follower
+        final Follower follower = this.findFollower(msg);
+        if (follower == null)
+            return;
+
+        // Verify the response matches the follower's in-progress snapshot install
+        final SnapshotTransmit snapshotTransmit = follower.getSnapshotTransmit();
+        if (snapshotTransmit == null
+          || !snapshotTransmit.isAwaitingRanges()
+          || snapshotTransmit.getSnapshotTerm() != msg.getSnapshotTerm()
+          || snapshotTransmit.getSnapshotIndex() != msg.getSnapshotIndex()) {
+            if (this.log.isDebugEnabled())
+                this.debug("rec'd {} not matching in-progress snapshot install {}; ignoring", msg, snapshotTransmit);
+            return;
+        }
+
+        // Start sending the key/value pairs in the requested ranges
+        try {
+            snapshotTransmit.setMissingRanges(msg.getMissingRanges());
+        } catch (IllegalArgumentException e) {
+            this.warn("rec'd invalid {} from {}: {}", msg, follower, e.getMessage());
+            follower.cancelSnapshotTransmit();
+            follower.setSynced(false);
+            follower.updateNow();
+            return;
+        }
+        if (this.raft.isPerfLogEnabled()) {
+            this.perfLog("continuing snapshot install for {} with {}/{} key ranges",
+              follower, msg.getMissingRanges().length, snapshotTransmit.getNumRanges());
+        }
+        follower.getSnapshotTimer().cancel();
+        this.raft.requestService(follower.getUpdateService());
+    }
+
     @Override
     void caseRequestVote(RequestVote msg) {
         assert Thread.holdsLock(this.raft);
@@ -1067,7 +1271,7 @@ public class LeaderRole extends Role {
      * Apply a new log entry to the Raft log.
      *
      * @throws IllegalStateException if a config change would not be safe at the current time
-     * @throws IllegalArgumentException if the config change attempts to remove the last node
+     * @throws IllegalArgumentException if the config change attempts to remove or demote the last voting node
      * @throws IOException if there was a disk error whilst persisting the new log entry
      */
     private LogEntry applyNewLogEntry(NewLogEntry newLogEntry) throws IOException {
@@ -1081,18 +1285,36 @@ public class LeaderRole extends Role {
             if (!this.mayApplyNewConfigChange())
                 throw new IllegalStateException("config change cannot be safely applied at this time");
 
-            // Disallow a configuration change that removes the last node in a cluster
-            if (this.raft.currentConfig.size() == 1 && configChange[1] == null) {
-                final String lastNode = this.raft.currentConfig.keySet().iterator().next();
-                if (configChange[0].equals(lastNode)) {
-                    throw new IllegalArgumentException(String.format(
-                      "can't remove the last node in a cluster (\"%s\")", lastNode));
+            // Disallow a configuration change that removes or demotes the last voting node in a cluster
+            final HashSet<String> voters = this.raft.getVotingMembers();
+            if (configChange[1] == null || RaftKVDatabase.isLearnerAddress(configChange[1]))
+                voters.remove(configChange[0]);
+            else
+                voters.add(configChange[0]);
+            if (voters.isEmpty()) {
+                throw new IllegalArgumentException(String.format(
+                  "can't remove or demote the last voting node in a cluster (\"%s\")", configChange[0]));
+            }
+
+            // Disallow adding or demoting a learner unless every other member is known to understand learners;
+            // nodes running older code would count the learner as a voting member and disagree with us about quorums
+            if (RaftKVDatabase.isLearnerAddress(configChange[1])) {
+                for (String member : this.raft.currentConfig.keySet()) {
+                    if (member.equals(this.raft.identity))
+                        continue;
+                    final Integer version = this.raft.protocolVersionMap.get(member);
+                    if (version == null || !Message.isLearnersSupported(version)) {
+                        throw new IllegalStateException(String.format(
+                          "can't add or demote learner \"%s\": cluster member \"%s\" is not known to support learners",
+                          configChange[0], member));
+                    }
                 }
             }
         }
 
-        // Append new log entry to the Raft log
+        // Append new log entry to the Raft log and arrange for it to be synced, possibly along with other new log entries
         final LogEntry logEntry = this.raft.appendLogEntry(this.raft.currentTerm, newLogEntry);
+        this.scheduleSyncLog();
 
         // Update follower list if configuration changed
         if (configChange != null)
@@ -1142,10 +1364,11 @@ public class LeaderRole extends Role {
             final LogEntry logEntry = this.raft.log.getEntryAtIndexIfKnown(index);
             assert logEntry != null;
             try {
-                final Conflict conflict = reads.findConflict(logEntry.getMutations());
+                final Mutations mutations = logEntry.getMutations(this.raft.logEntryCache);
+                final Conflict conflict = reads.findConflict(mutations);
                 if (conflict != null) {
                     if (dumpDesc != null)
-                        this.dumpConflicts(reads, logEntry.getMutations(), dumpDesc + " fails due to conflicts with " + logEntry);
+                        this.dumpConflicts(reads, mutations, dumpDesc + " fails due to conflicts with " + logEntry);
                     return "writes of committed transaction at index " + index
                       + " conflict with transaction reads from transaction base index " + baseIndex + ": " + conflict;
                 }
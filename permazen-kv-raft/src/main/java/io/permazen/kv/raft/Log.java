@@ -9,6 +9,7 @@ import com.google.common.base.Preconditions;
 
 import io.permazen.kv.raft.msg.AppendRequest;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -79,15 +80,21 @@ final class Log {
             for (int i = 0; i < this.applied.length; i++) {
                 final LogEntry logEntry = this.applied[i];
                 if (logEntry != null)
-                    this.raft.deleteFile(logEntry.getFile(), "old log file");
+                    this.deleteLogFile(logEntry, "old log file");
             }
 
             // Delete unapplied log files
             for (LogEntry logEntry : this.unapplied)
-                this.raft.deleteFile(logEntry.getFile(), "old log file");
+                this.deleteLogFile(logEntry, "old log file");
+
+            // Delete log segments
+            if (this.raft.segmentedLog != null)
+                this.raft.segmentedLog.deleteAll();
         }
 
         // Reset state
+        if (this.raft.logEntryCache != null)
+            this.raft.logEntryCache.clear();
         Arrays.fill(this.applied, null);
         this.numApplied = 0;
         this.unapplied.clear();
@@ -114,12 +121,13 @@ final class Log {
                     this.applied[appliedSlot] = logEntry;
                     this.numApplied++;
                 } else
-                    this.raft.deleteFile(logEntry.getFile(), "old log file");
+                    this.deleteLogFile(logEntry, "old log file");
             }
             prevIndex = index;
             prevTerm = term;
         }
         Preconditions.checkArgument(prevIndex == -1 || prevIndex >= lastAppliedIndex);
+        this.releaseLogSegments();
         assert this.checkState();
     }
 
@@ -324,11 +332,15 @@ final class Log {
         assert appliedSlot != -1;
         final LogEntry oldEntry = this.applied[appliedSlot];
         assert (oldEntry != null) == (this.numApplied == MAX_APPLIED);
-        if (oldEntry != null)
-            this.raft.deleteFile(oldEntry.getFile(), "old log file");
+        if (oldEntry != null) {
+            this.deleteLogFile(oldEntry, "old log file");
+            this.uncacheLogEntry(oldEntry);
+        }
         this.applied[appliedSlot] = logEntry;
         if (this.numApplied < MAX_APPLIED)
             this.numApplied++;
+        if (oldEntry != null)
+            this.releaseLogSegments();
 
         // Discard associated Writes object to save memory
         logEntry.discardWrites();
@@ -360,12 +372,23 @@ final class Log {
         if (minListIndex >= maxListIndex)
             return;
 
-        // Delete log entries and associated files
+        // Delete log entries and associated files; the first log entry stored in a log segment truncates the segment
         final List<LogEntry> conflictList = this.unapplied.subList(minListIndex, maxListIndex);
+        boolean truncated = false;
         for (LogEntry logEntry : conflictList) {
             if (this.raft.logger.isDebugEnabled())
                 this.raft.debug("deleting log entry " + logEntry + " overwritten by " + msg);
-            this.raft.deleteFile(logEntry.getFile(), "overwritten log file");
+            this.uncacheLogEntry(logEntry);
+            if (logEntry.getSegment() == null)
+                this.raft.deleteFile(logEntry.getFile(), "overwritten log file");
+            else if (!truncated) {
+                try {
+                    this.raft.segmentedLog.truncate(logEntry);
+                } catch (IOException e) {
+                    this.raft.error("error truncating log segment {}", logEntry.getFile().getName(), e);
+                }
+                truncated = true;
+            }
         }
         conflictList.clear();
         assert this.checkState();
@@ -395,15 +418,45 @@ final class Log {
             assert logEntry != null;
             if (this.raft.logger.isDebugEnabled())
                 this.raft.debug("deleting log entry " + logEntry + " no longer needed");
-            this.raft.deleteFile(logEntry.getFile(), "no longer needed");
+            this.deleteLogFile(logEntry, "no longer needed");
+            this.uncacheLogEntry(logEntry);
             this.applied[appliedSlot] = null;
             this.numApplied--;
         }
+        this.releaseLogSegments();
         assert this.checkState();
     }
 
 // Other
 
+    /**
+     * Delete the file associated with a log entry that is no longer needed, unless the log entry is stored in a log segment.
+     *
+     * <p>
+     * Log segments are instead deleted in their entirety by {@link #releaseLogSegments} once none of their log entries
+     * are needed any longer.
+     */
+    private void deleteLogFile(LogEntry logEntry, String description) {
+        if (logEntry.getSegment() == null)
+            this.raft.deleteFile(logEntry.getFile(), description);
+    }
+
+    /**
+     * Remove the content of a log entry that is no longer needed from the {@link LogEntryCache}, if any.
+     */
+    private void uncacheLogEntry(LogEntry logEntry) {
+        if (this.raft.logEntryCache != null)
+            this.raft.logEntryCache.remove(logEntry.getIndex());
+    }
+
+    /**
+     * Delete log segments containing only log entries that we no longer retain.
+     */
+    private void releaseLogSegments() {
+        if (this.raft.segmentedLog != null)
+            this.raft.segmentedLog.release(this.numApplied > 0 ? this.getFirstIndex() - 1 : this.lastAppliedIndex);
+    }
+
     /**
      * Get the array index in {@code this.applied} for the already-applied log entry with the given index.
      *
@@ -48,9 +48,10 @@ public class LogEntry {
     private final String[] configChange;
     private final long fileSize;
     private final File file;
+    private final SegmentedLog.Segment segment;
+    private final long segmentOffset;
 
     private Writes writes;
-    private ByteBuffer content;
 
 // Constructors
 
@@ -76,6 +77,35 @@ public class LogEntry {
         this.fileSize = fileSize;
         this.file = new File(logDir,
           String.format("%s%019d-%019d%s", LOG_FILE_PREFIX, this.getIndex(), this.getTerm(), LOG_FILE_SUFFIX));
+        this.segment = null;
+        this.segmentOffset = 0;
+    }
+
+    /**
+     * Constructor for log entries stored in a {@link SegmentedLog}.
+     *
+     * @param term log entry term
+     * @param index log entry index
+     * @param segment segment containing the log entry
+     * @param segmentOffset offset of the log entry's record in the segment
+     * @param data log entry data
+     * @param fileSize the size of the serialized log entry data
+     */
+    LogEntry(final long term, final long index,
+      final SegmentedLog.Segment segment, final long segmentOffset, final Data data, final long fileSize) {
+        Preconditions.checkArgument(term > 0, "bogus term");
+        Preconditions.checkArgument(index > 0, "bogus index");
+        Preconditions.checkArgument(segment != null, "null segment");
+        Preconditions.checkArgument(data != null, "null data");
+        Preconditions.checkArgument(fileSize > 0, "invalid fileSize");
+        this.term = term;
+        this.index = index;
+        this.writes = data.getWrites();
+        this.configChange = data.getConfigChange();
+        this.fileSize = fileSize;
+        this.file = segment.getFile();
+        this.segment = segment;
+        this.segmentOffset = segmentOffset;
     }
 
 // Properties
@@ -125,12 +155,13 @@ public class LogEntry {
      * Unlike {@link #getWrites}, which is only guaranteed to be available prior to the application of this
      * log entry to the state machine, the {@link Mutations} (usable for conflict checking) are always available.
      *
+     * @param cache cache through which to read this log entry's content, if needed
      * @return transaction mutations
      */
-    Mutations getMutations() throws IOException {
+    Mutations getMutations(LogEntryCache cache) throws IOException {
         if (this.writes != null)
             return this.writes;
-        return Writes.deserializeOnline(new ByteBufferInputStream(this.getContent()));
+        return Writes.deserializeOnline(new ByteBufferInputStream(cache.getContent(this)));
     }
 
     /**
@@ -173,9 +204,12 @@ public class LogEntry {
     }
 
     /**
-     * Get the size of the on-disk file for this log entry.
+     * Get the size of the serialized data for this log entry.
      *
-     * @return log entry file size
+     * <p>
+     * For log entries stored in their own file, this is the size of the file.
+     *
+     * @return log entry data size
      */
     public long getFileSize() {
         return this.fileSize;
@@ -184,21 +218,44 @@ public class LogEntry {
     /**
      * Get the on-disk file for this log entry.
      *
+     * <p>
+     * For log entries stored in a log segment, this is the segment file, which contains other log entries as well.
+     *
      * @return log entry file
      */
     public File getFile() {
         return this.file;
     }
 
+    /**
+     * Get the log segment containing this log entry, if any.
+     *
+     * @return log segment, or null if this log entry is stored in its own file
+     */
+    SegmentedLog.Segment getSegment() {
+        return this.segment;
+    }
+
+    /**
+     * Get the offset of this log entry's record in its {@linkplain #getSegment log segment}.
+     *
+     * @return record offset, or zero if this log entry is stored in its own file
+     */
+    long getSegmentOffset() {
+        return this.segmentOffset;
+    }
+
 // File I/O
 
     /**
-     * Get the serialized contents of this log entry by reading the file.
+     * Get the serialized contents of this log entry by reading the file or log segment.
+     *
+     * <p>
+     * This always reads from disk; use {@link LogEntryCache#getContent} to avoid that when possible.
      */
     ByteBuffer getContent() throws IOException {
-        if (this.content == null)
-            this.content = Util.readFile(this.getFile(), this.fileSize);
-        return this.content.asReadOnlyBuffer();
+        return this.segment != null ?
+          this.segment.readContent(this.segmentOffset, this.fileSize) : Util.readFile(this.getFile(), this.fileSize);
     }
 
     /**
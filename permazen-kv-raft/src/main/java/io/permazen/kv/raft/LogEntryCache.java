@@ -0,0 +1,186 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Bounded in-memory cache of serialized log entry content, keyed by log index.
+ *
+ * <p>
+ * The content of each new log entry is added when the log entry is appended, directly from its {@link NewLogEntry},
+ * so that the leader can send recent log entries to followers that are behind, and retransmit them, without reading
+ * them back from disk. Log entries that must be read from disk anyway are added when read. The total size of the cached
+ * content is limited to a configured number of bytes; when exceeded, the least recently used log entries are evicted.
+ *
+ * <p>
+ * Each cached log entry's term is recorded along with its content: in Raft, a log entry's index and term together
+ * uniquely determine its content, so a stale cache entry left over from an overwritten log entry can never be returned.
+ * Even so, log entries are removed as soon as they are discarded from the {@link Log} to free up space.
+ */
+final class LogEntryCache {
+
+    private final RaftKVDatabase raft;
+    private final long maxSize;
+    @GuardedBy("raft")
+    private final LinkedHashMap<Long, CachedContent> map = new LinkedHashMap<>(16, 0.75f, true);    // in LRU order
+    @GuardedBy("raft")
+    private long size;                                                      // total bytes of cached content
+    @GuardedBy("raft")
+    private long hits;
+    @GuardedBy("raft")
+    private long misses;
+
+// Constructor
+
+    /**
+     * Constructor.
+     *
+     * @param raft database
+     * @param maxSize maximum total size of cached content in bytes, or zero to disable caching
+     */
+    LogEntryCache(RaftKVDatabase raft, long maxSize) {
+        Preconditions.checkArgument(raft != null);
+        Preconditions.checkArgument(maxSize >= 0);
+        this.raft = raft;
+        this.maxSize = maxSize;
+    }
+
+// Accessors
+
+    /**
+     * Get the serialized content of the given log entry, from this cache if present, otherwise by
+     * {@linkplain LogEntry#getContent reading it from disk} and adding it to this cache.
+     *
+     * @param logEntry log entry
+     * @return serialized log entry content
+     * @throws IOException if an I/O error occurs
+     */
+    ByteBuffer getContent(LogEntry logEntry) throws IOException {
+        assert Thread.holdsLock(this.raft);
+        final CachedContent cached = this.map.get(logEntry.getIndex());
+        if (cached != null && cached.term == logEntry.getTerm()) {
+            this.hits++;
+            return cached.content.asReadOnlyBuffer();
+        }
+        this.misses++;
+        final ByteBuffer content = logEntry.getContent();
+        this.add(logEntry, content);
+        return content;
+    }
+
+    /**
+     * Get the total size of the content currently cached.
+     *
+     * @return cached content size in bytes
+     */
+    long getSize() {
+        assert Thread.holdsLock(this.raft);
+        return this.size;
+    }
+
+// Mutators
+
+    /**
+     * Add the content of the given log entry, evicting least recently used log entries as needed to stay within budget.
+     *
+     * <p>
+     * Content larger than the entire budget is not cached.
+     *
+     * @param logEntry log entry
+     * @param content serialized log entry content; must not be modified afterward
+     */
+    void add(LogEntry logEntry, ByteBuffer content) {
+        assert Thread.holdsLock(this.raft);
+        Preconditions.checkArgument(logEntry != null, "null logEntry");
+        Preconditions.checkArgument(content != null, "null content");
+        final int length = content.remaining();
+        if (length > this.maxSize)
+            return;
+
+        // Don't retain a larger buffer (e.g., a received message) that the content is only a slice of
+        if (!content.hasArray() || content.array().length != length) {
+            final ByteBuffer copy = ByteBuffer.allocate(length);
+            copy.put(content.duplicate()).flip();
+            content = copy;
+        }
+
+        // Add content, replacing any previous content at the same index
+        this.remove(logEntry.getIndex());
+        this.map.put(logEntry.getIndex(), new CachedContent(logEntry.getTerm(), content.asReadOnlyBuffer()));
+        this.size += length;
+
+        // Evict least recently used log entries until we are back within budget
+        for (Iterator<CachedContent> i = this.map.values().iterator(); this.size > this.maxSize; ) {
+            this.size -= i.next().content.remaining();
+            i.remove();
+        }
+        assert this.checkState();
+    }
+
+    /**
+     * Remove the content of the log entry at the given index, if cached.
+     *
+     * @param index log entry index
+     */
+    void remove(long index) {
+        assert Thread.holdsLock(this.raft);
+        final CachedContent cached = this.map.remove(index);
+        if (cached != null)
+            this.size -= cached.content.remaining();
+    }
+
+    /**
+     * Remove all cached content.
+     */
+    void clear() {
+        assert Thread.holdsLock(this.raft);
+        this.map.clear();
+        this.size = 0;
+    }
+
+// Debug
+
+    boolean checkState() {
+        assert this.size >= 0;
+        assert this.size <= this.maxSize;
+        assert this.size == this.map.values().stream().mapToLong(cached -> cached.content.remaining()).sum();
+        return true;
+    }
+
+// Object
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName()
+          + "[entries=" + this.map.size()
+          + ",size=" + this.size
+          + ",maxSize=" + this.maxSize
+          + ",hits=" + this.hits
+          + ",misses=" + this.misses
+          + "]";
+    }
+
+// CachedContent
+
+    private static final class CachedContent {
+
+        final long term;
+        final ByteBuffer content;
+
+        CachedContent(long term, ByteBuffer content) {
+            this.term = term;
+            this.content = content;
+        }
+    }
+}
@@ -7,19 +7,26 @@ package io.permazen.kv.raft;
 
 import com.google.common.base.Preconditions;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Contains the information required to commit a new entry to the log.
  *
  * <p>
+ * The serialized log entry data is held either in a temporary file, which is renamed into place when the log entry
+ * is stored in its own file, or in memory, which is the case when new log entries are stored in a {@link SegmentedLog}.
+ *
+ * <p>
  * Instances must be {@linkplain #cleanup cleaned up} when no longer needed to ensure the temporary file is deleted if not used.
  */
 class NewLogEntry {
 
     private final LogEntry.Data data;
     private final File tempFile;
+    private final ByteBuffer content;
 
     private boolean tempFileReset;
 
@@ -34,7 +41,8 @@ class NewLogEntry {
     }
 
     /**
-     * Create an instance from a local transaction. A corresponding temporary file will be created automatically.
+     * Create an instance from a local transaction. A corresponding temporary file will be created automatically
+     * unless new log entries are stored in a {@link SegmentedLog}.
      *
      * @param tx local transaction
      */
@@ -43,14 +51,16 @@ class NewLogEntry {
     }
 
     /**
-     * Create an instance from a {@link LogEntry.Data} object. A corresponding temporary file will be created automatically.
+     * Create an instance from a {@link LogEntry.Data} object. A corresponding temporary file will be created automatically
+     * unless new log entries are stored in a {@link SegmentedLog}.
      *
      * @param raft database
      * @param data mutation data
      * @throws IOException if an I/O error occurs
      */
     NewLogEntry(final RaftKVDatabase raft, final LogEntry.Data data) throws IOException {
-        this(data, NewLogEntry.writeDataToFile(data, raft, raft.disableSync));
+        this(data, raft.logSegmentSize == 0 ? NewLogEntry.writeDataToFile(data, raft, raft.disableSync) : null,
+          raft.logSegmentSize != 0 ? NewLogEntry.writeDataToBuffer(data) : null);
     }
 
     /**
@@ -60,10 +70,27 @@ class NewLogEntry {
      * @param tempFile temporary file containing serialized mutations
      */
     NewLogEntry(final LogEntry.Data data, final File tempFile) {
-        assert data != null;
+        this(data, tempFile, null);
         assert tempFile != null;
+    }
+
+    /**
+     * Create an instance from a {@link LogEntry.Data} object and its serialized form.
+     *
+     * @param data mutation data
+     * @param content serialized mutations
+     */
+    NewLogEntry(final LogEntry.Data data, final ByteBuffer content) {
+        this(data, null, content);
+        assert content != null;
+    }
+
+    private NewLogEntry(final LogEntry.Data data, final File tempFile, final ByteBuffer content) {
+        assert data != null;
+        assert (tempFile != null) != (content != null);
         this.data = data;
         this.tempFile = tempFile;
+        this.content = content != null ? content.asReadOnlyBuffer() : null;
     }
 
     public LogEntry.Data getData() {
@@ -71,7 +98,7 @@ class NewLogEntry {
     }
 
     public File getTempFile() {
-        Preconditions.checkState(!this.tempFileReset);
+        Preconditions.checkState(this.tempFile != null && !this.tempFileReset);
         return this.tempFile;
     }
 
@@ -80,9 +107,21 @@ class NewLogEntry {
         this.tempFileReset = true;
     }
 
+    /**
+     * Get the serialized mutations, reading them from the temporary file if necessary.
+     *
+     * @return serialized mutations
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteBuffer getContent() throws IOException {
+        return this.content != null ? this.content.duplicate() : Util.readFile(this.getTempFile(), -1);
+    }
+
     public void cleanup(RaftKVDatabase raft) {
-        if (!this.tempFileReset)
+        if (this.tempFile != null && !this.tempFileReset) {
             raft.deleteFile(this.tempFile, "new log entry temp file");
+            this.tempFileReset = true;
+        }
     }
 
     private static File writeDataToFile(LogEntry.Data data, RaftKVDatabase raft, boolean disableSync) throws IOException {
@@ -97,4 +136,10 @@ class NewLogEntry {
         }
         return tempFile;
     }
+
+    private static ByteBuffer writeDataToBuffer(LogEntry.Data data) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        LogEntry.writeData(output, data);
+        return ByteBuffer.wrap(output.toByteArray());
+    }
 }
@@ -9,6 +9,7 @@ import com.google.common.base.Preconditions;
 
 import io.permazen.kv.raft.msg.AppendResponse;
 import io.permazen.kv.raft.msg.CommitRequest;
+import io.permazen.kv.raft.msg.InstallSnapshotResponse;
 
 /**
  * Support superclass for the {@linkplain FollowerRole follower} and {@linkplain CandidateRole candidate} roles,
@@ -33,7 +34,8 @@ public abstract class NonLeaderRole extends Role {
      * Get the election timer deadline, if currently running.
      *
      * <p>
-     * For a follower that is not a member of its cluster, this will return null because no election timer is running.
+     * For a follower that is not a voting member of its cluster (e.g., a learner), this will return null because
+     * no election timer is running.
      * For all other cases, this will return the time at which the election timer expires.
      *
      * @return current election timer expiration deadline, or null if not running
@@ -110,6 +112,12 @@ public abstract class NonLeaderRole extends Role {
         this.failUnexpectedMessage(msg);
     }
 
+    @Override
+    void caseInstallSnapshotResponse(InstallSnapshotResponse msg) {
+        assert Thread.holdsLock(this.raft);
+        this.failUnexpectedMessage(msg);
+    }
+
     @Override
     void caseCommitRequest(CommitRequest msg, NewLogEntry newLogEntry) {
         assert Thread.holdsLock(this.raft);
@@ -28,6 +28,7 @@ import io.permazen.kv.raft.msg.CommitRequest;
 import io.permazen.kv.raft.msg.CommitResponse;
 import io.permazen.kv.raft.msg.GrantVote;
 import io.permazen.kv.raft.msg.InstallSnapshot;
+import io.permazen.kv.raft.msg.InstallSnapshotResponse;
 import io.permazen.kv.raft.msg.Message;
 import io.permazen.kv.raft.msg.MessageSwitch;
 import io.permazen.kv.raft.msg.PingRequest;
@@ -62,9 +63,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
@@ -257,10 +261,30 @@ import org.slf4j.LoggerFactory;
  *      until the follower acknowledges receipt of the log entry containing the configuration change.</li>
  *  <li>Leaders defer configuration changes until they have committed at least one log entry in the current term
  *      (see <a href="https://groups.google.com/d/msg/raft-dev/t4xj6dJTP6E/d2D9LrWRza8J">this discussion</a>).</li>
- *  <li>Configuration changes that remove the last node in a cluster are disallowed.</li>
+ *  <li>Configuration changes that remove or demote the last voting node in a cluster are disallowed.</li>
  *  <li>Only one configuration change may take place at a time (i.e., be not yet committed).</li>
  * </ul>
  *
+ * <p><b>Learners</b></p>
+ *
+ * <p>
+ * A cluster member may be added as a non-voting <i>learner</i> via
+ * {@link RaftKVTransaction#configChange(String, String, boolean) RaftKVTransaction.configChange()}. Learners receive
+ * the log from the leader like any other follower, and so can serve reads at any {@link Consistency} level and forward
+ * transactions to the leader, but they never vote or start elections, and they don't count toward the majority required
+ * to commit log entries or establish the leader's lease. This allows read capacity to be scaled without increasing
+ * commit latency. A learner may later be promoted to a voting member, or a voting member demoted to a learner, by
+ * another configuration change that re-adds the node with the same address. A leader that is demoted steps down
+ * once the change is committed, just as if it had been removed.
+ *
+ * <p>
+ * Learners are recorded in the cluster configuration by prefixing their address with {@code "learner:"}; this prefix
+ * is not included in the addresses returned by {@link #getCurrentConfig}. Nodes running older code don't recognize
+ * this prefix and would count learners as voting members, so the leader only allows a configuration change that adds
+ * or demotes a learner once every other cluster member has communicated using a protocol version that supports learners;
+ * otherwise, the transaction fails with a {@link io.permazen.kv.RetryKVTransactionException}. The node being added
+ * must also be running code that supports learners.
+ *
  * <p><b>Follower Probes</b></p>
  *
  * <p>
@@ -375,6 +399,43 @@ public class RaftKVDatabase implements KVDatabase {
      */
     public static final int DEFAULT_COMMIT_TIMEOUT = 5000;                              // 5 seconds
 
+    /**
+     * Default maximum number of bytes of log entry data sent in a single {@link AppendRequest}
+     * ({@value #DEFAULT_MAX_APPEND_SIZE} bytes).
+     *
+     * @see #setMaxAppendSize
+     */
+    public static final int DEFAULT_MAX_APPEND_SIZE = 1024 * 1024;                      // 1 megabyte
+
+    /**
+     * Default maximum number of outstanding {@link AppendRequest}s containing log entries per follower
+     * ({@value #DEFAULT_MAX_APPEND_WINDOW}).
+     *
+     * @see #setMaxAppendWindow
+     */
+    public static final int DEFAULT_MAX_APPEND_WINDOW = 8;
+
+    /**
+     * Default maximum delay before durably persisting newly appended log entries ({@value #DEFAULT_MAX_SYNC_DELAY}ms).
+     *
+     * @see #setMaxSyncDelay
+     */
+    public static final int DEFAULT_MAX_SYNC_DELAY = 0;
+
+    /**
+     * Default size of newly allocated Raft log segment files ({@value #DEFAULT_LOG_SEGMENT_SIZE} bytes).
+     *
+     * @see #setLogSegmentSize
+     */
+    public static final long DEFAULT_LOG_SEGMENT_SIZE = 16 * 1024 * 1024;                // 16 megabytes
+
+    /**
+     * Default maximum total size of the in-memory cache of recent log entries ({@value #DEFAULT_LOG_CACHE_SIZE} bytes).
+     *
+     * @see #setLogCacheSize
+     */
+    public static final long DEFAULT_LOG_CACHE_SIZE = 32 * 1024 * 1024;                  // 32 megabytes
+
     /**
      * Default TCP port ({@value #DEFAULT_TCP_PORT}) used to communicate with peers.
      */
@@ -394,7 +455,9 @@ public class RaftKVDatabase implements KVDatabase {
     public static final String OPTION_HIGH_PRIORITY = "highPriority";
 
     // Internal constants
+    static final String LEARNER_ADDRESS_PREFIX = "learner:";            // marks learner addresses in the cluster config
     static final float MAX_CLOCK_DRIFT = 0.01f;                         // max clock drift per heartbeat as a percentage ratio
+    static final int MAX_APPLY_BATCH_SIZE = 4 * 1024 * 1024;            // max log entry bytes applied in one key/value write
 
     // File prefixes and suffixes
     static final String TX_FILE_PREFIX = "tx-";
@@ -433,15 +496,27 @@ public class RaftKVDatabase implements KVDatabase {
     @GuardedBy("this")
     int commitTimeout = DEFAULT_COMMIT_TIMEOUT;
     @GuardedBy("this")
+    int maxAppendSize = DEFAULT_MAX_APPEND_SIZE;
+    @GuardedBy("this")
+    int maxAppendWindow = DEFAULT_MAX_APPEND_WINDOW;
+    @GuardedBy("this")
+    int maxSyncDelay = DEFAULT_MAX_SYNC_DELAY;
+    @GuardedBy("this")
     int threadPriority = -1;
     @GuardedBy("this")
     boolean followerProbingEnabled;
     @GuardedBy("this")
+    boolean messageCompressionEnabled = true;
+    @GuardedBy("this")
     boolean disableSync;
     @GuardedBy("this")
     boolean dumpConflicts;
     @GuardedBy("this")
     File logDir;
+    @GuardedBy("this")
+    long logSegmentSize = DEFAULT_LOG_SEGMENT_SIZE;
+    @GuardedBy("this")
+    long logCacheSize = DEFAULT_LOG_CACHE_SIZE;
 
     // Raft runtime state
     @GuardedBy("this")
@@ -475,12 +550,18 @@ public class RaftKVDatabase implements KVDatabase {
     @GuardedBy("this")
     FileChannel logDirChannel;                                          // null on Windows - no support for sync'ing directories
     @GuardedBy("this")
+    SegmentedLog segmentedLog;                                          // log segment files
+    @GuardedBy("this")
+    LogEntryCache logEntryCache;                                        // recent log entry content
+    @GuardedBy("this")
     String returnAddress;                                               // return address for message currently being processed
     @GuardedBy("this")
     IOThread ioThread;                                                  // performs background I/O tasks
     @GuardedBy("this")
     ScheduledExecutorService serviceExecutor;                           // does stuff for us asynchronously
     @GuardedBy("this")
+    ExecutorService syncExecutor;                                       // syncs log entries without holding the lock
+    @GuardedBy("this")
     final HashSet<String> transmitting = new HashSet<>();               // network addresses whose output queues are not empty
     @GuardedBy("this")
     final LongMap<RaftKVTransaction> openTransactions = new LongMap<>();        // transactions open on this instance
@@ -493,6 +574,10 @@ public class RaftKVDatabase implements KVDatabase {
     @GuardedBy("this")
     boolean performingService;                                          // true when serviceExecutor does not need to be woken up
     @GuardedBy("this")
+    boolean logSyncInProgress;                                          // syncExecutor is syncing log entries
+    @GuardedBy("this")
+    boolean logSyncRequested;                                           // sync log entries again after current sync completes
+    @GuardedBy("this")
     boolean shuttingDown;                                               // prevents new transactions from being created
     @GuardedBy("this")
     Throwable lastInternalError;                                        // most recent exception in service executor
@@ -543,6 +628,72 @@ public class RaftKVDatabase implements KVDatabase {
         return this.logDir;
     }
 
+    /**
+     * Configure the size of the segment files in which new log entries are stored.
+     *
+     * <p>
+     * Log entries are appended to pre-allocated segment files of this size, which are deleted once all of the log entries
+     * they contain are no longer needed. A log entry too large to fit in a segment of this size gets a segment of its own.
+     * Setting this property to zero instead stores each new log entry in its own file, which was the only format
+     * supported by older versions; this is much slower, because every new log entry requires creating, renaming,
+     * and syncing a file and its directory.
+     *
+     * <p>
+     * Log entries in either format are always recovered on startup, so this property may be changed between restarts.
+     * However, older versions do not recognize segment files.
+     *
+     * <p>
+     * Default is {@link #DEFAULT_LOG_SEGMENT_SIZE}.
+     *
+     * @param logSegmentSize log segment file size in bytes, or zero to store each log entry in its own file
+     * @throws IllegalStateException if this instance is already started
+     * @throws IllegalArgumentException if {@code logSegmentSize} is negative
+     */
+    public synchronized void setLogSegmentSize(final long logSegmentSize) {
+        Preconditions.checkState(this.role == null, "already started");
+        Preconditions.checkArgument(logSegmentSize >= 0, "logSegmentSize < 0");
+        this.logSegmentSize = logSegmentSize;
+    }
+
+    /**
+     * Get the configured size of the segment files in which new log entries are stored.
+     *
+     * @return log segment file size in bytes, or zero if each log entry is stored in its own file
+     */
+    public synchronized long getLogSegmentSize() {
+        return this.logSegmentSize;
+    }
+
+    /**
+     * Configure the maximum total size of the in-memory cache of serialized log entries.
+     *
+     * <p>
+     * The content of each new log entry is cached when it is appended, and log entries read back from disk are cached
+     * when read. This allows the leader to send recent log entries to followers that have fallen behind, and to retransmit
+     * them, without reading from disk. When the cache is full, the least recently used log entries are evicted.
+     *
+     * <p>
+     * Default is {@link #DEFAULT_LOG_CACHE_SIZE}.
+     *
+     * @param logCacheSize maximum log entry cache size in bytes, or zero to disable the cache
+     * @throws IllegalStateException if this instance is already started
+     * @throws IllegalArgumentException if {@code logCacheSize} is negative
+     */
+    public synchronized void setLogCacheSize(final long logCacheSize) {
+        Preconditions.checkState(this.role == null, "already started");
+        Preconditions.checkArgument(logCacheSize >= 0, "logCacheSize < 0");
+        this.logCacheSize = logCacheSize;
+    }
+
+    /**
+     * Get the configured maximum total size of the in-memory cache of serialized log entries.
+     *
+     * @return maximum log entry cache size in bytes, or zero if disabled
+     */
+    public synchronized long getLogCacheSize() {
+        return this.logCacheSize;
+    }
+
     /**
      * Configure the {@link Network} to use for inter-node communication.
      *
@@ -723,6 +874,102 @@ public class RaftKVDatabase implements KVDatabase {
         return this.commitTimeout;
     }
 
+    /**
+     * Configure the maximum amount of log entry data that a leader will send to a follower in a single {@link AppendRequest}.
+     *
+     * <p>
+     * Leaders batch consecutive log entries into a single request until this limit would be exceeded; a request always
+     * contains at least one log entry, even if that entry by itself exceeds the limit.
+     * Followers running older code that does not support batching are always sent one log entry at a time.
+     *
+     * <p>
+     * This value may be changed while this instance is already running.
+     *
+     * <p>
+     * Default is {@link #DEFAULT_MAX_APPEND_SIZE}.
+     *
+     * @param maxAppendSize maximum number of bytes of log entry data per request
+     * @throws IllegalArgumentException if {@code maxAppendSize <= 0}
+     */
+    public synchronized void setMaxAppendSize(final int maxAppendSize) {
+        Preconditions.checkArgument(maxAppendSize > 0, "maxAppendSize <= 0");
+        this.maxAppendSize = maxAppendSize;
+    }
+
+    /**
+     * Get the configured maximum amount of log entry data sent in a single {@link AppendRequest}.
+     *
+     * @return maximum number of bytes of log entry data per request
+     */
+    public synchronized int getMaxAppendSize() {
+        return this.maxAppendSize;
+    }
+
+    /**
+     * Configure the maximum number of {@link AppendRequest}s containing log entries that a leader may have outstanding
+     * (i.e., sent but not yet acknowledged) to any one follower.
+     *
+     * <p>
+     * While a follower is synchronized, its leader pipelines requests without waiting for each response, up to this limit.
+     * Once the limit is reached, the leader sends only heartbeats to that follower until it catches up.
+     *
+     * <p>
+     * This value may be changed while this instance is already running.
+     *
+     * <p>
+     * Default is {@link #DEFAULT_MAX_APPEND_WINDOW}.
+     *
+     * @param maxAppendWindow maximum number of outstanding requests per follower
+     * @throws IllegalArgumentException if {@code maxAppendWindow <= 0}
+     */
+    public synchronized void setMaxAppendWindow(final int maxAppendWindow) {
+        Preconditions.checkArgument(maxAppendWindow > 0, "maxAppendWindow <= 0");
+        this.maxAppendWindow = maxAppendWindow;
+    }
+
+    /**
+     * Get the configured maximum number of outstanding {@link AppendRequest}s per follower.
+     *
+     * @return maximum number of outstanding requests per follower
+     */
+    public synchronized int getMaxAppendWindow() {
+        return this.maxAppendWindow;
+    }
+
+    /**
+     * Configure the maximum time that a leader may wait before durably persisting newly appended log entries.
+     *
+     * <p>
+     * When log entries are stored in {@linkplain #setLogSegmentSize log segments}, the leader does not sync each new log
+     * entry individually; instead, all of the log entries appended within a short window are made durable with a single
+     * sync, and only then does the leader count them toward the commit index. With a delay of zero, the window includes
+     * the log entries appended while handling the current batch of work (e.g., transactions committing concurrently).
+     * A larger delay allows more concurrent commits to share a sync, at the cost of added commit latency.
+     * Followers always sync once per received {@link AppendRequest}, regardless of this setting.
+     *
+     * <p>
+     * This value may be changed while this instance is already running.
+     *
+     * <p>
+     * Default is {@link #DEFAULT_MAX_SYNC_DELAY}.
+     *
+     * @param maxSyncDelay maximum sync delay in milliseconds
+     * @throws IllegalArgumentException if {@code maxSyncDelay < 0}
+     */
+    public synchronized void setMaxSyncDelay(final int maxSyncDelay) {
+        Preconditions.checkArgument(maxSyncDelay >= 0, "maxSyncDelay < 0");
+        this.maxSyncDelay = maxSyncDelay;
+    }
+
+    /**
+     * Get the configured maximum delay before durably persisting newly appended log entries.
+     *
+     * @return maximum sync delay in milliseconds
+     */
+    public synchronized int getMaxSyncDelay() {
+        return this.maxSyncDelay;
+    }
+
     /**
      * Configure whether followers should be required to probe for network connectivity with a majority of the
      * cluster after an election timeout prior to becoming a candidate.
@@ -748,6 +995,37 @@ public class RaftKVDatabase implements KVDatabase {
         return this.followerProbingEnabled;
     }
 
+    /**
+     * Configure whether to compress messages sent to peers.
+     *
+     * <p>
+     * When enabled, larger messages (e.g., {@link AppendRequest}s carrying log entries, commit requests,
+     * and snapshot chunks) are Deflate-compressed when doing so makes them smaller. Compression is only used
+     * with peers that have been seen to support it, i.e., peers speaking message protocol version 5 or later;
+     * older peers continue to receive uncompressed messages. Received compressed messages are always
+     * accepted, regardless of this setting.
+     *
+     * <p>
+     * This value may be changed at any time.
+     *
+     * <p>
+     * The default is enabled.
+     *
+     * @param messageCompressionEnabled true to enable, false to disable
+     */
+    public synchronized void setMessageCompressionEnabled(final boolean messageCompressionEnabled) {
+        this.messageCompressionEnabled = messageCompressionEnabled;
+    }
+
+    /**
+     * Determine whether compression of messages sent to peers is enabled.
+     *
+     * @return true if message compression is enabled, otherwise false
+     */
+    public synchronized boolean isMessageCompressionEnabled() {
+        return this.messageCompressionEnabled;
+    }
+
     /**
      * Disable filesystem data sync.
      *
@@ -870,9 +1148,35 @@ public class RaftKVDatabase implements KVDatabase {
      *
      * @return current configuration mapping from node identity to network address,
      *  or empty if this node is not started or unconfigured
+     * @see #getCurrentLearners
      */
     public synchronized Map<String, String> getCurrentConfig() {
-        return this.currentConfig != null ? new TreeMap<>(this.currentConfig) : new TreeMap<>();
+        final TreeMap<String, String> config = new TreeMap<>();
+        if (this.currentConfig != null) {
+            for (Map.Entry<String, String> entry : this.currentConfig.entrySet())
+                config.put(entry.getKey(), RaftKVDatabase.getNetworkAddress(entry.getValue()));
+        }
+        return config;
+    }
+
+    /**
+     * Retrieve the identities of the non-voting learner nodes in the current cluster configuration as understood by this node.
+     *
+     * <p>
+     * The returned set is a copy; changes have no effect on this instance.
+     *
+     * @return identities of the learners in the current configuration, or empty if this node is not started or unconfigured
+     * @see #getCurrentConfig
+     */
+    public synchronized SortedSet<String> getCurrentLearners() {
+        final TreeSet<String> learners = new TreeSet<>();
+        if (this.currentConfig != null) {
+            for (Map.Entry<String, String> entry : this.currentConfig.entrySet()) {
+                if (RaftKVDatabase.isLearnerAddress(entry.getValue()))
+                    learners.add(entry.getKey());
+            }
+        }
+        return learners;
     }
 
     /**
@@ -892,6 +1196,9 @@ public class RaftKVDatabase implements KVDatabase {
      * Determine whether this node thinks that it is part of its cluster, as determined by its
      * {@linkplain #getCurrentConfig current configuration}.
      *
+     * <p>
+     * Learners are cluster members; see also {@link #isVotingMember()}.
+     *
      * @return true if this instance is started and part of the cluster, otherwise false
      */
     public synchronized boolean isClusterMember() {
@@ -909,6 +1216,91 @@ public class RaftKVDatabase implements KVDatabase {
         return this.currentConfig != null ? this.currentConfig.containsKey(node) : false;
     }
 
+    /**
+     * Determine whether this node thinks that it is a voting member of its cluster, i.e., a cluster member that
+     * is not a learner, as determined by its {@linkplain #getCurrentConfig current configuration}.
+     *
+     * @return true if this instance is started and a voting member of the cluster, otherwise false
+     */
+    public synchronized boolean isVotingMember() {
+        return this.isVotingMember(this.identity);
+    }
+
+    /**
+     * Determine whether this node thinks that the specified node is a voting member of the cluster, i.e., a cluster member
+     * that is not a learner, as determined by its {@linkplain #getCurrentConfig current configuration}.
+     *
+     * @param node node identity
+     * @return true if this instance is started and the specified node is a voting member of the cluster, otherwise false
+     */
+    public synchronized boolean isVotingMember(String node) {
+        if (this.currentConfig == null)
+            return false;
+        final String address = this.currentConfig.get(node);
+        return address != null && !RaftKVDatabase.isLearnerAddress(address);
+    }
+
+    /**
+     * Get the identities of the voting members in the current configuration.
+     *
+     * @return voting member identities
+     */
+    HashSet<String> getVotingMembers() {
+        assert Thread.holdsLock(this);
+        final HashSet<String> voters = new HashSet<>(this.currentConfig.size());
+        for (Map.Entry<String, String> entry : this.currentConfig.entrySet()) {
+            if (!RaftKVDatabase.isLearnerAddress(entry.getValue()))
+                voters.add(entry.getKey());
+        }
+        return voters;
+    }
+
+    /**
+     * Get the number of voting members in the current configuration.
+     *
+     * @return number of voting members
+     */
+    int getNumVotingMembers() {
+        assert Thread.holdsLock(this);
+        int count = 0;
+        for (String address : this.currentConfig.values()) {
+            if (!RaftKVDatabase.isLearnerAddress(address))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the network address of the specified peer according to the current configuration.
+     *
+     * @param peer peer identity
+     * @return peer's network address, or null if {@code peer} is not in the current configuration
+     */
+    String getPeerAddress(String peer) {
+        assert Thread.holdsLock(this);
+        return RaftKVDatabase.getNetworkAddress(this.currentConfig.get(peer));
+    }
+
+    /**
+     * Determine whether the given cluster configuration address denotes a learner.
+     *
+     * @param address address from the cluster configuration, or null
+     * @return true if {@code address} is a learner address
+     */
+    static boolean isLearnerAddress(String address) {
+        return address != null && address.startsWith(LEARNER_ADDRESS_PREFIX);
+    }
+
+    /**
+     * Strip the learner prefix, if any, from the given cluster configuration address.
+     *
+     * @param address address from the cluster configuration, or null
+     * @return corresponding network address, or null if {@code address} is null
+     */
+    static String getNetworkAddress(String address) {
+        return RaftKVDatabase.isLearnerAddress(address) ? address.substring(LEARNER_ADDRESS_PREFIX.length()) : address;
+    }
+
     /**
      * Get this instance's current role: leadeer, follower, or candidate.
      *
@@ -1059,6 +1451,12 @@ public class RaftKVDatabase implements KVDatabase {
                     throw e;
             }
 
+            // Prepare log segments
+            assert this.segmentedLog == null;
+            this.segmentedLog = new SegmentedLog(this, this.logDir, this.logSegmentSize);
+            assert this.logEntryCache == null;
+            this.logEntryCache = new LogEntryCache(this, this.logCacheSize);
+
             // Create randomizer
             assert this.random == null;
             this.random = new SecureRandom();
@@ -1084,6 +1482,19 @@ public class RaftKVDatabase implements KVDatabase {
                 return thread;
             });
 
+            // Start up log sync thread
+            assert this.syncExecutor == null;
+            final String syncThreadName = "Raft Sync [" + this.identity + "]";
+            this.syncExecutor = Executors.newSingleThreadExecutor(action -> {
+                final Thread thread = new Thread(action);
+                synchronized (this) {
+                    if (this.threadPriority != -1)
+                        thread.setPriority(this.threadPriority);
+                }
+                thread.setName(syncThreadName);
+                return thread;
+            });
+
             // Start network
             this.network.start(new Network.Handler() {
                 @Override
@@ -1182,6 +1593,7 @@ public class RaftKVDatabase implements KVDatabase {
 
         // Set flag to prevent new transactions
         final IOThread ioThreadToShutdown;
+        final ExecutorService syncExecutorToShutdown;
         synchronized (this) {
 
             // Sanity check
@@ -1217,8 +1629,9 @@ public class RaftKVDatabase implements KVDatabase {
                 Thread.currentThread().interrupt();
             }
 
-            // Snapshot field while synchronized
+            // Snapshot fields while synchronized
             ioThreadToShutdown = this.ioThread;
+            syncExecutorToShutdown = this.syncExecutor;
         }
 
         // Shut down the service executor and wait for pending tasks to finish
@@ -1229,6 +1642,14 @@ public class RaftKVDatabase implements KVDatabase {
             Thread.currentThread().interrupt();
         }
 
+        // Shut down the log sync thread; we don't interrupt it, because that would close the log segment being synced
+        syncExecutorToShutdown.shutdown();
+        try {
+            syncExecutorToShutdown.awaitTermination(1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
         // Shutdown I/O thread
         ioThreadToShutdown.shutdown();
         try {
@@ -1240,6 +1661,7 @@ public class RaftKVDatabase implements KVDatabase {
         // Final cleanup
         synchronized (this) {
             this.serviceExecutor = null;
+            this.syncExecutor = null;
             this.ioThread = null;
             this.cleanup();
         }
@@ -1274,6 +1696,17 @@ public class RaftKVDatabase implements KVDatabase {
             }
             this.serviceExecutor = null;
         }
+        if (this.syncExecutor != null) {
+            this.syncExecutor.shutdown();
+            try {
+                this.syncExecutor.awaitTermination(1000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.syncExecutor = null;
+        }
+        this.logSyncInProgress = false;
+        this.logSyncRequested = false;
         if (this.ioThread != null) {
             this.ioThread.shutdown();
             try {
@@ -1287,6 +1720,11 @@ public class RaftKVDatabase implements KVDatabase {
         Util.closeIfPossible(this.logDirChannel);
         this.logDirChannel = null;
         this.log.reset(false);
+        this.logEntryCache = null;
+        if (this.segmentedLog != null) {
+            this.segmentedLog.close();
+            this.segmentedLog = null;
+        }
         this.random = null;
         this.network.stop();
         this.currentTerm = 0;
@@ -1321,8 +1759,8 @@ public class RaftKVDatabase implements KVDatabase {
             for (Path path : files) {
                 final File file = path.toFile();
 
-                // Ignore sub-directories (typically owned by the underlying k/v store)
-                if (file.isDirectory())
+                // Ignore sub-directories (typically owned by the underlying k/v store) and log segments (recovered below)
+                if (file.isDirectory() || SegmentedLog.isSegmentFile(file.getName()))
                     continue;
 
                 // Is this a log entry file?
@@ -1357,6 +1795,17 @@ public class RaftKVDatabase implements KVDatabase {
         // Sort log entries by index
         entryList.sort(LogEntry.SORT_BY_INDEX);
 
+        // Recover log entries from log segments; these supersede any individual log entry files at the same or higher index
+        final List<LogEntry> segmentEntryList = this.segmentedLog.recover(lastAppliedIndex);
+        if (!segmentEntryList.isEmpty()) {
+            final long minSegmentIndex = segmentEntryList.get(0).getIndex();
+            int i = entryList.size();
+            while (i > 0 && entryList.get(i - 1).getIndex() >= minSegmentIndex)
+                i--;
+            this.nukeLogFilesFromList(entryList.subList(i, entryList.size()), "superseded");
+            entryList.addAll(segmentEntryList);
+        }
+
         // Verify the terms are sensible (increasing only)
         for (int i = 1; i < entryList.size(); i++) {
             final LogEntry logEntry = entryList.get(i);
@@ -1399,10 +1848,19 @@ public class RaftKVDatabase implements KVDatabase {
     }
 
     private void nukeLogFilesFromList(List<LogEntry> entries, String problem) {
+        final LinkedHashSet<SegmentedLog.Segment> segments = new LinkedHashSet<>();
         for (LogEntry logEntry : entries) {
+            if (logEntry.getSegment() != null) {
+                segments.add(logEntry.getSegment());
+                continue;
+            }
             this.warn("deleting log file {}: {}", logEntry.getFile().getName(), problem);
             this.deleteFile(logEntry.getFile(), problem + " log file");
         }
+        for (SegmentedLog.Segment segment : segments) {
+            this.warn("deleting log segment {}: {}", segment.getFile().getName(), problem);
+            this.segmentedLog.delete(segment, problem + " log segment");
+        }
         entries.clear();
     }
 
@@ -2032,9 +2490,14 @@ public class RaftKVDatabase implements KVDatabase {
     /**
      * Append a log entry to the Raft log.
      *
+     * <p>
+     * If log segments are enabled, the log entry is appended to the current log segment, and any temporary file is deleted;
+     * the caller is responsible for eventually invoking {@link #syncLog} to make the new log entry durable.
+     * Otherwise, the {@linkplain NewLogEntry#getTempFile temporary file} must be already durably persisted,
+     * and it will be renamed.
+     *
      * @param term new log entry term
-     * @param newLogEntry entry to add; the {@linkplain NewLogEntry#getTempFile temporary file}
-     *  must be already durably persisted, and it will be renamed
+     * @param newLogEntry entry to add
      * @return new {@link LogEntry}
      * @throws IOException if an error occurs
      */
@@ -2045,8 +2508,19 @@ public class RaftKVDatabase implements KVDatabase {
         assert this.role != null;
         assert newLogEntry != null;
 
-        // Get file length
+        // Append to log segment, if enabled
         final LogEntry.Data data = newLogEntry.getData();
+        if (this.logSegmentSize != 0) {
+            final ByteBuffer content = newLogEntry.getContent();
+            final LogEntry logEntry = this.segmentedLog.append(term, this.log.getLastIndex() + 1, data, content);
+            if (this.logger.isDebugEnabled())
+                this.debug("adding new log entry {} to {}", logEntry, logEntry.getFile().getName());
+            this.logEntryCache.add(logEntry, content);
+            newLogEntry.cleanup(this);
+            return this.addLogEntry(logEntry);
+        }
+
+        // Get file length
         final File tempFile = newLogEntry.getTempFile();
         final long fileLength = Util.getLength(tempFile);
 
@@ -2062,6 +2536,118 @@ public class RaftKVDatabase implements KVDatabase {
 
         // Temp file no longer exists, so don't try to delete it later
         newLogEntry.resetTempFile();
+        return this.addLogEntry(logEntry);
+    }
+
+    /**
+     * Durably persist any log entries that have been appended but not yet synced.
+     *
+     * @throws IOException if an error occurs
+     */
+    void syncLog() throws IOException {
+        assert Thread.holdsLock(this);
+        if (this.segmentedLog != null)
+            this.segmentedLog.sync();
+    }
+
+    /**
+     * Start durably persisting any log entries that have been appended but not yet synced, without blocking.
+     *
+     * <p>
+     * The sync is performed by a separate thread that does not hold the lock, so that a slow disk does not hold up
+     * message processing. When it completes, {@link Role#logSyncCompleted Role.logSyncCompleted()} is invoked
+     * on whatever role is then current. Only one sync is performed at a time; if a sync is already in progress,
+     * another sync is performed after it completes, covering all log entries appended in the meantime.
+     *
+     * <p>
+     * If there is nothing to sync, or syncing is disabled, then this method returns true and no notification occurs.
+     *
+     * @return true if all log entries are already synced, false if a background sync is (or will be) in progress
+     */
+    boolean startLogSync() {
+
+        // Sanity check
+        assert Thread.holdsLock(this);
+        assert this.syncExecutor != null;
+
+        // Anything to do?
+        if (this.getLastSyncedIndex() >= this.log.getLastIndex())
+            return true;
+        if (this.disableSync) {
+            try {
+                this.syncLog();
+            } catch (IOException e) {
+                throw new RuntimeException("unexpected exception", e);
+            }
+            return true;
+        }
+
+        // Is a sync already in progress?
+        if (this.logSyncInProgress) {
+            this.logSyncRequested = true;
+            return false;
+        }
+
+        // Start a new sync
+        final SegmentedLog.PendingSync sync = this.segmentedLog.startSync();
+        assert sync != null;
+        if (this.logger.isTraceEnabled())
+            this.trace("starting background log sync through index {}", sync.getLastIndex());
+        this.logSyncInProgress = true;
+        try {
+            this.syncExecutor.execute(() -> this.performLogSync(sync));
+        } catch (RejectedExecutionException e) {
+            assert this.shuttingDown;
+            this.logSyncInProgress = false;
+        }
+        return false;
+    }
+
+    // Invoked by syncExecutor
+    private void performLogSync(SegmentedLog.PendingSync sync) {
+
+        // Sync without holding the lock
+        IOException error = null;
+        try {
+            sync.perform(this.disableSync);
+        } catch (IOException e) {
+            error = e;
+        }
+
+        // Update state and notify role
+        synchronized (this) {
+            this.logSyncInProgress = false;
+            if (this.role == null)
+                return;
+            if (error == null) {
+                this.segmentedLog.finishSync(sync);
+                if (this.logger.isTraceEnabled())
+                    this.trace("completed background log sync through index {}", sync.getLastIndex());
+            }
+            final boolean syncAgain = this.logSyncRequested;
+            this.logSyncRequested = false;
+            this.role.logSyncCompleted(error);
+            if (syncAgain && this.role != null && !this.logSyncInProgress)
+                this.startLogSync();
+        }
+    }
+
+    /**
+     * Get the index of the last log entry that is known to be durably persisted.
+     *
+     * <p>
+     * Applied log entries are durably persisted in the key/value store, even if not yet synced in the log.
+     *
+     * @return index of the last synced log entry
+     */
+    long getLastSyncedIndex() {
+        assert Thread.holdsLock(this);
+        final long firstUnsyncedIndex = this.segmentedLog != null ? this.segmentedLog.getFirstUnsyncedIndex() : 0;
+        return firstUnsyncedIndex != 0 ?
+          Math.max(firstUnsyncedIndex - 1, this.log.getLastAppliedIndex()) : this.log.getLastIndex();
+    }
+
+    private LogEntry addLogEntry(LogEntry logEntry) {
 
         // Add new log entry to in-memory log
         this.log.addLogEntry(logEntry);
@@ -2107,45 +2693,72 @@ public class RaftKVDatabase implements KVDatabase {
 
         // If message contains serialized mutation data, at some point we are going to need to write that data to a log entry file.
         // Instead of doing that (slow) operation while holding the lock, do it now, before we acquire the lock.
-        ByteBuffer mutationData =
-          msg instanceof AppendRequest ? ((AppendRequest)msg).getMutationData() :
-          msg instanceof CommitRequest ? ((CommitRequest)msg).getMutationData() : null;
-        final NewLogEntry newLogEntry;
-        if (mutationData != null) {
-            File tempFile = null;
-            try {
-
-                // Write serialized mutation data into temporary file
-                tempFile = this.getTempFile();
-                try (FileWriter output = new FileWriter(tempFile, this.disableSync)) {
-                    final FileChannel channel = output.getFileOutputStream().getChannel();
-                    for (ByteBuffer writeBuf = mutationData.asReadOnlyBuffer(); writeBuf.hasRemaining(); )
-                        channel.write(writeBuf);
+        final ByteBuffer[] mutationData =
+          msg instanceof AppendRequest ? ((AppendRequest)msg).getAllMutationData() :
+          msg instanceof CommitRequest ? new ByteBuffer[] { ((CommitRequest)msg).getMutationData() } : null;
+        NewLogEntry[] newLogEntries = null;
+        try {
+            if (mutationData != null) {
+                newLogEntries = new NewLogEntry[mutationData.length];
+                for (int i = 0; i < mutationData.length; i++) {
+                    if (mutationData[i] != null && (newLogEntries[i] = this.persistMutationData(msg, mutationData[i])) == null)
+                        return;
                 }
+            }
 
-                // Deserialize mutation data and create new log entry instance
-                try (ByteBufferInputStream input = new ByteBufferInputStream(mutationData)) {
-                    newLogEntry = new NewLogEntry(LogEntry.readData(input, true), tempFile);
+            // Handle message
+            this.receiveMessage(sender, msg, protocolVersion, newLogEntries);
+        } finally {
+            if (newLogEntries != null) {
+                for (NewLogEntry newLogEntry : newLogEntries) {
+                    if (newLogEntry != null)
+                        newLogEntry.cleanup(this);
                 }
+            }
+        }
+    }
 
-                // Indicate success
-                tempFile = null;
+    private NewLogEntry persistMutationData(Message msg, ByteBuffer mutationData) {
+
+        // If log segments are enabled, the data gets written when the log entry is appended
+        final boolean segmented;
+        synchronized (this) {
+            segmented = this.logSegmentSize != 0;
+        }
+        if (segmented) {
+            try (ByteBufferInputStream input = new ByteBufferInputStream(mutationData.asReadOnlyBuffer())) {
+                return new NewLogEntry(LogEntry.readData(input, true), mutationData);
             } catch (IOException e) {
-                this.error("error persisting mutations from {}, ignoring", msg, e);
-                return;
-            } finally {
-                if (tempFile != null)
-                    this.deleteFile(tempFile, "new log entry temp file");
+                this.error("error decoding mutations from {}, ignoring", msg, e);
+                return null;
             }
-        } else
-            newLogEntry = null;
+        }
 
-        // Handle message
+        // Write serialized mutation data into temporary file
+        File tempFile = null;
         try {
-            this.receiveMessage(sender, msg, protocolVersion, newLogEntry);
+            tempFile = this.getTempFile();
+            try (FileWriter output = new FileWriter(tempFile, this.disableSync)) {
+                final FileChannel channel = output.getFileOutputStream().getChannel();
+                for (ByteBuffer writeBuf = mutationData.asReadOnlyBuffer(); writeBuf.hasRemaining(); )
+                    channel.write(writeBuf);
+            }
+
+            // Deserialize mutation data and create new log entry instance
+            final NewLogEntry newLogEntry;
+            try (ByteBufferInputStream input = new ByteBufferInputStream(mutationData)) {
+                newLogEntry = new NewLogEntry(LogEntry.readData(input, true), tempFile);
+            }
+
+            // Indicate success
+            tempFile = null;
+            return newLogEntry;
+        } catch (IOException e) {
+            this.error("error persisting mutations from {}, ignoring", msg, e);
+            return null;
         } finally {
-            if (newLogEntry != null)
-                newLogEntry.cleanup(this);
+            if (tempFile != null)
+                this.deleteFile(tempFile, "new log entry temp file");
         }
     }
 
@@ -2179,7 +2792,7 @@ public class RaftKVDatabase implements KVDatabase {
 
         // Get peer's address; if unknown, use the return address of the message being processed (if any)
         final String peer = msg.getRecipientId();
-        String address = this.currentConfig.get(peer);
+        String address = this.getPeerAddress(peer);
         if (address == null)
             address = this.returnAddress;
         if (address == null) {
@@ -2188,14 +2801,14 @@ public class RaftKVDatabase implements KVDatabase {
         }
 
         // Determine protocol version to use
-        final int protocolVersion = this.protocolVersionMap.getOrDefault(peer, Message.getCurrentProtocolVersion());
+        final int protocolVersion = this.getProtocolVersion(peer);
 
         // Encode messagse
         if (this.logger.isTraceEnabled())
             this.trace("XMIT {} to {} (protocol version {})", msg, address, protocolVersion);
         final ByteBuffer encodedMessage;
         try {
-            encodedMessage = msg.encode(protocolVersion);
+            encodedMessage = msg.encode(protocolVersion, this.messageCompressionEnabled);
         } catch (IllegalArgumentException e) {                                      // can happen if peer running older code
             this.warn("can't send {} to peer \"{}\": {}", msg, peer, e.toString());
             return false;
@@ -2212,10 +2825,21 @@ public class RaftKVDatabase implements KVDatabase {
         return false;
     }
 
-    synchronized void receiveMessage(String address, Message msg, int protocolVersion, final NewLogEntry newLogEntry) {
+    /**
+     * Get the message encoding protocol version to use when sending to the specified peer.
+     *
+     * @param peer peer identity
+     * @return protocol version
+     */
+    int getProtocolVersion(String peer) {
+        assert Thread.holdsLock(this);
+        return this.protocolVersionMap.getOrDefault(peer, Message.getCurrentProtocolVersion());
+    }
+
+    synchronized void receiveMessage(String address, Message msg, int protocolVersion, final NewLogEntry[] newLogEntries) {
 
-        // Sanity check newLogEntry
-        assert newLogEntry == null || (msg instanceof AppendRequest || msg instanceof CommitRequest);
+        // Sanity check newLogEntries
+        assert newLogEntries == null || (msg instanceof AppendRequest || msg instanceof CommitRequest);
 
         // Sanity check
         assert Thread.holdsLock(this);
@@ -2300,7 +2924,7 @@ public class RaftKVDatabase implements KVDatabase {
             msg.visit(new MessageSwitch() {
                 @Override
                 public void caseAppendRequest(AppendRequest msg) {
-                    RaftKVDatabase.this.role.caseAppendRequest(msg, newLogEntry);
+                    RaftKVDatabase.this.role.caseAppendRequest(msg, newLogEntries);
                 }
                 @Override
                 public void caseAppendResponse(AppendResponse msg) {
@@ -2308,7 +2932,7 @@ public class RaftKVDatabase implements KVDatabase {
                 }
                 @Override
                 public void caseCommitRequest(CommitRequest msg) {
-                    RaftKVDatabase.this.role.caseCommitRequest(msg, newLogEntry);
+                    RaftKVDatabase.this.role.caseCommitRequest(msg, newLogEntries != null ? newLogEntries[0] : null);
                 }
                 @Override
                 public void caseCommitResponse(CommitResponse msg) {
@@ -2323,6 +2947,10 @@ public class RaftKVDatabase implements KVDatabase {
                     RaftKVDatabase.this.role.caseInstallSnapshot(msg);
                 }
                 @Override
+                public void caseInstallSnapshotResponse(InstallSnapshotResponse msg) {
+                    RaftKVDatabase.this.role.caseInstallSnapshotResponse(msg);
+                }
+                @Override
                 public void casePingRequest(PingRequest msg) {
                     RaftKVDatabase.this.role.casePingRequest(msg);
                 }
@@ -2652,7 +3280,12 @@ public class RaftKVDatabase implements KVDatabase {
             assert this.currentConfig == null;
             assert this.clusterId == 0;
             assert this.logDirChannel == null;
+            assert this.segmentedLog == null;
+            assert this.logEntryCache == null;
             assert this.serviceExecutor == null;
+            assert this.syncExecutor == null;
+            assert !this.logSyncInProgress;
+            assert !this.logSyncRequested;
             assert this.keyWatchTracker == null;
             assert this.linearizableCommitTimestamp == null;
             assert this.transmitting.isEmpty();
@@ -2667,7 +3300,10 @@ public class RaftKVDatabase implements KVDatabase {
         assert this.kv != null;
         assert this.random != null;
         assert this.serviceExecutor != null;
+        assert this.syncExecutor != null;
         assert this.logDirChannel != null || this.isWindows();
+        assert this.segmentedLog != null;
+        assert this.logEntryCache != null;
         assert !this.serviceExecutor.isShutdown() || this.shuttingDown;
 
         assert this.currentTerm >= 0;
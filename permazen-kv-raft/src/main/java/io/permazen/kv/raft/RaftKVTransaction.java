@@ -453,14 +453,43 @@ public class RaftKVTransaction implements KVTransaction {
      * @throws IllegalStateException if this method has been invoked previously on this instance
      * @throws IllegalStateException if this transaction is read-only
      * @throws IllegalArgumentException if {@code identity} is null
+     * @see #configChange(String, String, boolean)
      */
     public void configChange(String identity, String address) {
+        this.configChange(identity, address, false);
+    }
+
+    /**
+     * Include a cluster configuration change when this transaction is committed, optionally adding the node
+     * as a non-voting learner.
+     *
+     * <p>
+     * This method works like {@link #configChange(String, String)}, except that if {@code learner} is true, the node
+     * is added as a non-voting learner (see {@link RaftKVDatabase}). Invoking this method for a node that is already a
+     * cluster member, with the same address and the opposite {@code learner} value, promotes a learner to a voting member,
+     * or demotes a voting member to a learner.
+     *
+     * <p>
+     * The first node in a new cluster cannot be a learner, and a configuration change that leaves a cluster
+     * with no voting members is disallowed. Adding or demoting a learner is also disallowed until every other
+     * cluster member is known to support learners (see {@link RaftKVDatabase}).
+     *
+     * @param identity the identity of the node to add or remove
+     * @param address the network address of the node if adding, or null if removing
+     * @param learner true to add the node as a non-voting learner, false to add it as a voting member
+     * @throws IllegalStateException if this method has been invoked previously on this instance
+     * @throws IllegalStateException if this transaction is read-only
+     * @throws IllegalArgumentException if {@code identity} is null
+     * @throws IllegalArgumentException if {@code learner} is true and {@code address} is null
+     */
+    public void configChange(String identity, String address, boolean learner) {
         Preconditions.checkArgument(identity != null, "null identity");
+        Preconditions.checkArgument(address != null || !learner, "can't remove a node as a learner");
         synchronized (this.raft) {
             Preconditions.checkState(this.configChange == null, "duplicate config change; only one is supported per transaction");
             Preconditions.checkState(!this.readOnly, "transaction is read-only");
             this.verifyExecuting();
-            this.configChange = new String[] { identity, address };
+            this.configChange = new String[] { identity, learner ? RaftKVDatabase.LEARNER_ADDRESS_PREFIX + address : address };
         }
     }
 
@@ -469,7 +498,8 @@ public class RaftKVTransaction implements KVTransaction {
      *
      * <p>
      * The returned array has length two and contains the {@code identity} and {@code address}
-     * parameters passed to {@link #configChange configChange()}.
+     * parameters passed to {@link #configChange configChange()}. For learners, the address
+     * is prefixed with {@code "learner:"}.
      *
      * <p>
      * The returned array is a copy; changes have no effect on this instance.
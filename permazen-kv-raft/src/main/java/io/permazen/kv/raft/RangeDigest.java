@@ -0,0 +1,226 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft;
+
+import com.google.common.base.Preconditions;
+
+import io.permazen.kv.KeyRange;
+import io.permazen.kv.util.KeyListEncoder;
+import io.permazen.util.ByteData;
+import io.permazen.util.ByteUtil;
+import io.permazen.util.UnsignedIntEncoder;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A digest of the key/value pairs in one of the consecutive key ranges that partition a snapshot during an incremental
+ * snapshot install.
+ *
+ * <p>
+ * Each range is identified by its (inclusive) last key; the range starts just after the previous range's last key,
+ * or at the empty key for the first range. The last range in a snapshot has no last key and is unbounded.
+ * A range's digest is the SHA-256 hash of its key/value pairs, each encoded as the key length, key,
+ * value length, and value.
+ *
+ * <p>
+ * Digests are encoded as a flag indicating whether the range is bounded, the range's last key (if bounded) encoded
+ * via {@link KeyListEncoder} relative to the previous range's last key, the number of key/value pairs in the range,
+ * and the hash.
+ */
+final class RangeDigest {
+
+    static final String HASH_ALGORITHM = "SHA-256";
+    static final int HASH_LENGTH = 32;
+
+    private final ByteData endKey;
+    private final int count;
+    private final byte[] hash;
+
+    RangeDigest(ByteData endKey, int count, byte[] hash) {
+        Preconditions.checkArgument(count >= 0, "negative count");
+        Preconditions.checkArgument(hash != null && hash.length == HASH_LENGTH, "invalid hash");
+        this.endKey = endKey;
+        this.count = count;
+        this.hash = hash;
+    }
+
+    /**
+     * Get the last key in this range.
+     *
+     * @return last key (inclusive), or null if this range is unbounded
+     */
+    public ByteData getEndKey() {
+        return this.endKey;
+    }
+
+    /**
+     * Get the number of key/value pairs in this range.
+     *
+     * @return key/value pair count
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Determine whether this instance and the given instance have the same key/value pair count and hash.
+     *
+     * @param that other digest
+     * @return true if digests match
+     */
+    public boolean matches(RangeDigest that) {
+        return this.count == that.count && Arrays.equals(this.hash, that.hash);
+    }
+
+    /**
+     * Get the key range covered by a range digest.
+     *
+     * @param previousEndKey last key in the previous range, or null if this is the first range
+     * @param endKey last key in the range, or null if the range is unbounded
+     * @return corresponding key range
+     */
+    public static KeyRange getKeyRange(ByteData previousEndKey, ByteData endKey) {
+        return new KeyRange(previousEndKey != null ? ByteUtil.getNextKey(previousEndKey) : ByteData.empty(),
+          endKey != null ? ByteUtil.getNextKey(endKey) : null);
+    }
+
+// Encoding
+
+    /**
+     * Encode this instance.
+     *
+     * @param output destination
+     * @param previousEndKey last key in the previous range, or null if this is the first range
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputStream output, ByteData previousEndKey) throws IOException {
+        output.write(this.endKey != null ? 1 : 0);
+        if (this.endKey != null)
+            KeyListEncoder.write(output, this.endKey, previousEndKey);
+        UnsignedIntEncoder.write(output, this.count);
+        output.write(this.hash);
+    }
+
+    /**
+     * Decode an instance.
+     *
+     * @param input encoded input
+     * @param previousEndKey last key in the previous range, or null if this is the first range
+     * @return decoded digest
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the encoded data is invalid
+     */
+    public static RangeDigest read(InputStream input, ByteData previousEndKey) throws IOException {
+        final ByteData endKey;
+        switch (input.read()) {
+        case 0:
+            endKey = null;
+            break;
+        case 1:
+            endKey = KeyListEncoder.read(input, previousEndKey);
+            if (previousEndKey != null && endKey.compareTo(previousEndKey) <= 0)
+                throw new IllegalArgumentException("range digest keys are not strictly increasing");
+            break;
+        case -1:
+            throw new EOFException();
+        default:
+            throw new IllegalArgumentException("invalid range digest");
+        }
+        final int count = UnsignedIntEncoder.read(input);
+        final byte[] hash = input.readNBytes(HASH_LENGTH);
+        if (hash.length != HASH_LENGTH)
+            throw new EOFException();
+        return new RangeDigest(endKey, count, hash);
+    }
+
+// Builder
+
+    /**
+     * Computes the {@link RangeDigest} for a range from its key/value pairs, which must be added in order.
+     */
+    static class Builder {
+
+        private final MessageDigest sha256;
+        private final DataOutputStream output;
+
+        private int count;
+        private long size;
+        private ByteData lastKey;
+
+        Builder() {
+            try {
+                this.sha256 = MessageDigest.getInstance(HASH_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("unexpected exception", e);
+            }
+            this.output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), this.sha256));
+        }
+
+        public void add(ByteData key, ByteData value) {
+            try {
+                this.output.writeInt(key.size());
+                key.writeTo(this.output);
+                this.output.writeInt(value.size());
+                value.writeTo(this.output);
+            } catch (IOException e) {
+                throw new RuntimeException("unexpected exception", e);
+            }
+            this.count++;
+            this.size += key.size() + value.size();
+            this.lastKey = key;
+        }
+
+        /**
+         * Get the number of key/value pairs added so far.
+         *
+         * @return key/value pair count
+         */
+        public int getCount() {
+            return this.count;
+        }
+
+        /**
+         * Get the total length of the keys and values added so far.
+         *
+         * @return key/value data size
+         */
+        public long getSize() {
+            return this.size;
+        }
+
+        /**
+         * Get the most recently added key.
+         *
+         * @return last key added, or null if none
+         */
+        public ByteData getLastKey() {
+            return this.lastKey;
+        }
+
+        /**
+         * Build the digest.
+         *
+         * @param endKey last key in the range, or null if the range is unbounded
+         * @return range digest
+         */
+        public RangeDigest build(ByteData endKey) {
+            try {
+                this.output.flush();
+            } catch (IOException e) {
+                throw new RuntimeException("unexpected exception", e);
+            }
+            return new RangeDigest(endKey, this.count, this.sha256.digest());
+        }
+    }
+}
@@ -9,6 +9,7 @@ import io.permazen.kv.KVTransactionException;
 import io.permazen.kv.KeyRange;
 import io.permazen.kv.RetryKVTransactionException;
 import io.permazen.kv.mvcc.Conflict;
+import io.permazen.kv.mvcc.MutableView;
 import io.permazen.kv.mvcc.Mutations;
 import io.permazen.kv.mvcc.Reads;
 import io.permazen.kv.mvcc.TransactionConflictException;
@@ -19,6 +20,7 @@ import io.permazen.kv.raft.msg.CommitRequest;
 import io.permazen.kv.raft.msg.CommitResponse;
 import io.permazen.kv.raft.msg.GrantVote;
 import io.permazen.kv.raft.msg.InstallSnapshot;
+import io.permazen.kv.raft.msg.InstallSnapshotResponse;
 import io.permazen.kv.raft.msg.Message;
 import io.permazen.kv.raft.msg.PingRequest;
 import io.permazen.kv.raft.msg.PingResponse;
@@ -100,6 +102,20 @@ public abstract class Role {
 
     abstract void outputQueueEmpty(String address);
 
+    /**
+     * Handle completion of a background log sync started by {@link RaftKVDatabase#startLogSync}.
+     *
+     * <p>
+     * The sync may have been started by a previous role. The implementation in {@link Role} just logs any error.
+     *
+     * @param error error that occurred during the sync, or null if all log entries through the sync point are now durable
+     */
+    void logSyncCompleted(IOException error) {
+        assert Thread.holdsLock(this.raft);
+        if (error != null)
+            this.error("error syncing log entries", error);
+    }
+
     /**
      * Check transactions in the {@link TxState#COMMIT_READY} state to see if we can advance them.
      */
@@ -142,23 +158,43 @@ public abstract class Role {
         assert this.checkRebasableAndCommittableUpToDate();
         assert this.raft.commitIndex >= this.raft.log.getLastAppliedIndex();
 
-        // Apply all committed log entries to the state machine
+        // Apply all committed log entries to the state machine, several at a time
         boolean anyApplied = false;
         while (this.raft.log.getLastAppliedIndex() < this.raft.commitIndex) {
 
-            // Grab the first unwritten log entry
-            final LogEntry logEntry = this.raft.log.getUnapplied().get(0);
-            assert logEntry.getIndex() == this.raft.log.getLastAppliedIndex() + 1;
+            // Grab the next batch of unapplied committed log entries, up to the maximum batch size (but at least one)
+            final ArrayList<LogEntry> batch = new ArrayList<>();
+            long batchSize = 0;
+            for (LogEntry logEntry : this.raft.log.getUnapplied()) {
+                if (logEntry.getIndex() > this.raft.commitIndex
+                  || (!batch.isEmpty() && batchSize + logEntry.getFileSize() > RaftKVDatabase.MAX_APPLY_BATCH_SIZE))
+                    break;
+                batch.add(logEntry);
+                batchSize += logEntry.getFileSize();
+            }
+            final LogEntry firstLogEntry = batch.get(0);
+            final LogEntry lastLogEntry = batch.get(batch.size() - 1);
+            assert firstLogEntry.getIndex() == this.raft.log.getLastAppliedIndex() + 1;
 
-            // Get the current config as of the log entry we're about to apply
+            // Get the current config as of the last log entry we're about to apply
             final HashMap<String, String> logEntryConfig = new HashMap<>(this.raft.log.getLastAppliedConfig());
-            logEntry.applyConfigChange(logEntryConfig);
+            batch.forEach(logEntry -> logEntry.applyConfigChange(logEntryConfig));
+
+            // Merge the log entries' changes, in order, into a single set of mutations
+            final Mutations logWrites;
+            if (batch.size() == 1)
+                logWrites = firstLogEntry.getWrites();
+            else {
+                final Writes mergedWrites = new Writes();
+                final MutableView mergedView = new MutableView(this.raft.kv, null, mergedWrites);
+                batch.forEach(logEntry -> mergedView.apply(logEntry.getWrites()));
+                logWrites = mergedWrites;
+            }
 
             // Prepare combined Mutations containing prefixed log entry changes plus my own
-            final Mutations logWrites = logEntry.getWrites();
             final Writes myWrites = new Writes();
-            myWrites.getPuts().put(RaftKVDatabase.LAST_APPLIED_TERM_KEY, LongEncoder.encode(logEntry.getTerm()));
-            myWrites.getPuts().put(RaftKVDatabase.LAST_APPLIED_INDEX_KEY, LongEncoder.encode(logEntry.getIndex()));
+            myWrites.getPuts().put(RaftKVDatabase.LAST_APPLIED_TERM_KEY, LongEncoder.encode(lastLogEntry.getTerm()));
+            myWrites.getPuts().put(RaftKVDatabase.LAST_APPLIED_INDEX_KEY, LongEncoder.encode(lastLogEntry.getIndex()));
             myWrites.getPuts().put(RaftKVDatabase.LAST_APPLIED_CONFIG_KEY, this.raft.encodeConfig(logEntryConfig));
             final ByteData stateMachinePrefix = this.raft.getStateMachinePrefix();
             final Mutations mutations = new Mutations() {
@@ -184,21 +220,29 @@ public abstract class Role {
                 }
             };
 
-            // Apply updates to the key/value store; when applying the last one, durably persist
-            if (this.log.isDebugEnabled())
-                this.debug("applying committed log entry {} to key/value store", logEntry);
+            // Apply updates to the key/value store in a single atomic write; when applying the last batch, durably persist
+            if (this.log.isDebugEnabled()) {
+                if (batch.size() == 1)
+                    this.debug("applying committed log entry {} to key/value store", firstLogEntry);
+                else {
+                    this.debug("applying {} committed log entries {} through {} to key/value store",
+                      batch.size(), firstLogEntry, lastLogEntry);
+                }
+            }
             try {
-                this.raft.kv.apply(mutations,
-                  !this.raft.disableSync && this.raft.log.getLastAppliedIndex() == this.raft.commitIndex);
+                this.raft.kv.apply(mutations, !this.raft.disableSync && lastLogEntry.getIndex() == this.raft.commitIndex);
             } catch (Exception e) {
                 final Throwable cause = e.getCause() instanceof IOException ? (IOException)e.getCause() : e;
-                this.error("error applying log entry {} to key/value store", logEntry, cause);
+                this.error("error applying log entries {} through {} to key/value store", firstLogEntry, lastLogEntry, cause);
                 break;
             }
 
             // Update log
-            this.raft.log.applyNextLogEntry();
+            for (int i = 0; i < batch.size(); i++)
+                this.raft.log.applyNextLogEntry();
             anyApplied = true;
+            assert this.raft.log.getLastAppliedIndex() == lastLogEntry.getIndex();
+            assert this.raft.log.getLastAppliedConfig().equals(logEntryConfig);
             assert this.raft.currentConfig.equals(this.raft.log.buildCurrentConfig());
         }
 
@@ -711,12 +755,13 @@ public abstract class Role {
 // Messages
 
     // This is a package access version of "implements MessageSwitch"
-    abstract void caseAppendRequest(AppendRequest msg, NewLogEntry newLogEntry);
+    abstract void caseAppendRequest(AppendRequest msg, NewLogEntry[] newLogEntries);
     abstract void caseAppendResponse(AppendResponse msg);
     abstract void caseCommitRequest(CommitRequest msg, NewLogEntry newLogEntry);
     abstract void caseCommitResponse(CommitResponse msg);
     abstract void caseGrantVote(GrantVote msg);
     abstract void caseInstallSnapshot(InstallSnapshot msg);
+    abstract void caseInstallSnapshotResponse(InstallSnapshotResponse msg);
     abstract void caseRequestVote(RequestVote msg);
 
     void casePingRequest(PingRequest msg) {
@@ -0,0 +1,701 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft;
+
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.dellroad.stuff.io.ByteBufferInputStream;
+
+/**
+ * Stores Raft log entries in a sequence of pre-allocated segment files.
+ *
+ * <p>
+ * Each segment file is named for the index of the first log entry it contains, and consists of a fixed header followed
+ * by a sequence of length-prefixed records, one per log entry, each containing the log entry's term, index, and checksum.
+ * Each record's checksum covers its header and content and is seeded with the previous record's checksum (or, for the first
+ * record, the segment header's checksum). Because of this chaining, stale records left behind when the log is truncated
+ * and the space reused can never be mistaken for valid ones: recovery simply stops at the first record that fails to verify.
+ *
+ * <p>
+ * New log entries are appended to the last segment; a new segment is started when the last segment fills up.
+ * Appending a log entry does not sync anything; instead, {@link #sync} is invoked separately, so that any number
+ * of recently appended log entries may be made durable with a single data sync. Unlike the original one file per log entry
+ * format, there is no file creation, rename, or directory sync for each new log entry.
+ * A sync may also be performed in the background, without holding the lock, via {@link #startSync} and {@link #finishSync}.
+ *
+ * <p>
+ * Truncating the log (to discard conflicting log entries) rewinds the segment containing the truncation point and deletes
+ * all following segments. Compaction deletes segments once all of the log entries they contain are no longer needed.
+ */
+final class SegmentedLog {
+
+    static final String SEGMENT_FILE_PREFIX = "segment-";
+    static final String SEGMENT_FILE_SUFFIX = ".log";
+    static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile(
+      Pattern.quote(SEGMENT_FILE_PREFIX) + "([0-9]{19})" + Pattern.quote(SEGMENT_FILE_SUFFIX));
+
+    private static final int SEGMENT_MAGIC = 0x505a524c;                    // "PZRL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;                      // magic, format version, first index
+    private static final int RECORD_HEADER_SIZE = 24;                       // content length, term, index, checksum
+
+    private final RaftKVDatabase raft;
+    private final File dir;
+    private final long segmentSize;
+    @GuardedBy("raft")
+    private final ArrayList<Segment> segments = new ArrayList<>();          // sorted by first index; the last one is active
+    @GuardedBy("raft")
+    private long firstUnsyncedIndex;                                        // first log entry not yet synced, or zero if none
+    @GuardedBy("raft")
+    private long syncGeneration;                                            // invalidates background syncs when log is reset
+
+// Constructor
+
+    /**
+     * Constructor.
+     *
+     * @param raft database
+     * @param dir directory containing segment files
+     * @param segmentSize size of newly allocated segment files
+     */
+    SegmentedLog(RaftKVDatabase raft, File dir, long segmentSize) {
+        Preconditions.checkArgument(raft != null);
+        Preconditions.checkArgument(dir != null);
+        Preconditions.checkArgument(segmentSize >= 0);
+        this.raft = raft;
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+// Recovery
+
+    /**
+     * Determine whether the given file name is a segment file name.
+     *
+     * @param fileName file name
+     * @return true if {@code fileName} names a segment file
+     */
+    static boolean isSegmentFile(String fileName) {
+        return SegmentedLog.parseFileName(fileName) != -1;
+    }
+
+    /**
+     * Parse a segment file name, extracting the index of the segment's first log entry.
+     *
+     * @param fileName file name
+     * @return first log entry index, or -1 if parse fails
+     */
+    static long parseFileName(String fileName) {
+        Preconditions.checkArgument(fileName != null, "null fileName");
+        final Matcher matcher = SEGMENT_FILE_PATTERN.matcher(fileName);
+        if (!matcher.matches())
+            return -1;
+        return Long.parseLong(matcher.group(1), 10);
+    }
+
+    /**
+     * Open the existing segment files and recover the log entries they contain.
+     *
+     * <p>
+     * Segments that are invalid or contain no valid log entries are deleted. If a segment contains log entries
+     * at or beyond the first log entry of the next segment, those log entries are discarded.
+     *
+     * @param lastAppliedIndex last applied log index; {@link io.permazen.kv.mvcc.Writes} are only loaded for log entries
+     *  after this index
+     * @return recovered log entries, sorted by index
+     * @throws IOException if an I/O error occurs
+     */
+    List<LogEntry> recover(long lastAppliedIndex) throws IOException {
+        assert Thread.holdsLock(this.raft);
+        Preconditions.checkState(this.segments.isEmpty(), "already recovered");
+
+        // Scan for segment files
+        final TreeMap<Long, File> fileMap = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.dir.toPath())) {
+            for (Path path : files) {
+                final File file = path.toFile();
+                final long firstIndex = SegmentedLog.parseFileName(file.getName());
+                if (firstIndex > 0 && !file.isDirectory())
+                    fileMap.put(firstIndex, file);
+            }
+        }
+
+        // Read log entries from each segment
+        final ArrayList<LogEntry> entryList = new ArrayList<>();
+        for (File file : fileMap.values()) {
+            if (this.raft.logger.isDebugEnabled())
+                this.raft.debug("recovering log segment {}", file.getName());
+
+            // Open segment
+            final Segment segment;
+            try {
+                segment = Segment.open(file);
+            } catch (IOException e) {
+                this.raft.warn("deleting invalid log segment {}: {}", file.getName(), e.toString());
+                Util.delete(file, "invalid log segment");
+                continue;
+            }
+
+            // Read records
+            final List<LogEntry> segmentEntries;
+            try {
+                segmentEntries = this.readEntries(segment, lastAppliedIndex);
+            } catch (IOException e) {
+                segment.close();
+                this.raft.error("error reading log segment {}; ignoring this file!", file.getName(), e);
+                continue;
+            }
+            if (segmentEntries.isEmpty()) {
+                if (this.raft.logger.isDebugEnabled())
+                    this.raft.debug("deleting empty log segment {}", file.getName());
+                segment.close();
+                Util.delete(file, "empty log segment");
+                continue;
+            }
+
+            // Any log entries at or beyond this segment's first log entry are stale leftovers in a prior segment
+            while (!entryList.isEmpty() && entryList.get(entryList.size() - 1).getIndex() >= segment.getFirstIndex()) {
+                final LogEntry staleEntry = entryList.remove(entryList.size() - 1);
+                staleEntry.getSegment().rewind(staleEntry);
+            }
+
+            // Add segment
+            this.segments.add(segment);
+            entryList.addAll(segmentEntries);
+        }
+
+        // Done
+        return entryList;
+    }
+
+    private List<LogEntry> readEntries(Segment segment, long lastAppliedIndex) throws IOException {
+        final ArrayList<LogEntry> entryList = new ArrayList<>();
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        for (long offset = SEGMENT_HEADER_SIZE; offset + RECORD_HEADER_SIZE <= segment.getSize(); ) {
+
+            // Read record header
+            header.clear();
+            if (!segment.readFully(header, offset))
+                break;
+            header.flip();
+            final int length = header.getInt();
+            final long term = header.getLong();
+            final long index = header.getLong();
+            final int checksum = header.getInt();
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > segment.getSize()
+              || term <= 0 || index != segment.getNextIndex())
+                break;
+
+            // Read and verify record content
+            final ByteBuffer content = segment.readContent(offset, length);
+            if (SegmentedLog.checksum(segment.getChainChecksum(), term, index, content) != checksum)
+                break;
+
+            // Decode log entry
+            final LogEntry.Data data;
+            try (ByteBufferInputStream input = new ByteBufferInputStream(content)) {
+                data = LogEntry.readData(input, index > lastAppliedIndex);
+            } catch (IOException e) {
+                this.raft.warn("invalid log entry {}t{} in log segment {}: {}",
+                  index, term, segment.getFile().getName(), e.toString());
+                break;
+            }
+            entryList.add(new LogEntry(term, index, segment, offset, data, length));
+            offset += RECORD_HEADER_SIZE + length;
+            segment.addRecord(checksum, offset);
+        }
+        return entryList;
+    }
+
+// Mutators
+
+    /**
+     * Append a new log entry to the log.
+     *
+     * <p>
+     * The new log entry is not durably persisted until the next invocation of {@link #sync}.
+     *
+     * @param term log entry term
+     * @param index log entry index
+     * @param data log entry data
+     * @param content serialized log entry data
+     * @return new log entry
+     * @throws IOException if an I/O error occurs
+     */
+    LogEntry append(long term, long index, LogEntry.Data data, ByteBuffer content) throws IOException {
+
+        // Sanity check
+        assert Thread.holdsLock(this.raft);
+        Preconditions.checkArgument(term > 0, "bogus term");
+        Preconditions.checkArgument(index > 0, "bogus index");
+        Preconditions.checkArgument(content.hasRemaining(), "empty content");
+        final int length = content.remaining();
+        final long recordSize = RECORD_HEADER_SIZE + (long)length;
+
+        // Get the segment to append to, starting a new one if needed
+        Segment segment = !this.segments.isEmpty() ? this.segments.get(this.segments.size() - 1) : null;
+        assert segment == null || segment.getNextIndex() <= index;
+        if (segment == null || segment.getNextIndex() != index || segment.getWritePosition() + recordSize > segment.getSize())
+            segment = this.createSegment(index, Math.max(this.segmentSize, SEGMENT_HEADER_SIZE + recordSize));
+
+        // Write record; it is not durable until the next sync()
+        final long offset = segment.getWritePosition();
+        final int checksum = SegmentedLog.checksum(segment.getChainChecksum(), term, index, content);
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.putInt(length).putLong(term).putLong(index).putInt(checksum).flip();
+        segment.writeFully(header, offset);
+        segment.writeFully(content.duplicate(), offset + RECORD_HEADER_SIZE);
+        segment.addRecord(checksum, offset + recordSize);
+        if (this.firstUnsyncedIndex == 0)
+            this.firstUnsyncedIndex = index;
+
+        // Done
+        return new LogEntry(term, index, segment, offset, data, length);
+    }
+
+    /**
+     * Durably persist all log entries appended since the previous sync.
+     *
+     * <p>
+     * This syncs each segment containing such log entries, which is normally just the last one.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void sync() throws IOException {
+        assert Thread.holdsLock(this.raft);
+        if (this.firstUnsyncedIndex == 0)
+            return;
+        if (!this.raft.disableSync) {
+            for (int i = this.segments.size() - 1; i >= 0; i--) {
+                final Segment segment = this.segments.get(i);
+                if (segment.getNextIndex() <= this.firstUnsyncedIndex)
+                    break;
+                segment.getChannel().force(false);
+            }
+        }
+        this.firstUnsyncedIndex = 0;
+    }
+
+    /**
+     * Prepare to durably persist, in the background, all log entries appended since the previous sync.
+     *
+     * <p>
+     * The returned {@link PendingSync} may be {@linkplain PendingSync#perform performed} by another thread without holding
+     * the lock, while new log entries continue to be appended; afterward, {@link #finishSync} must be invoked with the lock held.
+     *
+     * @return sync to perform, or null if there are no unsynced log entries
+     */
+    PendingSync startSync() {
+        assert Thread.holdsLock(this.raft);
+        if (this.firstUnsyncedIndex == 0)
+            return null;
+        final ArrayList<FileChannel> channels = new ArrayList<>(1);
+        for (int i = this.segments.size() - 1; i >= 0; i--) {
+            final Segment segment = this.segments.get(i);
+            if (segment.getNextIndex() <= this.firstUnsyncedIndex)
+                break;
+            channels.add(segment.getChannel());
+        }
+        return new PendingSync(this.getLastIndex(), this.syncGeneration, channels);
+    }
+
+    /**
+     * Record the successful completion of a background sync started by {@link #startSync}.
+     *
+     * <p>
+     * If the log has been truncated or reset since the sync was started, this does nothing.
+     *
+     * @param sync the completed sync
+     */
+    void finishSync(PendingSync sync) {
+        assert Thread.holdsLock(this.raft);
+        Preconditions.checkArgument(sync != null, "null sync");
+        if (sync.generation != this.syncGeneration || this.firstUnsyncedIndex == 0 || this.firstUnsyncedIndex > sync.lastIndex)
+            return;
+        this.firstUnsyncedIndex = this.getLastIndex() > sync.lastIndex ? sync.lastIndex + 1 : 0;
+    }
+
+    /**
+     * Get the index of the first log entry appended since the previous sync.
+     *
+     * @return first unsynced log entry index, or zero if all log entries have been synced
+     */
+    long getFirstUnsyncedIndex() {
+        assert Thread.holdsLock(this.raft);
+        return this.firstUnsyncedIndex;
+    }
+
+    /**
+     * Discard the given log entry and all following log entries.
+     *
+     * <p>
+     * The segment containing {@code logEntry} is rewound, so that the discarded log entries will be overwritten,
+     * and all following segments are deleted. Any remaining unsynced log entries are synced as well.
+     *
+     * @param logEntry the first log entry to discard
+     * @throws IOException if an I/O error occurs
+     */
+    void truncate(LogEntry logEntry) throws IOException {
+
+        // Sanity check
+        assert Thread.holdsLock(this.raft);
+        final Segment segment = logEntry.getSegment();
+        final int segmentIndex = this.segments.indexOf(segment);
+        Preconditions.checkArgument(segmentIndex != -1, "unknown segment");
+
+        // Delete following segments
+        while (this.segments.size() > segmentIndex + 1)
+            this.delete(this.segments.get(this.segments.size() - 1), "truncated log segment");
+
+        // If we are discarding every log entry in the segment, just delete it; otherwise, rewind segment,
+        // then zero out the first discarded record header so recovery will stop there
+        if (logEntry.getIndex() == segment.getFirstIndex())
+            this.delete(segment, "truncated log segment");
+        else if (logEntry.getIndex() < segment.getNextIndex()) {
+            segment.rewind(logEntry);
+            segment.writeFully(ByteBuffer.allocate(RECORD_HEADER_SIZE), logEntry.getSegmentOffset());
+            if (!this.raft.disableSync)
+                segment.getChannel().force(false);
+        }
+
+        // Sync any remaining unsynced log entries
+        this.syncGeneration++;
+        if (this.firstUnsyncedIndex >= logEntry.getIndex())
+            this.firstUnsyncedIndex = 0;
+        this.sync();
+    }
+
+    /**
+     * Delete segments containing only log entries that are no longer needed.
+     *
+     * <p>
+     * The last segment is never deleted, because new log entries are appended to it.
+     *
+     * @param maxIndex maximum index of the log entries that are no longer needed
+     */
+    void release(long maxIndex) {
+        assert Thread.holdsLock(this.raft);
+        while (this.segments.size() > 1 && this.segments.get(0).getNextIndex() - 1 <= maxIndex) {
+            final Segment segment = this.segments.get(0);
+            if (this.raft.logger.isDebugEnabled())
+                this.raft.debug("deleting log segment {} no longer needed", segment.getFile().getName());
+            this.delete(segment, "no longer needed log segment");
+        }
+    }
+
+    /**
+     * Delete the given segment.
+     *
+     * @param segment segment to delete
+     * @param description description of the deleted file
+     */
+    void delete(Segment segment, String description) {
+        assert Thread.holdsLock(this.raft);
+        Preconditions.checkArgument(this.segments.remove(segment), "unknown segment");
+        segment.close();
+
+        // We delete synchronously here (not via the I/O thread) because a new segment with the same name could be created next
+        Util.delete(segment.getFile(), description);
+    }
+
+    /**
+     * Delete all segments.
+     */
+    void deleteAll() {
+        assert Thread.holdsLock(this.raft);
+        while (!this.segments.isEmpty())
+            this.delete(this.segments.get(this.segments.size() - 1), "old log segment");
+        this.firstUnsyncedIndex = 0;
+        this.syncGeneration++;
+    }
+
+    /**
+     * Close all segments without deleting them.
+     */
+    void close() {
+        assert Thread.holdsLock(this.raft);
+        this.segments.forEach(Segment::close);
+        this.segments.clear();
+        this.firstUnsyncedIndex = 0;
+        this.syncGeneration++;
+    }
+
+    private long getLastIndex() {
+        return !this.segments.isEmpty() ? this.segments.get(this.segments.size() - 1).getNextIndex() - 1 : 0;
+    }
+
+    private Segment createSegment(long firstIndex, long size) throws IOException {
+        final File file = new File(this.dir, String.format("%s%019d%s", SEGMENT_FILE_PREFIX, firstIndex, SEGMENT_FILE_SUFFIX));
+        if (this.raft.logger.isDebugEnabled())
+            this.raft.debug("starting new log segment {}", file.getName());
+        final Segment segment = Segment.create(file, firstIndex, size, this.raft.disableSync);
+        if (this.raft.logDirChannel != null && !this.raft.disableSync)
+            this.raft.logDirChannel.force(true);
+        this.segments.add(segment);
+        return segment;
+    }
+
+    private static int checksum(int seed, long term, long index, ByteBuffer content) {
+        final CRC32C crc = new CRC32C();
+        final ByteBuffer header = ByteBuffer.allocate(4 + 4 + 8 + 8);
+        header.putInt(seed).putInt(content.remaining()).putLong(term).putLong(index).flip();
+        crc.update(header);
+        crc.update(content.duplicate());
+        return (int)crc.getValue();
+    }
+
+// Segment
+
+    /**
+     * One segment file.
+     */
+    static final class Segment {
+
+        private final File file;
+        private final long firstIndex;
+        private final FileChannel channel;
+        private final long size;
+        private final int headerChecksum;
+
+        private int[] checksums = new int[32];                              // checksum of each record
+        private int numRecords;
+        private long writePosition = SEGMENT_HEADER_SIZE;
+
+        private Segment(File file, long firstIndex, FileChannel channel, long size, int headerChecksum) {
+            this.file = file;
+            this.firstIndex = firstIndex;
+            this.channel = channel;
+            this.size = size;
+            this.headerChecksum = headerChecksum;
+        }
+
+        static Segment create(File file, long firstIndex, long size, boolean disableSync) throws IOException {
+            final ByteBuffer header = Segment.buildHeader(firstIndex);
+            boolean success = false;
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+
+                // Pre-allocate the file (creating a sparse file is the best we can do portably)
+                raf.setLength(0);
+                raf.setLength(size);
+                final Segment segment = new Segment(file, firstIndex, raf.getChannel(), size, Segment.checksum(header));
+                segment.writeFully(header, 0);
+                if (!disableSync)
+                    segment.channel.force(true);
+                success = true;
+                return segment;
+            } finally {
+                if (!success) {
+                    Util.closeIfPossible(raf);
+                    Util.delete(file, "new log segment");
+                }
+            }
+        }
+
+        static Segment open(File file) throws IOException {
+            final long firstIndex = SegmentedLog.parseFileName(file.getName());
+            Preconditions.checkArgument(firstIndex > 0, "invalid segment file name");
+            boolean success = false;
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                final long size = raf.length();
+                final Segment segment = new Segment(file, firstIndex, raf.getChannel(), size,
+                  Segment.checksum(Segment.buildHeader(firstIndex)));
+                final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+                if (!segment.readFully(header, 0))
+                    throw new IOException("truncated segment header");
+                header.flip();
+                if (header.getInt() != SEGMENT_MAGIC)
+                    throw new IOException("invalid segment header");
+                final int formatVersion = header.getInt();
+                if (formatVersion != FORMAT_VERSION)
+                    throw new IOException(String.format("unsupported segment format version %d", formatVersion));
+                if (header.getLong() != firstIndex)
+                    throw new IOException("segment header does not match file name");
+                success = true;
+                return segment;
+            } finally {
+                if (!success)
+                    Util.closeIfPossible(raf);
+            }
+        }
+
+        private static ByteBuffer buildHeader(long firstIndex) {
+            final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION).putLong(firstIndex).flip();
+            return header;
+        }
+
+        private static int checksum(ByteBuffer buf) {
+            final CRC32C crc = new CRC32C();
+            crc.update(buf.duplicate());
+            return (int)crc.getValue();
+        }
+
+        public File getFile() {
+            return this.file;
+        }
+
+        public long getFirstIndex() {
+            return this.firstIndex;
+        }
+
+        /**
+         * Get the index of the next log entry to be appended to this segment.
+         */
+        public long getNextIndex() {
+            return this.firstIndex + this.numRecords;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public long getWritePosition() {
+            return this.writePosition;
+        }
+
+        FileChannel getChannel() {
+            return this.channel;
+        }
+
+        /**
+         * Read the content of the record at the given offset.
+         *
+         * @param offset record offset
+         * @param length content length
+         */
+        ByteBuffer readContent(long offset, long length) throws IOException {
+            offset += RECORD_HEADER_SIZE;
+            if (length >= Util.MIN_MAP_SIZE || length != (int)length)
+                return this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            final ByteBuffer buf = Util.allocateByteBuffer((int)length);
+            if (!this.readFully(buf, offset))
+                throw new IOException(String.format("segment file %s is truncated", this.file.getName()));
+            return buf.flip();
+        }
+
+        private boolean readFully(ByteBuffer buf, long offset) throws IOException {
+            while (buf.hasRemaining()) {
+                final int numRead = this.channel.read(buf, offset);
+                if (numRead == -1)
+                    return false;
+                offset += numRead;
+            }
+            return true;
+        }
+
+        private void writeFully(ByteBuffer buf, long offset) throws IOException {
+            while (buf.hasRemaining())
+                offset += this.channel.write(buf, offset);
+        }
+
+        // Get the checksum that seeds the next record's checksum
+        private int getChainChecksum() {
+            return this.numRecords > 0 ? this.checksums[this.numRecords - 1] : this.headerChecksum;
+        }
+
+        private void addRecord(int checksum, long nextWritePosition) {
+            if (this.numRecords == this.checksums.length)
+                this.checksums = Arrays.copyOf(this.checksums, this.numRecords * 2);
+            this.checksums[this.numRecords++] = checksum;
+            this.writePosition = nextWritePosition;
+        }
+
+        // Discard the given log entry's record and all following records
+        private void rewind(LogEntry logEntry) {
+            assert logEntry.getSegment() == this;
+            final int recordNum = (int)(logEntry.getIndex() - this.firstIndex);
+            assert recordNum > 0 && recordNum < this.numRecords;
+            this.numRecords = recordNum;
+            this.writePosition = logEntry.getSegmentOffset();
+        }
+
+        void close() {
+            Util.closeIfPossible(this.channel);
+        }
+
+        @Override
+        public String toString() {
+            return this.file.getName() + "[" + this.firstIndex + ".." + (this.getNextIndex() - 1) + "]";
+        }
+    }
+
+// PendingSync
+
+    /**
+     * A sync of recently appended log entries that may be performed without holding the lock.
+     *
+     * @see #startSync
+     */
+    static final class PendingSync {
+
+        private final long lastIndex;
+        private final long generation;
+        private final List<FileChannel> channels;
+
+        PendingSync(long lastIndex, long generation, List<FileChannel> channels) {
+            this.lastIndex = lastIndex;
+            this.generation = generation;
+            this.channels = channels;
+        }
+
+        /**
+         * Get the index of the last log entry covered by this sync.
+         *
+         * @return last synced log entry index
+         */
+        long getLastIndex() {
+            return this.lastIndex;
+        }
+
+        /**
+         * Perform this sync. Does not require the lock.
+         *
+         * <p>
+         * Segments that have been closed in the meantime, because they were deleted or the log was reset, are ignored;
+         * in that case {@link SegmentedLog#finishSync} will ignore this sync anyway or no longer needs their log entries.
+         *
+         * @param disableSync true if syncing is disabled
+         * @throws IOException if an I/O error occurs
+         */
+        void perform(boolean disableSync) throws IOException {
+            if (disableSync)
+                return;
+            for (FileChannel channel : this.channels) {
+                try {
+                    channel.force(false);
+                } catch (ClosedChannelException e) {
+                    // segment was deleted
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getSimpleName() + "[lastIndex=" + this.lastIndex + "]";
+        }
+    }
+}
@@ -9,16 +9,20 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Streams;
 
+import io.permazen.kv.KVPair;
 import io.permazen.kv.KeyRange;
 import io.permazen.kv.mvcc.AtomicKVStore;
 import io.permazen.kv.mvcc.Mutations;
+import io.permazen.kv.mvcc.Writes;
 import io.permazen.kv.raft.msg.InstallSnapshot;
 import io.permazen.kv.util.KeyListEncoder;
 import io.permazen.util.ByteData;
+import io.permazen.util.CloseableIterator;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.stream.Stream;
 
@@ -28,12 +32,18 @@ import org.dellroad.stuff.io.ByteBufferInputStream;
  * Represents and in-progress snapshot installation from the follower's point of view.
  *
  * <p>
+ * In an incremental install, each {@link RangeDigest} received is compared against the same key range in the follower's
+ * current state machine; if they match, the follower's existing key/value pairs in that range are copied into the new
+ * state machine, otherwise the range is recorded as missing and must be requested from the leader.
+ *
+ * <p>
  * Instances are not thread safe.
  */
 class SnapshotReceive {
 
     private final AtomicKVStore kv;
     private final ByteData prefix;
+    private final ByteData currentPrefix;
     private final long snapshotTerm;
     private final long snapshotIndex;
     private final Map<String, String> snapshotConfig;
@@ -41,16 +51,35 @@ class SnapshotReceive {
     private long pairIndex;
     private ByteData previousKey;
 
+    private ArrayList<Integer> missingRanges;           // ranges that didn't match (incremental)
+    private int numRanges;                              // number of range digests received (incremental)
+    private boolean digestsComplete;                    // all range digests have been received (incremental)
+
 // Constructors
 
-    SnapshotReceive(AtomicKVStore kv, ByteData prefix, long snapshotTerm, long snapshotIndex, Map<String, String> snapshotConfig) {
+    /**
+     * Constructor.
+     *
+     * @param kv key/value store
+     * @param prefix key prefix of the new state machine
+     * @param currentPrefix key prefix of the current state machine for an incremental install, or null for a full install
+     * @param snapshotTerm snapshot term
+     * @param snapshotIndex snapshot index
+     * @param snapshotConfig snapshot cluster config
+     */
+    SnapshotReceive(AtomicKVStore kv, ByteData prefix, ByteData currentPrefix,
+      long snapshotTerm, long snapshotIndex, Map<String, String> snapshotConfig) {
         Preconditions.checkArgument(kv != null, "null kv");
         Preconditions.checkArgument(prefix != null, "null prefix");
+        Preconditions.checkArgument(!prefix.equals(currentPrefix), "prefix equals current prefix");
         Preconditions.checkArgument(snapshotTerm > 0);
         Preconditions.checkArgument(snapshotIndex > 0);
         Preconditions.checkArgument(snapshotConfig != null);
         this.kv = kv;
         this.prefix = prefix;
+        this.currentPrefix = currentPrefix;
+        if (currentPrefix != null)
+            this.missingRanges = new ArrayList<>();
         this.snapshotTerm = snapshotTerm;
         this.snapshotIndex = snapshotIndex;
         this.snapshotConfig = snapshotConfig;
@@ -70,6 +99,69 @@ class SnapshotReceive {
         return this.snapshotConfig;
     }
 
+    public boolean isIncremental() {
+        return this.currentPrefix != null;
+    }
+
+    /**
+     * Get the number of range digests received so far.
+     *
+     * @return number of ranges, or zero if this is not an incremental install
+     */
+    public int getNumRanges() {
+        return this.numRanges;
+    }
+
+    /**
+     * Apply the next chunk of range digests, copying over the key/value pairs in any matching ranges
+     * from the current state machine.
+     *
+     * @param buf encoded range digests
+     * @throws IllegalStateException if this is not an incremental install, or all digests have already been received
+     * @throws IllegalArgumentException if {@code buf} contains invalid data
+     * @throws IllegalArgumentException if {@code buf} is null
+     */
+    public void applyNextDigestChunk(ByteBuffer buf) {
+
+        // Sanity check
+        Preconditions.checkArgument(buf != null, "null buf");
+        Preconditions.checkState(this.isIncremental() && !this.digestsComplete, "not expecting range digests");
+
+        // Compare each range digest with our current state machine
+        final ByteBufferInputStream input = new ByteBufferInputStream(buf);
+        while (buf.hasRemaining()) {
+            Preconditions.checkArgument(this.numRanges == 0 || this.previousKey != null, "data after unbounded range digest");
+            final RangeDigest digest;
+            try {
+                digest = RangeDigest.read(input, this.previousKey);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("invalid encoded range digest", e);
+            }
+            if (!this.copyMatchingRange(digest))
+                this.missingRanges.add(this.numRanges);
+            this.previousKey = digest.getEndKey();
+            this.numRanges++;
+            this.pairIndex++;
+        }
+    }
+
+    /**
+     * Finish the range digest phase of an incremental install. After this method returns, the remaining chunks
+     * will contain the key/value pairs in the missing ranges.
+     *
+     * @return strictly increasing indexes of the missing ranges
+     * @throws IllegalStateException if this is not an incremental install, or all digests have already been received
+     * @throws IllegalArgumentException if the received range digests did not cover the entire key space
+     */
+    public int[] finishDigests() {
+        Preconditions.checkState(this.isIncremental() && !this.digestsComplete, "not expecting range digests");
+        Preconditions.checkArgument(this.numRanges > 0 && this.previousKey == null, "incomplete range digests");
+        this.digestsComplete = true;
+        final int[] ranges = this.missingRanges.stream().mapToInt(Integer::intValue).toArray();
+        this.missingRanges = null;
+        return ranges;
+    }
+
     /**
      * Apply the next chunk of key/value pairs.
      *
@@ -81,11 +173,12 @@ class SnapshotReceive {
 
         // Sanity check
         Preconditions.checkArgument(buf != null, "null buf");
+        Preconditions.checkState(!this.isIncremental() || this.digestsComplete, "expecting range digests");
 
         // Read and apply key/value pairs in a single operation
         final PutMutations mutations = new PutMutations(buf, this.prefix, this.previousKey);
         this.kv.apply(mutations, false);
-        assert mutations.getEndKey() != null || (this.pairIndex == 0 && mutations.getNumPuts() == 0);
+        assert mutations.getEndKey() != null || (this.previousKey == null && mutations.getNumPuts() == 0);
 
         // Advance our installation frontier
         this.pairIndex += mutations.getNumPuts();
@@ -95,7 +188,29 @@ class SnapshotReceive {
     public boolean matches(InstallSnapshot msg) {
         return this.snapshotTerm == msg.getSnapshotTerm()
           && this.snapshotIndex == msg.getSnapshotIndex()
-          && this.pairIndex == msg.getPairIndex();
+          && this.pairIndex == msg.getPairIndex()
+          && msg.isDigest() == (this.isIncremental() && !this.digestsComplete);
+    }
+
+// Internal methods
+
+    // Copy over the range's key/value pairs from our current state machine if they match the given digest
+    private boolean copyMatchingRange(RangeDigest digest) {
+        final KeyRange range = RangeDigest.getKeyRange(this.previousKey, digest.getEndKey());
+        final RangeDigest.Builder builder = new RangeDigest.Builder();
+        final Writes writes = new Writes();
+        try (CloseableIterator<KVPair> i = this.kv.getRange(range.prefixedBy(this.currentPrefix))) {
+            while (i.hasNext() && builder.getCount() <= digest.getCount()) {
+                final KVPair pair = i.next();
+                final ByteData key = pair.getKey().substring(this.currentPrefix.size());
+                builder.add(key, pair.getValue());
+                writes.getPuts().put(this.prefix.concat(key), pair.getValue());
+            }
+        }
+        if (!builder.build(digest.getEndKey()).matches(digest))
+            return false;
+        this.kv.apply(writes, false);
+        return true;
     }
 
 // Object
@@ -107,6 +222,7 @@ class SnapshotReceive {
           + ",snapshotIndex=" + this.snapshotIndex
           + ",snapshotConfig=" + this.snapshotConfig
           + ",pairIndex=" + this.pairIndex
+          + (this.isIncremental() ? ",incremental" : "")
           + "]";
     }
 
@@ -10,13 +10,17 @@ import com.google.common.base.Preconditions;
 import io.permazen.kv.CloseableKVStore;
 import io.permazen.kv.KVPair;
 import io.permazen.kv.KVStore;
+import io.permazen.kv.KeyRange;
 import io.permazen.kv.util.KeyListEncoder;
 import io.permazen.util.ByteData;
 import io.permazen.util.CloseableIterator;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.dellroad.stuff.io.ByteBufferOutputStream;
@@ -25,29 +29,43 @@ import org.dellroad.stuff.io.ByteBufferOutputStream;
  * Represents an in-progress snapshot installation from the leader's point of view.
  *
  * <p>
+ * In an incremental install, the leader first sends {@link RangeDigest}s covering the entire snapshot, then waits for
+ * the follower to {@linkplain #setMissingRanges request} the ranges that differ, then sends only the key/value pairs
+ * in those ranges.
+ *
+ * <p>
  * Instances are not thread safe.
  */
 class SnapshotTransmit implements Closeable {
 
     private static final int MAX_CHUNK_SIZE = 128 * 1024;           // 128K
+    private static final int MAX_RANGE_SIZE = 64 * 1024;            // 64K of key/value data per range digest
+    private static final int MAX_RANGES_PER_CHUNK = 128;
 
     private final Timestamp createTime = new Timestamp();
     private final long snapshotTerm;
     private final long snapshotIndex;
     private final Map<String, String> snapshotConfig;
+    private final boolean incremental;
 
     private CloseableKVStore snapshot;                              // snapshot view of key/value store
+    private KVStore view;
     private CloseableIterator<KVPair> iterator;
+    private Iterator<KeyRange> rangeIterator;                       // remaining ranges requested by follower (incremental)
 
-    private long pairIndex;                                         // count of how many key/value pairs sent so far
+    private long pairIndex;                                         // count of how many key/value pairs (or digests) sent so far
     private KVPair nextPair;
     private ByteData previousKey;
     private boolean anyChunksSent;
 
+    private ArrayList<ByteData> rangeEndKeys;                       // end keys of range digests sent so far (incremental)
+    private boolean digestsComplete;                                // all range digests have been sent (incremental)
+    private boolean rangesReceived;                                 // follower has requested missing ranges (incremental)
+
 // Constructors
 
     SnapshotTransmit(final long snapshotTerm, final long snapshotIndex, final Map<String, String> snapshotConfig,
-      final CloseableKVStore snapshot, final KVStore view) {
+      final CloseableKVStore snapshot, final KVStore view, final boolean incremental) {
         Preconditions.checkArgument(snapshot != null);
         Preconditions.checkArgument(snapshotTerm > 0);
         Preconditions.checkArgument(snapshotIndex > 0);
@@ -56,7 +74,11 @@ class SnapshotTransmit implements Closeable {
         this.snapshotIndex = snapshotIndex;
         this.snapshotConfig = snapshotConfig;
         this.snapshot = snapshot;
+        this.view = view;
+        this.incremental = incremental;
         this.iterator = view.getRange(null, null);
+        if (incremental)
+            this.rangeEndKeys = new ArrayList<>();
         this.advance();
     }
 
@@ -96,12 +118,73 @@ class SnapshotTransmit implements Closeable {
         return this.pairIndex;
     }
 
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+    /**
+     * Determine whether the next chunk will contain range digests.
+     *
+     * @return true if range digests are still being sent
+     */
+    public boolean isSendingDigests() {
+        return this.incremental && !this.digestsComplete;
+    }
+
+    /**
+     * Determine whether all range digests have been sent and we are waiting for the follower to request missing ranges.
+     *
+     * @return true if waiting for the follower
+     */
+    public boolean isAwaitingRanges() {
+        return this.incremental && this.digestsComplete && !this.rangesReceived;
+    }
+
+    /**
+     * Get the total number of range digests sent so far.
+     *
+     * @return number of ranges, or zero if this is not an incremental install
+     */
+    public int getNumRanges() {
+        return this.rangeEndKeys != null ? this.rangeEndKeys.size() : 0;
+    }
+
+    /**
+     * Configure the ranges requested by the follower, after which the key/value pairs in those ranges will be sent.
+     *
+     * @param ranges strictly increasing range indexes
+     * @throws IllegalStateException if not {@linkplain #isAwaitingRanges awaiting ranges}
+     * @throws IllegalArgumentException if any range index is out of bounds
+     */
+    public void setMissingRanges(int[] ranges) {
+        Preconditions.checkState(this.isAwaitingRanges(), "not expecting ranges");
+        final ArrayList<KeyRange> keyRanges = new ArrayList<>(ranges.length);
+        for (int range : ranges) {
+            Preconditions.checkArgument(range >= 0 && range < this.rangeEndKeys.size(), "invalid range index");
+            final ByteData previousEndKey = range > 0 ? this.rangeEndKeys.get(range - 1) : null;
+            keyRanges.add(RangeDigest.getKeyRange(previousEndKey, this.rangeEndKeys.get(range)));
+        }
+        this.rangesReceived = true;
+        this.rangeEndKeys = null;
+        this.iterator.close();
+        this.iterator = null;
+        this.rangeIterator = keyRanges.iterator();
+        this.previousKey = null;
+        this.anyChunksSent = false;
+        this.advance();
+    }
+
     public boolean hasMoreChunks() {
-        return this.nextPair != null;
+        return this.isSendingDigests() || (!this.isAwaitingRanges() && this.nextPair != null);
     }
 
     public ByteBuffer getNextChunk() {
 
+        // Sending range digests?
+        if (this.isSendingDigests())
+            return this.getNextDigestChunk();
+        Preconditions.checkState(!this.isAwaitingRanges(), "awaiting ranges");
+
         // Any more key/value pairs?
         if (this.nextPair == null) {
 
@@ -140,10 +223,47 @@ class SnapshotTransmit implements Closeable {
 
 // Private methods
 
+    private ByteBuffer getNextDigestChunk() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int numRanges = 0;
+        do {
+
+            // Digest the next range of key/value pairs
+            final RangeDigest.Builder builder = new RangeDigest.Builder();
+            while (this.nextPair != null && builder.getSize() < MAX_RANGE_SIZE) {
+                builder.add(this.nextPair.getKey(), this.nextPair.getValue());
+                this.advance();
+            }
+
+            // The last range is unbounded
+            final ByteData endKey = this.nextPair != null ? builder.getLastKey() : null;
+            final RangeDigest digest = builder.build(endKey);
+            try {
+                digest.write(output, this.previousKey);
+            } catch (IOException e) {
+                throw new RuntimeException("unexpected exception");
+            }
+            this.rangeEndKeys.add(endKey);
+            this.previousKey = endKey;
+            this.digestsComplete = endKey == null;
+            this.pairIndex++;
+            numRanges++;
+        } while (!this.digestsComplete && numRanges < MAX_RANGES_PER_CHUNK);
+
+        // Done
+        this.anyChunksSent = true;
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+
     private boolean advance() {
-        if (!this.iterator.hasNext()) {
-            this.nextPair = null;
-            return false;
+        while (this.iterator == null || !this.iterator.hasNext()) {
+            if (this.rangeIterator == null || !this.rangeIterator.hasNext()) {
+                this.nextPair = null;
+                return false;
+            }
+            if (this.iterator != null)
+                this.iterator.close();
+            this.iterator = this.view.getRange(this.rangeIterator.next());
         }
         this.nextPair = this.iterator.next();
         return true;
@@ -159,9 +279,12 @@ class SnapshotTransmit implements Closeable {
     @Override
     public void close() {
         this.snapshot.close();
-        this.iterator.close();
+        if (this.iterator != null)
+            this.iterator.close();
         this.snapshot = null;
+        this.view = null;
         this.iterator = null;
+        this.rangeIterator = null;
         this.nextPair = null;
     }
 
@@ -174,6 +297,8 @@ class SnapshotTransmit implements Closeable {
           + ",snapshotIndex=" + this.snapshotIndex
           + ",snapshotConfig=" + this.snapshotConfig
           + ",pairIndex=" + this.pairIndex
+          + (this.incremental ? ",incremental" : "")
+          + (this.isAwaitingRanges() ? ",awaitingRanges" : "")
           + (this.snapshot == null ? ",closed" : "")
           + "]";
     }
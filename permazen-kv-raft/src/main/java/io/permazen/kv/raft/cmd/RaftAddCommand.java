@@ -13,7 +13,7 @@ import java.util.Map;
 public class RaftAddCommand extends AbstractTransactionRaftCommand {
 
     public RaftAddCommand() {
-        super("raft-add identity address");
+        super("raft-add --learner:learner identity address");
     }
 
     @Override
@@ -27,6 +27,9 @@ public class RaftAddCommand extends AbstractTransactionRaftCommand {
           + " IPAddress[:port]) must be provided. This command can also be used to change the known address of a node"
           + " already in the cluster as recorded in the cluster configuration (the node must also be restarted with the"
           + " new address if its address actually needs to change). This command may be run from any cluster node."
+          + "\n\nIf the \"--learner\" flag is given, the node is added as a non-voting learner: it receives the Raft log"
+          + " and can serve reads, but it never votes and does not count toward the majority required to commit."
+          + " Use \"raft-promote\" and \"raft-demote\" to change an existing node between learner and voting member."
           + "\n\nThis command is also used to initialize an unconfigured node. This creates a new cluster with the"
           + " local node as the first and only member. In this usage, the local node's identity and address must be given;"
           + " for unconfigured nodes, this is the only allowed usage of this command.";
@@ -36,11 +39,12 @@ public class RaftAddCommand extends AbstractTransactionRaftCommand {
     public Session.Action getAction(Session session, Map<String, Object> params) {
         final String identity = (String)params.get("identity");
         final String address = (String)params.get("address");
+        final boolean learner = params.containsKey("learner");
         return new RaftTransactionAction() {
 
             @Override
             protected void run(Session session, RaftKVTransaction tx) throws Exception {
-                tx.configChange(identity, address);
+                tx.configChange(identity, address, learner);
             }
         };
     }
@@ -0,0 +1,50 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft.cmd;
+
+import io.permazen.cli.Session;
+import io.permazen.kv.raft.RaftKVDatabase;
+import io.permazen.kv.raft.RaftKVTransaction;
+
+import java.util.Map;
+
+public class RaftDemoteCommand extends AbstractTransactionRaftCommand {
+
+    public RaftDemoteCommand() {
+        super("raft-demote identity");
+    }
+
+    @Override
+    public String getHelpSummary() {
+        return "Demotes a Raft voting member to a non-voting learner";
+    }
+
+    @Override
+    public String getHelpDetail() {
+        return "This command demotes the specified node, which must currently be a voting member of the cluster, to a"
+          + " non-voting learner. The node continues to receive the Raft log and serve reads, but no longer votes or counts"
+          + " toward the majority required to commit. A leader that is demoted steps down once the change is committed."
+          + " The last voting member of a cluster cannot be demoted. This command may be run from any cluster node.";
+    }
+
+    @Override
+    public Session.Action getAction(Session session, Map<String, Object> params) {
+        final String identity = (String)params.get("identity");
+        return new RaftTransactionAction() {
+
+            @Override
+            protected void run(Session session, RaftKVTransaction tx) throws Exception {
+                final RaftKVDatabase db = tx.getKVDatabase();
+                final String address = db.getCurrentConfig().get(identity);
+                if (address == null)
+                    throw new Exception("node \"" + identity + "\" is not a member of the cluster");
+                if (db.getCurrentLearners().contains(identity))
+                    throw new Exception("node \"" + identity + "\" is already a learner");
+                tx.configChange(identity, address, true);
+            }
+        };
+    }
+}
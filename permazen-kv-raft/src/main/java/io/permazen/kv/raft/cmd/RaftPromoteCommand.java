@@ -0,0 +1,49 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft.cmd;
+
+import io.permazen.cli.Session;
+import io.permazen.kv.raft.RaftKVDatabase;
+import io.permazen.kv.raft.RaftKVTransaction;
+
+import java.util.Map;
+
+public class RaftPromoteCommand extends AbstractTransactionRaftCommand {
+
+    public RaftPromoteCommand() {
+        super("raft-promote identity");
+    }
+
+    @Override
+    public String getHelpSummary() {
+        return "Promotes a Raft learner node to a voting member";
+    }
+
+    @Override
+    public String getHelpDetail() {
+        return "This command promotes the specified node, which must currently be a non-voting learner in the cluster,"
+          + " to a voting member. Once the change is committed, the node votes in elections, may become leader, and counts"
+          + " toward the majority required to commit. This command may be run from any cluster node.";
+    }
+
+    @Override
+    public Session.Action getAction(Session session, Map<String, Object> params) {
+        final String identity = (String)params.get("identity");
+        return new RaftTransactionAction() {
+
+            @Override
+            protected void run(Session session, RaftKVTransaction tx) throws Exception {
+                final RaftKVDatabase db = tx.getKVDatabase();
+                final String address = db.getCurrentConfig().get(identity);
+                if (address == null)
+                    throw new Exception("node \"" + identity + "\" is not a member of the cluster");
+                if (!db.getCurrentLearners().contains(identity))
+                    throw new Exception("node \"" + identity + "\" is already a voting member of the cluster");
+                tx.configChange(identity, address, false);
+            }
+        };
+    }
+}
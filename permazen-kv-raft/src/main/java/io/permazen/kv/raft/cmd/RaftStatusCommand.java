@@ -22,6 +22,7 @@ import java.io.PrintStream;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class RaftStatusCommand extends AbstractRaftCommand {
 
@@ -83,7 +84,8 @@ public class RaftStatusCommand extends AbstractRaftCommand {
         out.println(String.format("%-24s: \"%s\"", "Cluster identity", db.getIdentity()));
         out.println(String.format("%-24s: %s", "Cluster ID",
           db.getClusterId() != 0 ? String.format("0x%08x", db.getClusterId()) : "Unconfigured"));
-        out.println(String.format("%-24s: %s", "Node is cluster member", db.isClusterMember() ? "Yes" : "No"));
+        out.println(String.format("%-24s: %s", "Node is cluster member",
+          db.isVotingMember() ? "Yes" : db.isClusterMember() ? "Yes (learner)" : "No"));
         final Map<String, String> config = db.getCurrentConfig();
         if (config.isEmpty())
             out.println(String.format("%-24s: %s", "Cluster configuration", "Unconfigured"));
@@ -91,13 +93,14 @@ public class RaftStatusCommand extends AbstractRaftCommand {
             out.println();
             out.println(String.format("Cluster configuration:"));
             out.println();
-            out.println(String.format("%1s %-16s %s", "", "Identity", "Address"));
-            out.println(String.format("%1s %-16s %s", "", "--------", "-------"));
-            for (Map.Entry<String, String> entry : db.getCurrentConfig().entrySet()) {
+            out.println(String.format("%1s %-16s %-7s %s", "", "Identity", "Role", "Address"));
+            out.println(String.format("%1s %-16s %-7s %s", "", "--------", "----", "-------"));
+            final Set<String> learners = db.getCurrentLearners();
+            for (Map.Entry<String, String> entry : config.entrySet()) {
                 final String identity = entry.getKey();
                 final String address = entry.getValue();
-                out.println(String.format("%1s %-16s %s",
-                  identity.equals(db.getIdentity()) ? "*" : "", "\"" + identity + "\"", address));
+                out.println(String.format("%1s %-16s %-7s %s", identity.equals(db.getIdentity()) ? "*" : "",
+                  "\"" + identity + "\"", learners.contains(identity) ? "learner" : "voter", address));
             }
         }
 
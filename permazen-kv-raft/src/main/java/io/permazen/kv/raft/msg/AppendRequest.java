@@ -9,27 +9,35 @@ import com.google.common.base.Preconditions;
 
 import io.permazen.kv.raft.Timestamp;
 import io.permazen.util.LongEncoder;
+import io.permazen.util.UnsignedIntEncoder;
 
 import java.nio.ByteBuffer;
 
 /**
- * Sent from leaders to followers to probe the follower's log state and/or append an entry to their log.
+ * Sent from leaders to followers to probe the follower's log state and/or append entries to their log.
  *
  * <p>
  * Instances also provide the {@linkplain #getLeaderLeaseTimeout leader's lease timeout} value (if any),
  * which is used to commit read-only transactions, as well as a {@linkplain #getLeaderTimestamp leader timestamp}
  * which should be reflected back in the corresponding {@link AppendResponse}.
+ *
+ * <p>
+ * A non-probe request may carry a run of several consecutive log entries starting at index {@link #getPrevLogIndex} + 1;
+ * this requires protocol version 4 or later. Earlier protocol versions support at most one log entry per request.
  */
 public class AppendRequest extends Message {
 
+    private static final long[] NO_TERMS = new long[0];
+    private static final ByteBuffer[] NO_DATA = new ByteBuffer[0];
+
     private final Timestamp leaderTimestamp;        // leader's timestamp for this request
     private final Timestamp leaderLeaseTimeout;     // earliest leader timestamp at which time leader could be deposed
     private final long leaderCommit;                // index of highest log entry known to be committed
     private final long prevLogTerm;                 // term of previous log entry
     private final long prevLogIndex;                // index of previous log entry
-    private final long logEntryTerm;                // term corresponding to log entry, or zero if this is a "probe"
+    private final long[] logEntryTerms;             // terms of consecutive log entries, or empty if this is a "probe"
 
-    private ByteBuffer mutationData;                // serialized mutations, if not a probe and not from follower transaction
+    private ByteBuffer[] mutationData;              // serialized mutations, or null elements if from follower transaction
     private boolean mutationDataInvalid;            // mutationData has already been grabbed
 
 // Constructors
@@ -54,7 +62,7 @@ public class AppendRequest extends Message {
     public AppendRequest(int clusterId, String senderId, String recipientId, long term,
       Timestamp leaderTimestamp, Timestamp leaderLeaseTimeout, long leaderCommit, long prevLogTerm, long prevLogIndex) {
         this(clusterId, senderId, recipientId, term, leaderTimestamp, leaderLeaseTimeout, Math.min(leaderCommit, prevLogIndex),
-          prevLogTerm, prevLogIndex, 0, null);
+          prevLogTerm, prevLogIndex, NO_TERMS, NO_DATA);
     }
 
     /**
@@ -72,18 +80,48 @@ public class AppendRequest extends Message {
      * @param logEntryTerm term of this log entry
      * @param mutationData log entry serialized mutations, or null if follower should have the data already
      */
-    @SuppressWarnings("this-escape")
     public AppendRequest(int clusterId, String senderId, String recipientId, long term, Timestamp leaderTimestamp,
       Timestamp leaderLeaseTimeout, long leaderCommit, long prevLogTerm, long prevLogIndex, long logEntryTerm,
       ByteBuffer mutationData) {
+        this(clusterId, senderId, recipientId, term, leaderTimestamp, leaderLeaseTimeout, leaderCommit,
+          prevLogTerm, prevLogIndex, new long[] { logEntryTerm }, new ByteBuffer[] { mutationData });
+    }
+
+    /**
+     * Constructor for a request that contains a run of one or more consecutive log entries.
+     *
+     * <p>
+     * Requests containing more than one log entry may only be encoded using protocol version 4 or later.
+     *
+     * @param clusterId cluster ID
+     * @param senderId identity of sender
+     * @param recipientId identity of recipient
+     * @param term sender's current term
+     * @param leaderTimestamp leader's timestamp for this request
+     * @param leaderLeaseTimeout earliest leader timestamp at which leader could be deposed (or null)
+     * @param leaderCommit current commit index for sender
+     * @param prevLogTerm term of the log entry just prior to the first log entry
+     * @param prevLogIndex index of the log entry just prior to the first log entry
+     * @param logEntryTerms terms of the log entries at {@code prevLogIndex + 1}, {@code prevLogIndex + 2}, etc.
+     * @param mutationData corresponding log entry serialized mutations; null elements indicate the follower
+     *  should have the data already
+     * @throws IllegalArgumentException if {@code logEntryTerms} and {@code mutationData} have different lengths
+     */
+    @SuppressWarnings("this-escape")
+    public AppendRequest(int clusterId, String senderId, String recipientId, long term, Timestamp leaderTimestamp,
+      Timestamp leaderLeaseTimeout, long leaderCommit, long prevLogTerm, long prevLogIndex, long[] logEntryTerms,
+      ByteBuffer[] mutationData) {
         super(Message.APPEND_REQUEST_TYPE, clusterId, senderId, recipientId, term);
+        Preconditions.checkArgument(logEntryTerms != null, "null logEntryTerms");
+        Preconditions.checkArgument(mutationData != null, "null mutationData");
+        Preconditions.checkArgument(logEntryTerms.length == mutationData.length, "array length mismatch");
         this.leaderTimestamp = leaderTimestamp;
         this.leaderLeaseTimeout = leaderLeaseTimeout;
         this.leaderCommit = leaderCommit;
         this.prevLogTerm = prevLogTerm;
         this.prevLogIndex = prevLogIndex;
-        this.logEntryTerm = logEntryTerm;
-        this.mutationData = mutationData;
+        this.logEntryTerms = logEntryTerms.clone();
+        this.mutationData = mutationData.clone();
         this.checkArguments();
     }
 
@@ -94,8 +132,21 @@ public class AppendRequest extends Message {
         this.leaderCommit = LongEncoder.read(buf);
         this.prevLogTerm = LongEncoder.read(buf);
         this.prevLogIndex = LongEncoder.read(buf);
-        this.logEntryTerm = LongEncoder.read(buf);
-        this.mutationData = this.logEntryTerm != 0 && Message.getBoolean(buf) ? Message.getByteBuffer(buf) : null;
+        final long logEntryTerm = LongEncoder.read(buf);
+        if (logEntryTerm == 0) {
+            this.logEntryTerms = NO_TERMS;
+            this.mutationData = NO_DATA;
+        } else {
+            final int numLogEntries = 1 + (version >= Message.VERSION_4 ? UnsignedIntEncoder.read(buf) : 0);
+            if (numLogEntries < 1 || numLogEntries > buf.remaining() + 1)
+                throw new IllegalArgumentException(String.format("bogus log entry count %d", numLogEntries));
+            this.logEntryTerms = new long[numLogEntries];
+            this.mutationData = new ByteBuffer[numLogEntries];
+            for (int i = 0; i < numLogEntries; i++) {
+                this.logEntryTerms[i] = i == 0 ? logEntryTerm : LongEncoder.read(buf);
+                this.mutationData[i] = Message.getBoolean(buf) ? Message.getByteBuffer(buf) : null;
+            }
+        }
         this.checkArguments();
     }
 
@@ -106,8 +157,20 @@ public class AppendRequest extends Message {
         Preconditions.checkArgument(this.leaderCommit >= 0);
         Preconditions.checkArgument(this.prevLogTerm >= 0);
         Preconditions.checkArgument(this.prevLogIndex >= 0);
-        Preconditions.checkArgument(this.logEntryTerm >= 0);
-        Preconditions.checkArgument(this.mutationData == null || this.logEntryTerm > 0);
+        for (int i = 0; i < this.logEntryTerms.length; i++) {
+            Preconditions.checkArgument(this.logEntryTerms[i] > 0);
+            Preconditions.checkArgument(i == 0 || this.logEntryTerms[i] >= this.logEntryTerms[i - 1]);
+        }
+    }
+
+    /**
+     * Determine whether the specified protocol version supports requests containing more than one log entry.
+     *
+     * @param version protocol encoding version
+     * @return true if {@code version} supports multiple log entries per request
+     */
+    public static boolean isMultipleLogEntriesSupported(int version) {
+        return version >= Message.VERSION_4;
     }
 
 // Properties
@@ -141,26 +204,78 @@ public class AppendRequest extends Message {
     }
 
     public boolean isProbe() {
-        return this.logEntryTerm == 0;
+        return this.logEntryTerms.length == 0;
+    }
+
+    /**
+     * Get the number of log entries contained in this request.
+     *
+     * @return number of log entries, or zero if this is a probe
+     */
+    public int getNumLogEntries() {
+        return this.logEntryTerms.length;
     }
 
+    /**
+     * Get the index of the last log entry contained in this request.
+     *
+     * @return last log entry index, or {@link #getPrevLogIndex} if this is a probe
+     */
+    public long getLastLogIndex() {
+        return this.prevLogIndex + this.logEntryTerms.length;
+    }
+
+    /**
+     * Get the term of the first log entry.
+     *
+     * @return term of the first log entry, or zero if this is a probe
+     */
     public long getLogEntryTerm() {
-        return this.logEntryTerm;
+        return this.logEntryTerms.length > 0 ? this.logEntryTerms[0] : 0;
     }
 
     /**
-     * Get the serialized data for the log entry, if any.
+     * Get the term of the log entry at the specified offset.
+     *
+     * @param offset offset of the log entry, where zero corresponds to the log entry at index {@link #getPrevLogIndex} + 1
+     * @return log entry term
+     * @throws IndexOutOfBoundsException if {@code offset} is out of range
+     */
+    public long getLogEntryTerm(int offset) {
+        return this.logEntryTerms[offset];
+    }
+
+    /**
+     * Get the serialized data for the first log entry, if any.
      * Returns null if this is a probe or follower is expected to already have the data from a transaction.
      *
      * <p>
-     * This method may only be invoked once.
+     * This method may only be invoked once, and it invalidates the data of all log entries in this request.
      *
      * @return log entry serialized mutations, or null if this message does not contain data
-     * @throws IllegalStateException if this method has already been invoked
+     * @throws IllegalStateException if this method or {@link #getAllMutationData} has already been invoked
      */
     public ByteBuffer getMutationData() {
+        final ByteBuffer[] result = this.getAllMutationData();
+        return result.length > 0 ? result[0] : null;
+    }
+
+    /**
+     * Get the serialized data for all log entries in this request.
+     *
+     * <p>
+     * The returned array has length {@link #getNumLogEntries}; an element is null if the follower is expected to already have
+     * the data from a transaction.
+     *
+     * <p>
+     * This method may only be invoked once.
+     *
+     * @return log entry serialized mutations
+     * @throws IllegalStateException if this method or {@link #getMutationData} has already been invoked
+     */
+    public ByteBuffer[] getAllMutationData() {
         Preconditions.checkState(!this.mutationDataInvalid);
-        final ByteBuffer result = this.mutationData;
+        final ByteBuffer[] result = this.mutationData;
         this.mutationData = null;
         this.mutationDataInvalid = true;
         return result;
@@ -181,6 +296,7 @@ public class AppendRequest extends Message {
     @Override
     public void writeTo(ByteBuffer dest, int version) {
         Preconditions.checkState(!this.mutationDataInvalid);
+        this.checkNumLogEntries(version);
         super.writeTo(dest, version);
         Message.putTimestamp(dest, this.leaderTimestamp, version);
         Message.putBoolean(dest, this.leaderLeaseTimeout != null);
@@ -189,18 +305,25 @@ public class AppendRequest extends Message {
         LongEncoder.write(dest, this.leaderCommit);
         LongEncoder.write(dest, this.prevLogTerm);
         LongEncoder.write(dest, this.prevLogIndex);
-        LongEncoder.write(dest, this.logEntryTerm);
-        if (this.logEntryTerm != 0) {
-            Message.putBoolean(dest, this.mutationData != null);
-            if (this.mutationData != null)
-                Message.putByteBuffer(dest, this.mutationData);
+        LongEncoder.write(dest, this.getLogEntryTerm());
+        if (this.logEntryTerms.length == 0)
+            return;
+        if (version >= Message.VERSION_4)
+            UnsignedIntEncoder.write(dest, this.logEntryTerms.length - 1);
+        for (int i = 0; i < this.logEntryTerms.length; i++) {
+            if (i > 0)
+                LongEncoder.write(dest, this.logEntryTerms[i]);
+            Message.putBoolean(dest, this.mutationData[i] != null);
+            if (this.mutationData[i] != null)
+                Message.putByteBuffer(dest, this.mutationData[i]);
         }
     }
 
     @Override
     protected int calculateSize(int version) {
         Preconditions.checkState(!this.mutationDataInvalid);
-        return super.calculateSize(version)
+        this.checkNumLogEntries(version);
+        int total = super.calculateSize(version)
           + Message.calculateSize(this.leaderTimestamp, version)
           + 1
           + (this.leaderLeaseTimeout != null ?
@@ -208,26 +331,57 @@ public class AppendRequest extends Message {
           + LongEncoder.encodeLength(this.leaderCommit)
           + LongEncoder.encodeLength(this.prevLogTerm)
           + LongEncoder.encodeLength(this.prevLogIndex)
-          + LongEncoder.encodeLength(this.logEntryTerm)
-          + (this.logEntryTerm != 0 ? 1 + (this.mutationData != null ? Message.calculateSize(this.mutationData) : 0) : 0);
+          + LongEncoder.encodeLength(this.getLogEntryTerm());
+        if (this.logEntryTerms.length == 0)
+            return total;
+        if (version >= Message.VERSION_4)
+            total += UnsignedIntEncoder.encodeLength(this.logEntryTerms.length - 1);
+        for (int i = 0; i < this.logEntryTerms.length; i++) {
+            total += (i > 0 ? LongEncoder.encodeLength(this.logEntryTerms[i]) : 0)
+              + 1 + (this.mutationData[i] != null ? Message.calculateSize(this.mutationData[i]) : 0);
+        }
+        return total;
+    }
+
+    private void checkNumLogEntries(int version) {
+        if (this.logEntryTerms.length > 1 && version < Message.VERSION_4) {
+            throw new IllegalArgumentException(String.format(
+              "protocol version %d does not support multiple log entries per request", version));
+        }
     }
 
 // Object
 
     @Override
     public String toString() {
-        return this.getClass().getSimpleName()
-          + "[\"" + this.getSenderId() + "\"->\"" + this.getRecipientId() + "\""
-          + ",clusterId=" + String.format("%08x", this.getClusterId())
-          + ",term=" + this.getTerm()
-          + ",leaderTimestamp=" + this.leaderTimestamp
-          + (this.leaderLeaseTimeout != null ?
-            ",leaderLeaseTimeout=" + String.format("%+dms", this.leaderLeaseTimeout.offsetFrom(this.leaderTimestamp)) : "")
-          + ",leaderCommit=" + this.leaderCommit
-          + ",prevLog=" + this.prevLogIndex + "t" + this.prevLogTerm
-          + (this.logEntryTerm != 0 ? ",logEntryTerm=" + this.logEntryTerm : "")
-          + (this.mutationData != null ?
-            ",mutationData=" + this.describe(this.mutationData) : this.mutationDataInvalid ? ",mutationData=invalid" : "")
-          + "]";
+        final StringBuilder buf = new StringBuilder();
+        buf.append(this.getClass().getSimpleName())
+          .append("[\"").append(this.getSenderId()).append("\"->\"").append(this.getRecipientId()).append("\"")
+          .append(",clusterId=").append(String.format("%08x", this.getClusterId()))
+          .append(",term=").append(this.getTerm())
+          .append(",leaderTimestamp=").append(this.leaderTimestamp);
+        if (this.leaderLeaseTimeout != null) {
+            buf.append(",leaderLeaseTimeout=")
+              .append(String.format("%+dms", this.leaderLeaseTimeout.offsetFrom(this.leaderTimestamp)));
+        }
+        buf.append(",leaderCommit=").append(this.leaderCommit)
+          .append(",prevLog=").append(this.prevLogIndex).append("t").append(this.prevLogTerm);
+        if (this.logEntryTerms.length == 1)
+            buf.append(",logEntryTerm=").append(this.logEntryTerms[0]);
+        else if (this.logEntryTerms.length > 1) {
+            buf.append(",logEntries=").append(this.prevLogIndex + 1).append("t").append(this.logEntryTerms[0])
+              .append("..").append(this.getLastLogIndex()).append("t").append(this.logEntryTerms[this.logEntryTerms.length - 1]);
+        }
+        if (this.mutationDataInvalid)
+            buf.append(",mutationData=invalid");
+        else if (this.logEntryTerms.length == 1 && this.mutationData[0] != null)
+            buf.append(",mutationData=").append(this.describe(this.mutationData[0]));
+        else if (this.logEntryTerms.length > 1) {
+            long total = 0;
+            for (ByteBuffer data : this.mutationData)
+                total += data != null ? data.remaining() : 0;
+            buf.append(",mutationData=").append(total).append(" bytes");
+        }
+        return buf.append("]").toString();
     }
 }
@@ -15,6 +15,13 @@ import java.util.Map;
 
 /**
  * Sent from leader to follower to with a chunk of key/value pairs that will wholesale replace the follower's key/value store.
+ *
+ * <p>
+ * Starting with protocol version 6, snapshot installs may be incremental: the leader first sends one or more
+ * {@linkplain #isDigest digest chunks} containing digests of consecutive key ranges in the snapshot; the follower replies
+ * with an {@link InstallSnapshotResponse} listing the ranges whose digests don't match its own key/value store, and then
+ * the leader sends the key/value pairs in only those ranges. In digest chunks, {@code pairIndex} counts range digests
+ * instead of key/value pairs, and {@code lastChunk} indicates the last digest chunk.
  */
 public class InstallSnapshot extends Message {
 
@@ -23,6 +30,7 @@ public class InstallSnapshot extends Message {
     private final Map<String, String> snapshotConfig;
     private final long pairIndex;
     private final boolean lastChunk;
+    private final boolean digest;
     private final ByteBuffer data;
 
 // Constructors
@@ -41,15 +49,37 @@ public class InstallSnapshot extends Message {
      * @param lastChunk true if this is the last chunk in the snapshot
      * @param data encoded key/value pairs
      */
-    @SuppressWarnings("this-escape")
     public InstallSnapshot(int clusterId, String senderId, String recipientId, long term, long snapshotTerm,
       long snapshotIndex, long pairIndex, Map<String, String> snapshotConfig, boolean lastChunk, ByteBuffer data) {
+        this(clusterId, senderId, recipientId, term,
+          snapshotTerm, snapshotIndex, pairIndex, snapshotConfig, lastChunk, false, data);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param clusterId cluster ID
+     * @param senderId identity of sender
+     * @param recipientId identity of recipient
+     * @param term sender's current term
+     * @param snapshotTerm term of the last log entry in the snapshot
+     * @param snapshotIndex index of the last log entry in the snapshot
+     * @param snapshotConfig cluster config of the last log entry in the snapshot (first {@code pairIndex} only)
+     * @param pairIndex index of the first key/value pair (or range digest) in this chunk
+     * @param lastChunk true if this is the last chunk in the snapshot (or the last digest chunk)
+     * @param digest true if this chunk contains range digests instead of key/value pairs
+     * @param data encoded key/value pairs or range digests
+     */
+    @SuppressWarnings("this-escape")
+    public InstallSnapshot(int clusterId, String senderId, String recipientId, long term, long snapshotTerm,
+      long snapshotIndex, long pairIndex, Map<String, String> snapshotConfig, boolean lastChunk, boolean digest, ByteBuffer data) {
         super(Message.INSTALL_SNAPSHOT_TYPE, clusterId, senderId, recipientId, term);
         this.snapshotTerm = snapshotTerm;
         this.snapshotIndex = snapshotIndex;
         this.pairIndex = pairIndex;
         this.snapshotConfig = snapshotConfig;
         this.lastChunk = lastChunk;
+        this.digest = digest;
         this.data = data;
         this.checkArguments();
     }
@@ -61,6 +91,7 @@ public class InstallSnapshot extends Message {
         this.pairIndex = LongEncoder.read(buf);
         this.snapshotConfig = this.pairIndex == 0 ? InstallSnapshot.getSnapshotConfig(buf) : null;
         this.lastChunk = Message.getBoolean(buf);
+        this.digest = InstallSnapshot.isIncrementalSupported(version) && Message.getBoolean(buf);
         this.data = Message.getByteBuffer(buf);
         this.checkArguments();
     }
@@ -75,6 +106,16 @@ public class InstallSnapshot extends Message {
         Preconditions.checkArgument(this.data != null);
     }
 
+    /**
+     * Determine whether the specified protocol version supports incremental snapshot installs.
+     *
+     * @param version protocol encoding version
+     * @return true if {@code version} supports range digest chunks and {@link InstallSnapshotResponse}
+     */
+    public static boolean isIncrementalSupported(int version) {
+        return version >= Message.VERSION_6;
+    }
+
 // Properties
 
     public long getSnapshotTerm() {
@@ -97,6 +138,15 @@ public class InstallSnapshot extends Message {
         return this.lastChunk;
     }
 
+    /**
+     * Determine whether this chunk contains range digests (incremental install) instead of key/value pairs.
+     *
+     * @return true if this is a digest chunk
+     */
+    public boolean isDigest() {
+        return this.digest;
+    }
+
     public ByteBuffer getData() {
         return this.data.asReadOnlyBuffer();
     }
@@ -115,6 +165,7 @@ public class InstallSnapshot extends Message {
 
     @Override
     public void writeTo(ByteBuffer dest, int version) {
+        this.checkDigest(version);
         super.writeTo(dest, version);
         LongEncoder.write(dest, this.snapshotTerm);
         LongEncoder.write(dest, this.snapshotIndex);
@@ -122,20 +173,31 @@ public class InstallSnapshot extends Message {
         if (this.pairIndex == 0)
             InstallSnapshot.putSnapshotConfig(dest, this.snapshotConfig);
         Message.putBoolean(dest, this.lastChunk);
+        if (InstallSnapshot.isIncrementalSupported(version))
+            Message.putBoolean(dest, this.digest);
         Message.putByteBuffer(dest, this.data);
     }
 
     @Override
     protected int calculateSize(int version) {
+        this.checkDigest(version);
         return super.calculateSize(version)
           + LongEncoder.encodeLength(this.snapshotTerm)
           + LongEncoder.encodeLength(this.snapshotIndex)
           + LongEncoder.encodeLength(this.pairIndex)
           + (this.pairIndex == 0 ? InstallSnapshot.calculateSize(this.snapshotConfig) : 0)
           + 1
+          + (InstallSnapshot.isIncrementalSupported(version) ? 1 : 0)
           + Message.calculateSize(this.data);
     }
 
+    private void checkDigest(int version) {
+        if (this.digest && !InstallSnapshot.isIncrementalSupported(version)) {
+            throw new IllegalArgumentException(String.format(
+              "protocol version %d does not support incremental snapshot installs", version));
+        }
+    }
+
     private static Map<String, String> getSnapshotConfig(ByteBuffer buf) {
         final int count = (int)LongEncoder.read(buf);
         final HashMap<String, String> config = new HashMap<>(count);
@@ -172,6 +234,7 @@ public class InstallSnapshot extends Message {
           + ",pairIndex=" + this.pairIndex
           + (this.snapshotConfig != null ? ",snapshotConfig=" + this.snapshotConfig : "")
           + ",lastChunk=" + this.lastChunk
+          + (this.digest ? ",digest" : "")
           + ",data=" + this.describe(this.data)
           + "]";
     }
@@ -0,0 +1,156 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft.msg;
+
+import com.google.common.base.Preconditions;
+
+import io.permazen.util.LongEncoder;
+import io.permazen.util.UnsignedIntEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sent from a follower to the leader during an incremental snapshot install, after all range digests have been received,
+ * to request the key/value pairs in the key ranges whose digests did not match the follower's own key/value store.
+ *
+ * <p>
+ * Requires protocol version 6 or later.
+ *
+ * @see InstallSnapshot#isIncrementalSupported
+ */
+public class InstallSnapshotResponse extends Message {
+
+    private final long snapshotTerm;
+    private final long snapshotIndex;
+    private final int[] missingRanges;
+
+// Constructors
+
+    /**
+     * Constructor.
+     *
+     * @param clusterId cluster ID
+     * @param senderId identity of sender
+     * @param recipientId identity of recipient
+     * @param term sender's current term
+     * @param snapshotTerm term of the last log entry in the snapshot
+     * @param snapshotIndex index of the last log entry in the snapshot
+     * @param missingRanges strictly increasing indexes of the key ranges whose key/value pairs are needed
+     */
+    @SuppressWarnings("this-escape")
+    public InstallSnapshotResponse(int clusterId, String senderId, String recipientId, long term,
+      long snapshotTerm, long snapshotIndex, int[] missingRanges) {
+        super(Message.INSTALL_SNAPSHOT_RESPONSE_TYPE, clusterId, senderId, recipientId, term);
+        this.snapshotTerm = snapshotTerm;
+        this.snapshotIndex = snapshotIndex;
+        this.missingRanges = missingRanges;
+        this.checkArguments();
+    }
+
+    InstallSnapshotResponse(ByteBuffer buf, int version) {
+        super(Message.INSTALL_SNAPSHOT_RESPONSE_TYPE, buf, version);
+        InstallSnapshotResponse.checkIncrementalSupported(version);
+        this.snapshotTerm = LongEncoder.read(buf);
+        this.snapshotIndex = LongEncoder.read(buf);
+        this.missingRanges = new int[UnsignedIntEncoder.read(buf)];
+        int previous = -1;
+        for (int i = 0; i < this.missingRanges.length; i++) {
+            this.missingRanges[i] = previous + 1 + UnsignedIntEncoder.read(buf);
+            previous = this.missingRanges[i];
+        }
+        this.checkArguments();
+    }
+
+    @Override
+    void checkArguments() {
+        super.checkArguments();
+        Preconditions.checkArgument(this.snapshotTerm > 0);
+        Preconditions.checkArgument(this.snapshotIndex > 0);
+        Preconditions.checkArgument(this.missingRanges != null);
+        int previous = -1;
+        for (int range : this.missingRanges) {
+            Preconditions.checkArgument(range > previous, "invalid range list");
+            previous = range;
+        }
+    }
+
+// Properties
+
+    public long getSnapshotTerm() {
+        return this.snapshotTerm;
+    }
+
+    public long getSnapshotIndex() {
+        return this.snapshotIndex;
+    }
+
+    /**
+     * Get the indexes of the key ranges whose key/value pairs should be sent.
+     *
+     * @return strictly increasing range indexes
+     */
+    public int[] getMissingRanges() {
+        return this.missingRanges.clone();
+    }
+
+// Message
+
+    @Override
+    public void visit(MessageSwitch handler) {
+        handler.caseInstallSnapshotResponse(this);
+    }
+
+    @Override
+    public void writeTo(ByteBuffer dest, int version) {
+        InstallSnapshotResponse.checkIncrementalSupported(version);
+        super.writeTo(dest, version);
+        LongEncoder.write(dest, this.snapshotTerm);
+        LongEncoder.write(dest, this.snapshotIndex);
+        UnsignedIntEncoder.write(dest, this.missingRanges.length);
+        int previous = -1;
+        for (int range : this.missingRanges) {
+            UnsignedIntEncoder.write(dest, range - previous - 1);
+            previous = range;
+        }
+    }
+
+    @Override
+    protected int calculateSize(int version) {
+        InstallSnapshotResponse.checkIncrementalSupported(version);
+        int total = super.calculateSize(version)
+          + LongEncoder.encodeLength(this.snapshotTerm)
+          + LongEncoder.encodeLength(this.snapshotIndex)
+          + UnsignedIntEncoder.encodeLength(this.missingRanges.length);
+        int previous = -1;
+        for (int range : this.missingRanges) {
+            total += UnsignedIntEncoder.encodeLength(range - previous - 1);
+            previous = range;
+        }
+        return total;
+    }
+
+    private static void checkIncrementalSupported(int version) {
+        if (!InstallSnapshot.isIncrementalSupported(version)) {
+            throw new IllegalArgumentException(String.format(
+              "protocol version %d does not support incremental snapshot installs", version));
+        }
+    }
+
+// Object
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName()
+          + "[\"" + this.getSenderId() + "\"->\"" + this.getRecipientId() + "\""
+          + ",clusterId=" + String.format("%08x", this.getClusterId())
+          + ",term=" + this.getTerm()
+          + ",snapshot=" + this.snapshotIndex + "t" + this.snapshotTerm
+          + ",missingRanges=" + (this.missingRanges.length <= 16 ?
+            Arrays.toString(this.missingRanges) : this.missingRanges.length + " ranges")
+          + "]";
+    }
+}
@@ -15,9 +15,18 @@ import io.permazen.util.UnsignedIntEncoder;
 
 import java.io.StringWriter;
 import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
  * Support superclass for Raft messages.
+ *
+ * <p>
+ * Starting with {@linkplain #getCurrentProtocolVersion protocol version} 5, the protocol version number header is followed
+ * by a compression type byte. If the message is compressed, the remainder of the message (starting with the message type)
+ * is encoded as its uncompressed length followed by the Deflate-compressed message. Compression is optional on a per-message
+ * basis and is only used when it actually reduces the size of the message.
  */
 public abstract class Message {
 
@@ -31,16 +40,31 @@ public abstract class Message {
     static final byte REQUEST_VOTE_TYPE = 7;
     static final byte PING_REQUEST_TYPE = 8;
     static final byte PING_RESPONSE_TYPE = 9;
-    static final byte MAX_TYPE = 10;
+    static final byte INSTALL_SNAPSHOT_RESPONSE_TYPE = 10;
+    static final byte MAX_TYPE = 11;
 
     // Serialization version number
     static final int VERSION_1 = 1;
     static final int VERSION_2 = 2;
     static final int VERSION_3 = 3;
+    static final int VERSION_4 = 4;
+    static final int VERSION_5 = 5;
+    static final int VERSION_6 = 6;
+    static final int VERSION_7 = 7;                                 // same encoding as VERSION_6, but understands learners
+
+    // Compression types (protocol version 5 and later)
+    static final byte COMPRESSION_NONE = 0;
+    static final byte COMPRESSION_DEFLATE = 1;
 
     // Minimum buffer size to use a direct buffer
     private static final int MIN_DIRECT_BUFFER_SIZE = 128;
 
+    // Minimum encoded message size to attempt compression
+    private static final int MIN_COMPRESSION_SIZE = 512;
+
+    // Maximum possible Deflate compression ratio
+    private static final int MAX_COMPRESSION_RATIO = 1032;
+
     private final byte type;
     private final int clusterId;
     private final String senderId;
@@ -135,6 +159,10 @@ public abstract class Message {
         case Message.VERSION_1:
         case Message.VERSION_2:
         case Message.VERSION_3:
+        case Message.VERSION_4:
+        case Message.VERSION_5:
+        case Message.VERSION_6:
+        case Message.VERSION_7:
             break;
         default:
             throw new IllegalArgumentException(String.format("unrecognized message format version %s", version));
@@ -147,7 +175,20 @@ public abstract class Message {
      * @return latest message protocol version
      */
     public static int getCurrentProtocolVersion() {
-        return Message.VERSION_3;
+        return Message.VERSION_7;
+    }
+
+    /**
+     * Determine whether a node speaking the specified protocol version understands non-voting learners.
+     *
+     * <p>
+     * Learners don't change the encoding of any message; however, nodes running older code treat learners as voting members.
+     *
+     * @param version protocol encoding version
+     * @return true if {@code version} implies support for learners
+     */
+    public static boolean isLearnersSupported(int version) {
+        return version >= Message.VERSION_7;
     }
 
     /**
@@ -173,6 +214,7 @@ public abstract class Message {
      * @throws java.nio.BufferUnderflowException if there is not enough data
      * @throws IllegalArgumentException if {@code version} is bogus
      * @throws IllegalArgumentException if encoded message is bogus
+     * @throws IllegalArgumentException if compressed message data is bogus
      * @throws IllegalArgumentException if there is trailing garbage
      */
     public static Message decode(ByteBuffer buf, int version) {
@@ -180,6 +222,20 @@ public abstract class Message {
         // Check encoding format version
         Message.checkVersion(version);
 
+        // Decompress if needed
+        if (version >= Message.VERSION_5) {
+            final byte compression = buf.get();
+            switch (compression) {
+            case COMPRESSION_NONE:
+                break;
+            case COMPRESSION_DEFLATE:
+                buf = Message.decompress(buf);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("invalid message compression type %s", compression));
+            }
+        }
+
         // Read type and decode message
         final Message msg;
         final byte type = buf.get();
@@ -211,6 +267,9 @@ public abstract class Message {
         case PING_RESPONSE_TYPE:
             msg = new PingResponse(buf, version);
             break;
+        case INSTALL_SNAPSHOT_RESPONSE_TYPE:
+            msg = new InstallSnapshotResponse(buf, version);
+            break;
         default:
             throw new IllegalArgumentException(String.format("invalid message type %s", type));
         }
@@ -226,13 +285,32 @@ public abstract class Message {
     }
 
     /**
-     * Serialize this instance.
+     * Serialize this instance without compression.
+     *
+     * <p>
+     * Equivalent to: {@link #encode(int, boolean) encode}{@code (version, false)}.
      *
      * @param version protocol encoding version number
      * @throws IllegalArgumentException if {@code version} is bogus
      * @return encoded message
      */
     public ByteBuffer encode(int version) {
+        return this.encode(version, false);
+    }
+
+    /**
+     * Serialize this instance, optionally compressing it.
+     *
+     * <p>
+     * Compression is only attempted if {@code version} supports it and the message is not too small,
+     * and is only used if it actually makes the encoded message smaller.
+     *
+     * @param version protocol encoding version number
+     * @param compress true to compress the message if possible and worthwhile
+     * @throws IllegalArgumentException if {@code version} is bogus
+     * @return encoded message
+     */
+    public ByteBuffer encode(int version, boolean compress) {
 
         // Check encoding format version
         Message.checkVersion(version);
@@ -247,7 +325,15 @@ public abstract class Message {
             throw new RuntimeException(String.format(
               "internal error: %d remaining bytes in buffer from %s", buf.remaining(), this));
         }
-        return buf.flip();
+        buf.flip();
+
+        // Compress if requested and worthwhile
+        if (compress && version >= Message.VERSION_5 && size >= MIN_COMPRESSION_SIZE) {
+            final ByteBuffer compressed = Message.compress(buf);
+            if (compressed != null)
+                return compressed;
+        }
+        return buf;
     }
 
     /**
@@ -261,6 +347,8 @@ public abstract class Message {
     public void writeTo(ByteBuffer buf, int version) {
         Message.checkVersion(version);
         buf.put((byte)version);
+        if (version >= Message.VERSION_5)
+            buf.put(COMPRESSION_NONE);
         buf.put(this.type);
         buf.putInt(this.clusterId);
         Message.putString(buf, this.senderId);
@@ -277,6 +365,7 @@ public abstract class Message {
     protected int calculateSize(int version) {
         Message.checkVersion(version);
         return 1                                                                    // protocol encoding version
+          + (version >= Message.VERSION_5 ? 1 : 0)                                  // compression type
           + 1                                                                       // message type
           + 4                                                                       // cluster ID
           + Message.calculateSize(this.senderId)
@@ -289,6 +378,61 @@ public abstract class Message {
     @Override
     public abstract String toString();
 
+// Compression
+
+    // Compress an uncompressed encoded message; returns null if compression doesn't make it any smaller
+    private static ByteBuffer compress(ByteBuffer buf) {
+        final ByteBuffer input = buf.duplicate().position(2);                       // skip version and compression type
+        final int size = buf.remaining();
+        final ByteBuffer output = size >= MIN_DIRECT_BUFFER_SIZE ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        output.put(buf.get(0));
+        output.put(COMPRESSION_DEFLATE);
+        UnsignedIntEncoder.write(output, input.remaining());
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (!output.hasRemaining())
+                    return null;
+                deflater.deflate(output);
+            }
+        } finally {
+            deflater.end();
+        }
+        return output.hasRemaining() ? output.flip() : null;
+    }
+
+    // Decompress the remainder of a compressed encoded message
+    private static ByteBuffer decompress(ByteBuffer buf) {
+        final int size = UnsignedIntEncoder.read(buf);
+        if ((long)size > (long)buf.remaining() * MAX_COMPRESSION_RATIO)
+            throw new IllegalArgumentException(String.format("bogus uncompressed message length %d", size));
+        final ByteBuffer output = ByteBuffer.allocate(size);
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buf);
+            while (!inflater.finished()) {
+                if (inflater.inflate(output) == 0
+                  && (inflater.needsInput() || inflater.needsDictionary() || !output.hasRemaining()))
+                    throw new IllegalArgumentException("truncated or oversized compressed message data");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("invalid compressed message data", e);
+        } finally {
+            inflater.end();
+        }
+        if (output.hasRemaining()) {
+            throw new IllegalArgumentException(String.format(
+              "compressed message data length %d != %d", output.position(), size));
+        }
+        if (buf.hasRemaining()) {
+            throw new IllegalArgumentException(String.format(
+              "buffer contains %d bytes of extra garbage after compressed message data", buf.remaining()));
+        }
+        return output.flip();
+    }
+
 // Helpers
 
     /**
@@ -52,6 +52,13 @@ public interface MessageSwitch {
      */
     void caseInstallSnapshot(InstallSnapshot msg);
 
+    /**
+     * Handle a {@link InstallSnapshotResponse}.
+     *
+     * @param msg message received
+     */
+    void caseInstallSnapshotResponse(InstallSnapshotResponse msg);
+
     /**
      * Handle a {@link PingRequest}.
      *
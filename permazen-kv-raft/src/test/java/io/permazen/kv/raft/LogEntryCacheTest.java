@@ -0,0 +1,85 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft;
+
+import io.permazen.kv.mvcc.Writes;
+import io.permazen.test.TestSupport;
+import io.permazen.util.ByteData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LogEntryCacheTest extends TestSupport {
+
+    private static final int VALUE_SIZE = 100;
+
+    @Test
+    public void testLogEntryCache() throws Exception {
+        final File dir = this.createTempDirectory();
+        final RaftKVDatabase raft = new RaftKVDatabase();
+        try {
+            synchronized (raft) {
+                final SegmentedLog log = new SegmentedLog(raft, dir, 1024 * 1024);
+                Assert.assertTrue(log.recover(0).isEmpty());
+
+                // Append log entries, caching their content; only the most recent ones fit
+                final ArrayList<LogEntry> entries = new ArrayList<>();
+                final ArrayList<ByteBuffer> contents = new ArrayList<>();
+                for (int index = 1; index <= 5; index++) {
+                    contents.add(this.buildContent(index));
+                    entries.add(log.append(1, index, new LogEntry.Data(this.buildWrites(index), null), contents.get(index - 1)));
+                }
+                final long entrySize = entries.get(0).getFileSize();
+                final LogEntryCache cache = new LogEntryCache(raft, 3 * entrySize);
+                for (int i = 0; i < entries.size(); i++)
+                    cache.add(entries.get(i), contents.get(i));
+                Assert.assertEquals(cache.getSize(), 3 * entrySize);
+                for (int i = 0; i < entries.size(); i++)
+                    Assert.assertEquals(cache.getContent(entries.get(i)), contents.get(i));
+
+                // A log entry with the same index but a different term is not confused with the cached one
+                log.truncate(entries.get(4));
+                final ByteBuffer content = this.buildContent(5);
+                final LogEntry replacement = log.append(2, 5, new LogEntry.Data(this.buildWrites(5), null), content);
+                Assert.assertEquals(cache.getContent(replacement), content);
+                Assert.assertEquals(cache.getSize(), 3 * entrySize);
+
+                // Removing log entries frees up space
+                cache.remove(5);
+                Assert.assertEquals(cache.getSize(), 2 * entrySize);
+                cache.clear();
+                Assert.assertEquals(cache.getSize(), 0);
+
+                // A disabled cache still returns content
+                final LogEntryCache disabled = new LogEntryCache(raft, 0);
+                disabled.add(entries.get(0), contents.get(0));
+                Assert.assertEquals(disabled.getContent(entries.get(0)), contents.get(0));
+                Assert.assertEquals(disabled.getSize(), 0);
+                log.deleteAll();
+            }
+        } finally {
+            this.deleteDirectoryHierarchy(dir);
+        }
+    }
+
+    private ByteBuffer buildContent(long index) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        LogEntry.writeData(buf, new LogEntry.Data(this.buildWrites(index), null));
+        return ByteBuffer.wrap(buf.toByteArray());
+    }
+
+    private Writes buildWrites(long index) {
+        final Writes writes = new Writes();
+        writes.getPuts().put(ByteData.of((int)index), ByteData.zeros(VALUE_SIZE));
+        return writes;
+    }
+}
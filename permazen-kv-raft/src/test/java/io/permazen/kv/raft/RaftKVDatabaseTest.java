@@ -6,13 +6,19 @@
 package io.permazen.kv.raft;
 
 import io.permazen.kv.KVDatabase;
+import io.permazen.kv.RetryKVTransactionException;
 import io.permazen.kv.array.AtomicArrayKVStore;
 import io.permazen.kv.leveldb.LevelDBAtomicKVStore;
 import io.permazen.kv.mvcc.AtomicKVDatabase;
+import io.permazen.kv.mvcc.MemoryAtomicKVStore;
+import io.permazen.kv.mvcc.Mutations;
 import io.permazen.kv.mvstore.MVStoreAtomicKVStore;
 import io.permazen.kv.mvstore.MVStoreKVImplementation;
+import io.permazen.kv.raft.msg.Message;
 import io.permazen.kv.sqlite.SQLiteKVDatabase;
 import io.permazen.kv.test.KVDatabaseTest;
+import io.permazen.util.ByteData;
+import io.permazen.util.LongEncoder;
 
 import java.io.File;
 import java.io.IOException;
@@ -22,14 +28,29 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
 
 public class RaftKVDatabaseTest extends KVDatabaseTest {
 
@@ -251,6 +272,292 @@ public class RaftKVDatabaseTest extends KVDatabaseTest {
         });
     }
 
+    @Test
+    public void testLearners() throws Exception {
+        final File dir = this.createTempDirectory();
+        final RaftKVDatabase[] nodes = new RaftKVDatabase[4];
+        try {
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = this.createLearnerTestNode(dir, "learner" + i);
+                nodes[i].start();
+            }
+
+            // Create a cluster with three voting members
+            for (int i = 0; i < 3; i++) {
+                final String node = nodes[i].getIdentity();
+                this.tryNtimes(nodes[0], tx -> ((RaftKVTransaction)tx).configChange(node, node));
+            }
+
+            // Add a learner
+            this.tryNtimes(nodes[0], tx -> ((RaftKVTransaction)tx).configChange("learner3", "learner3", true));
+            this.waitFor("learner to join", () -> nodes[3].isClusterMember());
+            Assert.assertFalse(nodes[3].isVotingMember());
+            Assert.assertEquals(nodes[3].getCurrentConfig().get("learner3"), "learner3");
+            Assert.assertEquals(nodes[3].getCurrentLearners(), Collections.singleton("learner3"));
+            Assert.assertEquals(this.getVotingMembers(nodes[3]), new HashSet<>(Arrays.asList("learner0", "learner1", "learner2")));
+
+            // The learner can forward transactions to the leader and read the result (reads are only
+            // guaranteed up-to-date once the transaction commits, so check them afterward)
+            this.tryNtimes(nodes[3], tx -> tx.put(b("01"), b("02")));
+            Assert.assertEquals(this.tryNtimesWithResult(nodes[1], tx -> tx.get(b("01"))), b("02"));
+            Assert.assertEquals(this.tryNtimesWithResult(nodes[3], tx -> tx.get(b("01"))), b("02"));
+
+            // The learner doesn't count toward the commit quorum: two out of three voters is enough, even though
+            // that would not be a majority if the learner were counted as a voter
+            nodes[2].stop();
+            nodes[3].stop();
+            this.tryNtimes(this.findLeader(nodes), tx -> tx.put(b("03"), b("04")));
+            nodes[2].start();
+            nodes[3].start();
+            Assert.assertEquals(this.tryNtimesWithResult(nodes[3], tx -> tx.get(b("03"))), b("04"));
+
+            // Adding or demoting a learner is disallowed while any member is not known to understand learners
+            nodes[2].stop();
+            Thread.sleep(200);                                          // let any in-flight messages from learner2 arrive
+            final RaftKVDatabase leader = this.findLeader(nodes);
+            synchronized (leader) {
+                leader.protocolVersionMap.put("learner2", Message.getCurrentProtocolVersion() - 1);
+            }
+            final RaftKVTransaction tx = leader.createTransaction();
+            tx.configChange("learner1", "learner1", true);
+            try {
+                tx.commit();
+                assert false : "expected exception";
+            } catch (RetryKVTransactionException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+
+            // Once the member is heard from using the current protocol version, it's allowed
+            synchronized (leader) {
+                leader.protocolVersionMap.remove("learner2");
+            }
+            nodes[2].start();
+            this.tryNtimes(leader, tx2 -> ((RaftKVTransaction)tx2).configChange("learner1", "learner1", true));
+            this.waitFor("demotion", () -> nodes[3].getCurrentLearners().size() == 2);
+            Assert.assertEquals(nodes[3].getCurrentLearners(), new HashSet<>(Arrays.asList("learner1", "learner3")));
+            Assert.assertEquals(this.getVotingMembers(nodes[3]), new HashSet<>(Arrays.asList("learner0", "learner2")));
+
+            // Promote the learners
+            for (String node : new String[] { "learner1", "learner3" })
+                this.tryNtimes(this.findLeader(nodes), tx2 -> ((RaftKVTransaction)tx2).configChange(node, node));
+            this.waitFor("promotion", () -> nodes[3].isVotingMember());
+            Assert.assertTrue(nodes[3].getCurrentLearners().isEmpty());
+            Assert.assertEquals(this.getVotingMembers(nodes[3]).size(), 4);
+            this.tryNtimes(nodes[3], tx2 -> tx2.put(b("05"), b("06")));
+        } finally {
+            for (RaftKVDatabase node : nodes) {
+                if (node != null)
+                    node.stop();
+            }
+            this.deleteDirectoryHierarchy(dir);
+        }
+    }
+
+    @Test
+    public void testBatchedApply() throws Exception {
+        final File dir = this.createTempDirectory();
+        final BlockingKVStore kv = new BlockingKVStore();
+        final RaftKVDatabase raft = this.createLearnerTestNode(dir, "batch0");
+        raft.setKVStore(kv);
+        try {
+            raft.start();
+            this.tryNtimes(raft, tx -> ((RaftKVTransaction)tx).configChange("batch0", "batch0"));
+            this.tryNtimes(raft, tx -> {
+                tx.put(b("01"), b("01"));
+                tx.put(b("10"), ((RaftKVTransaction)tx).encodeCounter(10));
+            });
+            this.waitFor("initial apply", () -> raft.getLastAppliedIndex() == raft.getCommitIndex());
+            final long lastApplied = raft.getLastAppliedIndex();
+
+            // Hold back the state machine while several entries are committed, so they all get applied in one batch
+            kv.blockApply = true;
+            kv.appliedIndexes.clear();
+            this.tryNtimes(raft, tx -> tx.put(b("02"), b("02")));                   // put then remove
+            this.tryNtimes(raft, tx -> tx.remove(b("02")));
+            this.tryNtimes(raft, tx -> tx.remove(b("01")));                         // remove then put
+            this.tryNtimes(raft, tx -> tx.put(b("01"), b("0101")));
+            this.tryNtimes(raft, tx -> tx.adjustCounter(b("10"), 5));               // counter adjustments
+            this.tryNtimes(raft, tx -> tx.adjustCounter(b("10"), 7));
+            this.tryNtimes(raft, tx -> ((RaftKVTransaction)tx).configChange("batch1", "batch1", true));
+            this.tryNtimes(raft, tx -> tx.put(b("03"), b("03")));
+            Assert.assertEquals(raft.getLastAppliedIndex(), lastApplied);
+            Assert.assertTrue(raft.getCommitIndex() >= lastApplied + 8);
+
+            // Release the state machine; the next commit applies everything that accumulated
+            kv.blockApply = false;
+            this.tryNtimes(raft, tx -> tx.put(b("04"), b("04")));
+            this.waitFor("batch apply", () -> raft.getLastAppliedIndex() == raft.getCommitIndex());
+            Assert.assertTrue(kv.appliedIndexes.get(0) >= lastApplied + 8, "not batched: " + kv.appliedIndexes);
+
+            // Verify the state machine directly
+            final ByteData prefix = raft.getStateMachinePrefix();
+            Assert.assertEquals(kv.get(prefix.concat(b("01"))), b("0101"));
+            Assert.assertNull(kv.get(prefix.concat(b("02"))));
+            Assert.assertEquals(kv.get(prefix.concat(b("03"))), b("03"));
+            Assert.assertEquals(kv.get(prefix.concat(b("04"))), b("04"));
+            Assert.assertEquals(kv.decodeCounter(kv.get(prefix.concat(b("10")))), 22L);
+            synchronized (raft) {
+                Assert.assertTrue(raft.log.getLastAppliedConfig().containsKey("batch1"));
+            }
+
+            // Verify the applied state survives a restart
+            raft.stop();
+            raft.start();
+            Assert.assertEquals(this.tryNtimesWithResult(raft, tx -> tx.get(b("01"))), b("0101"));
+            Assert.assertNull(this.tryNtimesWithResult(raft, tx -> tx.get(b("02"))));
+            Assert.assertEquals((long)this.tryNtimesWithResult(raft,
+              tx -> ((RaftKVTransaction)tx).decodeCounter(tx.get(b("10")))), 22L);
+            Assert.assertEquals(raft.getCurrentLearners(), Collections.singleton("batch1"));
+        } finally {
+            raft.stop();
+            this.deleteDirectoryHierarchy(dir);
+        }
+    }
+
+    @Test
+    public void testFollowerReadIndex() throws Exception {
+        final File dir = this.createTempDirectory();
+        final RaftKVDatabase[] nodes = new RaftKVDatabase[3];
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = this.createLearnerTestNode(dir, "reader" + i);
+                nodes[i].start();
+            }
+            for (RaftKVDatabase node : nodes) {
+                final String identity = node.getIdentity();
+                this.tryNtimes(nodes[0], tx -> ((RaftKVTransaction)tx).configChange(identity, identity));
+            }
+
+            // Pick a leader to stop later, a follower to read from, and another node to write through
+            final RaftKVDatabase leader = this.findLeader(nodes);
+            final RaftKVDatabase[] others = Arrays.stream(nodes).filter(node -> node != leader).toArray(RaftKVDatabase[]::new);
+            final RaftKVDatabase reader = others[0];
+            final RaftKVDatabase writer = others[1];
+
+            // Keep committing increasing values, recording the latest value known to be committed
+            final ByteData key = b("20");
+            final AtomicLong committed = new AtomicLong();
+            final AtomicBoolean done = new AtomicBoolean();
+            this.tryUntilCommitted(writer, false, tx -> {
+                tx.put(key, LongEncoder.encode(0));
+                return null;
+            });
+            final Future<?> writes = executor.submit(() -> {
+                for (long value = 1; !done.get(); value++) {
+                    final long value2 = value;
+                    this.tryUntilCommitted(writer, false, tx -> {
+                        tx.put(key, LongEncoder.encode(value2));
+                        return null;
+                    });
+                    committed.set(value);
+                }
+                return null;
+            });
+
+            // Run many concurrent read-only transactions on the follower; each must see every write committed before it started
+            final AtomicLong numReads = new AtomicLong();
+            final ArrayList<Future<?>> reads = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                reads.add(executor.submit(() -> {
+                    while (!done.get()) {
+                        final long floor = committed.get();
+                        final long value = this.tryUntilCommitted(reader, true, tx -> LongEncoder.decode(tx.get(key)));
+                        Assert.assertTrue(value >= floor, "read stale value " + value + " < " + floor);
+                        numReads.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            this.waitFor("reads", () -> numReads.get() >= 100 && committed.get() >= 10);
+
+            // Change leader while the reads continue
+            leader.stop();
+            this.waitFor("new leader", () -> Arrays.stream(others).anyMatch(node -> node.getCurrentRole() instanceof LeaderRole));
+            final long readsBefore = numReads.get();
+            final long committedBefore = committed.get();
+            this.waitFor("reads after leader change",
+              () -> numReads.get() >= readsBefore + 100 && committed.get() >= committedBefore + 10);
+
+            // Stop and check for errors
+            done.set(true);
+            writes.get();
+            for (Future<?> future : reads)
+                future.get();
+
+            // A final read sees the last committed value
+            Assert.assertEquals((long)this.tryUntilCommitted(reader, true, tx -> LongEncoder.decode(tx.get(key))), committed.get());
+        } finally {
+            executor.shutdownNow();
+            for (RaftKVDatabase node : nodes) {
+                if (node != null)
+                    node.stop();
+            }
+            this.deleteDirectoryHierarchy(dir);
+        }
+    }
+
+    private <R> R tryUntilCommitted(RaftKVDatabase raft, boolean readOnly, Function<RaftKVTransaction, R> function)
+      throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            final RaftKVTransaction tx = raft.createTransaction(Consistency.LINEARIZABLE);
+            tx.setReadOnly(readOnly);
+            try {
+                final R result = function.apply(tx);
+                tx.commit();
+                return result;
+            } catch (RetryKVTransactionException e) {
+                if (System.nanoTime() - deadline > 0)
+                    throw e;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private RaftKVDatabase createLearnerTestNode(File dir, String name) {
+        final File logDir = new File(dir, name);
+        Assert.assertTrue(logDir.mkdirs());
+        final RaftKVDatabase raft = new RaftKVDatabase();
+        raft.setKVStore(new MemoryAtomicKVStore());
+        raft.setLogDirectory(logDir);
+        raft.setNetwork(new TestNetwork(name, 5, 3, 0.0f));
+        raft.setIdentity(name);
+        raft.setMinElectionTimeout(300);
+        raft.setMaxElectionTimeout(350);
+        raft.setHeartbeatTimeout(150);
+        return raft;
+    }
+
+    private RaftKVDatabase findLeader(RaftKVDatabase[] nodes) throws InterruptedException {
+        final RaftKVDatabase[] leader = new RaftKVDatabase[1];
+        this.waitFor("leader", () -> {
+            for (RaftKVDatabase node : nodes) {
+                if (node.getCurrentRole() instanceof LeaderRole) {
+                    leader[0] = node;
+                    return true;
+                }
+            }
+            return false;
+        });
+        return leader[0];
+    }
+
+    private Set<String> getVotingMembers(RaftKVDatabase raft) {
+        synchronized (raft) {
+            return raft.getVotingMembers();
+        }
+    }
+
+    private void waitFor(String description, BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (condition.getAsBoolean())
+                return;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("timed out waiting for " + description);
+    }
+
     @Override
     protected RaftKVTransaction doCreateTransaction(KVDatabase kvdb) {
         return ((RaftKVDatabase)kvdb).createTransaction(Consistency.LINEARIZABLE, this.random.nextInt(20) == 0);
@@ -309,4 +616,28 @@ public class RaftKVDatabaseTest extends KVDatabaseTest {
     protected KVDatabase getKVDatabase() {
         return this.rafts != null ? this.rafts[0] : null;
     }
+
+    // Fails applies of committed log entries while blocked, and records the last applied index of each successful apply
+    private static class BlockingKVStore extends MemoryAtomicKVStore {
+
+        private static final long serialVersionUID = -4912037365418834012L;
+
+        volatile boolean blockApply;
+        final List<Long> appliedIndexes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public synchronized void apply(Mutations mutations, boolean sync) {
+            final ByteData lastAppliedIndex = mutations.getPutPairs()
+              .filter(entry -> entry.getKey().equals(RaftKVDatabase.LAST_APPLIED_INDEX_KEY))
+              .map(Map.Entry::getValue)
+              .findFirst()
+              .orElse(null);
+            if (lastAppliedIndex != null) {
+                if (this.blockApply)
+                    throw new RuntimeException("simulated apply failure");
+                this.appliedIndexes.add(LongEncoder.decode(lastAppliedIndex));
+            }
+            super.apply(mutations, sync);
+        }
+    }
 }
@@ -0,0 +1,177 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft;
+
+import io.permazen.kv.mvcc.Writes;
+import io.permazen.test.TestSupport;
+import io.permazen.util.ByteData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SegmentedLogTest extends TestSupport {
+
+    private static final long SEGMENT_SIZE = 200;
+
+    @Test
+    public void testSegmentedLog() throws Exception {
+        final File dir = this.createTempDirectory();
+        final RaftKVDatabase raft = new RaftKVDatabase();
+        try {
+            synchronized (raft) {
+
+                // Append log entries spanning several segments
+                SegmentedLog log = new SegmentedLog(raft, dir, SEGMENT_SIZE);
+                Assert.assertTrue(log.recover(0).isEmpty());
+                final ArrayList<LogEntry> entries = new ArrayList<>();
+                for (int index = 1; index <= 20; index++)
+                    entries.add(this.append(log, index <= 10 ? 1 : 2, index));
+                Assert.assertTrue(dir.list().length > 1, "expected multiple segments");
+                Assert.assertEquals(log.getFirstUnsyncedIndex(), 1);
+                log.sync();
+                Assert.assertEquals(log.getFirstUnsyncedIndex(), 0);
+                this.verifyContent(entries);
+
+                // Truncate in the middle of the log and overwrite with a new term
+                log.truncate(entries.get(14));
+                while (entries.size() > 14)
+                    entries.remove(entries.size() - 1);
+                for (int index = 15; index <= 17; index++)
+                    entries.add(this.append(log, 3, index));
+                this.verifyContent(entries);
+
+                // Release leading segments
+                final int numSegments = dir.list().length;
+                log.release(8);
+                Assert.assertTrue(dir.list().length < numSegments, "expected some segments to be released");
+                log.close();
+
+                // Recover and verify
+                log = new SegmentedLog(raft, dir, SEGMENT_SIZE);
+                List<LogEntry> recovered = log.recover(0);
+                Assert.assertFalse(recovered.isEmpty());
+                Assert.assertTrue(recovered.get(0).getIndex() <= 9);
+                Assert.assertEquals(recovered.get(recovered.size() - 1).getIndex(), 17);
+                this.verifyRecovered(recovered, entries);
+
+                // Corrupt the last log entry and verify recovery stops before it
+                final LogEntry last = recovered.get(recovered.size() - 1);
+                log.close();
+                try (RandomAccessFile file = new RandomAccessFile(last.getFile(), "rw")) {
+                    final long offset = last.getSegmentOffset() + 24;
+                    file.seek(offset);
+                    final int value = file.read();
+                    file.seek(offset);
+                    file.write(value ^ 0xff);
+                }
+                log = new SegmentedLog(raft, dir, SEGMENT_SIZE);
+                recovered = log.recover(0);
+                Assert.assertEquals(recovered.get(recovered.size() - 1).getIndex(), 16);
+                this.verifyRecovered(recovered, entries);
+
+                // Verify we can continue appending
+                entries.set(15, recovered.get(recovered.size() - 2));
+                entries.set(16, this.append(log, 4, 17));
+                this.verifyContent(entries.subList(15, 17));
+                log.deleteAll();
+                Assert.assertEquals(dir.list().length, 0);
+            }
+        } finally {
+            this.deleteDirectoryHierarchy(dir);
+        }
+    }
+
+    @Test
+    public void testBackgroundSync() throws Exception {
+        final File dir = this.createTempDirectory();
+        final RaftKVDatabase raft = new RaftKVDatabase();
+        try {
+            synchronized (raft) {
+                final SegmentedLog log = new SegmentedLog(raft, dir, SEGMENT_SIZE);
+                Assert.assertTrue(log.recover(0).isEmpty());
+                Assert.assertNull(log.startSync());
+
+                // Log entries appended during a background sync remain unsynced
+                final ArrayList<LogEntry> entries = new ArrayList<>();
+                for (int index = 1; index <= 5; index++)
+                    entries.add(this.append(log, 1, index));
+                SegmentedLog.PendingSync sync = log.startSync();
+                Assert.assertEquals(sync.getLastIndex(), 5);
+                for (int index = 6; index <= 8; index++)
+                    entries.add(this.append(log, 1, index));
+                sync.perform(false);
+                log.finishSync(sync);
+                Assert.assertEquals(log.getFirstUnsyncedIndex(), 6);
+                sync = log.startSync();
+                Assert.assertEquals(sync.getLastIndex(), 8);
+                sync.perform(false);
+                log.finishSync(sync);
+                Assert.assertEquals(log.getFirstUnsyncedIndex(), 0);
+
+                // A background sync that completes after the log is truncated is ignored
+                for (int index = 9; index <= 10; index++)
+                    entries.add(this.append(log, 1, index));
+                sync = log.startSync();
+                log.truncate(entries.get(9));
+                entries.add(this.append(log, 2, 10));
+                sync.perform(false);
+                log.finishSync(sync);
+                Assert.assertEquals(log.getFirstUnsyncedIndex(), 10);
+                log.deleteAll();
+            }
+        } finally {
+            this.deleteDirectoryHierarchy(dir);
+        }
+    }
+
+    private LogEntry append(SegmentedLog log, long term, long index) throws IOException {
+        final LogEntry.Data data = new LogEntry.Data(this.buildWrites(index), null);
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        LogEntry.writeData(buf, data);
+        final LogEntry logEntry = log.append(term, index, data, ByteBuffer.wrap(buf.toByteArray()));
+        Assert.assertEquals(logEntry.getTerm(), term);
+        Assert.assertEquals(logEntry.getIndex(), index);
+        return logEntry;
+    }
+
+    private Writes buildWrites(long index) {
+        final Writes writes = new Writes();
+        writes.getPuts().put(ByteData.of((int)index), ByteData.zeros((int)index));
+        return writes;
+    }
+
+    private void verifyContent(List<LogEntry> entries) throws IOException {
+        for (LogEntry logEntry : entries) {
+            final ByteBuffer content = logEntry.getContent();
+            Assert.assertEquals(content.remaining(), logEntry.getFileSize());
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            LogEntry.writeData(buf, new LogEntry.Data(this.buildWrites(logEntry.getIndex()), null));
+            final byte[] actual = new byte[content.remaining()];
+            content.get(actual);
+            Assert.assertEquals(ByteData.of(actual), ByteData.of(buf.toByteArray()), "wrong content for " + logEntry);
+        }
+    }
+
+    private void verifyRecovered(List<LogEntry> recovered, List<LogEntry> entries) throws IOException {
+        for (int i = 0; i < recovered.size(); i++) {
+            final LogEntry logEntry = recovered.get(i);
+            final LogEntry expected = entries.get((int)logEntry.getIndex() - 1);
+            if (i > 0)
+                Assert.assertEquals(logEntry.getIndex(), recovered.get(i - 1).getIndex() + 1);
+            Assert.assertEquals(logEntry.getTerm(), expected.getTerm());
+            Assert.assertEquals(logEntry.getWrites().getPuts(), this.buildWrites(logEntry.getIndex()).getPuts());
+        }
+        this.verifyContent(recovered);
+    }
+}
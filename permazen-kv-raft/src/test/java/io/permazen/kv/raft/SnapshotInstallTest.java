@@ -0,0 +1,150 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.raft;
+
+import io.permazen.kv.KVPair;
+import io.permazen.kv.KVStore;
+import io.permazen.kv.mvcc.MemoryAtomicKVStore;
+import io.permazen.kv.util.MemoryKVStore;
+import io.permazen.kv.util.PrefixKVStore;
+import io.permazen.test.TestSupport;
+import io.permazen.util.ByteData;
+import io.permazen.util.CloseableIterator;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SnapshotInstallTest extends TestSupport {
+
+    private static final ByteData CURRENT_PREFIX = ByteData.of(0x01);
+    private static final ByteData NEW_PREFIX = ByteData.of(0x02);
+    private static final Map<String, String> CONFIG = Collections.singletonMap("node1", "address1");
+
+    private static final int NUM_PAIRS = 1000;
+    private static final int VALUE_SIZE = 300;
+
+    @Test
+    public void testIncrementalSnapshotInstall() throws Exception {
+
+        // Build leader's state machine, large enough to span several range digests
+        final MemoryKVStore leader = new MemoryKVStore();
+        for (int i = 0; i < NUM_PAIRS; i++)
+            leader.put(this.key(i), this.value(i, 0));
+
+        // Follower is identical to leader: every range matches and none need to be sent
+        final MemoryKVStore follower = leader.clone();
+        int[] missing = this.install(leader, follower, true);
+        Assert.assertEquals(missing.length, 0);
+
+        // Follower differs from leader in a few places: only the affected ranges need to be sent
+        follower.put(this.key(10), this.value(10, 1));
+        follower.remove(this.key(500));
+        follower.put(this.key(NUM_PAIRS), this.value(NUM_PAIRS, 0));
+        missing = this.install(leader, follower, true);
+        Assert.assertTrue(missing.length > 0, "expected some missing ranges");
+        Assert.assertTrue(missing.length < this.countRanges(leader), "expected some matching ranges");
+
+        // Follower is empty: every range must be sent
+        missing = this.install(leader, new MemoryKVStore(), true);
+        Assert.assertEquals(missing.length, this.countRanges(leader));
+
+        // Leader is empty: the single (unbounded) range must be sent, even though it contains nothing
+        missing = this.install(new MemoryKVStore(), follower, true);
+        Assert.assertEquals(missing, new int[] { 0 });
+
+        // Both are empty
+        missing = this.install(new MemoryKVStore(), new MemoryKVStore(), true);
+        Assert.assertEquals(missing.length, 0);
+
+        // Non-incremental install
+        this.install(leader, follower, false);
+        this.install(new MemoryKVStore(), follower, false);
+    }
+
+    // Perform a snapshot install from leader to follower, verify the result, and return the missing ranges
+    private int[] install(KVStore leaderData, KVStore followerData, boolean incremental) {
+
+        // Setup leader
+        final MemoryAtomicKVStore leaderKV = new MemoryAtomicKVStore();
+        this.copy(leaderData, leaderKV);
+        final SnapshotTransmit transmit = new SnapshotTransmit(1, 10, CONFIG,
+          leaderKV.readOnlySnapshot(), leaderKV, incremental);
+
+        // Setup follower
+        final MemoryAtomicKVStore followerKV = new MemoryAtomicKVStore();
+        this.copy(followerData, PrefixKVStore.create(followerKV, CURRENT_PREFIX));
+        final SnapshotReceive receive = new SnapshotReceive(followerKV, NEW_PREFIX,
+          incremental ? CURRENT_PREFIX : null, 1, 10, CONFIG);
+
+        // Exchange range digests
+        int[] missing = null;
+        if (incremental) {
+            while (transmit.isSendingDigests())
+                receive.applyNextDigestChunk(transmit.getNextChunk());
+            Assert.assertTrue(transmit.isAwaitingRanges());
+            Assert.assertEquals(receive.getNumRanges(), transmit.getNumRanges());
+            missing = receive.finishDigests();
+            transmit.setMissingRanges(missing);
+        }
+
+        // Transfer key/value pairs
+        Assert.assertFalse(transmit.isAwaitingRanges());
+        for (ByteBuffer chunk; (chunk = transmit.getNextChunk()) != null; )
+            receive.applyNextChunk(chunk);
+        transmit.close();
+
+        // Verify follower's new state machine matches leader's
+        Assert.assertEquals(this.toMap(PrefixKVStore.create(followerKV, NEW_PREFIX)), this.toMap(leaderData));
+        return missing;
+    }
+
+    private int countRanges(KVStore kv) {
+        final MemoryAtomicKVStore leaderKV = new MemoryAtomicKVStore();
+        this.copy(kv, leaderKV);
+        final SnapshotTransmit transmit = new SnapshotTransmit(1, 10, CONFIG, leaderKV.readOnlySnapshot(), leaderKV, true);
+        while (transmit.isSendingDigests())
+            transmit.getNextChunk();
+        final int numRanges = transmit.getNumRanges();
+        transmit.close();
+        return numRanges;
+    }
+
+    private void copy(KVStore from, KVStore to) {
+        try (CloseableIterator<KVPair> i = from.getRange(null, null)) {
+            while (i.hasNext()) {
+                final KVPair pair = i.next();
+                to.put(pair.getKey(), pair.getValue());
+            }
+        }
+    }
+
+    private TreeMap<ByteData, ByteData> toMap(KVStore kv) {
+        final TreeMap<ByteData, ByteData> map = new TreeMap<>();
+        try (CloseableIterator<KVPair> i = kv.getRange(null, null)) {
+            while (i.hasNext()) {
+                final KVPair pair = i.next();
+                map.put(pair.getKey(), pair.getValue());
+            }
+        }
+        return map;
+    }
+
+    private ByteData key(int i) {
+        return ByteData.of(String.format("key%05d", i).getBytes());
+    }
+
+    private ByteData value(int i, int version) {
+        final byte[] value = new byte[VALUE_SIZE];
+        value[0] = (byte)i;
+        value[1] = (byte)version;
+        return ByteData.of(value);
+    }
+}
@@ -25,7 +25,10 @@ public class MessageTest extends KVTestSupport {
 
     @Test(dataProvider = "msgs")
     public void testMessage(Message msg1) {
-        for (int version = 1; version <= Message.getCurrentProtocolVersion(); version++) {
+        final int minVersion = msg1 instanceof AppendRequest && ((AppendRequest)msg1).getNumLogEntries() > 1 ? Message.VERSION_4 :
+          msg1 instanceof InstallSnapshotResponse || (msg1 instanceof InstallSnapshot && ((InstallSnapshot)msg1).isDigest()) ?
+            Message.VERSION_6 : Message.VERSION_1;
+        for (int version = minVersion; version <= Message.getCurrentProtocolVersion(); version++) {
             final ByteBuffer buf1 = msg1.encode(version);
             final ByteBuffer buf1b = buf1.duplicate();
             final int decodedVersion = Message.decodeProtocolVersion(buf1b);
@@ -39,6 +42,36 @@ public class MessageTest extends KVTestSupport {
         }
     }
 
+    @Test
+    public void testCompression() throws Exception {
+
+        // Build a message with highly compressible mutation data
+        final Writes writes = new Writes();
+        for (int i = 0; i < 100; i++)
+            writes.getPuts().put(b(String.format("0102030405060708%04x", i)), b("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa"));
+        final ByteArrayOutputStream writesBuf = new ByteArrayOutputStream();
+        writes.serialize(writesBuf);
+        final AppendRequest msg1 = new AppendRequest(123, "foobar", "Dest",
+          123, new Timestamp(), new Timestamp(), 456, 1 << 15, 1 << 13, 1 << 15, ByteBuffer.wrap(writesBuf.toByteArray()));
+
+        // Verify compression is not used with older protocol versions, and that it makes the message smaller
+        final int version = Message.getCurrentProtocolVersion();
+        Assert.assertEquals(msg1.encode(Message.VERSION_4, true), msg1.encode(Message.VERSION_4));
+        final ByteBuffer plain = msg1.encode(version);
+        final ByteBuffer compressed = msg1.encode(version, true);
+        Assert.assertTrue(compressed.remaining() < plain.remaining() / 2,
+          "compressed size " + compressed.remaining() + " vs. uncompressed size " + plain.remaining());
+
+        // Verify compressed message decodes properly
+        final ByteBuffer buf = compressed.duplicate();
+        final Message msg2 = Message.decode(buf, Message.decodeProtocolVersion(buf));
+        Assert.assertEquals(msg2.encode(version), plain);
+
+        // Verify small messages are not compressed
+        final GrantVote vote = new GrantVote(123, "blah", "namama", 4444);
+        Assert.assertEquals(vote.encode(version, true), vote.encode(version));
+    }
+
     @DataProvider(name = "msgs")
     private Object[][] messages() throws Exception {
 
@@ -64,6 +97,9 @@ public class MessageTest extends KVTestSupport {
               123, new Timestamp(), new Timestamp(), Long.MAX_VALUE, 1 << 50, 1 << 13, 1 << 15, null) },
             { new AppendRequest(123, "foobar", "Dest",
               123, new Timestamp(), new Timestamp(), Long.MAX_VALUE, 1 << 50, 1 << 13, 1 << 15, ByteBuffer.wrap(writesData)) },
+            { new AppendRequest(123, "foobar", "Dest", 123, new Timestamp(), null, 456, 1 << 15, 1 << 13,
+              new long[] { 1 << 15, 1 << 15, (1 << 15) + 1 },
+              new ByteBuffer[] { ByteBuffer.wrap(writesData), null, ByteBuffer.wrap(writesData) }) },
             { new AppendResponse(123, "foobar", "Dest", 99, new Timestamp(123), false, 123123, 4544253) },
             { new AppendResponse(123, "foobar", "Dest", 99, new Timestamp(0x7fffffff), true, 34234, 4544253) },
             { new CommitRequest(123, "@#$Q@$%@\u0000\uffff!", "Dest", 123123, 123123, 3343, 34343,
@@ -76,6 +112,10 @@ public class MessageTest extends KVTestSupport {
               config, false, ByteBuffer.wrap(writesData)) },
             { new InstallSnapshot(123, "adlasdf", "\u1234haha", 234453, 234234, 34545, 787,
               null, false, ByteBuffer.wrap(writesData)) },
+            { new InstallSnapshot(123, "adlasdf", "\u1234haha", 234453, 234234, 34545, 0,
+              config, true, true, ByteBuffer.wrap(writesData)) },
+            { new InstallSnapshotResponse(123, "\u1234haha", "adlasdf", 234453, 234234, 34545, new int[0]) },
+            { new InstallSnapshotResponse(123, "\u1234haha", "adlasdf", 234453, 234234, 34545, new int[] { 0, 3, 4, 1000 }) },
             { new RequestVote(123, "adlasdf", "blooby", 234453, 234234, 34545) },
         };
     }
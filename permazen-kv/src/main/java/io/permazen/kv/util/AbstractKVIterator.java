@@ -82,7 +82,9 @@ public abstract class AbstractKVIterator<E> implements CloseableIterator<E> {
     protected final boolean reversed;
 
     // Iteration state
-    private final CloseableIterator<KVPair> pairIterator;
+    private final KeyRange keyRange;
+    private CloseableIterator<KVPair> pairIterator;
+    private ByteData lastKey;                                   // key (or prefix) of most recently returned element
     private KVPair removePair;
     private E removeValue;
 
@@ -127,6 +129,7 @@ public abstract class AbstractKVIterator<E> implements CloseableIterator<E> {
         this.kv = kv;
         this.prefixMode = prefixMode;
         this.reversed = reversed;
+        this.keyRange = keyRange;
 
         // If possible use a straight KVStore iterator which is more efficient than a KVPairIterator
         if (!this.prefixMode && keyFilter == null) {
@@ -169,7 +172,9 @@ public abstract class AbstractKVIterator<E> implements CloseableIterator<E> {
             final KVPairIterator kvPairIterator = (KVPairIterator)this.pairIterator;
             final ByteData prefix = keyReader.dataReadSoFar();
             kvPairIterator.setNextTarget(this.reversed ? prefix : ByteUtil.getKeyAfterPrefix(prefix));
-        }
+            this.lastKey = prefix;
+        } else
+            this.lastKey = pair.getKey();
 
         // Done
         this.removePair = pair;
@@ -190,6 +195,63 @@ public abstract class AbstractKVIterator<E> implements CloseableIterator<E> {
         this.doRemove(removeValueCopy, removePairCopy);
     }
 
+// Seeking
+
+    /**
+     * Skip ahead to the given key.
+     *
+     * <p>
+     * After this method returns, the next element returned by this iterator (if any) will be decoded from the first
+     * remaining key that is equal to or after {@code key} in iteration order; in prefix mode, keys having {@code key}
+     * as a prefix are considered equal to it. Elements that have already been returned are never returned again:
+     * if {@code key} does not come after the key of the most recently returned element, this method does nothing.
+     *
+     * <p>
+     * The underlying {@link KVStore} is repositioned directly (i.e., via {@link KVStore#getAtLeast KVStore.getAtLeast()}
+     * or a new {@link KVStore#getRange KVStore.getRange()} iteration), so skipped keys are never visited.
+     * Subclasses may use this method to implement {@link io.permazen.util.SeekableIterator}.
+     *
+     * @param key target key
+     * @throws IllegalArgumentException if {@code key} is null
+     */
+    protected synchronized void seekKey(ByteData key) {
+        Preconditions.checkArgument(key != null, "null key");
+
+        // Don't go backwards
+        if (this.lastKey != null && (this.reversed ? key.compareTo(this.lastKey) >= 0 : key.compareTo(this.lastKey) <= 0))
+            return;
+
+        // Get target key: inclusive lower bound if going forward, exclusive upper bound if going backward
+        ByteData target = key;
+        if (this.reversed) {
+            try {
+                target = this.prefixMode ? ByteUtil.getKeyAfterPrefix(key) : ByteUtil.getNextKey(key);
+            } catch (IllegalArgumentException e) {                  // no keys exist after the prefix; nothing to skip
+                return;
+            }
+        }
+
+        // Reposition the KVPairIterator, if any
+        if (this.pairIterator instanceof KVPairIterator) {
+            ((KVPairIterator)this.pairIterator).setNextTarget(target);
+            return;
+        }
+
+        // Restart the KVStore iterator at the target key, clipped to our key range
+        ByteData minKey = this.keyRange != null ? this.keyRange.getMin() : null;
+        ByteData maxKey = this.keyRange != null ? this.keyRange.getMax() : null;
+        if (this.reversed) {
+            if (maxKey == null || target.compareTo(maxKey) < 0)
+                maxKey = target;
+        } else {
+            if (minKey == null || target.compareTo(minKey) > 0)
+                minKey = target;
+        }
+        this.pairIterator.close();
+        this.pairIterator = minKey != null && maxKey != null && minKey.compareTo(maxKey) >= 0 ?
+          CloseableIterator.emptyIterator() : this.kv.getRange(minKey, maxKey, this.reversed);
+    }
+
 // Closeable
 
     @Override
@@ -17,6 +17,7 @@ import io.permazen.util.Bounds;
 import io.permazen.util.ByteData;
 import io.permazen.util.ByteUtil;
 import io.permazen.util.CloseableIterator;
+import io.permazen.util.SeekableIterator;
 
 import java.util.NavigableSet;
 import java.util.NoSuchElementException;
@@ -332,18 +333,7 @@ public abstract class AbstractKVNavigableSet<E> extends AbstractNavigableSet<E>
 
     @Override
     public CloseableIterator<E> iterator() {
-        return new AbstractKVIterator<E>(this.kv, this.prefixMode, this.reversed, this.keyRange, this.keyFilter) {
-
-            @Override
-            protected E decodePair(KVPair pair, ByteData.Reader keyReader) {
-                return AbstractKVNavigableSet.this.decode(keyReader);
-            }
-
-            @Override
-            protected void doRemove(E value, KVPair pair) {
-                AbstractKVNavigableSet.this.remove(value);
-            }
-        };
+        return new Iterator();
     }
 
     /**
@@ -531,4 +521,34 @@ public abstract class AbstractKVNavigableSet<E> extends AbstractNavigableSet<E>
         }
         return new KeyRange(newMinKey != null ? newMinKey : ByteData.empty(), newMaxKey);
     }
+
+// Iterator
+
+    /**
+     * Iterator that supports seeking by repositioning the underlying {@link KVStore} iteration.
+     */
+    private class Iterator extends AbstractKVIterator<E> implements SeekableIterator<E> {
+
+        Iterator() {
+            super(AbstractKVNavigableSet.this.kv, AbstractKVNavigableSet.this.prefixMode, AbstractKVNavigableSet.this.reversed,
+              AbstractKVNavigableSet.this.keyRange, AbstractKVNavigableSet.this.keyFilter);
+        }
+
+        @Override
+        public void seek(E target) {
+            final ByteData.Writer writer = ByteData.newWriter();
+            AbstractKVNavigableSet.this.encode(writer, target);
+            this.seekKey(writer.toByteData());
+        }
+
+        @Override
+        protected E decodePair(KVPair pair, ByteData.Reader keyReader) {
+            return AbstractKVNavigableSet.this.decode(keyReader);
+        }
+
+        @Override
+        protected void doRemove(E value, KVPair pair) {
+            AbstractKVNavigableSet.this.remove(value);
+        }
+    }
 }
@@ -0,0 +1,96 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.kv.util;
+
+import io.permazen.test.TestSupport;
+import io.permazen.util.ByteData;
+import io.permazen.util.NavigableSets;
+import io.permazen.util.SeekableIterator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class KVNavigableSetTest extends TestSupport {
+
+    @Test
+    public void testSeek() throws Exception {
+        for (int testNum = 0; testNum < 100; testNum++) {
+
+            // Populate k/v store and reference sets
+            final MemoryKVStore kv = new MemoryKVStore();
+            final TreeSet<ByteData> set1 = new TreeSet<>();
+            final TreeSet<ByteData> set2 = new TreeSet<>();
+            for (int i = 0; i < 200; i++) {
+                final ByteData key = this.randKey();
+                kv.put(key, ByteData.empty());
+                set1.add(key);
+            }
+            final MemoryKVStore kv2 = new MemoryKVStore();
+            for (int i = 0; i < 200; i++) {
+                final ByteData key = this.randKey();
+                kv2.put(key, ByteData.empty());
+                set2.add(key);
+            }
+            final KVNavigableSet kvset1 = new KVNavigableSet(kv);
+            final KVNavigableSet kvset2 = new KVNavigableSet(kv2);
+
+            // Verify seeking through plain set
+            this.verifySeeks(kvset1, set1, false);
+
+            // Verify seeking through reversed set
+            this.verifySeeks(kvset1.descendingSet(), set1.descendingSet(), true);
+
+            // Verify seeking through a prefix range
+            final ByteData prefix = ByteData.of(this.random.nextInt(256));
+            final TreeSet<ByteData> prefixed = new TreeSet<>();
+            set1.stream().filter(key -> key.startsWith(prefix)).forEach(prefixed::add);
+            this.verifySeeks(new KVNavigableSet(kv, prefix), prefixed, false);
+
+            // Verify seeking through a sub-set
+            final ByteData min = this.randKey();
+            final ByteData max = this.randKey();
+            if (min.compareTo(max) <= 0)
+                this.verifySeeks(kvset1.subSet(min, true, max, false), set1.subSet(min, true, max, false), false);
+
+            // Verify seeking through an intersection
+            final TreeSet<ByteData> expected = new TreeSet<>(set1);
+            expected.retainAll(set2);
+            this.verifySeeks(NavigableSets.intersection(kvset1, kvset2), expected, false);
+        }
+    }
+
+    private void verifySeeks(NavigableSet<ByteData> actual, NavigableSet<ByteData> expected, boolean reverse) {
+        final Comparator<ByteData> comparator = reverse ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        final ArrayList<ByteData> list = new ArrayList<>(expected);
+        int index = 0;
+        try (SeekableIterator<ByteData> i = SeekableIterator.of(actual)) {
+            while (true) {
+                if (this.random.nextInt(3) == 0) {
+                    final ByteData target = this.randKey();
+                    i.seek(target);
+                    while (index < list.size() && comparator.compare(list.get(index), target) < 0)
+                        index++;
+                }
+                Assert.assertEquals(i.hasNext(), index < list.size());
+                if (index == list.size())
+                    break;
+                Assert.assertEquals(i.next(), list.get(index++));
+            }
+        }
+    }
+
+    private ByteData randKey() {
+        final int len = this.random.nextInt(3);
+        final byte[] r = new byte[len];
+        this.random.nextBytes(r);
+        return ByteData.of(r);
+    }
+}
@@ -10,6 +10,7 @@ import com.google.common.base.Preconditions;
 
 import io.permazen.core.DatabaseException;
 import io.permazen.core.ObjId;
+import io.permazen.core.SimpleFieldHandle;
 import io.permazen.core.Transaction;
 import io.permazen.core.util.ObjDumper;
 
@@ -54,6 +55,7 @@ class ClassGenerator<T> {
     static final String CACHED_FLAG_FIELD_PREFIX = "$cacheflags";
     static final String CONVERTER_FIELD_PREFIX = "$converter";
     static final String REFERENCE_PATH_FIELD_PREFIX = "$referencePath";
+    static final String FIELD_HANDLE_FIELD_PREFIX = "$handle_";
 
     // PermazenObject method handles
     static final Method PERMAZEN_OBJECT_GET_OBJ_ID_METHOD;
@@ -87,6 +89,9 @@ class ClassGenerator<T> {
     static final Method TRANSACTION_READ_SIMPLE_FIELD_METHOD;
     static final Method TRANSACTION_WRITE_SIMPLE_FIELD_METHOD;
 
+    // SimpleFieldHandle constructor
+    static final Constructor<SimpleFieldHandle> SIMPLE_FIELD_HANDLE_CONSTRUCTOR;
+
     // ObjDumper method handles
     static final Method OBJ_DUMPER_TO_STRING_METHOD;
 
@@ -142,9 +147,12 @@ class ClassGenerator<T> {
 
             // Transaction methods
             TRANSACTION_READ_SIMPLE_FIELD_METHOD = Transaction.class.getMethod("readSimpleField",
-              ObjId.class, String.class, boolean.class);
+              ObjId.class, SimpleFieldHandle.class, boolean.class);
             TRANSACTION_WRITE_SIMPLE_FIELD_METHOD = Transaction.class.getMethod("writeSimpleField",
-              ObjId.class, String.class, Object.class, boolean.class);
+              ObjId.class, SimpleFieldHandle.class, Object.class, boolean.class);
+
+            // SimpleFieldHandle
+            SIMPLE_FIELD_HANDLE_CONSTRUCTOR = SimpleFieldHandle.class.getConstructor(String.class);
 
             // Converter
             CONVERTER_CONVERT_METHOD = Converter.class.getMethod("convert", Object.class);
@@ -267,13 +275,8 @@ class ClassGenerator<T> {
     @SuppressWarnings("unchecked")
     public Class<? extends T> generateClass() {
 
-        // Gather simple field names (non sub-field only)
-        if (this.pclass != null) {
-            for (PermazenSimpleField pfield : this.pclass.simpleFieldsByName.values()) {
-                if (!pfield.isSubField())
-                    this.simpleFieldNames.add(pfield.name);
-            }
-        }
+        // Gather simple field names
+        this.gatherSimpleFieldNames();
 
         // Load class to generate it
         try {
@@ -297,12 +300,40 @@ class ClassGenerator<T> {
         return Type.getInternalName(this.modelClass.isInterface() ? Object.class : this.modelClass);
     }
 
+    // Gather simple field names (non sub-field only), if not already done
+    private synchronized void gatherSimpleFieldNames() {
+        if (this.pclass == null || !this.simpleFieldNames.isEmpty())
+            return;
+        for (PermazenSimpleField pfield : this.pclass.simpleFieldsByName.values()) {
+            if (!pfield.isSubField())
+                this.simpleFieldNames.add(pfield.name);
+        }
+    }
+
 // Database class
 
+    /**
+     * Get the Java class bytecode for this instance's {@link PermazenClass}.
+     *
+     * <p>
+     * If a valid pre-generated class is available (see {@link Permazen#writeGeneratedClasses Permazen.writeGeneratedClasses()}),
+     * its bytecode is returned; otherwise, the bytecode is generated.
+     */
+    byte[] getBytecode() {
+        final byte[] classfile = this.pdb.pregeneratedClasses.getBytecode(this);
+        if (classfile != null) {
+            if (this.log.isTraceEnabled())
+                this.log.trace("using pre-generated class {}", this.getClassName());
+            return classfile;
+        }
+        return this.generateBytecode();
+    }
+
     /**
      * Generate the Java class bytecode for this instance's {@link PermazenClass}.
      */
     protected byte[] generateBytecode() {
+        this.gatherSimpleFieldNames();
 
         // Generate class
         if (this.log.isTraceEnabled())
@@ -357,6 +388,14 @@ class ClassGenerator<T> {
             }
         }
 
+        // Output (static) SimpleFieldHandle fields for simple fields
+        if (this.pclass != null) {
+            for (String fieldName : this.simpleFieldNames) {
+                cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL,
+                  this.getFieldHandleFieldName(fieldName), Type.getDescriptor(SimpleFieldHandle.class), null, null).visitEnd();
+            }
+        }
+
         // Output (static) @ReferencePath cached ReferencePath fields
         if (this.pclass != null) {
             int fieldIndex = 0;
@@ -397,7 +436,7 @@ class ClassGenerator<T> {
         if (this.pclass != null) {
 
             // Do any fields require initialization bytecode?
-            boolean needClassInitializer = false;
+            boolean needClassInitializer = !this.simpleFieldNames.isEmpty();
             for (PermazenField pfield : this.pclass.fieldsByName.values()) {
                 if (pfield.hasClassInitializerBytecode()) {
                     needClassInitializer = true;
@@ -409,6 +448,14 @@ class ClassGenerator<T> {
             if (needClassInitializer) {
                 MethodVisitor mv = cw.visitMethod(Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE, "<clinit>", "()V", null, null);
                 mv.visitCode();
+                for (String fieldName : this.simpleFieldNames) {
+                    mv.visitTypeInsn(Opcodes.NEW, Type.getInternalName(SimpleFieldHandle.class));
+                    mv.visitInsn(Opcodes.DUP);
+                    mv.visitLdcInsn(fieldName);
+                    this.emitInvoke(mv, SIMPLE_FIELD_HANDLE_CONSTRUCTOR);
+                    mv.visitFieldInsn(Opcodes.PUTSTATIC, this.getClassName(),
+                      this.getFieldHandleFieldName(fieldName), Type.getDescriptor(SimpleFieldHandle.class));
+                }
                 for (PermazenField pfield : this.pclass.fieldsByName.values()) {
                     if (pfield.hasClassInitializerBytecode())
                         pfield.outputClassInitializerBytecode(this, mv);
@@ -634,6 +681,22 @@ class ClassGenerator<T> {
         return list.toArray(new String[list.size()]);
     }
 
+// Simple field handles
+
+    /**
+     * Emit code to load the {@link SimpleFieldHandle} for the given simple field onto the stack.
+     */
+    void emitLoadFieldHandle(MethodVisitor mv, PermazenSimpleField pfield) {
+        Preconditions.checkArgument(pfield.parent == this.pclass);
+        Preconditions.checkArgument(this.simpleFieldNames.contains(pfield.name));
+        mv.visitFieldInsn(Opcodes.GETSTATIC, this.getClassName(),
+          this.getFieldHandleFieldName(pfield.name), Type.getDescriptor(SimpleFieldHandle.class));
+    }
+
+    private String getFieldHandleFieldName(String fieldName) {
+        return ClassGenerator.FIELD_HANDLE_FIELD_PREFIX + fieldName;
+    }
+
 // Cached value flags field(s)
 
     String getCachedFlagFieldName(PermazenSimpleField pfield) {
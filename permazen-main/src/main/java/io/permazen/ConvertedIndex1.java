@@ -52,6 +52,16 @@ class ConvertedIndex1<V, T, WV, WT> implements Index1<V, T> {
           this.valueConverter, new NavigableSetConverter<T, WT>(this.targetConverter));
     }
 
+    @Override
+    public long count() {
+        return this.index.count();
+    }
+
+    @Override
+    public NavigableMap<V, Long> countByValue() {
+        return new ConvertedNavigableMap<V, Long, WV, Long>(this.index.countByValue(), this.valueConverter, Converter.identity());
+    }
+
     @Override
     public Index1<V, T> withValueBounds(Bounds<V> bounds) {
         return this.convert(this.index.withValueBounds(ConvertedIndex1.convert(bounds, this.valueConverter)));
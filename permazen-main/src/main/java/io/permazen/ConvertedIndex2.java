@@ -61,6 +61,23 @@ class ConvertedIndex2<V1, V2, T, WV1, WV2, WT> implements Index2<V1, V2, T> {
           new NavigableSetConverter<T, WT>(this.targetConverter));
     }
 
+    @Override
+    public long count() {
+        return this.index.count();
+    }
+
+    @Override
+    public NavigableMap<Tuple2<V1, V2>, Long> countByValues() {
+        return new ConvertedNavigableMap<Tuple2<V1, V2>, Long, Tuple2<WV1, WV2>, Long>(this.index.countByValues(),
+          new Tuple2Converter<V1, V2, WV1, WV2>(this.value1Converter, this.value2Converter), Converter.identity());
+    }
+
+    @Override
+    public NavigableMap<V1, Long> countByValue1() {
+        return new ConvertedNavigableMap<V1, Long, WV1, Long>(this.index.countByValue1(),
+          this.value1Converter, Converter.identity());
+    }
+
     @Override
     public NavigableMap<V1, Index1<V2, T>> asMapOfIndex1() {
         return new ConvertedNavigableMap<V1, Index1<V2, T>, WV1, Index1<WV2, WT>>(this.index.asMapOfIndex1(),
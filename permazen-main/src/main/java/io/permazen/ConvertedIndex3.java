@@ -71,6 +71,24 @@ class ConvertedIndex3<V1, V2, V3, T, WV1, WV2, WV3, WT> implements Index3<V1, V2
           new NavigableSetConverter<T, WT>(this.targetConverter));
     }
 
+    @Override
+    public long count() {
+        return this.index.count();
+    }
+
+    @Override
+    public NavigableMap<Tuple3<V1, V2, V3>, Long> countByValues() {
+        return new ConvertedNavigableMap<Tuple3<V1, V2, V3>, Long, Tuple3<WV1, WV2, WV3>, Long>(this.index.countByValues(),
+          new Tuple3Converter<V1, V2, V3, WV1, WV2, WV3>(this.value1Converter, this.value2Converter, this.value3Converter),
+          Converter.identity());
+    }
+
+    @Override
+    public NavigableMap<V1, Long> countByValue1() {
+        return new ConvertedNavigableMap<V1, Long, WV1, Long>(this.index.countByValue1(),
+          this.value1Converter, Converter.identity());
+    }
+
     @Override
     public NavigableMap<Tuple2<V1, V2>, Index1<V3, T>> asMapOfIndex1() {
         return new ConvertedNavigableMap<Tuple2<V1, V2>, Index1<V3, T>, Tuple2<WV1, WV2>, Index1<WV3, WT>>(
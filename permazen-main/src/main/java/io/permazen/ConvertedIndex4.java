@@ -79,6 +79,25 @@ class ConvertedIndex4<V1, V2, V3, V4, T, WV1, WV2, WV3, WV4, WT> implements Inde
             new NavigableSetConverter<T, WT>(this.targetConverter));
     }
 
+    @Override
+    public long count() {
+        return this.index.count();
+    }
+
+    @Override
+    public NavigableMap<Tuple4<V1, V2, V3, V4>, Long> countByValues() {
+        return new ConvertedNavigableMap<Tuple4<V1, V2, V3, V4>, Long, Tuple4<WV1, WV2, WV3, WV4>, Long>(
+          this.index.countByValues(), new Tuple4Converter<V1, V2, V3, V4, WV1, WV2, WV3, WV4>(
+            this.value1Converter, this.value2Converter, this.value3Converter, this.value4Converter),
+          Converter.identity());
+    }
+
+    @Override
+    public NavigableMap<V1, Long> countByValue1() {
+        return new ConvertedNavigableMap<V1, Long, WV1, Long>(this.index.countByValue1(),
+          this.value1Converter, Converter.identity());
+    }
+
     @Override
     public NavigableMap<Tuple3<V1, V2, V3>, Index1<V4, T>> asMapOfIndex1() {
         return new ConvertedNavigableMap<Tuple3<V1, V2, V3>, Index1<V4, T>, Tuple3<WV1, WV2, WV3>, Index1<WV4, WT>>(
@@ -61,6 +61,7 @@ public class Counter {
      * @param value new value for the counter
      * @throws StaleTransactionException if the transaction from which this instance was read is no longer usable
      * @throws io.permazen.core.DeletedObjectException if the object from which this instance was read no longer exists
+     * @throws IllegalArgumentException if this is an {@linkplain PermazenField#aggregate aggregate counter}
      */
     public void set(long value) {
         this.tx.writeCounterField(this.id, this.name, value, this.updateVersion);
@@ -72,6 +73,7 @@ public class Counter {
      * @param offset amount to add to counter
      * @throws StaleTransactionException if the transaction from which this instance was read is no longer usable
      * @throws io.permazen.core.DeletedObjectException if the object from which this instance was read no longer exists
+     * @throws IllegalArgumentException if this is an {@linkplain PermazenField#aggregate aggregate counter}
      */
     public void adjust(long offset) {
         this.tx.adjustCounterField(this.id, this.name, offset, this.updateVersion);
@@ -0,0 +1,73 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import com.google.common.base.Converter;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts the lists of included field values read from a composite index, using a separate {@link Converter}
+ * for each list position.
+ *
+ * @see PermazenTransaction#queryCompositeIndexIncludedValues PermazenTransaction.queryCompositeIndexIncludedValues()
+ */
+class IncludedValuesConverter extends Converter<List<Object>, List<Object>> {
+
+    private final List<Converter<Object, Object>> converters;
+
+    IncludedValuesConverter(List<Converter<Object, Object>> converters) {
+        Preconditions.checkArgument(converters != null, "null converters");
+        this.converters = converters;
+    }
+
+    @Override
+    protected List<Object> doForward(List<Object> values) {
+        return this.convert(values, false);
+    }
+
+    @Override
+    protected List<Object> doBackward(List<Object> values) {
+        return this.convert(values, true);
+    }
+
+    private List<Object> convert(List<Object> values, boolean reverse) {
+        if (values == null)
+            return null;
+        Preconditions.checkArgument(values.size() == this.converters.size(), "wrong number of values");
+        final ArrayList<Object> result = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            final Converter<Object, Object> converter = this.converters.get(i);
+            result.add((reverse ? converter.reverse() : converter).convert(values.get(i)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+// Object
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (obj == null || obj.getClass() != this.getClass())
+            return false;
+        final IncludedValuesConverter that = (IncludedValuesConverter)obj;
+        return this.converters.equals(that.converters);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.getClass().hashCode() ^ this.converters.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "[converters=" + this.converters + "]";
+    }
+}
@@ -12,6 +12,7 @@ import io.permazen.core.CoreIndex1;
 import io.permazen.core.CoreIndex2;
 import io.permazen.core.CoreIndex3;
 import io.permazen.core.CoreIndex4;
+import io.permazen.core.IncludedValuesMap;
 import io.permazen.core.ReferenceEncoding;
 import io.permazen.encoding.Encoding;
 import io.permazen.kv.KeyRange;
@@ -222,6 +223,15 @@ class IndexQuery {
 
 // Public Methods
 
+    public IncludedValuesMap applyFilters(IncludedValuesMap map) {
+        for (int i = 0; i < this.filters.size(); i++) {
+            final KeyRanges filter = this.filters.get(i);
+            if (filter != null && !filter.isFull())
+                map = map.filter(i, filter);
+        }
+        return map;
+    }
+
     public <V, T> CoreIndex1<V, T> applyFilters(CoreIndex1<V, T> index) {
         for (int i = 0; i < this.filters.size(); i++) {
             final KeyRanges filter = this.filters.get(i);
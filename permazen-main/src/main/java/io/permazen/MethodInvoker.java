@@ -0,0 +1,246 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invokes a Java model class listener method such as {@link io.permazen.annotation.OnChange &#64;OnChange}.
+ *
+ * <p>
+ * Where possible, instances invoke the method through a class generated at construction time by {@link LambdaMetafactory},
+ * so that each invocation is a direct method call rather than a reflective {@link Method#invoke Method.invoke()}
+ * with its access checks and varargs array. When that's not possible, for example because the method's declaring class
+ * is in a module not open to Permazen, instances fall back to {@link Util#invoke Util.invoke()}.
+ *
+ * <p>
+ * For static methods, the {@code target} parameter is ignored. In all cases, checked exceptions thrown by the method
+ * are wrapped in a {@link PermazenException}, as with {@link Util#invoke Util.invoke()}.
+ */
+class MethodInvoker {
+
+    private static final Class<?>[] FUNCTION_TYPES = { Call1.class, Call2.class, Call3.class, Call4.class };
+
+    final Method method;
+
+// Constructors
+
+    private MethodInvoker(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * Create an invoker for the given method.
+     *
+     * @param method the method to invoke
+     * @return invoker for {@code method}
+     * @throws IllegalArgumentException if {@code method} is null
+     */
+    static MethodInvoker of(Method method) {
+        Preconditions.checkArgument(method != null, "null method");
+
+        // Determine the number of parameters including the target, if any
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        final int arity = method.getParameterCount() + (isStatic ? 0 : 1);
+        if (method.getReturnType() != void.class
+          || arity < 1 || arity > FUNCTION_TYPES.length
+          || Stream.of(method.getParameterTypes()).anyMatch(Class::isPrimitive))
+            return new MethodInvoker(method);
+
+        // Generate a direct invoker, falling back to reflection if we can't
+        final Object function;
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+            final MethodHandle handle = lookup.unreflect(method);
+            final MethodType functionType = MethodType.genericMethodType(arity).changeReturnType(void.class);
+            final CallSite callSite = LambdaMetafactory.metafactory(lookup, "call",
+              MethodType.methodType(FUNCTION_TYPES[arity - 1]), functionType, handle, handle.type());
+            function = callSite.getTarget().invoke();
+        } catch (Throwable t) {
+            Throwables.throwIfInstanceOf(t, Error.class);
+            final Logger log = LoggerFactory.getLogger(MethodInvoker.class);
+            if (log.isDebugEnabled())
+                log.debug("can't generate direct invoker for {}, using reflection instead: {}", method, t.toString());
+            return new MethodInvoker(method);
+        }
+        return new Direct(method, isStatic, arity, function);
+    }
+
+// Invocation
+
+    /**
+     * Invoke a method taking no parameters.
+     *
+     * @param target target instance
+     * @throws PermazenException if the method throws a checked exception
+     */
+    void invoke(Object target) {
+        Util.invoke(this.method, target);
+    }
+
+    /**
+     * Invoke a method taking one parameter.
+     *
+     * @param target target instance, or null if method is static
+     * @param param1 first parameter
+     * @throws PermazenException if the method throws a checked exception
+     */
+    void invoke(Object target, Object param1) {
+        Util.invoke(this.method, target, param1);
+    }
+
+    /**
+     * Invoke a method taking two parameters.
+     *
+     * @param target target instance, or null if method is static
+     * @param param1 first parameter
+     * @param param2 second parameter
+     * @throws PermazenException if the method throws a checked exception
+     */
+    void invoke(Object target, Object param1, Object param2) {
+        Util.invoke(this.method, target, param1, param2);
+    }
+
+    /**
+     * Invoke a method taking three parameters.
+     *
+     * @param target target instance, or null if method is static
+     * @param param1 first parameter
+     * @param param2 second parameter
+     * @param param3 third parameter
+     * @throws PermazenException if the method throws a checked exception
+     */
+    void invoke(Object target, Object param1, Object param2, Object param3) {
+        Util.invoke(this.method, target, param1, param2, param3);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "[" + this.method + "]";
+    }
+
+// Direct
+
+    private static final class Direct extends MethodInvoker {
+
+        private final boolean isStatic;
+        private final int arity;
+        private final Object function;
+
+        Direct(Method method, boolean isStatic, int arity, Object function) {
+            super(method);
+            this.isStatic = isStatic;
+            this.arity = arity;
+            this.function = function;
+        }
+
+        @Override
+        void invoke(Object target) {
+            this.checkArity(target, 0);
+            try {
+                ((Call1)this.function).call(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw this.wrap(target, t);
+            }
+        }
+
+        @Override
+        void invoke(Object target, Object param1) {
+            this.checkArity(target, 1);
+            try {
+                if (this.isStatic)
+                    ((Call1)this.function).call(param1);
+                else
+                    ((Call2)this.function).call(target, param1);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw this.wrap(target, t);
+            }
+        }
+
+        @Override
+        void invoke(Object target, Object param1, Object param2) {
+            this.checkArity(target, 2);
+            try {
+                if (this.isStatic)
+                    ((Call2)this.function).call(param1, param2);
+                else
+                    ((Call3)this.function).call(target, param1, param2);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw this.wrap(target, t);
+            }
+        }
+
+        @Override
+        void invoke(Object target, Object param1, Object param2, Object param3) {
+            this.checkArity(target, 3);
+            try {
+                if (this.isStatic)
+                    ((Call3)this.function).call(param1, param2, param3);
+                else
+                    ((Call4)this.function).call(target, param1, param2, param3);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw this.wrap(target, t);
+            }
+        }
+
+        private void checkArity(Object target, int numParams) {
+            if (this.arity != numParams + (this.isStatic ? 0 : 1)) {
+                throw new IllegalArgumentException(String.format(
+                  "wrong number of parameters (%d) for method %s", numParams, this.method));
+            }
+            if (!this.isStatic && target == null)
+                throw new NullPointerException(String.format("null target for non-static method %s", this.method));
+        }
+
+        // Checked exceptions can sneak through because the functional interfaces don't declare them
+        private PermazenException wrap(Object target, Throwable t) {
+            return new PermazenException(String.format("unexpected error invoking method %s on %s", this.method, target), t);
+        }
+    }
+
+// Functional interfaces implemented by generated classes; these must be public so generated classes can access them
+
+    @FunctionalInterface
+    public interface Call1 {
+        void call(Object arg1);
+    }
+
+    @FunctionalInterface
+    public interface Call2 {
+        void call(Object arg1, Object arg2);
+    }
+
+    @FunctionalInterface
+    public interface Call3 {
+        void call(Object arg1, Object arg2, Object arg3);
+    }
+
+    @FunctionalInterface
+    public interface Call4 {
+        void call(Object arg1, Object arg2, Object arg3, Object arg4);
+    }
+}
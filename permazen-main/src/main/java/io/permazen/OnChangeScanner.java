@@ -77,9 +77,11 @@ class OnChangeScanner<T> extends AnnotationScanner<T, OnChange> {
         final HashSet<Integer> targetFieldStorageIds = new HashSet<>();
         final ReferencePath path;
         final Class<?>[] genericTypes;
+        final MethodInvoker invoker;
 
         ChangeMethodInfo(Method method, OnChange annotation) {
             super(method, annotation);
+            this.invoker = MethodInvoker.of(method);
 
             // Get database
             final Permazen pdb = OnChangeScanner.this.pclass.pdb;
@@ -216,7 +218,7 @@ class OnChangeScanner<T> extends AnnotationScanner<T, OnChange> {
                 tx.addFieldChangeListener(storageId, path.getReferenceFields(), path.getPathKeyRanges(), this);
         }
 
-        // Note genericTypes is derived from this.method, so there's no need to include it in equals() or hashCode()
+        // Note genericTypes and invoker are derived from this.method, so there's no need to include them in equals() or hashCode()
         @Override
         public boolean equals(Object obj) {
             if (obj == this)
@@ -477,7 +479,7 @@ class OnChangeScanner<T> extends AnnotationScanner<T, OnChange> {
             assert change != null;
             final Method method = this.getMethod();
             if ((method.getModifiers() & Modifier.STATIC) != 0)
-                Util.invoke(method, null, change);
+                this.invoker.invoke(null, change);
             else {
                 for (ObjId id : referrers) {
                     final PermazenObject target = ptx.get(id);             // type of 'id' should always be found
@@ -485,7 +487,7 @@ class OnChangeScanner<T> extends AnnotationScanner<T, OnChange> {
                     // Avoid invoking subclass's @OnChange method on superclass instance;
                     // this can happen when the field is in superclass but wildcard @OnChange is in the subclass
                     if (method.getDeclaringClass().isInstance(target))
-                        Util.invoke(method, target, change);
+                        this.invoker.invoke(target, change);
                 }
             }
         }
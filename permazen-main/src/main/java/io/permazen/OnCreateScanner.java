@@ -62,17 +62,18 @@ class OnCreateScanner<T> extends AnnotationScanner<T, OnCreate> {
             }
 
             // Determine method invocation style and accepted object type
+            final MethodInvoker invoker = MethodInvoker.of(method);
             final Class<?> acceptedRawType;
             final TypeToken<?> acceptedGenType;
             if (selfMatch) {
                 acceptedGenType = TypeToken.of(method.getDeclaringClass());
-                this.invokeStyle = (ptx, deleted) -> Util.invoke(method, deleted);
+                this.invokeStyle = (ptx, deleted) -> invoker.invoke(deleted);
             } else {
                 acceptedGenType = paramGenTypes.get(0);
                 if (staticMethod)
-                    this.invokeStyle = (ptx, deleted) -> Util.invoke(method, null, deleted);
+                    this.invokeStyle = (ptx, deleted) -> invoker.invoke(null, deleted);
                 else
-                    this.invokeStyle = (ptx, deleted) -> Util.invoke(method, deleted, deleted);
+                    this.invokeStyle = (ptx, deleted) -> invoker.invoke(deleted, deleted);
             }
             acceptedRawType = acceptedGenType.getRawType();
 
@@ -66,13 +66,14 @@ class OnDeleteScanner<T> extends AnnotationScanner<T, OnDelete> {
             }
 
             // Determine method invocation style and accepted object type
+            final MethodInvoker invoker = MethodInvoker.of(method);
             final TypeToken<?> acceptedGenType;
             if (selfMatch) {
                 acceptedGenType = TypeToken.of(method.getDeclaringClass());
                 this.invokeStyle = (ptx, deleted, referrers) -> {
                     assert referrers.size() == 1;
                     assert referrers.first().equals(deleted.getObjId());
-                    Util.invoke(method, deleted);
+                    invoker.invoke(deleted);
                 };
             } else {
                 acceptedGenType = paramGenTypes.get(0);
@@ -82,18 +83,18 @@ class OnDeleteScanner<T> extends AnnotationScanner<T, OnDelete> {
                           "%s: method is static so @%s.path() must be empty",
                           errorPrefix, annotation.annotationType().getSimpleName()));
                     }
-                    this.invokeStyle = (ptx, deleted, referrers) -> Util.invoke(method, null, deleted);
+                    this.invokeStyle = (ptx, deleted, referrers) -> invoker.invoke(null, deleted);
                 } else if (annotation.path().isEmpty()) {
                     this.invokeStyle = (ptx, deleted, referrers) -> {
                         assert referrers.size() == 1;
                         assert referrers.first().equals(deleted.getObjId());
-                        Util.invoke(method, deleted, deleted);
+                        invoker.invoke(deleted, deleted);
                     };
                 } else {
                     this.invokeStyle = (ptx, deleted, referrers) -> {
                         referrers.stream()
                           .map(ptx::get)
-                          .forEach(referrer -> Util.invoke(method, referrer, deleted));
+                          .forEach(referrer -> invoker.invoke(referrer, deleted));
                     };
                 }
             }
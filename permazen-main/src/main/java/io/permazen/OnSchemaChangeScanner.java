@@ -54,27 +54,29 @@ class OnSchemaChangeScanner<T> extends AnnotationScanner<T, OnSchemaChange> {
 
     class SchemaChangeMethodInfo extends MethodInfo {
 
+        final MethodInvoker invoker;
+
         @SuppressWarnings("unchecked")
         SchemaChangeMethodInfo(Method method, OnSchemaChange annotation) {
             super(method, annotation);
+            this.invoker = MethodInvoker.of(method);
         }
 
+        // Note invoker is derived from this.method, so there's no need to include it in equals() or hashCode()
+
         // Invoke method
         void invoke(PermazenObject pobj, Map<String, Object> oldValues, SchemaId oldSchemaId, SchemaId newSchemaId) {
 
-            // Get method info
-            final Method method = this.getMethod();
-
             // Figure out method parameters and invoke method
-            switch (method.getParameterTypes().length) {
+            switch (this.getMethod().getParameterCount()) {
             case 1:
-                Util.invoke(method, pobj, oldValues);
+                this.invoker.invoke(pobj, oldValues);
                 break;
             case 2:
-                Util.invoke(method, pobj, oldValues, oldSchemaId);
+                this.invoker.invoke(pobj, oldValues, oldSchemaId);
                 break;
             case 3:
-                Util.invoke(method, pobj, oldValues, oldSchemaId, newSchemaId);
+                this.invoker.invoke(pobj, oldValues, oldSchemaId, newSchemaId);
                 break;
             default:
                 throw new RuntimeException("internal error");
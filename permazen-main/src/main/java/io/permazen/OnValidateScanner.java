@@ -25,4 +25,23 @@ class OnValidateScanner<T> extends AnnotationScanner<T, OnValidate> {
         this.checkParameterTypes(method);
         return true;
     }
+
+    @Override
+    protected ValidateMethodInfo createMethodInfo(Method method, OnValidate annotation) {
+        return new ValidateMethodInfo(method, annotation);
+    }
+
+// ValidateMethodInfo
+
+    class ValidateMethodInfo extends MethodInfo {
+
+        final MethodInvoker invoker;
+
+        ValidateMethodInfo(Method method, OnValidate annotation) {
+            super(method, annotation);
+            this.invoker = MethodInvoker.of(method);
+        }
+
+        // Note invoker is derived from this.method, so there's no need to include it in equals() or hashCode()
+    }
 }
@@ -41,11 +41,13 @@ import io.permazen.util.ApplicationClassLoader;
 
 import jakarta.validation.MessageInterpolator;
 import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.AnnotatedElement;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -57,6 +59,9 @@ import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.annotation.concurrent.GuardedBy;
@@ -201,6 +206,9 @@ public class Permazen {
 
     private static final int MAX_INDEX_QUERY_INFO_CACHE_SIZE = 1000;
 
+    // Set in worker threads performing per-class analysis on behalf of forEachPermazenClass()
+    private static final ThreadLocal<Permazen> HELPING_INITIALIZE = new ThreadLocal<>();
+
     private static final String HIBERNATE_PARAMETER_MESSAGE_INTERPOLATOR_CLASS_NAME
       = "org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator";
 
@@ -218,10 +226,12 @@ public class Permazen {
     final ClassGenerator<UntypedPermazenObject> untypedClassGenerator;
     final ArrayList<ClassGenerator<?>> classGenerators;
     final ClassLoader loader = new Loader();
+    final PregeneratedClasses pregeneratedClasses = new PregeneratedClasses(ApplicationClassLoader.getInstance());
     final ValidatorFactory validatorFactory;
     final SchemaModel origSchemaModel;                                              // does not include storage ID assignments
     final SchemaModel schemaModel;                                                  // includes storage ID assignments
     final Database db;
+    final boolean parallelAnalysis;
 
     // Cached listener sets used by PermazenTransaction.<init>()
     final Transaction.ListenerSet[] listenerSets = new Transaction.ListenerSet[4];
@@ -255,6 +265,7 @@ public class Permazen {
             // Initialize
             Preconditions.checkArgument(config != null, "null config");
             this.db = config.getDatabase();
+            this.parallelAnalysis = config.isParallelAnalysis();
 
             // Inventory classes; automatically add all @PermazenType-annotated superclasses of @PermazenType-annotated classes
             final HashMap<Class<?>, PermazenType> permazenTypes = new HashMap<>();
@@ -323,10 +334,10 @@ public class Permazen {
             this.classGenerators.add(this.untypedClassGenerator);
 
             // Create fields
-            this.pclasses.forEach(pclass -> pclass.createFields(this.db.getEncodingRegistry(), this.pclasses));
+            this.forEachPermazenClass(pclass -> pclass.createFields(this.db.getEncodingRegistry(), this.pclasses));
 
             // Create composite indexes
-            this.pclasses.forEach(PermazenClass::createCompositeIndexes);
+            this.forEachPermazenClass(PermazenClass::createCompositeIndexes);
 
             // Build and validate initial schema model
             this.schemaModel = new SchemaModel();
@@ -341,7 +352,7 @@ public class Permazen {
             this.origSchemaModel.lockDown(true);
 
             // Calculate validation requirements
-            this.pclasses.forEach(PermazenClass::calculateValidationRequirement);
+            this.forEachPermazenClass(PermazenClass::calculateValidationRequirement);
 
             // Determine if any PermazenClass requires JSR 303 validation, and if so find some representative annotation
             final AnnotatedElement elementRequiringJSR303Validation = this.pclasses.stream()
@@ -379,6 +390,10 @@ public class Permazen {
             }
             this.validatorFactory = optionalValidatorFactory;
 
+            // Determine which classes can limit automatic revalidation to changed fields
+            final Validator validator = this.validatorFactory != null ? this.validatorFactory.getValidator() : null;
+            this.forEachPermazenClass(pclass -> pclass.calculateFieldLevelValidation(validator));
+
             // Auto-initialize?
             if (config.isInitializeOnCreation())
                 this.initialize();
@@ -404,7 +419,20 @@ public class Permazen {
      * @return true if this instance was actually initialized, false if it was already initialized and so nothing happened
      * @throws InvalidSchemaException if the data model schema conflicts with what's registered in the database
      */
-    public synchronized boolean initialize() {
+    public boolean initialize() {
+
+        // Are we a worker thread helping with our own initialization? If so, it's already underway
+        if (HELPING_INITIALIZE.get() == this)
+            return false;
+
+        // Initialize if needed
+        synchronized (this) {
+            return this.doInitializeIfNeeded();
+        }
+    }
+
+    @GuardedBy("this")
+    private boolean doInitializeIfNeeded() {
 
         // Already initialized?
         if (this.initialized)
@@ -517,12 +545,12 @@ public class Permazen {
         }));
 
         // Scan for various method-level annotations
-        this.pclasses.forEach(PermazenClass::scanAnnotations);
+        this.forEachPermazenClass(PermazenClass::scanAnnotations);
 
-        // Eagerly load all generated Java classes so we "fail fast" if there are any loading errors
+        // Eagerly load all generated Java classes so we "fail fast" if there are any loading errors. This initializes
+        // the model classes, whose static initializers may depend on each other, so do it serially in the calling thread.
         this.untypedClassGenerator.generateClass();
-        for (PermazenClass<?> pclass : this.pclasses)
-            pclass.getClassGenerator().generateClass();
+        this.pclasses.forEach(pclass -> pclass.getClassGenerator().generateClass());
     }
 
 // Accessors
@@ -1014,6 +1042,35 @@ public class Permazen {
         return this.referencePathCache.get(startTypes, path);
     }
 
+// Generated Classes
+
+    /**
+     * Write the Java classes generated for this instance's model classes into the given class output directory.
+     *
+     * <p>
+     * This method supports generating these classes at build time. When the resulting class files are on the
+     * classpath at runtime, {@link Permazen} loads them instead of generating the classes on the fly,
+     * which reduces startup time. Pre-generated classes that no longer match their model classes (e.g.,
+     * because a model class changed after they were written) are ignored.
+     *
+     * <p>
+     * Along with the class files, this method writes an index resource {@code META-INF/permazen/generated-classes.properties}
+     * under {@code dir} that is used to locate and verify the classes at runtime.
+     *
+     * <p>
+     * This instance will be {@linkplain #initialize initialized} if it is not already.
+     *
+     * @param dir root of class output directory
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if {@code dir} is null
+     * @throws InvalidSchemaException if this instance is not yet {@link #initialize initialized} and schema registration fails
+     */
+    public void writeGeneratedClasses(Path dir) throws IOException {
+        Preconditions.checkArgument(dir != null, "null dir");
+        this.initialize();
+        PregeneratedClasses.write(this.classGenerators, dir);
+    }
+
 // Misc utility
 
 // IndexQuery Cache
@@ -1034,6 +1091,63 @@ public class Permazen {
         return this.untypedClassGenerator;
     }
 
+    /**
+     * Apply the given action to each {@link PermazenClass}, processing classes in parallel if so configured.
+     *
+     * <p>
+     * Per-class analysis of model classes is independent, so unless disabled via
+     * {@link PermazenConfig.Builder#parallelAnalysis(boolean) PermazenConfig.Builder.parallelAnalysis()} it's performed
+     * on the {@link ForkJoinPool#commonPool common pool} to make startup time scale with the number of cores. The current
+     * thread's context class loader is propagated to the worker threads. If the action fails for any class, then after all
+     * classes have been processed the exception for the first such class (in name order) is rethrown, i.e., the same exception
+     * that serial processing would throw.
+     *
+     * <p>
+     * The action must not load or initialize any generated class; that always happens in the calling thread.
+     */
+    private void forEachPermazenClass(Consumer<? super PermazenClass<?>> action) {
+
+        // Don't bother with parallelism if there's nothing to gain
+        final int numClasses = this.pclasses.size();
+        if (!this.parallelAnalysis || numClasses < 2 || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            this.pclasses.forEach(action);
+            return;
+        }
+
+        // Process classes in parallel
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        final Throwable[] errors = new Throwable[numClasses];
+        final ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(numClasses);
+        for (int i = 0; i < numClasses; i++) {
+            final int index = i;
+            final PermazenClass<?> pclass = this.pclasses.get(i);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                final Thread thread = Thread.currentThread();
+                final ClassLoader prevLoader = thread.getContextClassLoader();
+                final Permazen prevHelping = HELPING_INITIALIZE.get();
+                thread.setContextClassLoader(loader);
+                HELPING_INITIALIZE.set(this);
+                try {
+                    action.accept(pclass);
+                } catch (Throwable t) {
+                    errors[index] = t;
+                } finally {
+                    HELPING_INITIALIZE.set(prevHelping);
+                    thread.setContextClassLoader(prevLoader);
+                }
+            }));
+        }
+        tasks.forEach(ForkJoinTask::join);
+
+        // Rethrow the first error, if any
+        for (Throwable error : errors) {
+            if (error != null) {
+                Throwables.throwIfUnchecked(error);
+                throw new RuntimeException("unexpected exception", error);
+            }
+        }
+    }
+
 // Loader
 
     private class Loader extends ClassLoader {
@@ -1047,16 +1161,40 @@ public class Permazen {
             super(ApplicationClassLoader.getInstance());
         }
 
+        // Load generated classes ourselves, so any pre-generated class files visible to our parent don't take precedence
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (this.findGenerator(name) == null)
+                return super.loadClass(name, resolve);
+            synchronized (this.getClassLoadingLock(name)) {
+                Class<?> cl = this.findLoadedClass(name);
+                if (cl == null)
+                    cl = this.findClass(name);
+                if (resolve)
+                    this.resolveClass(cl);
+                return cl;
+            }
+        }
+
         // Find matching ClassGenerator, if any, otherwise defer to parent
         @Override
         protected Class<?> findClass(String name) throws ClassNotFoundException {
-            for (ClassGenerator<?> generator : Permazen.this.classGenerators) {
-                if (name.equals(generator.getClassName().replace('/', '.'))) {
-                    final byte[] bytes = generator.generateBytecode();
-                    return this.defineClass(name, bytes, 0, bytes.length);
-                }
+            final ClassGenerator<?> generator = this.findGenerator(name);
+            if (generator != null) {
+                final byte[] bytes = generator.getBytecode();
+                return this.defineClass(name, bytes, 0, bytes.length);
             }
             return super.findClass(name);
         }
+
+        private ClassGenerator<?> findGenerator(String name) {
+            if (!name.endsWith(GENERATED_CLASS_NAME_SUFFIX))
+                return null;
+            for (ClassGenerator<?> generator : Permazen.this.classGenerators) {
+                if (name.equals(generator.getClassName().replace('/', '.')))
+                    return generator;
+            }
+            return null;
+        }
     }
 }
@@ -25,6 +25,10 @@ import io.permazen.encoding.SimpleEncodingRegistry;
 import io.permazen.kv.KeyRanges;
 import io.permazen.schema.SchemaObjectType;
 
+import jakarta.validation.Validator;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -36,6 +40,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
@@ -81,6 +86,7 @@ public class PermazenClass<T> extends PermazenSchemaItem {
     Set<OnSchemaChangeScanner<T>.MethodInfo> onSchemaChangeMethods;
 
     boolean requiresDefaultValidation;
+    boolean fieldLevelValidation;                               // whether validation can be limited to changed fields
     AnnotatedElement elementRequiringJSR303Validation;
 
     /**
@@ -225,6 +231,10 @@ public class PermazenClass<T> extends PermazenSchemaItem {
                     throw new IllegalArgumentException(String.format(
                       "invalid %s: counter fields cannot be indexed", description));
                 }
+                if (annotation.aggregate().isEmpty() && !annotation.aggregateSum().isEmpty()) {
+                    throw new IllegalArgumentException(String.format(
+                      "invalid %s: use of %s() requires %s()", description, "aggregateSum", "aggregate"));
+                }
 
                 // Create counter field
                 final PermazenCounterField pfield = new PermazenCounterField(fieldName, annotation.storageId(), annotation,
@@ -447,9 +457,22 @@ public class PermazenClass<T> extends PermazenSchemaItem {
             indexFields[i] = (PermazenSimpleField)pfield;
         }
 
+        // Resolve included field names
+        final ArrayList<PermazenSimpleField> includedFields = new ArrayList<>(annotation.includedFields().length);
+        for (String fieldName : annotation.includedFields()) {
+            if (!seenFieldNames.add(fieldName))
+                throw this.invalidIndex(annotation, "field \"%s\" appears more than once", fieldName);
+            final PermazenField pfield = this.fieldsByName.get(fieldName);
+            if (pfield == null)
+                throw this.invalidIndex(annotation, "included field \"%s\" not found", fieldName);
+            else if (!(pfield instanceof PermazenSimpleField))
+                throw this.invalidIndex(annotation, "included field \"%s\" is not a simple field", fieldName);
+            includedFields.add((PermazenSimpleField)pfield);
+        }
+
         // Create and add index
         final PermazenCompositeIndex index = new PermazenCompositeIndex(indexName,
-          annotation.storageId(), declaringType, annotation, indexFields);
+          annotation.storageId(), declaringType, annotation, includedFields, indexFields);
         if (this.jcompositeIndexesByName.put(indexName, index) != null)
             throw this.invalidIndex(annotation, "duplicate composite index name \"%s\"", indexName);
 
@@ -515,6 +538,56 @@ public class PermazenClass<T> extends PermazenSchemaItem {
         }
     }
 
+    /**
+     * Determine whether automatic revalidation after a field change can be limited to the constraints involving that field.
+     *
+     * <p>
+     * This must be enabled via {@link PermazenType#fieldLevelValidation &#64;PermazenType.fieldLevelValidation()}, and then
+     * is possible unless the class has JSR 303 class-level constraints, or JSR 303 constraints on properties other than
+     * Permazen fields, or cascaded ({@link jakarta.validation.Valid &#64;Valid}) properties. Uniqueness constraints are
+     * always associated with specific fields, while {@link io.permazen.annotation.OnValidate &#64;OnValidate} methods
+     * are always invoked.
+     *
+     * @param validator JSR 303 validator, or null if there is none
+     */
+    void calculateFieldLevelValidation(Validator validator) {
+
+        // Has field-level validation been enabled?
+        this.fieldLevelValidation = this.permazenType.fieldLevelValidation();
+        if (!this.fieldLevelValidation)
+            return;
+
+        // Without JSR 303 constraints, there's nothing to check
+        if (validator == null || this.elementRequiringJSR303Validation == null)
+            return;
+
+        // Class-level constraints can depend on any field
+        final BeanDescriptor descriptor = validator.getConstraintsForClass(this.type);
+        if (!descriptor.getConstraintDescriptors().isEmpty()) {
+            this.fieldLevelValidation = false;
+            return;
+        }
+
+        // Map each constrained property to its corresponding field
+        final HashMap<String, PermazenField> fieldsByPropertyName = new HashMap<>();
+        for (PermazenField pfield : this.fieldsByName.values()) {
+            if (pfield.getter == null)
+                continue;
+            final String getterName = pfield.getter.getName();
+            final String propertyName = getterName.startsWith("is") ? getterName.substring(2) :
+              getterName.startsWith("get") ? getterName.substring(3) : getterName;
+            fieldsByPropertyName.put(propertyName.toLowerCase(Locale.ROOT), pfield);
+        }
+        for (PropertyDescriptor property : descriptor.getConstrainedProperties()) {
+            final PermazenField pfield = fieldsByPropertyName.get(property.getPropertyName().toLowerCase(Locale.ROOT));
+            if (pfield == null || property.isCascaded()) {
+                this.fieldLevelValidation = false;
+                return;
+            }
+            pfield.validationPropertyName = property.getPropertyName();
+        }
+    }
+
     @Override
     SchemaObjectType toSchemaItem() {
         final SchemaObjectType objectType = (SchemaObjectType)super.toSchemaItem();
@@ -628,10 +701,18 @@ public class PermazenClass<T> extends PermazenSchemaItem {
             throw new IllegalArgumentException(String.format(
               "invalid %s: unique() constraint not allowed on complex sub-field", description));
         }
+        if (!annotation.aggregate().isEmpty() || !annotation.aggregateSum().isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+              "invalid %s: %s() and %s() only allowed on counter fields", description, "aggregate", "aggregateSum"));
+        }
         if (!ValueMatch.isEmpty(annotation.uniqueExcludes()) && !annotation.unique()) {
             throw new IllegalArgumentException(String.format(
               "invalid %s: use of %s() requires %s() = true", description, "uniqueExcludes", "unique"));
         }
+        if (isSubField && !ValueMatch.isEmpty(annotation.indexExcludes())) {
+            throw new IllegalArgumentException(String.format(
+              "invalid %s: %s() not allowed on complex sub-field", description, "indexExcludes"));
+        }
 
         // See if encoding encompasses one or more PermazenClass types and is therefore a reference type
         final Class<?> fieldRawType = encodingToken.getRawType();
@@ -763,6 +844,15 @@ public class PermazenClass<T> extends PermazenSchemaItem {
             throw new IllegalArgumentException(String.format(
               "invalid %s: use of %s() requires %s() = true", description, "unique", "indexed"));
         }
+        if (!isReferenceType && !ValueMatch.isEmpty(annotation.indexExcludes()) && !annotation.indexed()) {
+            throw new IllegalArgumentException(String.format(
+              "invalid %s: use of %s() requires %s() = true", description, "indexExcludes", "indexed"));
+        }
+        if (isReferenceType && (annotation.indexExcludes().nonNulls()
+          || annotation.indexExcludes().value().length > 0 || annotation.indexExcludes().ranges().length > 0)) {
+            throw new IllegalArgumentException(String.format(
+              "invalid %s: %s() may only exclude null values on reference fields", description, "indexExcludes"));
+        }
         if (!isReferenceType && annotation.forwardCascades().length != 0) {
             throw new IllegalArgumentException(String.format(
               "invalid %s: %s() only allowed on reference fields", description, "forwardCascades"));
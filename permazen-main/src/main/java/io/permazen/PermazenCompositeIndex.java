@@ -32,19 +32,23 @@ public class PermazenCompositeIndex extends PermazenSchemaItem {
 
     final Class<?> declaringType;
     final List<PermazenSimpleField> pfields;
+    final List<PermazenSimpleField> includedPFields;
     final boolean unique;
     final List<List<ValueMatch<?>>> uniqueExcludes;
 
     PermazenCompositeIndex(String name, int storageId, Class<?> declaringType,
-      io.permazen.annotation.PermazenCompositeIndex annotation, PermazenSimpleField... pfields) {
+      io.permazen.annotation.PermazenCompositeIndex annotation, List<PermazenSimpleField> includedPFields,
+      PermazenSimpleField... pfields) {
         super(name, storageId, String.format("composite index \"%s\" on fields %s",
           name, Stream.of(pfields).map(field -> "\"" + field.getName() + "\"").collect(Collectors.joining(", "))));
         Preconditions.checkArgument(name != null, "null name");
         Preconditions.checkArgument(declaringType != null, "null declaringType");
         Preconditions.checkArgument(pfields.length >= 2 && pfields.length <= Database.MAX_INDEXED_FIELDS, "invalid field count");
         Preconditions.checkArgument(annotation != null, "null annotation");
+        Preconditions.checkArgument(includedPFields != null, "null includedPFields");
         this.declaringType = declaringType;
         this.pfields = Collections.unmodifiableList(Arrays.asList(pfields));
+        this.includedPFields = Collections.unmodifiableList(new ArrayList<>(includedPFields));
         this.unique = annotation.unique();
         this.uniqueExcludes = this.parseValuesList(annotation.uniqueExcludes(), "uniqueExcludes");
     }
@@ -112,6 +116,16 @@ public class PermazenCompositeIndex extends PermazenSchemaItem {
         return this.pfields;
     }
 
+    /**
+     * Get the {@link PermazenSimpleField}s whose values are included in this index's entries.
+     *
+     * @return this index's included fields, possibly empty
+     * @see io.permazen.annotation.PermazenCompositeIndex#includedFields
+     */
+    public List<PermazenSimpleField> getIncludedFields() {
+        return this.includedPFields;
+    }
+
     /**
      * View this index.
      *
@@ -143,6 +157,7 @@ public class PermazenCompositeIndex extends PermazenSchemaItem {
     SchemaCompositeIndex toSchemaItem() {
         final SchemaCompositeIndex schemaIndex = (SchemaCompositeIndex)super.toSchemaItem();
         this.pfields.forEach(pfield -> schemaIndex.getIndexedFields().add(pfield.name));
+        this.includedPFields.forEach(pfield -> schemaIndex.getIncludedFields().add(pfield.name));
         return schemaIndex;
     }
 
@@ -33,6 +33,7 @@ public final class PermazenConfig {
     private final ValidatorFactory validatorFactory;
     private final LinkedHashSet<Class<?>> modelClasses;
     private final boolean initializeOnCreation;
+    private final boolean parallelAnalysis;
 
 // Constructor
 
@@ -43,6 +44,7 @@ public final class PermazenConfig {
         this.validatorFactory = builder.validatorFactory;
         this.modelClasses = builder.modelClasses;
         this.initializeOnCreation = builder.initializeOnCreation;
+        this.parallelAnalysis = builder.parallelAnalysis;
     }
 
 // Property Methods
@@ -84,6 +86,15 @@ public final class PermazenConfig {
         return this.initializeOnCreation;
     }
 
+    /**
+     * Determine whether the {@link Permazen} instance should analyze the Java model classes in parallel on instantiation.
+     *
+     * @return true to analyze model classes in parallel, false to analyze them in the calling thread
+     */
+    public boolean isParallelAnalysis() {
+        return this.parallelAnalysis;
+    }
+
 // Other Methods
 
     /**
@@ -116,6 +127,7 @@ public final class PermazenConfig {
         private ValidatorFactory validatorFactory;
         private LinkedHashSet<Class<?>> modelClasses;
         private boolean initializeOnCreation;
+        private boolean parallelAnalysis = true;
 
     // Constructors
 
@@ -204,6 +216,24 @@ public final class PermazenConfig {
             return this;
         }
 
+        /**
+         * Configure whether the {@link Permazen} instance should analyze the Java model classes in parallel on instantiation.
+         *
+         * <p>
+         * When enabled, the per-class analysis of the model classes (fields, indexes, validation requirements,
+         * and annotated methods) is performed using the {@link java.util.concurrent.ForkJoinPool#commonPool common pool}.
+         * This analysis uses reflection only; generated subclasses are always loaded and initialized in the calling thread.
+         *
+         * <p>
+         * The default is true.
+         *
+         * @param parallelAnalysis true to analyze model classes in parallel, false to analyze them in the calling thread
+         */
+        public Builder parallelAnalysis(boolean parallelAnalysis) {
+            this.parallelAnalysis = parallelAnalysis;
+            return this;
+        }
+
         /**
          * Create a new {@link PermazenConfig} from this instance.
          *
@@ -12,10 +12,13 @@ import com.google.common.reflect.TypeToken;
 import io.permazen.core.CounterField;
 import io.permazen.core.ObjId;
 import io.permazen.schema.CounterSchemaField;
+import io.permazen.schema.SchemaItem;
 
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.objectweb.asm.ClassWriter;
 
@@ -26,7 +29,13 @@ import org.objectweb.asm.ClassWriter;
  */
 public class PermazenCounterField extends PermazenField {
 
+    private static final Pattern AGGREGATE_PATTERN = Pattern.compile(
+      "<-(" + SchemaItem.NAME_PATTERN + ")\\.(" + SchemaItem.NAME_PATTERN + ")");
+
     final UpgradeConversionPolicy upgradeConversion;
+    final String aggregateType;
+    final String aggregateReference;
+    final String aggregateSum;
 
 // Constructor
 
@@ -34,6 +43,23 @@ public class PermazenCounterField extends PermazenField {
       io.permazen.annotation.PermazenField annotation, String description, Method getter) {
         super(name, storageId, annotation, description, getter);
         this.upgradeConversion = annotation.upgradeConversion();
+
+        // Parse aggregate inverse reference path, if any
+        if (!annotation.aggregate().isEmpty()) {
+            final Matcher matcher = AGGREGATE_PATTERN.matcher(annotation.aggregate());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(String.format(
+                  "invalid %s: invalid aggregate \"%s\": expected an inverse reference path of the form \"<-Type.field\"",
+                  description, annotation.aggregate()));
+            }
+            this.aggregateType = matcher.group(1);
+            this.aggregateReference = matcher.group(3);
+            this.aggregateSum = !annotation.aggregateSum().isEmpty() ? annotation.aggregateSum() : null;
+        } else {
+            this.aggregateType = null;
+            this.aggregateReference = null;
+            this.aggregateSum = null;
+        }
     }
 
 // Public Methods
@@ -49,6 +75,16 @@ public class PermazenCounterField extends PermazenField {
         return pobj.getPermazenTransaction().readCounterField(pobj.getObjId(), this.name, false);
     }
 
+    /**
+     * Determine whether this field is an aggregate counter whose value is maintained automatically.
+     *
+     * @return true if this is an aggregate counter
+     * @see io.permazen.annotation.PermazenField#aggregate
+     */
+    public boolean isAggregate() {
+        return this.aggregateType != null;
+    }
+
     @Override
     public <R> R visit(PermazenFieldSwitch<R> target) {
         Preconditions.checkArgument(target != null, "null target");
@@ -79,9 +115,24 @@ public class PermazenCounterField extends PermazenField {
         final PermazenCounterField that = (PermazenCounterField)that0;
         if (!Objects.equals(this.upgradeConversion, that.upgradeConversion))
             return false;
+        if (!Objects.equals(this.aggregateType, that.aggregateType))
+            return false;
+        if (!Objects.equals(this.aggregateReference, that.aggregateReference))
+            return false;
+        if (!Objects.equals(this.aggregateSum, that.aggregateSum))
+            return false;
         return true;
     }
 
+    @Override
+    CounterSchemaField toSchemaItem() {
+        final CounterSchemaField schemaField = (CounterSchemaField)super.toSchemaItem();
+        schemaField.setAggregateObjectType(this.aggregateType);
+        schemaField.setAggregateReference(this.aggregateReference);
+        schemaField.setAggregateSum(this.aggregateSum);
+        return schemaField;
+    }
+
     @Override
     CounterSchemaField createSchemaItem() {
         return new CounterSchemaField();
@@ -102,6 +153,10 @@ public class PermazenCounterField extends PermazenField {
     @Override
     void importPlain(ImportContext context, Object obj, ObjId id) {
 
+        // Aggregate counter values are maintained automatically
+        if (this.isAggregate())
+            return;
+
         // Read POJO property
         final Object value;
         try {
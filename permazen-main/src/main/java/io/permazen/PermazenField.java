@@ -40,6 +40,7 @@ public abstract class PermazenField extends PermazenSchemaItem {
 
     PermazenSchemaItem parent;                                  // either PermazenClass or PermazenComplexField
     boolean requiresDefaultValidation;
+    String validationPropertyName;                              // JSR 303 property name, if field has JSR 303 constraints
 
 // Constructor
 
@@ -102,6 +102,13 @@ class PermazenFieldScanner<T> extends AbstractPermazenFieldScanner<T, PermazenFi
         }
         @Override
         public Values uniqueExcludes() {
+            return this.emptyValues();
+        }
+        @Override
+        public Values indexExcludes() {
+            return this.emptyValues();
+        }
+        private Values emptyValues() {
             return new Values() {
                 @Override
                 public boolean nulls() {
@@ -126,6 +133,14 @@ class PermazenFieldScanner<T> extends AbstractPermazenFieldScanner<T, PermazenFi
             };
         }
         @Override
+        public String aggregate() {
+            return "";
+        }
+        @Override
+        public String aggregateSum() {
+            return "";
+        }
+        @Override
         public String[] forwardCascades() {
             return new String[0];
         }
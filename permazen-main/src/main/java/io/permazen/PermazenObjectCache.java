@@ -20,22 +20,21 @@ import javax.annotation.concurrent.ThreadSafe;
 
 /**
  * Caches {@link PermazenObject}'s for a {@link PermazenTransaction}.
+ *
+ * <p>
+ * To reduce lock contention when many threads share the same transaction, the cache is divided into independently
+ * locked stripes selected by object ID. Cleanup of cleared weak references is done per stripe, and only when a new
+ * entry is added, so that lookups of cached objects never have to process the reference queue.
  */
 @ThreadSafe
 class PermazenObjectCache {
 
-    private final PermazenTransaction ptx;
-    private final ReferenceQueue<PermazenObject> referenceQueue = new ReferenceQueue<>();
+    private static final int MAX_STRIPES = 64;
+    private static final int NUM_STRIPES = Math.min(MAX_STRIPES,
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);     // must be a power of two
 
-    /**
-     * Mapping from object ID to {@link PermazenObject}.
-     *
-     * <p>
-     * As a special case, null values in this map indicate that the corresponding {@link PermazenObject}
-     * is currently under construction by some thread.
-     */
-    @GuardedBy("itself")
-    private final ObjIdMap<ObjRef> cache = new ObjIdMap<>();
+    private final PermazenTransaction ptx;
+    private final Stripe[] stripes = new Stripe[NUM_STRIPES];
 
     /**
      * Mapping of {@link PermazenObject}s currently under construction by the current thread.
@@ -48,6 +47,8 @@ class PermazenObjectCache {
     PermazenObjectCache(PermazenTransaction ptx) {
         this.ptx = ptx;
         assert this.ptx != null;
+        for (int i = 0; i < this.stripes.length; i++)
+            this.stripes[i] = new Stripe();
     }
 
     /**
@@ -63,8 +64,9 @@ class PermazenObjectCache {
         Preconditions.checkArgument(id != null, "null id");
 
         // Check for existing entry
-        synchronized (this.cache) {
-            final ObjRef ref = this.cache.get(id);
+        final Stripe stripe = this.stripeFor(id);
+        synchronized (stripe) {
+            final ObjRef ref = stripe.cache.get(id);
             if (ref != null)
                 return ref.get();
         }
@@ -86,17 +88,15 @@ class PermazenObjectCache {
         Preconditions.checkArgument(id != null, "null id");
 
         // Check for existing entry
+        final Stripe stripe = this.stripeFor(id);
         boolean interrupted = false;
-        synchronized (this.cache) {
+        synchronized (stripe) {
 
             // Check for existing PermazenObject, or null if object is being instantiated
             while (true) {
 
-                // Garbage collect
-                this.gc();
-
                 // Get weak reference
-                final ObjRef ref = this.cache.get(id);
+                final ObjRef ref = stripe.cache.get(id);
                 if (ref != null) {
 
                     // If weak reference still valid, return corresponding PermazenObject
@@ -105,8 +105,8 @@ class PermazenObjectCache {
                         return pobj;
 
                     // The weak reference has been cleared; we will construct a new PermazenObject replacement
-                    // this.cache.remove(id);   // not necessary; see below
-                } else if (this.cache.containsKey(id)) {    // null value indicates object is being instantiated by some thread
+                    // stripe.cache.remove(id);   // not necessary; see below
+                } else if (stripe.cache.containsKey(id)) {  // null value indicates object is being instantiated by some thread
 
                     // Is the current thread the one instantiating the object?
                     final ObjIdMap<PermazenObject> threadInstantiations = this.instantiations.get();
@@ -120,7 +120,7 @@ class PermazenObjectCache {
 
                     // Some other thread is instantiating the object, so wait for it to finish doing so
                     try {
-                        this.cache.wait();
+                        stripe.wait();
                     } catch (InterruptedException e) {
                         interrupted = true;
                     }
@@ -128,7 +128,7 @@ class PermazenObjectCache {
                 }
 
                 // Set a null value in the cache to indicate that some thread (i.e., this one) is instantiating the object
-                this.cache.put(id, null);
+                stripe.cache.put(id, null);
                 break;
             }
         }
@@ -138,18 +138,18 @@ class PermazenObjectCache {
         try {
             pobj = this.createPermazenObject(id);
         } finally {
-            synchronized (this.cache) {
-                assert this.cache.containsKey(id) && this.cache.get(id) == null;
-                this.gc();
+            synchronized (stripe) {
+                assert stripe.cache.containsKey(id) && stripe.cache.get(id) == null;
+                stripe.gc();
 
                 // Add PermazenObject to the cache, or else remove the 'under construction' flag
                 if (pobj != null)
-                    this.cache.put(id, new ObjRef(pobj, this.referenceQueue));
+                    stripe.cache.put(id, new ObjRef(pobj, stripe.referenceQueue));
                 else
-                    this.cache.remove(id);
+                    stripe.cache.remove(id);
 
                 // Wakeup any waiting threads
-                this.cache.notifyAll();
+                stripe.notifyAll();
             }
         }
 
@@ -245,16 +245,38 @@ class PermazenObjectCache {
         return pobj;
     }
 
-    private void gc() {
-        assert Thread.holdsLock(this.cache);
-        while (true) {
-            final ObjRef ref = (ObjRef)this.referenceQueue.poll();
-            if (ref == null)
-                break;
-            assert ref.get() == null;
-            final ObjId id = ref.getObjId();
-            if (this.cache.get(id) == ref)  // avoid race where old reference is cleared after being replaced in the cache
-                this.cache.remove(id);
+    private Stripe stripeFor(ObjId id) {
+        final int hash = id.hashCode();
+        return this.stripes[(hash ^ (hash >>> 16)) & (NUM_STRIPES - 1)];
+    }
+
+// Stripe
+
+    private static class Stripe {
+
+        final ReferenceQueue<PermazenObject> referenceQueue = new ReferenceQueue<>();
+
+        /**
+         * Mapping from object ID to {@link PermazenObject}.
+         *
+         * <p>
+         * As a special case, null values in this map indicate that the corresponding {@link PermazenObject}
+         * is currently under construction by some thread.
+         */
+        @GuardedBy("this")
+        final ObjIdMap<ObjRef> cache = new ObjIdMap<>();
+
+        void gc() {
+            assert Thread.holdsLock(this);
+            while (true) {
+                final ObjRef ref = (ObjRef)this.referenceQueue.poll();
+                if (ref == null)
+                    break;
+                assert ref.get() == null;
+                final ObjId id = ref.getObjId();
+                if (this.cache.get(id) == ref)  // avoid race where old reference is cleared after being replaced in the cache
+                    this.cache.remove(id);
+            }
         }
     }
 
@@ -0,0 +1,242 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import com.google.common.base.Preconditions;
+import com.google.common.math.LongMath;
+
+import io.permazen.core.ObjId;
+import io.permazen.core.StaleTransactionException;
+import io.permazen.util.ConvertedNavigableSet;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A declarative query for objects of some type, executed using indexes.
+ *
+ * <p>
+ * Instances are created via {@link PermazenTransaction#query PermazenTransaction.query()} and configured
+ * by chaining {@link #where where()}, {@link #orderBy orderBy()}, {@link #offset offset()}, and {@link #limit limit()}.
+ * For example:
+ *
+ * <pre><code class="language-java">
+ *  final List&lt;Person&gt; people = ptx.query(Person.class)
+ *    .where(QueryPredicate.eq("lastName", "Smith"))
+ *    .where(QueryPredicate.ge("age", 21))
+ *    .orderBy("age", false)
+ *    .limit(10)
+ *    .asList();
+ * </code></pre>
+ *
+ * <p>
+ * All fields referenced by a query must be indexed. When the query is executed, a plan is chosen based on estimates
+ * of the number of objects matched by each predicate: the index lookups for a conjunction are intersected starting with
+ * the smallest, and an ordered query either scans the ordering field's index in order or sorts the matching objects,
+ * whichever is estimated to be cheaper. Use {@link #explain} to see the chosen plan.
+ *
+ * <p>
+ * Results are ordered by the {@link #orderBy orderBy()} field, if any, and then by object ID.
+ *
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @param <T> query result type
+ * @see QueryPredicate
+ */
+public final class PermazenQuery<T> {
+
+    private final PermazenTransaction ptx;
+    private final Class<T> type;
+
+    private QueryPredicate predicate;
+    private String orderField;
+    private boolean ascending;
+    private long offset;
+    private long limit = -1;
+
+    PermazenQuery(PermazenTransaction ptx, Class<T> type) {
+        Preconditions.checkArgument(ptx != null, "null ptx");
+        Preconditions.checkArgument(type != null, "null type");
+        this.ptx = ptx;
+        this.type = type;
+    }
+
+// Configuration
+
+    /**
+     * Restrict the results of this query to objects matching the given predicate.
+     *
+     * <p>
+     * If this method is invoked more than once, objects must match all of the given predicates.
+     *
+     * @param predicate predicate to match
+     * @return this instance
+     * @throws IllegalArgumentException if {@code predicate} is null
+     */
+    public PermazenQuery<T> where(QueryPredicate predicate) {
+        Preconditions.checkArgument(predicate != null, "null predicate");
+        this.predicate = this.predicate != null ? QueryPredicate.and(this.predicate, predicate) : predicate;
+        return this;
+    }
+
+    /**
+     * Order the results of this query by the given field.
+     *
+     * <p>
+     * Objects with equal values are ordered by object ID. Null values sort last (or first, if descending).
+     * Objects that don't have the field are omitted from the results.
+     *
+     * @param fieldName name of an indexed simple field, which must not be a sub-field of a complex field
+     * @param ascending true for ascending order, false for descending
+     * @return this instance
+     * @throws IllegalArgumentException if {@code fieldName} is null
+     */
+    public PermazenQuery<T> orderBy(String fieldName, boolean ascending) {
+        Preconditions.checkArgument(fieldName != null, "null fieldName");
+        this.orderField = fieldName;
+        this.ascending = ascending;
+        return this;
+    }
+
+    /**
+     * Skip the given number of results.
+     *
+     * @param offset number of results to skip
+     * @return this instance
+     * @throws IllegalArgumentException if {@code offset} is negative
+     */
+    public PermazenQuery<T> offset(long offset) {
+        Preconditions.checkArgument(offset >= 0, "invalid offset");
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Limit the number of results.
+     *
+     * @param limit maximum number of results
+     * @return this instance
+     * @throws IllegalArgumentException if {@code limit} is negative
+     */
+    public PermazenQuery<T> limit(long limit) {
+        Preconditions.checkArgument(limit >= 0, "invalid limit");
+        this.limit = limit;
+        return this;
+    }
+
+// Execution
+
+    /**
+     * Execute this query and return the results as a {@link NavigableSet} sorted by object ID.
+     *
+     * <p>
+     * The returned set is a read-only, real-time view; it is only available for queries
+     * without an {@link #orderBy orderBy()}, {@link #offset offset()}, or {@link #limit limit()}.
+     *
+     * @return matching objects
+     * @throws IllegalStateException if this query has an ordering, offset, or limit
+     * @throws IllegalArgumentException if a predicate refers to an unknown or non-indexed field, or has an invalid value
+     * @throws StaleTransactionException if the associated transaction is no longer usable
+     */
+    public NavigableSet<T> asSet() {
+        Preconditions.checkState(this.orderField == null && this.offset == 0 && this.limit == -1,
+          "query has an ordering, offset, or limit");
+        this.checkTransaction();
+        final NavigableSet<ObjId> ids = this.newPlanner().plan(this.predicate).execute();
+        return new ConvertedNavigableSet<T, ObjId>(ids, new ReferenceConverter<T>(this.ptx, this.type));
+    }
+
+    /**
+     * Execute this query and return the results as a {@link Stream}.
+     *
+     * @return matching objects
+     * @throws IllegalArgumentException if a predicate refers to an unknown or non-indexed field, or has an invalid value
+     * @throws StaleTransactionException if the associated transaction is no longer usable
+     */
+    public Stream<T> stream() {
+        this.checkTransaction();
+        final QueryPlanner planner = this.newPlanner();
+        Stream<ObjId> ids = this.orderField != null ?
+          planner.planOrdered(this.predicate, this.orderField, this.ascending, this.getNeeded()).execute() :
+          planner.plan(this.predicate).execute().stream();
+        if (this.offset > 0)
+            ids = ids.skip(this.offset);
+        if (this.limit >= 0)
+            ids = ids.limit(this.limit);
+        final ReferenceConverter<T> converter = new ReferenceConverter<>(this.ptx, this.type);
+        return ids.map(converter.reverse());
+    }
+
+    /**
+     * Execute this query and return the results as a {@link List}.
+     *
+     * @return matching objects
+     * @throws IllegalArgumentException if a predicate refers to an unknown or non-indexed field, or has an invalid value
+     * @throws StaleTransactionException if the associated transaction is no longer usable
+     */
+    public List<T> asList() {
+        try (Stream<T> stream = this.stream()) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Describe the plan that would be used to execute this query.
+     *
+     * @return human-readable description of the query plan
+     * @throws IllegalArgumentException if a predicate refers to an unknown or non-indexed field, or has an invalid value
+     * @throws StaleTransactionException if the associated transaction is no longer usable
+     */
+    public String explain() {
+        this.checkTransaction();
+        final QueryPlanner planner = this.newPlanner();
+        final StringBuilder buf = new StringBuilder();
+        int depth = 0;
+        if (this.offset > 0 || this.limit >= 0) {
+            buf.append("offset ").append(this.offset);
+            if (this.limit >= 0)
+                buf.append(" limit ").append(this.limit);
+            buf.append('\n');
+            depth++;
+        }
+        if (this.orderField != null)
+            planner.planOrdered(this.predicate, this.orderField, this.ascending, this.getNeeded()).describe(buf, depth);
+        else
+            planner.plan(this.predicate).describe(buf, depth);
+        return buf.toString();
+    }
+
+// Object
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName()
+          + "[type=" + this.type.getName()
+          + (this.predicate != null ? ",where=" + this.predicate : "")
+          + (this.orderField != null ? ",orderBy=" + this.orderField + (this.ascending ? "" : " desc") : "")
+          + (this.offset > 0 ? ",offset=" + this.offset : "")
+          + (this.limit >= 0 ? ",limit=" + this.limit : "")
+          + "]";
+    }
+
+// Internal methods
+
+    private QueryPlanner newPlanner() {
+        return new QueryPlanner(this.ptx, this.type);
+    }
+
+    private long getNeeded() {
+        return this.limit >= 0 ? LongMath.saturatedAdd(this.offset, this.limit) : -1;
+    }
+
+    private void checkTransaction() {
+        if (!this.ptx.tx.isOpen())
+            throw new StaleTransactionException(this.ptx.tx);
+    }
+}
@@ -41,6 +41,7 @@ public class PermazenSimpleField extends PermazenField {
     final boolean indexed;
     final boolean unique;
     final ValueMatch<?> uniqueExcludes;
+    final ValueMatch<?> indexExcludes;
     final UpgradeConversionPolicy upgradeConversion;
     final Method setter;
 
@@ -59,6 +60,7 @@ public class PermazenSimpleField extends PermazenField {
         this.setter = setter;
         this.upgradeConversion = annotation.upgradeConversion();
         this.uniqueExcludes = this.parseValues(annotation.uniqueExcludes(), "uniqueExcludes");
+        this.indexExcludes = this.parseValues(annotation.indexExcludes(), "indexExcludes");
     }
 
     // Parse @Values annotation, if not empty
@@ -218,6 +220,8 @@ public class PermazenSimpleField extends PermazenField {
             return false;
         if (this.unique != that.unique)
             return false;
+        if (!(Objects.equals(this.indexExcludes, that.indexExcludes)))
+            return false;
         if (!(Objects.equals(this.uniqueExcludes, that.uniqueExcludes)))
             return false;
         if (!this.upgradeConversion.equals(that.upgradeConversion))
@@ -234,6 +238,8 @@ public class PermazenSimpleField extends PermazenField {
         if (!schemaField.hasFixedEncoding())
             schemaField.setEncodingId(this.encoding.getEncodingId());
         schemaField.setIndexed(this.indexed);
+        if (this.indexExcludes != null)
+            this.indexExcludes.applyIndexExcludes(schemaField);
         return schemaField;
     }
 
@@ -458,7 +464,7 @@ public class PermazenSimpleField extends PermazenField {
 
     void outputReadCoreValueBytecode(ClassGenerator<?> generator, MethodVisitor mv) {
 
-        // this.$tx.getTransaction().readSimpleField(this.id, NAME, true)
+        // this.$tx.getTransaction().readSimpleField(this.id, $handle_NAME, true)
         mv.visitVarInsn(Opcodes.ALOAD, 0);
         mv.visitFieldInsn(Opcodes.GETFIELD, generator.getClassName(),
           ClassGenerator.TX_FIELD_NAME, Type.getDescriptor(PermazenTransaction.class));
@@ -466,7 +472,7 @@ public class PermazenSimpleField extends PermazenField {
         mv.visitVarInsn(Opcodes.ALOAD, 0);
         mv.visitFieldInsn(Opcodes.GETFIELD, generator.getClassName(),
           ClassGenerator.ID_FIELD_NAME, Type.getDescriptor(ObjId.class));
-        mv.visitLdcInsn(this.name);
+        generator.emitLoadFieldHandle(mv, this);
         mv.visitInsn(Opcodes.ICONST_1);
         generator.emitInvoke(mv, ClassGenerator.TRANSACTION_READ_SIMPLE_FIELD_METHOD);
     }
@@ -477,7 +483,7 @@ public class PermazenSimpleField extends PermazenField {
         mv.visitVarInsn(Opcodes.ALOAD, 0);
         generator.emitInvoke(mv, ClassGenerator.PERMAZEN_TRANSACTION_REGISTER_PERMAZEN_OBJECT_METHOD);
 
-        // this.$tx.getTransaction().writeSimpleField(this.id, NAME, STACK[0], true)
+        // this.$tx.getTransaction().writeSimpleField(this.id, $handle_NAME, STACK[0], true)
         mv.visitVarInsn(Opcodes.ALOAD, 0);
         mv.visitFieldInsn(Opcodes.GETFIELD, generator.getClassName(),
           ClassGenerator.TX_FIELD_NAME, Type.getDescriptor(PermazenTransaction.class));
@@ -487,7 +493,7 @@ public class PermazenSimpleField extends PermazenField {
         mv.visitFieldInsn(Opcodes.GETFIELD, generator.getClassName(),
           ClassGenerator.ID_FIELD_NAME, Type.getDescriptor(ObjId.class));
         mv.visitInsn(Opcodes.SWAP);
-        mv.visitLdcInsn(this.name);
+        generator.emitLoadFieldHandle(mv, this);
         mv.visitInsn(Opcodes.SWAP);
         mv.visitInsn(Opcodes.ICONST_1);
         generator.emitInvoke(mv, ClassGenerator.TRANSACTION_WRITE_SIMPLE_FIELD_METHOD);
@@ -27,6 +27,8 @@ import io.permazen.core.DeletedObjectException;
 import io.permazen.core.EnumValue;
 import io.permazen.core.Field;
 import io.permazen.core.FieldSwitch;
+import io.permazen.core.IncludedValuesMap;
+import io.permazen.core.IndexStatistics;
 import io.permazen.core.ListField;
 import io.permazen.core.MapField;
 import io.permazen.core.ObjId;
@@ -56,9 +58,7 @@ import io.permazen.kv.KVTransaction;
 import io.permazen.kv.KeyRanges;
 import io.permazen.kv.util.AbstractKVNavigableSet;
 import io.permazen.schema.SchemaId;
-import io.permazen.tuple.Tuple2;
-import io.permazen.tuple.Tuple3;
-import io.permazen.tuple.Tuple4;
+import io.permazen.tuple.Tuple;
 import io.permazen.util.ByteData;
 import io.permazen.util.CloseableIterator;
 import io.permazen.util.ConvertedNavigableMap;
@@ -82,6 +82,7 @@ import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -164,6 +165,8 @@ import org.slf4j.LoggerFactory;
  *      - Access a composite index defined on three fields</li>
  *  <li>{@link #queryCompositeIndex(Class, String, Class, Class, Class, Class) queryCompositeIndex()}
  *      - Access a composite index defined on four fields</li>
+ *  <li>{@link #queryCompositeIndexIncludedValues queryCompositeIndexIncludedValues()}
+ *      - Access the included field values stored in a composite index</li>
  *  <!-- COMPOSITE-INDEX -->
  *  <li>{@link #querySchemaIndex querySchemaIndex()} - Get database objects grouped by schema</li>
  * </ul>
@@ -194,6 +197,8 @@ import org.slf4j.LoggerFactory;
  *  <li>{@link PermazenField#getKey(PermazenObject) PermazenField.getKey()} - Get the {@link KVDatabase} key for one field
  *      in an object</li>
  *  <li>{@link #withWeakConsistency withWeakConsistency()} - Perform an operation with weaker transaction consistency</li>
+ *  <li>{@link #withBlindCollectionWrites withBlindCollectionWrites()} - Perform an operation with read-free
+ *      set and map field mutations</li>
  * </ul>
  *
  * <p>
@@ -230,7 +235,6 @@ public class PermazenTransaction {
     private static final ThreadLocal<PermazenTransaction> CURRENT = new ThreadLocal<>();
     private static final Class<?>[] DEFAULT_CLASS_ARRAY = { Default.class };
     private static final Class<?>[] DEFAULT_AND_UNIQUENESS_CLASS_ARRAY = { Default.class, UniquenessConstraints.class };
-    private static final int MAX_UNIQUE_CONFLICTORS = 5;
 
     final Logger log = LoggerFactory.getLogger(this.getClass());
 
@@ -241,6 +245,8 @@ public class PermazenTransaction {
     private final ValidationMode validationMode;
     @GuardedBy("this")
     private final ObjIdMap<Class<?>[]> validationQueue = new ObjIdMap<>();  // maps object -> groups for pending validation
+    @GuardedBy("this")
+    private final ObjIdMap<Set<Integer>> validationFields = new ObjIdMap<>();   // changed fields; only if no full validation needed
     private final PermazenObjectCache pobjectCache = new PermazenObjectCache(this);
 
     @GuardedBy("this")
@@ -1039,6 +1045,7 @@ public class PermazenTransaction {
         if (deleted) {
             synchronized (this) {
                 this.validationQueue.remove(id);
+                this.validationFields.remove(id);
             }
         }
 
@@ -1113,9 +1120,15 @@ public class PermazenTransaction {
         if (!this.tx.isOpen())
             throw new StaleTransactionException(this.tx);
         this.validationQueue.clear();
+        this.validationFields.clear();
     }
 
     private synchronized void revalidate(Collection<? extends ObjId> ids, Class<?>... groups) {
+        this.revalidate(ids, 0, groups);
+    }
+
+    // If fieldStorageId is non-zero, then only the constraints involving that field need to be revalidated
+    private synchronized void revalidate(Collection<? extends ObjId> ids, int fieldStorageId, Class<?>... groups) {
 
         // Sanity checks
         if (!this.tx.isOpen())
@@ -1135,8 +1148,22 @@ public class PermazenTransaction {
             final Class<?>[] existingGroups = this.validationQueue.get(id);
             if (existingGroups == null) {
                 this.validationQueue.put(id, groups);
+                if (fieldStorageId != 0) {
+                    final HashSet<Integer> fields = new HashSet<>(4);
+                    fields.add(fieldStorageId);
+                    this.validationFields.put(id, fields);
+                }
                 continue;
             }
+
+            // Update changed fields, unless full validation is already required
+            final Set<Integer> fields = this.validationFields.get(id);
+            if (fields != null) {
+                if (fieldStorageId != 0)
+                    fields.add(fieldStorageId);
+                else
+                    this.validationFields.remove(id);
+            }
             if (existingGroups == groups)                                       // i.e., both are DEFAULT_CLASS_ARRAY
                 continue;
             final HashSet<Class<?>> newGroups = new HashSet<>(Arrays.asList(existingGroups));
@@ -1392,6 +1419,23 @@ public class PermazenTransaction {
 
 // Index Access
 
+    /**
+     * Create a new index-backed query for objects of the given type.
+     *
+     * <p>
+     * The returned query is configured by chaining method calls, and is not executed until one of its
+     * result methods (e.g., {@link PermazenQuery#asList}) is invoked. See {@link PermazenQuery} for details.
+     *
+     * @param type type of object to find; may also be any super-type (e.g., an interface type)
+     * @param <T> query result type
+     * @return new query
+     * @throws IllegalArgumentException if {@code type} is null
+     * @see QueryPredicate
+     */
+    public <T> PermazenQuery<T> query(Class<T> type) {
+        return new PermazenQuery<>(this, type);
+    }
+
     /**
      * Get the index on a simple field. The simple field may be a sub-field of a complex field.
      *
@@ -1579,6 +1623,92 @@ public class PermazenTransaction {
 
     // COMPOSITE-INDEX
 
+    /**
+     * Access the {@linkplain io.permazen.annotation.PermazenCompositeIndex#includedFields included field} values
+     * stored in a composite index.
+     *
+     * <p>
+     * The returned map's keys are {@link Tuple}s containing the indexed field values followed by the target object,
+     * e.g., {@link io.permazen.tuple.Tuple3}s for an index on two fields; its values are lists containing the included
+     * field values, in the order they were declared. Because the included values are read directly from the index,
+     * objects do not need to be loaded; this is the main benefit of declaring included fields.
+     *
+     * <p>
+     * Optional {@code values} restrict the map to entries whose leading indexed field values equal the given values.
+     *
+     * @param targetType type containing the indexed fields; may also be any super-type (e.g., an interface type)
+     * @param indexName the name of the composite index
+     * @param values zero or more leading indexed field values to match
+     * @param <T> Java type containing the indexed fields
+     * @return read-only, real-time view of the index entries and their included field values
+     * @throws IllegalArgumentException if any parameter is null, or invalid
+     * @throws IllegalArgumentException if the index has no included fields
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @see io.permazen.core.IncludedValuesMap
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public <T> NavigableMap<Tuple, List<Object>> queryCompositeIndexIncludedValues(Class<T> targetType,
+      String indexName, Object... values) {
+        Preconditions.checkArgument(targetType != null, "null targetType");
+        Preconditions.checkArgument(indexName != null, "null indexName");
+        Preconditions.checkArgument(values != null, "null values");
+        if (!this.tx.isOpen())
+            throw new StaleTransactionException(this.tx);
+
+        // Find the index so we know its value types
+        final PermazenCompositeIndex pindex0 = this.pdb.getPermazenClasses(targetType).stream()
+          .map(pclass -> pclass.jcompositeIndexesByName.get(indexName))
+          .filter(Objects::nonNull)
+          .findFirst()
+          .orElseThrow(() -> new IllegalArgumentException(String.format(
+            "no composite index named \"%s\" exists on any sub-type of %s", indexName, targetType.getName())));
+        final Class<?>[] valueTypes = pindex0.pfields.stream()
+          .map(pfield -> pfield.getTypeToken().wrap().getRawType())
+          .toArray(Class<?>[]::new);
+
+        // Query the index
+        final IndexQuery info = this.pdb.getIndexQuery(new IndexQuery.Key(indexName, true, targetType, valueTypes));
+        final PermazenCompositeIndex pindex = (PermazenCompositeIndex)info.schemaItem;
+        Preconditions.checkArgument(!pindex.includedPFields.isEmpty(),
+          String.format("composite index \"%s\" has no included fields", indexName));
+        Preconditions.checkArgument(values.length <= pindex.pfields.size(), "too many values");
+        final IncludedValuesMap map = info.applyFilters(this.tx.queryCompositeIndexIncludedValues(pindex.storageId));
+
+        // Build key converters
+        final ArrayList<Converter> keyConverters = new ArrayList<>(pindex.pfields.size() + 1);
+        pindex.pfields.forEach(pfield -> keyConverters.add(Util.reverse(pfield.getConverter(this))));
+        keyConverters.add(new ReferenceConverter<T>(this, targetType));
+        final Converter keyConverter;
+        switch (keyConverters.size()) {
+        case 3:
+            keyConverter = new Tuple3Converter(keyConverters.get(0), keyConverters.get(1), keyConverters.get(2));
+            break;
+        case 4:
+            keyConverter = new Tuple4Converter(keyConverters.get(0), keyConverters.get(1), keyConverters.get(2),
+              keyConverters.get(3));
+            break;
+        case 5:
+            keyConverter = new Tuple5Converter(keyConverters.get(0), keyConverters.get(1), keyConverters.get(2),
+              keyConverters.get(3), keyConverters.get(4));
+            break;
+        // COMPOSITE-INDEX
+        default:
+            throw new RuntimeException("internal error");
+        }
+
+        // Build included values converter
+        final ArrayList<Converter<Object, Object>> valueConverters = new ArrayList<>(pindex.includedPFields.size());
+        pindex.includedPFields.forEach(pfield -> valueConverters.add((Converter)Util.reverse(pfield.getConverter(this))));
+
+        // Restrict to the given leading values
+        final Object[] coreValues = new Object[values.length];
+        for (int i = 0; i < values.length; i++)
+            coreValues[i] = keyConverters.get(i).convert(values[i]);
+
+        // Build converted map
+        return new ConvertedNavigableMap(map.withValues(coreValues), keyConverter, new IncludedValuesConverter(valueConverters));
+    }
+
     /**
      * Query an index by storage ID. For storage ID's corresponding to simple fields, this method returns an
      * {@link Index}, except for list element and map value fields, for which an {@link Index2} is returned.
@@ -1601,11 +1731,7 @@ public class PermazenTransaction {
             throw new StaleTransactionException(this.tx);
 
         // Find index
-        final PermazenSchemaItem schemaItem = this.pdb.indexesByStorageId.get(storageId);
-        if (schemaItem == null) {
-            throw new IllegalArgumentException(String.format(
-              "no composite index or simple indexed field exists with storage ID %d", storageId));
-        }
+        final PermazenSchemaItem schemaItem = this.getIndexSchemaItem(storageId);
 
         // Handle a composite index
         if (schemaItem instanceof PermazenCompositeIndex) {
@@ -1645,6 +1771,69 @@ public class PermazenTransaction {
         return ((PermazenSimpleField)schemaItem).getIndex(this);
     }
 
+    /**
+     * Get the most recently gathered statistics for an index.
+     *
+     * <p>
+     * Index statistics are not maintained automatically; they reflect the state of the index as of the most recent
+     * invocation of {@link #updateIndexStatistics(int) updateIndexStatistics()} for the index. When available, they are
+     * used by {@link #query query()} to choose among query plans.
+     *
+     * @param storageId indexed {@link PermazenSimpleField}'s or {@link PermazenCompositeIndex}'s storage ID
+     * @return index statistics, or null if none have been gathered
+     * @throws IllegalArgumentException if {@code storageId} does not correspond to an indexed field or composite index
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @see Transaction#getIndexStatistics
+     */
+    public IndexStatistics getIndexStatistics(int storageId) {
+        if (!this.tx.isOpen())
+            throw new StaleTransactionException(this.tx);
+        return this.tx.getIndexStatistics(this.getIndexSchemaItem(storageId).storageId);
+    }
+
+    /**
+     * Gather and record statistics for an index.
+     *
+     * <p>
+     * This scans the entire index, so it may be expensive for large indexes.
+     *
+     * @param storageId indexed {@link PermazenSimpleField}'s or {@link PermazenCompositeIndex}'s storage ID
+     * @return updated index statistics
+     * @throws IllegalArgumentException if {@code storageId} does not correspond to an indexed field or composite index
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @see Transaction#updateIndexStatistics(int)
+     */
+    public IndexStatistics updateIndexStatistics(int storageId) {
+        if (!this.tx.isOpen())
+            throw new StaleTransactionException(this.tx);
+        return this.tx.updateIndexStatistics(this.getIndexSchemaItem(storageId).storageId);
+    }
+
+    /**
+     * Gather and record statistics for all indexed fields and composite indexes in this transaction's {@link Permazen}.
+     *
+     * @return mapping from storage ID to updated index statistics
+     * @throws StaleTransactionException if this transaction is no longer usable
+     * @see #updateIndexStatistics(int)
+     */
+    public NavigableMap<Integer, IndexStatistics> updateIndexStatistics() {
+        if (!this.tx.isOpen())
+            throw new StaleTransactionException(this.tx);
+        final TreeMap<Integer, IndexStatistics> map = new TreeMap<>();
+        for (int storageId : this.pdb.indexesByStorageId.keySet())
+            map.put(storageId, this.tx.updateIndexStatistics(storageId));
+        return map;
+    }
+
+    private PermazenSchemaItem getIndexSchemaItem(int storageId) {
+        final PermazenSchemaItem schemaItem = this.pdb.indexesByStorageId.get(storageId);
+        if (schemaItem == null) {
+            throw new IllegalArgumentException(String.format(
+              "no composite index or simple indexed field exists with storage ID %d", storageId));
+        }
+        return schemaItem;
+    }
+
 // Transaction Lifecycle
 
     /**
@@ -1806,175 +1995,213 @@ public class PermazenTransaction {
         this.tx.withWeakConsistency(action);
     }
 
+    /**
+     * Perform the given action with "blind" (read-free) set and map field mutations enabled.
+     *
+     * <p>
+     * In this mode, adding or removing set elements and map entries writes the corresponding content and index keys
+     * without first reading them, so transactions that only add distinct members to the same collection do not conflict.
+     * Return values from those operations are computed from reads having {@linkplain #withWeakConsistency weak consistency}
+     * and so are only advisory. Fields with registered listeners, and maps whose values are indexed, are always mutated
+     * normally.
+     *
+     * <p>
+     * The mode is only applied for the current thread, and it ends when this method returns.
+     *
+     * @param action the action to perform
+     * @throws IllegalArgumentException if {@code action} is null
+     * @see Transaction#withBlindCollectionWrites
+     */
+    public void withBlindCollectionWrites(Runnable action) {
+        this.tx.withBlindCollectionWrites(action);
+    }
+
 // Internal methods
 
-    @SuppressWarnings("unchecked")
     private void doValidate() {
         final ValidatorFactory validatorFactory = this.pdb.validatorFactory;
         final Validator validator = validatorFactory != null ? validatorFactory.getValidator() : null;
+        final UniquenessChecker uniquenessChecker = new UniquenessChecker(this);
         while (true) {
 
-            // Pop next object to validate off the queue
-            final ObjId id;
-            final Class<?>[] validationGroups;
+            // Pop all objects currently in the queue; objects enqueued during validation are handled in the next round
+            final ArrayList<PendingValidation> round = new ArrayList<>();
             synchronized (this) {
-                final Map.Entry<ObjId, Class<?>[]> entry = this.validationQueue.removeOne();
-                if (entry == null)
-                    return;
-                id = entry.getKey();
-                validationGroups = entry.getValue();
-                assert id != null;
-                assert validationGroups != null;
+                Map.Entry<ObjId, Class<?>[]> entry;
+                while ((entry = this.validationQueue.removeOne()) != null) {
+                    final ObjId id = entry.getKey();
+                    final Class<?>[] validationGroups = entry.getValue();
+                    final Set<Integer> changedFields = this.validationFields.remove(id);
+                    assert id != null;
+                    assert validationGroups != null;
+                    assert changedFields == null || validationGroups == DEFAULT_CLASS_ARRAY;
+                    round.add(new PendingValidation(id, validationGroups, changedFields));
+                }
             }
-
-            // Does the object still exist?
-            if (!this.tx.exists(id))
-                continue;
-
-            // Get object and verify type exists in current schema (if not, the remaining validation is unneccessary)
-            final PermazenObject pobj = this.get(id);
-            final PermazenClass<?> pclass = this.pdb.pclassesByStorageId.get(id.getStorageId());
-            if (pclass == null)
+            if (round.isEmpty())
                 return;
+            try {
+                this.validateRound(round, validator, uniquenessChecker);
+            } catch (RuntimeException | Error e) {
+
+                // Put back objects not yet validated (other than the failed object) so they get checked by the next validate()
+                final ObjId failedId = e instanceof ValidationException ? ((ValidationException)e).getObject().getObjId() : null;
+                for (PendingValidation pending : round) {
+                    if (!pending.finished && !pending.id.equals(failedId))
+                        this.requeue(pending);
+                }
+                throw e;
+            }
+        }
+    }
 
-            // Do early @OnValidate method validation, bailing out if an @OnValidate method deletes the object
-            if (!this.doOnValidate(pclass.earlyOnValidateMethods, pobj, validationGroups))
-                continue;
+    // Validate a round of objects popped off the validation queue. If validation fails, the failure reported is the
+    // same one that validating the objects one at a time, in queue order, would have found first.
+    private void validateRound(List<PendingValidation> round, Validator validator, UniquenessChecker uniquenessChecker) {
 
-            // Do singleton validation
-            if (pclass.singleton) {
-                final AbstractKVNavigableSet<ObjId> ids = (AbstractKVNavigableSet<ObjId>)this.tx.getAll(pclass.name);
-                try (CloseableIterator<ObjId> i = ids.iterator()) {
-                    while (i.hasNext()) {
-                        final ObjId id2 = i.next();
-                        if (id2.equals(id))
-                            continue;
-                        throw new ValidationException(pobj, String.format(
-                          "singleton constraint on type \"%s\" failed for object %s: object %s also exists",
-                          pclass.name, id, id2));
-                    }
-                }
+        // Do per-object validation, deferring uniqueness checks so they can be batched by index
+        for (int i = 0; i < round.size(); i++) {
+            final PendingValidation pending = round.get(i);
+            try {
+                this.validateObject(pending, validator, uniquenessChecker);
+            } catch (RuntimeException | Error e) {
+
+                // A failure in the remaining validation of an earlier object would have been found first
+                this.finishValidation(round.subList(0, i), uniquenessChecker);
+                pending.finished = true;
+                throw e;
             }
+        }
 
-            // Do JSR 303 validation (if any)
-            if (validator != null && pclass.elementRequiringJSR303Validation != null) {
-
-                // Run validator
-                final Set<ConstraintViolation<PermazenObject>> violations;
-                try {
-                    violations = new ValidationContext<PermazenObject>(pobj, validationGroups).validate(validator);
-                } catch (RuntimeException e) {
-                    final Throwable rootCause = Throwables.getRootCause(e);
-                    if (rootCause instanceof KVDatabaseException)
-                        throw (KVDatabaseException)rootCause;
-                    throw e;
-                }
-                if (!violations.isEmpty()) {
-                    throw new ValidationException(pobj, violations, String.format(
-                      "validation error for object %s of type \"%s\":%n%s",
-                      id, pclass.name, ValidationUtil.describe(violations)));
-                }
+        // Do the remaining validation of all objects
+        this.finishValidation(round, uniquenessChecker);
+    }
 
-                // It's posible (though unlikely) that a JSR 303 validation could have deleted the object, so check for that
-                if (!this.tx.exists(id))
-                    continue;
+    // Do uniqueness and late @OnValidate validation of objects that have passed all other validation, in queue order
+    private void finishValidation(List<PendingValidation> pendings, UniquenessChecker uniquenessChecker) {
+
+        // Do simple and composite field uniqueness validation, one sorted pass per index
+        final ValidationException uniquenessViolation = uniquenessChecker.check();
+        final ObjId violatorId = uniquenessViolation != null ? uniquenessViolation.getObject().getObjId() : null;
+
+        // Do late @OnValidate method validation of the objects preceding the uniqueness violator (if any)
+        for (PendingValidation pending : pendings) {
+            try {
+                if (pending.id.equals(violatorId))
+                    throw uniquenessViolation;
+                if (pending.pclass != null && this.tx.exists(pending.id))
+                    this.doOnValidate(pending.pclass.lateOnValidateMethods, this.get(pending.id), pending.validationGroups);
+            } finally {
+                pending.finished = true;
             }
+        }
+        assert uniquenessViolation == null;
+    }
 
-            // Do simple and composite field uniqueness validation
-            if ((!pclass.uniqueConstraintFields.isEmpty() || !pclass.uniqueConstraintCompositeIndexes.isEmpty())
-              && Util.isAnyGroupBeingValidated(DEFAULT_AND_UNIQUENESS_CLASS_ARRAY, validationGroups)) {
+    // Validate a single object, except for uniqueness constraints which are added to the given checker
+    @SuppressWarnings("unchecked")
+    private void validateObject(PendingValidation pending, Validator validator, UniquenessChecker uniquenessChecker) {
+        final ObjId id = pending.id;
+        final Class<?>[] validationGroups = pending.validationGroups;
 
-                // Check simple index uniqueness constraints
-                for (PermazenSimpleField pfield : pclass.uniqueConstraintFields) {
-                    assert pfield.indexed;
-                    assert pfield.unique;
+        // Does the object still exist?
+        if (!this.tx.exists(id))
+            return;
 
-                    // Get field's (core API) value
-                    final Object value = this.tx.readSimpleField(id, pfield.name, false);
+        // Get object and verify type exists in current schema (if not, the remaining validation is unneccessary)
+        final PermazenObject pobj = this.get(id);
+        final PermazenClass<?> pclass = this.pdb.pclassesByStorageId.get(id.getStorageId());
+        if (pclass == null)
+            return;
+        pending.pclass = pclass;
 
-                    // Is this value excluded from the uniqueness constraint?
-                    if (pfield.uniqueExcludes != null && pfield.uniqueExcludes.matches(value))
-                        continue;
+        // If only some fields changed, limit validation to the constraints involving those fields, if possible
+        final Set<Integer> fieldFilter = pclass.fieldLevelValidation ? pending.changedFields : null;
 
-                    // Query core API index to find other objects with the same value in the field, but restrict the search to
-                    // only include those types having the annotated method, not some other method with the same name/storage ID.
-                    final IndexQuery info = this.pdb.getIndexQuery(new IndexQuery.Key(pfield));
-                    final CoreIndex1<?, ObjId> index = info.applyFilters(this.tx.querySimpleIndex(pfield.storageId));
-
-                    // Seach for other objects with the same value in the field and report violation if any are found
-                    final List<ObjId> conflictors = this.findUniqueConflictors(id, index.asMap().get(value));
-                    if (!conflictors.isEmpty()) {
-                        throw new ValidationException(pobj, String.format(
-                          "uniqueness constraint on %s failed for object %s: field value %s is also shared by object(s) %s",
-                          pfield, id, value, conflictors));
-                    }
+        // Do early @OnValidate method validation, bailing out if an @OnValidate method deletes the object
+        if (!this.doOnValidate(pclass.earlyOnValidateMethods, pobj, validationGroups))
+            return;
+
+        // Do singleton validation (no field change can cause a singleton violation)
+        if (pclass.singleton && fieldFilter == null) {
+            final AbstractKVNavigableSet<ObjId> ids = (AbstractKVNavigableSet<ObjId>)this.tx.getAll(pclass.name);
+            try (CloseableIterator<ObjId> i = ids.iterator()) {
+                while (i.hasNext()) {
+                    final ObjId id2 = i.next();
+                    if (id2.equals(id))
+                        continue;
+                    throw new ValidationException(pobj, String.format(
+                      "singleton constraint on type \"%s\" failed for object %s: object %s also exists",
+                      pclass.name, id, id2));
                 }
+            }
+        }
 
-                // Check composite index uniqueness constraints
-            compositeIndexUniqueLoop:
-                for (PermazenCompositeIndex pindex : pclass.uniqueConstraintCompositeIndexes) {
-                    assert pindex.unique;
-
-                    // Get field (core API) values
-                    final int numFields = pindex.pfields.size();
-                    final List<Object> values = new ArrayList<>(numFields);
-                    for (PermazenSimpleField pfield : pindex.pfields)
-                        values.add(this.tx.readSimpleField(id, pfield.name, false));
-
-                    // Is this combination of values excluded from the uniqueness constraint?
-                    for (List<ValueMatch<?>> fieldMatches : pindex.uniqueExcludes) {
-                        boolean allFieldsMatched = true;
-                        for (int i = 0; i < numFields; i++) {
-                            if (!fieldMatches.get(i).matches(values.get(i))) {
-                                allFieldsMatched = false;
-                                break;
-                            }
-                        }
-                        if (allFieldsMatched)
-                            continue compositeIndexUniqueLoop;
-                    }
+        // Do JSR 303 validation (if any)
+        if (validator != null && pclass.elementRequiringJSR303Validation != null) {
 
-                    // Query core API index to find all objects with the same values in the fields
-                    final IndexQuery info = this.pdb.getIndexQuery(new IndexQuery.Key(pindex));
-                    final PermazenCompositeIndex index = (PermazenCompositeIndex)info.schemaItem;
-                    final NavigableSet<ObjId> ids;
-                    switch (numFields) {
-                    case 2:
-                        final CoreIndex2<Object, Object, ObjId> coreIndex2
-                          = (CoreIndex2<Object, Object, ObjId>)this.tx.queryCompositeIndex2(index.storageId);
-                        ids = info.applyFilters(coreIndex2).asMap().get(new Tuple2<Object, Object>(values.get(0), values.get(1)));
-                        break;
-                    case 3:
-                        final CoreIndex3<Object, Object, Object, ObjId> coreIndex3
-                          = (CoreIndex3<Object, Object, Object, ObjId>)this.tx.queryCompositeIndex3(index.storageId);
-                        ids = info.applyFilters(coreIndex3).asMap().get(
-                          new Tuple3<Object, Object, Object>(values.get(0), values.get(1), values.get(2)));
-                        break;
-                    case 4:
-                        final CoreIndex4<Object, Object, Object, Object, ObjId> coreIndex4
-                          = (CoreIndex4<Object, Object, Object, Object, ObjId>)this.tx.queryCompositeIndex4(index.storageId);
-                        ids = info.applyFilters(coreIndex4).asMap().get(
-                          new Tuple4<Object, Object, Object, Object>(values.get(0), values.get(1), values.get(2), values.get(3)));
-                        break;
-                    // COMPOSITE-INDEX
-                    default:
-                        throw new RuntimeException("internal error");
-                    }
+            // Run validator
+            final Set<ConstraintViolation<PermazenObject>> violations;
+            try {
+                final ValidationContext<PermazenObject> context = new ValidationContext<>(pobj, validationGroups);
+                violations = fieldFilter != null ?
+                  this.validateProperties(context, validator, pclass, fieldFilter) : context.validate(validator);
+            } catch (RuntimeException e) {
+                final Throwable rootCause = Throwables.getRootCause(e);
+                if (rootCause instanceof KVDatabaseException)
+                    throw (KVDatabaseException)rootCause;
+                throw e;
+            }
+            if (!violations.isEmpty()) {
+                throw new ValidationException(pobj, violations, String.format(
+                  "validation error for object %s of type \"%s\":%n%s",
+                  id, pclass.name, ValidationUtil.describe(violations)));
+            }
 
-                    // Seach for other objects with the same values in the same fields and report violation if any are found
-                    final List<ObjId> conflictors = this.findUniqueConflictors(id, ids);
-                    if (!conflictors.isEmpty()) {
-                        throw new ValidationException(pobj, String.format(
-                          "uniqueness constraint on composite index \"%s\" failed for object %s:"
-                          + " field value combination %s is also shared by object(s) %s",
-                          pindex.name, id, values, conflictors));
-                    }
-                }
+            // It's posible (though unlikely) that a JSR 303 validation could have deleted the object, so check for that
+            if (!this.tx.exists(id))
+                return;
+        }
+
+        // Enqueue simple and composite field uniqueness checks for fields that changed
+        if ((!pclass.uniqueConstraintFields.isEmpty() || !pclass.uniqueConstraintCompositeIndexes.isEmpty())
+          && Util.isAnyGroupBeingValidated(DEFAULT_AND_UNIQUENESS_CLASS_ARRAY, validationGroups)) {
+            for (PermazenSimpleField pfield : pclass.uniqueConstraintFields) {
+                if (fieldFilter == null || fieldFilter.contains(pfield.storageId))
+                    uniquenessChecker.addField(id, pfield);
+            }
+            for (PermazenCompositeIndex pindex : pclass.uniqueConstraintCompositeIndexes) {
+                if (fieldFilter == null || pindex.pfields.stream().anyMatch(pfield -> fieldFilter.contains(pfield.storageId)))
+                    uniquenessChecker.addCompositeIndex(id, pindex);
             }
+        }
+    }
 
-            // Do late @OnValidate method validation
-            this.doOnValidate(pclass.lateOnValidateMethods, pobj, validationGroups);
+    // Put an object back on the validation queue
+    private synchronized void requeue(PendingValidation pending) {
+        final Set<ObjId> ids = Collections.singleton(pending.id);
+        if (pending.changedFields == null) {
+            this.revalidate(ids, pending.validationGroups);
+            return;
         }
+        for (int fieldStorageId : pending.changedFields)
+            this.revalidate(ids, fieldStorageId, pending.validationGroups);
+    }
+
+    // Do JSR 303 validation of only those properties corresponding to the given fields
+    private Set<ConstraintViolation<PermazenObject>> validateProperties(ValidationContext<PermazenObject> context,
+      Validator validator, PermazenClass<?> pclass, Set<Integer> fieldStorageIds) {
+        final HashSet<ConstraintViolation<PermazenObject>> violations = new HashSet<>();
+        ValidationContext.getThreadLocalHolder().invoke(context, () -> {
+            for (int storageId : fieldStorageIds) {
+                final PermazenField pfield = pclass.fieldsByStorageId.get(storageId);
+                if (pfield != null && pfield.validationPropertyName != null) {
+                    violations.addAll(validator.validateProperty(context.getRoot(),
+                      pfield.validationPropertyName, context.getGroups()));
+                }
+            }
+        });
+        return violations;
     }
 
     // Do @OnValidate method validation; return false if it results in object being deleted
@@ -1985,24 +2212,28 @@ public class PermazenTransaction {
                 methodGroups = DEFAULT_CLASS_ARRAY;
             if (!Util.isAnyGroupBeingValidated(methodGroups, validationGroups))
                 continue;
-            Util.invoke(info.getMethod(), pobj);
+            ((OnValidateScanner<?>.ValidateMethodInfo)info).invoker.invoke(pobj);
             if (!this.tx.exists(pobj.getObjId()))
                 return false;
         }
         return true;
     }
 
-    // Find some duplicates that shouldn't be there, if any
-    private ArrayList<ObjId> findUniqueConflictors(ObjId id, NavigableSet<ObjId> ids) {
-        final ArrayList<ObjId> conflictors = new ArrayList<>(MAX_UNIQUE_CONFLICTORS);
-        for (ObjId conflictor : ids) {
-            if (conflictor.equals(id))                          // ignore object's own index entry
-                continue;
-            conflictors.add(conflictor);
-            if (conflictors.size() >= MAX_UNIQUE_CONFLICTORS)
-                break;
+// PendingValidation
+
+    private static class PendingValidation {
+
+        final ObjId id;
+        final Class<?>[] validationGroups;
+        final Set<Integer> changedFields;                       // null means all fields
+        PermazenClass<?> pclass;                                // set once object is found to exist
+        boolean finished;                                       // set once validation has finished (or failed)
+
+        PendingValidation(ObjId id, Class<?>[] validationGroups, Set<Integer> changedFields) {
+            this.id = id;
+            this.validationGroups = validationGroups;
+            this.changedFields = changedFields;
         }
-        return conflictors;
     }
 
 // ValidateOnCreateListener
@@ -2092,8 +2323,8 @@ public class PermazenTransaction {
                 final PermazenCounterField pfield = (PermazenCounterField)pfield0;
                 assert pfield.upgradeConversion.isConvertsValues();
 
-                // Handle trivial conversion from counter -> counter
-                if (oldField0 instanceof CounterField)
+                // Handle trivial conversion from counter -> counter; aggregate counter values are maintained automatically
+                if (oldField0 instanceof CounterField || pfield.isAggregate())
                     continue;
 
                 // Handle conversion from numeric simple -> counter
@@ -2369,7 +2600,7 @@ public class PermazenTransaction {
             assert ptx != null && ptx.tx == tx;
             final PermazenField pfield = ptx.pdb.getField(id, field.getName(), PermazenField.class);
             if (pfield.requiresDefaultValidation)
-                ptx.revalidate(referrers);
+                ptx.revalidate(referrers, pfield.storageId);
         }
     }
 }
@@ -0,0 +1,239 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+import io.permazen.encoding.Encoding;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Locates Java classes that were generated at build time, so they don't need to be generated again at runtime.
+ *
+ * <p>
+ * Pre-generated classes are written by {@link #write write()} as ordinary class files alongside the model classes,
+ * along with an index resource ({@value #INDEX_RESOURCE}) that maps each model class name to a fingerprint.
+ * The fingerprint is a hash of the inputs that determine the generated class: the Permazen version, the class files
+ * of the model class and all of its supertypes, and the runtime configuration that affects how the model class is
+ * interpreted, namely the {@link io.permazen.encoding.EncodingRegistry} class and the resulting type and encoding
+ * of each field. At runtime, a pre-generated class is only used if its fingerprint still matches; otherwise (or if no
+ * pre-generated class exists), the class is generated on the fly.
+ */
+@ThreadSafe
+class PregeneratedClasses {
+
+    /**
+     * Classpath resource containing the index of pre-generated classes.
+     */
+    static final String INDEX_RESOURCE = "META-INF/permazen/generated-classes.properties";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+    private final ClassLoader loader;
+
+    @GuardedBy("this")
+    private Properties index;
+
+    /**
+     * Constructor.
+     *
+     * @param loader class loader used to find index resources and pre-generated class files
+     * @throws IllegalArgumentException if {@code loader} is null
+     */
+    PregeneratedClasses(ClassLoader loader) {
+        Preconditions.checkArgument(loader != null, "null loader");
+        this.loader = loader;
+    }
+
+    /**
+     * Get the pre-generated bytecode for the given generator's class, if available and up-to-date.
+     *
+     * @param generator class generator
+     * @return pre-generated bytecode, or null if not available
+     */
+    byte[] getBytecode(ClassGenerator<?> generator) {
+
+        // Check index
+        if (generator.pclass == null)
+            return null;
+        final Class<?> modelClass = generator.modelClass;
+        final String expected = this.getIndex().getProperty(modelClass.getName());
+        if (expected == null)
+            return null;
+
+        // Verify fingerprint
+        final String actual;
+        try {
+            actual = PregeneratedClasses.fingerprint(generator);
+        } catch (IOException e) {
+            this.log.warn("error computing fingerprint of {}, ignoring pre-generated class", modelClass, e);
+            return null;
+        }
+        if (!expected.equals(actual)) {
+            this.log.warn("pre-generated class for {} is out of date, ignoring it", modelClass);
+            return null;
+        }
+
+        // Read class file
+        final String resource = generator.getClassName() + ".class";
+        try (InputStream input = this.loader.getResourceAsStream(resource)) {
+            if (input == null) {
+                this.log.warn("pre-generated class file {} for {} not found, ignoring it", resource, modelClass);
+                return null;
+            }
+            return ByteStreams.toByteArray(input);
+        } catch (IOException e) {
+            this.log.warn("error reading pre-generated class file {}, ignoring it", resource, e);
+            return null;
+        }
+    }
+
+    /**
+     * Write pre-generated classes, and an index resource describing them, into the given class output directory.
+     *
+     * <p>
+     * Generators not associated with a {@link PermazenClass} are skipped.
+     *
+     * @param generators class generators
+     * @param dir class output directory
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    static void write(Collection<? extends ClassGenerator<?>> generators, Path dir) throws IOException {
+        Preconditions.checkArgument(generators != null, "null generators");
+        Preconditions.checkArgument(dir != null, "null dir");
+        final Properties index = new Properties();
+        for (ClassGenerator<?> generator : generators) {
+            if (generator.pclass == null)
+                continue;
+            final Path file = dir.resolve(generator.getClassName() + ".class");
+            PregeneratedClasses.createParentDirectories(file);
+            final String fingerprint = PregeneratedClasses.fingerprint(generator);
+            if (fingerprint == null)
+                throw new IOException(String.format("can't locate class file(s) for %s", generator.modelClass));
+            Files.write(file, generator.generateBytecode());
+            index.setProperty(generator.modelClass.getName(), fingerprint);
+        }
+        final Path indexFile = dir.resolve(INDEX_RESOURCE);
+        PregeneratedClasses.createParentDirectories(indexFile);
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(indexFile))) {
+            index.store(output, "Permazen pre-generated classes");
+        }
+    }
+
+    /**
+     * Compute the fingerprint of the class generated by a class generator.
+     *
+     * @param generator class generator associated with a {@link PermazenClass}
+     * @return fingerprint, or null if a required class file could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    static String fingerprint(ClassGenerator<?> generator) throws IOException {
+        Preconditions.checkArgument(generator.pclass != null, "no PermazenClass");
+        final Class<?> modelClass = generator.modelClass;
+
+        // Get digest
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("unexpected exception", e);
+        }
+        digest.update(Permazen.VERSION.getBytes(StandardCharsets.UTF_8));
+
+        // Gather model class and all supertypes, in a deterministic order, excluding JDK classes
+        final LinkedHashSet<Class<?>> types = new LinkedHashSet<>();
+        final ArrayDeque<Class<?>> todo = new ArrayDeque<>();
+        todo.add(modelClass);
+        while (!todo.isEmpty()) {
+            final Class<?> type = todo.removeFirst();
+            if (type.getClassLoader() == null || !types.add(type))
+                continue;
+            if (type.getSuperclass() != null)
+                todo.add(type.getSuperclass());
+            for (Class<?> iface : type.getInterfaces())
+                todo.add(iface);
+        }
+
+        // Digest their class files
+        for (Class<?> type : types) {
+            final String resource = type.getName().replace('.', '/') + ".class";
+            try (InputStream input = type.getClassLoader().getResourceAsStream(resource)) {
+                if (input == null)
+                    return null;
+                digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update(ByteStreams.toByteArray(input));
+            }
+        }
+
+        // Digest the runtime configuration that determines how the model class's fields are interpreted
+        final StringBuilder config = new StringBuilder();
+        config.append(generator.pdb.getDatabase().getEncodingRegistry().getClass().getName()).append('\n');
+        for (PermazenField pfield : generator.pclass.fieldsByName.values())
+            config.append(pfield.getFullName()).append(' ').append(pfield.getClass().getName()).append('\n');
+        for (PermazenSimpleField pfield : generator.pclass.simpleFieldsByName.values()) {
+            final Encoding<?> encoding = pfield.getEncoding();
+            config.append(pfield.getFullName()).append(' ').append(pfield.getTypeToken())
+              .append(' ').append(encoding.getClass().getName())
+              .append(' ').append(encoding.getEncodingId()).append('\n');
+        }
+        digest.update(config.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+// Internal methods
+
+    // Load and merge all index resources visible to our class loader
+    private synchronized Properties getIndex() {
+        if (this.index == null) {
+            final Properties newIndex = new Properties();
+            try {
+                for (Enumeration<URL> e = this.loader.getResources(INDEX_RESOURCE); e.hasMoreElements(); ) {
+                    final URL url = e.nextElement();
+                    this.log.debug("loading pre-generated class index from {}", url);
+                    try (InputStream input = url.openStream()) {
+                        newIndex.load(input);
+                    }
+                }
+            } catch (IOException e) {
+                this.log.warn("error reading pre-generated class index, ignoring it", e);
+                newIndex.clear();
+            }
+            this.index = newIndex;
+        }
+        return this.index;
+    }
+
+    private static void createParentDirectories(Path file) throws IOException {
+        final Path dir = file.getParent();
+        if (dir != null)
+            Files.createDirectories(dir);
+    }
+}
@@ -0,0 +1,773 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import com.google.common.base.Converter;
+import com.google.common.base.Preconditions;
+import com.google.common.math.LongMath;
+
+import io.permazen.core.CoreIndex1;
+import io.permazen.core.IndexStatistics;
+import io.permazen.core.ObjId;
+import io.permazen.core.SimpleField;
+import io.permazen.core.Transaction;
+import io.permazen.core.UnknownFieldException;
+import io.permazen.encoding.Encoding;
+import io.permazen.kv.KeyRange;
+import io.permazen.kv.KeyRanges;
+import io.permazen.kv.util.AbstractKVNavigableSet;
+import io.permazen.tuple.Tuple2;
+import io.permazen.util.BoundType;
+import io.permazen.util.Bounds;
+import io.permazen.util.ByteData;
+import io.permazen.util.ByteUtil;
+import io.permazen.util.NavigableSets;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Plans and executes {@link PermazenQuery}s.
+ *
+ * <p>
+ * Each leaf predicate becomes a lookup or range scan on the field's index, producing a {@link NavigableSet} of
+ * {@link ObjId}s sorted in index order; these are then combined with {@link NavigableSets#intersection} and
+ * {@link NavigableSets#union}. Because intersections are driven by their first set, the inputs to each intersection
+ * are ordered by their estimated size, smallest first. Within a conjunction, predicates on the same field are merged
+ * into a single lookup or range. A range scan reads its range of the index once and collects the objects found; a range
+ * that does not drive an intersection is instead checked against each object's field value.
+ *
+ * <p>
+ * Ordered queries are executed either by scanning the ordering field's index in order and discarding objects not
+ * in the result set, or by reading and sorting the result set, whichever is estimated to be cheaper; the former
+ * wins when the result set is large or when a small limit allows the scan to stop early.
+ *
+ * <p>
+ * Size estimates, including the total number of objects of the query type, are derived from
+ * {@linkplain IndexStatistics index statistics}, when they have been gathered
+ * (see {@link PermazenTransaction#updateIndexStatistics()}); otherwise, coarse heuristics based only on the shape
+ * of each predicate are used.
+ *
+ * <p>
+ * Fields with a partial index (see {@link io.permazen.annotation.PermazenField#indexExcludes}) can only be queried
+ * for values that are indexed; predicates that could match excluded values are rejected. Ordering by such a field
+ * always reads and sorts the result set, unless the query restricts the field to a range of indexed values.
+ */
+class QueryPlanner {
+
+    static final long ALL_ESTIMATE = 1000000;
+    static final long EQUALITY_ESTIMATE = 100;
+    static final long RANGE_ESTIMATE = 10000;
+    static final long HALF_RANGE_ESTIMATE = 100000;
+
+    private final PermazenTransaction ptx;
+    private final Class<?> type;
+    private final HashMap<String, IndexedField> fieldMap = new HashMap<>();
+
+    private long allEstimate = -1;
+
+    QueryPlanner(PermazenTransaction ptx, Class<?> type) {
+        assert ptx != null;
+        assert type != null;
+        this.ptx = ptx;
+        this.type = type;
+    }
+
+// Planning
+
+    /**
+     * Build a plan for finding the objects matching the given predicate.
+     *
+     * @param predicate predicate, or null for all objects
+     * @return query plan
+     * @throws IllegalArgumentException if {@code predicate} is invalid
+     */
+    Plan plan(QueryPredicate predicate) {
+        if (predicate == null)
+            return new ScanPlan();
+        if (predicate instanceof QueryPredicate.Or) {
+            final List<Plan> plans = ((QueryPredicate.Or)predicate).predicates.stream()
+              .map(this::plan)
+              .collect(Collectors.toList());
+            return plans.size() == 1 ? plans.get(0) : new UnionPlan(plans);
+        }
+        return this.planConjunction(Collections.singletonList(predicate));
+    }
+
+    /**
+     * Build a plan for iterating the objects matching the given predicate in the order of the given field.
+     *
+     * @param predicate predicate, or null for all objects
+     * @param fieldName name of top-level indexed simple field to sort on
+     * @param ascending true for ascending order, false for descending
+     * @param needed number of results required, or -1 for all of them
+     * @return query plan
+     * @throws IllegalArgumentException if {@code predicate} or {@code fieldName} is invalid
+     */
+    OrderPlan planOrdered(QueryPredicate predicate, String fieldName, boolean ascending, long needed) {
+
+        // Resolve sort field
+        final IndexedField field = this.getField(fieldName);
+        if (field.pfield.getParentField() != null)
+            throw new IllegalArgumentException(String.format("can't order by sub-field \"%s\"", fieldName));
+
+        // Plan filter; if it includes a range on the sort field, scan only that range of the index
+        final Plan filter = predicate != null ? this.plan(predicate) : null;
+        RangePlan range = null;
+        Plan residual = filter;
+        if (filter instanceof RangePlan && ((RangePlan)filter).field == field) {
+            range = (RangePlan)filter;
+            residual = null;
+        } else if (filter instanceof IntersectPlan) {
+            final ArrayList<Plan> plans = new ArrayList<>(((IntersectPlan)filter).plans);
+            for (int i = 0; i < plans.size(); i++) {
+                final Plan plan = plans.get(i);
+                if (plan instanceof RangePlan && ((RangePlan)plan).field == field) {
+                    range = (RangePlan)plan;
+                    plans.remove(i);
+                    residual = plans.size() == 1 ? plans.get(0) : new IntersectPlan(plans);
+                    break;
+                }
+            }
+        }
+
+        // Estimate cost of scanning the index: each object scanned costs one probe into the residual set
+        final long scanSize = range != null ? range.size : this.estimateScan(field);
+        final long resultSize = filter != null ? filter.size : scanSize;
+        final long scanCost = needed >= 0 && resultSize > 0 ?
+          Math.min(scanSize, LongMath.saturatedMultiply(Math.max(needed, 1), Math.max(scanSize / resultSize, 1))) : scanSize;
+
+        // Estimate cost of reading and sorting the result set
+        final long sortCost = filter != null ?
+          filter.size + (long)(filter.size * (Math.log(Math.max(filter.size, 2)) / Math.log(2))) : Long.MAX_VALUE;
+
+        // Pick the cheaper; an index scan would miss objects whose values are excluded from a partial index
+        if (field.indexExcludes != null && range == null)
+            return new SortPlan(field, ascending, filter != null ? filter : new ScanPlan());
+        return sortCost < scanCost ?
+          new SortPlan(field, ascending, filter) : new IndexScanPlan(field, ascending, range, residual, scanCost);
+    }
+
+    private Plan planConjunction(List<QueryPredicate> predicates) {
+
+        // Flatten nested conjunctions and group field predicates by field
+        final LinkedHashMap<IndexedField, List<QueryPredicate.Field>> fieldPredicates = new LinkedHashMap<>();
+        final ArrayList<Plan> plans = new ArrayList<>();
+        this.gatherConjunction(predicates, fieldPredicates, plans);
+
+        // Merge predicates on the same field into a single lookup or range
+        fieldPredicates.forEach((field, list) -> plans.add(this.planField(field, list)));
+
+        // Order by estimated size, smallest first
+        if (plans.size() == 1)
+            return plans.get(0);
+        plans.sort(Comparator.comparingLong(plan -> plan.size));
+        return new IntersectPlan(plans);
+    }
+
+    private void gatherConjunction(List<QueryPredicate> predicates,
+      Map<IndexedField, List<QueryPredicate.Field>> fieldPredicates, List<Plan> plans) {
+        for (QueryPredicate predicate : predicates) {
+            if (predicate instanceof QueryPredicate.And)
+                this.gatherConjunction(((QueryPredicate.And)predicate).predicates, fieldPredicates, plans);
+            else if (predicate instanceof QueryPredicate.Or)
+                plans.add(this.plan(predicate));
+            else {
+                final QueryPredicate.Field fieldPredicate = (QueryPredicate.Field)predicate;
+                fieldPredicates.computeIfAbsent(this.getField(fieldPredicate.fieldName), f -> new ArrayList<>())
+                  .add(fieldPredicate);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Plan planField(IndexedField field, List<QueryPredicate.Field> predicates) {
+        final Comparator<Object> comparator = (Comparator<Object>)field.encoding;
+
+        // Intersect all value lists and ranges
+        List<Object> values = null;
+        Bounds<Object> bounds = new Bounds<>();
+        for (QueryPredicate.Field predicate : predicates) {
+            if (predicate instanceof QueryPredicate.In) {
+                final List<Object> coreValues = ((QueryPredicate.In)predicate).values.stream()
+                  .map(field::toCoreValue)
+                  .distinct()
+                  .sorted(comparator)
+                  .collect(Collectors.toList());
+                values = values == null ? coreValues : values.stream()
+                  .filter(value -> coreValues.stream().anyMatch(value2 -> comparator.compare(value, value2) == 0))
+                  .collect(Collectors.toList());
+            } else {
+                final Bounds<Object> javaBounds = ((QueryPredicate.Range)predicate).bounds;
+                bounds = QueryPlanner.restrict(comparator, bounds,
+                  new Bounds<>(field.toCoreValue(javaBounds.getLowerBound()), javaBounds.getLowerBoundType(),
+                    field.toCoreValue(javaBounds.getUpperBound()), javaBounds.getUpperBoundType()));
+            }
+        }
+
+        // Build lookup or range plan
+        if (values != null) {
+            if (!bounds.isUnbounded()) {
+                final Bounds<Object> bounds2 = bounds;
+                values = values.stream()
+                  .filter(value -> value != null && bounds2.isWithinBounds(comparator, value))
+                  .collect(Collectors.toList());
+            }
+            if (field.indexExcludes != null && values.stream().anyMatch(value -> field.indexExcludes.contains(field.encode(value))))
+                throw new IllegalArgumentException(field.excludedValuesError());
+            return new LookupPlan(field, values, this.estimateEquality(field, values));
+        }
+        if (field.indexExcludes != null) {
+            final ByteData min = bounds.hasLowerBound() ?
+              field.encode(bounds.getLowerBound(), bounds.getLowerBoundType() != BoundType.INCLUSIVE) : ByteData.empty();
+            final ByteData max = bounds.hasUpperBound() ? field.encode(bounds.getUpperBound(),
+              bounds.getUpperBoundType() == BoundType.INCLUSIVE) : field.encoding.supportsNull() ? field.encode(null) : null;
+            if (KeyRange.compare(min, max) < 0 && field.indexExcludes.intersects(new KeyRange(min, max)))
+                throw new IllegalArgumentException(field.excludedValuesError());
+        }
+        return new RangePlan(field, bounds, this.estimateRange(field, bounds));
+    }
+
+    // Intersect two bounds
+    private static Bounds<Object> restrict(Comparator<Object> comparator, Bounds<Object> bounds1, Bounds<Object> bounds2) {
+        Bounds<Object> result = bounds1;
+        if (bounds2.hasLowerBound()) {
+            final int diff = result.hasLowerBound() ? comparator.compare(bounds2.getLowerBound(), result.getLowerBound()) : 1;
+            if (diff > 0 || (diff == 0 && bounds2.getLowerBoundType() == BoundType.EXCLUSIVE))
+                result = result.withLowerBound(bounds2.getLowerBound(), bounds2.getLowerBoundType());
+        }
+        if (bounds2.hasUpperBound()) {
+            final int diff = result.hasUpperBound() ? comparator.compare(bounds2.getUpperBound(), result.getUpperBound()) : -1;
+            if (diff < 0 || (diff == 0 && bounds2.getUpperBoundType() == BoundType.EXCLUSIVE))
+                result = result.withUpperBound(bounds2.getUpperBound(), bounds2.getUpperBoundType());
+        }
+        return result;
+    }
+
+// Estimates
+
+    /**
+     * Estimate the total number of objects of the query type.
+     *
+     * <p>
+     * Every object has an entry in the index of each of its indexed top-level simple fields (unless the value is
+     * excluded from a partial index). So if statistics have been gathered for any such field of the query type, the
+     * largest of their entry counts is used.
+     *
+     * @return estimated number of objects
+     */
+    long estimateAll() {
+        if (this.allEstimate < 0) {
+            long estimate = -1;
+            for (PermazenClass<?> pclass : this.ptx.pdb.getPermazenClasses(this.type)) {
+                for (PermazenSimpleField pfield : pclass.simpleFieldsByStorageId.values()) {
+                    if (!pfield.indexed || pfield.getParentField() != null || pfield.indexExcludes != null)
+                        continue;
+                    final IndexStatistics statistics = this.ptx.tx.getIndexStatistics(pfield.storageId);
+                    if (statistics != null)
+                        estimate = Math.max(estimate, statistics.getEntryCount());
+                }
+            }
+            this.allEstimate = estimate >= 0 ? estimate : ALL_ESTIMATE;
+        }
+        return this.allEstimate;
+    }
+
+    /**
+     * Estimate the number of objects in the given field's index.
+     *
+     * @param field indexed field
+     * @return estimated number of objects
+     */
+    long estimateScan(IndexedField field) {
+        return field.statistics != null ? field.statistics.getEntryCount() : this.estimateAll();
+    }
+
+    /**
+     * Estimate the number of objects having any of the given distinct values in the given field.
+     *
+     * @param field indexed field
+     * @param values distinct core API values
+     * @return estimated number of objects
+     */
+    long estimateEquality(IndexedField field, List<Object> values) {
+        if (field.statistics != null)
+            return values.stream().mapToLong(value -> field.statistics.estimateEntries(field.encode(value))).sum();
+        return Math.min((long)values.size() * (field.pfield.unique ? 1 : EQUALITY_ESTIMATE), this.estimateAll());
+    }
+
+    /**
+     * Estimate the number of objects having a non-null value within the given range in the given field.
+     *
+     * @param field indexed field
+     * @param bounds range of core API values
+     * @return estimated number of objects
+     */
+    long estimateRange(IndexedField field, Bounds<Object> bounds) {
+        if (field.statistics != null) {
+            final ByteData min = bounds.hasLowerBound() ? field.encode(bounds.getLowerBound(),
+              bounds.getLowerBoundType() != BoundType.INCLUSIVE) : null;
+            final ByteData max = bounds.hasUpperBound() ? field.encode(bounds.getUpperBound(),
+              bounds.getUpperBoundType() == BoundType.INCLUSIVE) : field.encoding.supportsNull() ? field.encode(null) : null;
+            return field.statistics.estimateEntries(min, max);
+        }
+        if (bounds.isUnbounded())
+            return this.estimateAll();
+        return Math.min(bounds.hasLowerBound() && bounds.hasUpperBound() ? RANGE_ESTIMATE : HALF_RANGE_ESTIMATE,
+          this.estimateAll());
+    }
+
+// Internal methods
+
+    private IndexedField getField(String fieldName) {
+        Preconditions.checkArgument(fieldName != null, "null fieldName");
+        return this.fieldMap.computeIfAbsent(fieldName, IndexedField::new);
+    }
+
+    private NavigableSet<ObjId> getAllIds() {
+        NavigableSet<ObjId> ids = this.ptx.tx.getAll();
+        final KeyRanges keyRanges = this.ptx.pdb.keyRangesFor(this.type);
+        if (!keyRanges.isFull())
+            ids = ((AbstractKVNavigableSet<ObjId>)ids).filterKeys(keyRanges);
+        return ids;
+    }
+
+    // Restrict map to the given bounds
+    private static NavigableMap<Object, NavigableSet<ObjId>> subMap(NavigableMap<Object, NavigableSet<ObjId>> map,
+      Bounds<Object> bounds) {
+        if (bounds.hasLowerBound())
+            map = map.tailMap(bounds.getLowerBound(), bounds.getLowerBoundType() == BoundType.INCLUSIVE);
+        if (bounds.hasUpperBound())
+            map = map.headMap(bounds.getUpperBound(), bounds.getUpperBoundType() == BoundType.INCLUSIVE);
+        return map;
+    }
+
+    private static void indent(StringBuilder buf, int depth) {
+        for (int i = 0; i < depth; i++)
+            buf.append("  ");
+    }
+
+// IndexedField
+
+    /**
+     * An indexed field, resolved against the query type.
+     */
+    final class IndexedField {
+
+        final String fieldName;
+        final PermazenSimpleField pfield;
+        final Encoding<?> encoding;
+        final CoreIndex1<Object, ObjId> index;
+        final Converter<Object, Object> converter;      // Java -> core
+        final IndexStatistics statistics;               // null if not gathered
+        final KeyRanges indexExcludes;                  // encoded values excluded from the index, or null if none
+
+        @SuppressWarnings("unchecked")
+        IndexedField(String fieldName) {
+            final PermazenTransaction ptx = QueryPlanner.this.ptx;
+            final IndexQuery info = ptx.pdb.getIndexQuery(
+              new IndexQuery.Key(fieldName, false, QueryPlanner.this.type, Object.class));
+            this.fieldName = fieldName;
+            this.pfield = (PermazenSimpleField)info.schemaItem;
+            this.encoding = this.pfield.encoding;
+            this.index = (CoreIndex1<Object, ObjId>)info.applyFilters(ptx.tx.querySimpleIndex(this.pfield.storageId));
+            this.converter = (Converter<Object, Object>)Util.reverse(this.pfield.getConverter(ptx));
+            this.statistics = ptx.tx.getIndexStatistics(this.pfield.storageId);
+
+            // Gather values excluded from the index in any of the query's object types
+            final KeyRanges excludes = new KeyRanges();
+            for (PermazenClass<?> pclass : ptx.pdb.getPermazenClasses(QueryPlanner.this.type)) {
+                if (this.pfield.getParentField() != null || !pclass.simpleFieldsByStorageId.containsKey(this.pfield.storageId))
+                    continue;
+                final SimpleField<?> field = (SimpleField<?>)ptx.tx.getSchema()
+                  .getObjType(pclass.storageId).getField(this.pfield.storageId);
+                if (field.getIndexExcludes() != null)
+                    excludes.add(field.getIndexExcludes());
+            }
+            this.indexExcludes = !excludes.isEmpty() ? excludes : null;
+        }
+
+        String excludedValuesError() {
+            return String.format("query on field \"%s\" could match values excluded from its partial index", this.fieldName);
+        }
+
+        Object toCoreValue(Object value) {
+            if (value == null)
+                return null;
+            try {
+                return this.encoding.validate(this.converter.convert(value));
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException(String.format(
+                  "invalid value %s for field \"%s\": %s", value, this.fieldName, e.getMessage()), e);
+            }
+        }
+
+        // Encode a core API value; if "after" is true, return the next higher key, which precedes all greater values
+        @SuppressWarnings("unchecked")
+        ByteData encode(Object value, boolean after) {
+            final ByteData.Writer writer = ByteData.newWriter();
+            ((Encoding<Object>)this.encoding).write(writer, value);
+            return after ? ByteUtil.getNextKey(writer.toByteData()) : writer.toByteData();
+        }
+
+        ByteData encode(Object value) {
+            return this.encode(value, false);
+        }
+
+        NavigableMap<Object, NavigableSet<ObjId>> asMap() {
+            return this.index.asMap();
+        }
+
+        // Determine whether the object has a non-null value within the given bounds in this (top-level) field
+        @SuppressWarnings("unchecked")
+        boolean hasValueWithin(ObjId id, Bounds<Object> bounds) {
+            final Transaction tx = QueryPlanner.this.ptx.tx;
+            final PermazenClass<?> pclass = QueryPlanner.this.ptx.pdb.pclassesByStorageId.get(id.getStorageId());
+            final PermazenSimpleField pfield2 = pclass != null ? pclass.simpleFieldsByStorageId.get(this.pfield.storageId) : null;
+            if (pfield2 == null || !tx.exists(id))
+                return false;
+            final Object value = tx.readSimpleField(id, pfield2.name, false);
+            return value != null && bounds.isWithinBounds((Comparator<Object>)this.encoding, value);
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + this.fieldName + "\"";
+        }
+    }
+
+// Plan
+
+    /**
+     * A plan for finding a set of objects.
+     */
+    abstract static class Plan {
+
+        final long size;                                // estimated number of objects found
+
+        Plan(long size) {
+            this.size = size;
+        }
+
+        /**
+         * Execute this plan.
+         *
+         * @return object IDs in index order
+         */
+        abstract NavigableSet<ObjId> execute();
+
+        /**
+         * Get a test for membership in the set of objects found by this plan.
+         *
+         * <p>
+         * This is used when some other set of objects drives the iteration. The implementation in {@link Plan}
+         * executes this plan and tests membership in the result.
+         *
+         * @return membership test
+         */
+        Predicate<ObjId> asFilter() {
+            return this.execute()::contains;
+        }
+
+        abstract void describe(StringBuilder buf, int depth);
+    }
+
+    final class ScanPlan extends Plan {
+
+        ScanPlan() {
+            super(QueryPlanner.this.estimateAll());
+        }
+
+        @Override
+        NavigableSet<ObjId> execute() {
+            return QueryPlanner.this.getAllIds();
+        }
+
+        @Override
+        void describe(StringBuilder buf, int depth) {
+            QueryPlanner.indent(buf, depth);
+            buf.append("scan all ").append(QueryPlanner.this.type.getName())
+              .append(" (est. ").append(this.size).append(")\n");
+        }
+    }
+
+    static final class LookupPlan extends Plan {
+
+        final IndexedField field;
+        final List<Object> values;                      // core API values
+
+        LookupPlan(IndexedField field, List<Object> values, long size) {
+            super(size);
+            this.field = field;
+            this.values = values;
+        }
+
+        @Override
+        NavigableSet<ObjId> execute() {
+            final NavigableMap<Object, NavigableSet<ObjId>> map = this.field.asMap();
+            final List<NavigableSet<ObjId>> sets = this.values.stream()
+              .map(map::get)
+              .filter(Objects::nonNull)
+              .collect(Collectors.toList());
+            switch (sets.size()) {
+            case 0:
+                return NavigableSets.empty();
+            case 1:
+                return sets.get(0);
+            default:
+                return NavigableSets.union(sets);
+            }
+        }
+
+        @Override
+        void describe(StringBuilder buf, int depth) {
+            QueryPlanner.indent(buf, depth);
+            buf.append("index lookup ").append(this.field).append(" in ").append(this.values)
+              .append(" (est. ").append(this.size).append(")\n");
+        }
+    }
+
+    static final class RangePlan extends Plan {
+
+        final IndexedField field;
+        final Bounds<Object> bounds;                    // core API values
+
+        RangePlan(IndexedField field, Bounds<Object> bounds, long size) {
+            super(size);
+            this.field = field;
+            this.bounds = bounds;
+        }
+
+        // Scan the range of the index once, collecting the objects found
+        @Override
+        NavigableSet<ObjId> execute() {
+            final TreeSet<ObjId> ids = new TreeSet<>();
+            for (Tuple2<Object, ObjId> entry : this.field.index.withValueBounds(this.bounds).asSet()) {
+                if (entry.getValue1() != null)
+                    ids.add(entry.getValue2());
+            }
+            return ids;
+        }
+
+        // Check each object's field value, unless the field is a sub-field
+        @Override
+        Predicate<ObjId> asFilter() {
+            if (this.field.pfield.getParentField() != null)
+                return super.asFilter();
+            return id -> this.field.hasValueWithin(id, this.bounds);
+        }
+
+        // Get the index entries in this range, excluding null, in the given order
+        Stream<Map.Entry<Object, NavigableSet<ObjId>>> entries(boolean ascending) {
+            NavigableMap<Object, NavigableSet<ObjId>> map = QueryPlanner.subMap(this.field.asMap(), this.bounds);
+            if (!ascending)
+                map = map.descendingMap();
+            return map.entrySet().stream()
+              .filter(entry -> entry.getKey() != null);
+        }
+
+        @Override
+        void describe(StringBuilder buf, int depth) {
+            QueryPlanner.indent(buf, depth);
+            buf.append("index range ").append(this.field).append(' ').append(this.bounds)
+              .append(" (est. ").append(this.size).append(")\n");
+        }
+    }
+
+    static final class IntersectPlan extends Plan {
+
+        final List<Plan> plans;                         // sorted by estimated size
+
+        IntersectPlan(List<Plan> plans) {
+            super(plans.get(0).size);
+            this.plans = plans;
+        }
+
+        // The first (smallest) plan drives the intersection; other range plans are applied as per-object filters
+        @Override
+        NavigableSet<ObjId> execute() {
+            final ArrayList<NavigableSet<ObjId>> sets = new ArrayList<>(this.plans.size());
+            final ArrayList<Predicate<ObjId>> filters = new ArrayList<>(this.plans.size());
+            for (int i = 0; i < this.plans.size(); i++) {
+                final Plan plan = this.plans.get(i);
+                if (i > 0 && plan instanceof RangePlan)
+                    filters.add(plan.asFilter());
+                else
+                    sets.add(plan.execute());
+            }
+            final NavigableSet<ObjId> ids = sets.size() == 1 ? sets.get(0) : NavigableSets.intersection(sets);
+            if (filters.isEmpty())
+                return ids;
+            final Predicate<ObjId> filter = filters.stream().reduce(Predicate::and).orElseThrow();
+            return ids.stream()
+              .filter(filter)
+              .collect(Collectors.toCollection(TreeSet::new));
+        }
+
+        @Override
+        Predicate<ObjId> asFilter() {
+            return this.plans.stream()
+              .map(Plan::asFilter)
+              .reduce(Predicate::and)
+              .orElseThrow();
+        }
+
+        @Override
+        void describe(StringBuilder buf, int depth) {
+            QueryPlanner.indent(buf, depth);
+            buf.append("intersection (est. ").append(this.size).append(")\n");
+            this.plans.forEach(plan -> plan.describe(buf, depth + 1));
+        }
+    }
+
+    final class UnionPlan extends Plan {
+
+        final List<Plan> plans;
+
+        UnionPlan(List<Plan> plans) {
+            super(Math.min(plans.stream().mapToLong(plan -> plan.size).sum(), QueryPlanner.this.estimateAll()));
+            this.plans = plans;
+        }
+
+        @Override
+        NavigableSet<ObjId> execute() {
+            return NavigableSets.union(this.plans.stream()
+              .map(Plan::execute)
+              .collect(Collectors.toList()));
+        }
+
+        @Override
+        void describe(StringBuilder buf, int depth) {
+            QueryPlanner.indent(buf, depth);
+            buf.append("union (est. ").append(this.size).append(")\n");
+            this.plans.forEach(plan -> plan.describe(buf, depth + 1));
+        }
+    }
+
+// OrderPlan
+
+    /**
+     * A plan for iterating a set of objects in the order of some field.
+     */
+    abstract static class OrderPlan {
+
+        final IndexedField field;
+        final boolean ascending;
+
+        OrderPlan(IndexedField field, boolean ascending) {
+            this.field = field;
+            this.ascending = ascending;
+        }
+
+        /**
+         * Execute this plan.
+         *
+         * @return object IDs in the order of {@link #field}, then in index order
+         */
+        abstract Stream<ObjId> execute();
+
+        abstract void describe(StringBuilder buf, int depth);
+
+        String describeOrder() {
+            return this.field + (this.ascending ? " ascending" : " descending");
+        }
+    }
+
+    static final class IndexScanPlan extends OrderPlan {
+
+        final RangePlan range;                          // restricts the scan, or null for none
+        final Plan filter;                              // objects must be in this set, or null for none
+        final long cost;
+
+        IndexScanPlan(IndexedField field, boolean ascending, RangePlan range, Plan filter, long cost) {
+            super(field, ascending);
+            this.range = range;
+            this.filter = filter;
+            this.cost = cost;
+        }
+
+        @Override
+        Stream<ObjId> execute() {
+            Stream<ObjId> ids;
+            if (this.range != null)
+                ids = this.range.entries(this.ascending).flatMap(entry -> entry.getValue().stream());
+            else {
+                final NavigableMap<Object, NavigableSet<ObjId>> map = this.field.asMap();
+                ids = (this.ascending ? map : map.descendingMap()).values().stream().flatMap(NavigableSet::stream);
+            }
+            if (this.filter != null)
+                ids = ids.filter(this.filter.asFilter());
+            return ids;
+        }
+
+        @Override
+        void describe(StringBuilder buf, int depth) {
+            QueryPlanner.indent(buf, depth);
+            buf.append("index scan ").append(this.describeOrder());
+            if (this.range != null)
+                buf.append(' ').append(this.range.bounds);
+            buf.append(" (est. cost ").append(this.cost).append(")\n");
+            if (this.filter != null) {
+                QueryPlanner.indent(buf, depth + 1);
+                buf.append("filter\n");
+                this.filter.describe(buf, depth + 2);
+            }
+        }
+    }
+
+    final class SortPlan extends OrderPlan {
+
+        final Plan filter;
+
+        SortPlan(IndexedField field, boolean ascending, Plan filter) {
+            super(field, ascending);
+            this.filter = filter;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Stream<ObjId> execute() {
+
+            // Read sort field values; objects not having the field are not in its index, so omit them too
+            final ArrayList<Map.Entry<ObjId, Object>> entries = new ArrayList<>();
+            for (ObjId id : this.filter.execute()) {
+                try {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(id,
+                      QueryPlanner.this.ptx.tx.readSimpleField(id, this.field.pfield.name, false)));
+                } catch (UnknownFieldException e) {
+                    continue;
+                }
+            }
+
+            // Sort by value; the sort is stable so equal values remain in index order
+            Comparator<Object> comparator = (Comparator<Object>)this.field.encoding;
+            if (!this.ascending)
+                comparator = comparator.reversed();
+            entries.sort(Map.Entry.comparingByValue(comparator));
+            return entries.stream().map(Map.Entry::getKey);
+        }
+
+        @Override
+        void describe(StringBuilder buf, int depth) {
+            QueryPlanner.indent(buf, depth);
+            buf.append("sort ").append(this.describeOrder()).append('\n');
+            this.filter.describe(buf, depth + 1);
+        }
+    }
+}
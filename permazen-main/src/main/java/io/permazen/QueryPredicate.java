@@ -0,0 +1,260 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import com.google.common.base.Preconditions;
+
+import io.permazen.util.BoundType;
+import io.permazen.util.Bounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A predicate on objects used to build a {@link PermazenQuery}.
+ *
+ * <p>
+ * Leaf predicates compare an indexed simple field (which may be a sub-field of a complex field, e.g., {@code "tags.element"})
+ * to one or more Java values; these values must be compatible with the field's Java type. Leaf predicates can be combined
+ * using {@link #and and()} and {@link #or or()}.
+ *
+ * <p>
+ * Comparisons use the sort order of the field's encoding. Range comparisons ({@link #lt lt()}, {@link #ge ge()}, etc.)
+ * never match null values; use {@link #eq eq()} to match null explicitly.
+ *
+ * <p>
+ * Instances are immutable.
+ *
+ * @see PermazenQuery
+ */
+public abstract class QueryPredicate {
+
+    QueryPredicate() {
+    }
+
+// Factory methods
+
+    /**
+     * Create a predicate matching objects whose field equals the given value.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param value value to match, or null to match null
+     * @return new predicate
+     * @throws IllegalArgumentException if {@code fieldName} is null
+     */
+    public static QueryPredicate eq(String fieldName, Object value) {
+        return new In(fieldName, Collections.singletonList(value));
+    }
+
+    /**
+     * Create a predicate matching objects whose field equals any of the given values.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param values values to match; may contain null
+     * @return new predicate
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public static QueryPredicate in(String fieldName, Collection<?> values) {
+        Preconditions.checkArgument(values != null, "null values");
+        return new In(fieldName, new ArrayList<>(values));
+    }
+
+    /**
+     * Create a predicate matching objects whose field equals any of the given values.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param values values to match; may contain null
+     * @return new predicate
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public static QueryPredicate in(String fieldName, Object... values) {
+        Preconditions.checkArgument(values != null, "null values");
+        return new In(fieldName, Arrays.asList(values));
+    }
+
+    /**
+     * Create a predicate matching objects whose field is strictly less than the given value.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param value upper bound (exclusive)
+     * @return new predicate
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public static QueryPredicate lt(String fieldName, Object value) {
+        return new Range(fieldName, null, BoundType.NONE, value, BoundType.EXCLUSIVE);
+    }
+
+    /**
+     * Create a predicate matching objects whose field is less than or equal to the given value.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param value upper bound (inclusive)
+     * @return new predicate
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public static QueryPredicate le(String fieldName, Object value) {
+        return new Range(fieldName, null, BoundType.NONE, value, BoundType.INCLUSIVE);
+    }
+
+    /**
+     * Create a predicate matching objects whose field is strictly greater than the given value.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param value lower bound (exclusive)
+     * @return new predicate
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public static QueryPredicate gt(String fieldName, Object value) {
+        return new Range(fieldName, value, BoundType.EXCLUSIVE, null, BoundType.NONE);
+    }
+
+    /**
+     * Create a predicate matching objects whose field is greater than or equal to the given value.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param value lower bound (inclusive)
+     * @return new predicate
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public static QueryPredicate ge(String fieldName, Object value) {
+        return new Range(fieldName, value, BoundType.INCLUSIVE, null, BoundType.NONE);
+    }
+
+    /**
+     * Create a predicate matching objects whose field is within the given range.
+     *
+     * @param fieldName name of an indexed simple field
+     * @param minValue lower bound (inclusive)
+     * @param maxValue upper bound (exclusive)
+     * @return new predicate
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    public static QueryPredicate range(String fieldName, Object minValue, Object maxValue) {
+        return new Range(fieldName, minValue, BoundType.INCLUSIVE, maxValue, BoundType.EXCLUSIVE);
+    }
+
+    /**
+     * Create a predicate matching objects that match all of the given predicates.
+     *
+     * @param predicates predicates to combine
+     * @return new predicate
+     * @throws IllegalArgumentException if {@code predicates} is empty, null, or contains a null element
+     */
+    public static QueryPredicate and(QueryPredicate... predicates) {
+        return new And(QueryPredicate.check(predicates));
+    }
+
+    /**
+     * Create a predicate matching objects that match any of the given predicates.
+     *
+     * @param predicates predicates to combine
+     * @return new predicate
+     * @throws IllegalArgumentException if {@code predicates} is empty, null, or contains a null element
+     */
+    public static QueryPredicate or(QueryPredicate... predicates) {
+        return new Or(QueryPredicate.check(predicates));
+    }
+
+// Internal methods
+
+    private static List<QueryPredicate> check(QueryPredicate[] predicates) {
+        Preconditions.checkArgument(predicates != null, "null predicates");
+        Preconditions.checkArgument(predicates.length > 0, "empty predicates");
+        for (QueryPredicate predicate : predicates)
+            Preconditions.checkArgument(predicate != null, "null predicate");
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(predicates)));
+    }
+
+// Field
+
+    abstract static class Field extends QueryPredicate {
+
+        final String fieldName;
+
+        Field(String fieldName) {
+            Preconditions.checkArgument(fieldName != null, "null fieldName");
+            this.fieldName = fieldName;
+        }
+    }
+
+// In
+
+    static final class In extends Field {
+
+        final List<Object> values;          // Java values, possibly including null
+
+        In(String fieldName, List<Object> values) {
+            super(fieldName);
+            this.values = Collections.unmodifiableList(values);
+        }
+
+        @Override
+        public String toString() {
+            if (this.values.size() == 1)
+                return this.fieldName + " == " + this.values.get(0);
+            return this.fieldName + " in " + this.values;
+        }
+    }
+
+// Range
+
+    static final class Range extends Field {
+
+        final Bounds<Object> bounds;        // Java values
+
+        Range(String fieldName, Object lowerBound, BoundType lowerBoundType, Object upperBound, BoundType upperBoundType) {
+            super(fieldName);
+            Preconditions.checkArgument(lowerBoundType == BoundType.NONE || lowerBound != null, "null lower bound");
+            Preconditions.checkArgument(upperBoundType == BoundType.NONE || upperBound != null, "null upper bound");
+            this.bounds = new Bounds<>(lowerBound, lowerBoundType, upperBound, upperBoundType);
+        }
+
+        @Override
+        public String toString() {
+            return this.fieldName + " in " + this.bounds;
+        }
+    }
+
+// And
+
+    static final class And extends QueryPredicate {
+
+        final List<QueryPredicate> predicates;
+
+        And(List<QueryPredicate> predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public String toString() {
+            return this.predicates.stream()
+              .map(Object::toString)
+              .collect(Collectors.joining(" && ", "(", ")"));
+        }
+    }
+
+// Or
+
+    static final class Or extends QueryPredicate {
+
+        final List<QueryPredicate> predicates;
+
+        Or(List<QueryPredicate> predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public String toString() {
+            return this.predicates.stream()
+              .map(Object::toString)
+              .collect(Collectors.joining(" || ", "(", ")"));
+        }
+    }
+}
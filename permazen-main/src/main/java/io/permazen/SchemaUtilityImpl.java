@@ -167,6 +167,21 @@ public class SchemaUtilityImpl implements SchemaUtility {
         }
     }
 
+    @Override
+    public void generateClasses(File dir) throws MojoExecutionException {
+        Preconditions.checkState(this.pdb != null, "not configured");
+        Preconditions.checkArgument(dir != null, "null dir");
+
+        // Write generated classes
+        this.log.info("Writing Permazen generated classes to " + dir);
+        try {
+            this.pdb.writeGeneratedClasses(dir.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException(String.format(
+              "Error writing generated classes to \"%s\": %s", dir, e.getMessage()), e);
+        }
+    }
+
     @Override
     public boolean verifySchema(File file) throws MojoExecutionException {
         Preconditions.checkState(this.pdb != null, "not configured");
@@ -0,0 +1,330 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import com.google.common.base.Preconditions;
+
+import io.permazen.core.CoreIndex1;
+import io.permazen.core.CoreIndex2;
+import io.permazen.core.CoreIndex3;
+import io.permazen.core.CoreIndex4;
+import io.permazen.core.ObjId;
+import io.permazen.encoding.Encoding;
+import io.permazen.tuple.Tuple2;
+import io.permazen.tuple.Tuple3;
+import io.permazen.tuple.Tuple4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NavigableSet;
+
+/**
+ * Verifies simple field and composite index uniqueness constraints for a batch of objects.
+ *
+ * <p>
+ * Checks are accumulated per index via {@link #addField addField()} and {@link #addCompositeIndex addCompositeIndex()},
+ * then verified together by {@link #check}. For each index, the objects' current values are read and sorted, and the
+ * index is then probed once per distinct value in ascending key order. Compared to probing the index separately for
+ * each object, this visits the index sequentially and only once when several objects in the batch share the same value.
+ *
+ * <p>
+ * If more than one constraint is violated, the violation reported is the one that checking each constraint separately,
+ * in the order in which the checks were added, would have found first.
+ */
+class UniquenessChecker {
+
+    private static final int MAX_UNIQUE_CONFLICTORS = 5;
+
+    private final PermazenTransaction ptx;
+    private final LinkedHashMap<IndexQuery.Key, Batch> batches = new LinkedHashMap<>();
+
+    private int numChecks;
+    private ValidationException firstViolation;
+    private int firstViolationOrder = Integer.MAX_VALUE;
+
+    /**
+     * Constructor.
+     *
+     * @param ptx transaction
+     * @throws IllegalArgumentException if {@code ptx} is null
+     */
+    UniquenessChecker(PermazenTransaction ptx) {
+        Preconditions.checkArgument(ptx != null, "null ptx");
+        this.ptx = ptx;
+    }
+
+    /**
+     * Add a uniqueness check for a simple field.
+     *
+     * @param id object ID
+     * @param pfield unique field
+     */
+    void addField(ObjId id, PermazenSimpleField pfield) {
+        assert pfield.indexed;
+        assert pfield.unique;
+        this.batches.computeIfAbsent(new IndexQuery.Key(pfield), key -> new Batch(pfield, null)).add(id, this.numChecks++);
+    }
+
+    /**
+     * Add a uniqueness check for a composite index.
+     *
+     * @param id object ID
+     * @param pindex unique composite index
+     */
+    void addCompositeIndex(ObjId id, PermazenCompositeIndex pindex) {
+        assert pindex.unique;
+        this.batches.computeIfAbsent(new IndexQuery.Key(pindex), key -> new Batch(null, pindex)).add(id, this.numChecks++);
+    }
+
+    /**
+     * Determine whether there are any checks pending.
+     *
+     * @return true if no checks have been added since the last {@link #check}
+     */
+    boolean isEmpty() {
+        return this.batches.isEmpty();
+    }
+
+    /**
+     * Verify all of the uniqueness checks added so far, and then reset this instance.
+     *
+     * <p>
+     * Objects that no longer exist are ignored, and objects' current field values are used.
+     *
+     * @return the violation of the earliest added check that failed, or null if all checks passed
+     */
+    ValidationException check() {
+        try {
+            for (Batch batch : this.batches.values()) {
+                if (batch.pfield != null)
+                    this.checkField(batch.pfield, batch.checks);
+                else
+                    this.checkCompositeIndex(batch.pindex, batch.checks);
+            }
+            return this.firstViolation;
+        } finally {
+            this.batches.clear();
+            this.numChecks = 0;
+            this.firstViolation = null;
+            this.firstViolationOrder = Integer.MAX_VALUE;
+        }
+    }
+
+// Internal methods
+
+    private void checkField(PermazenSimpleField pfield, List<Check> checks) {
+
+        // Query core API index to find other objects with the same value in the field, but restrict the search to
+        // only include those types having the annotated method, not some other method with the same name/storage ID.
+        final IndexQuery info = this.ptx.pdb.getIndexQuery(new IndexQuery.Key(pfield));
+        final CoreIndex1<?, ObjId> index = info.applyFilters(this.ptx.tx.querySimpleIndex(pfield.storageId));
+
+        // Gather (core API) values, skipping deleted objects and excluded values
+        final ArrayList<Entry> entries = new ArrayList<>(checks.size());
+        for (Check check : checks) {
+            if (!this.ptx.tx.exists(check.id))
+                continue;
+            final Object value = this.ptx.tx.readSimpleField(check.id, pfield.name, false);
+            if (pfield.uniqueExcludes != null && pfield.uniqueExcludes.matches(value))
+                continue;
+            if (pfield.indexExcludes != null && pfield.indexExcludes.matches(value))       // not in the index
+                continue;
+            entries.add(new Entry(check, Collections.singletonList(value)));
+        }
+
+        // Probe the index once for each distinct value, in index order
+        final List<Encoding<?>> encodings = index.getEncodings();
+        this.sweep(entries, encodings.subList(0, 1), (id, values) -> {
+            final Object value = values.get(0);
+            final List<ObjId> conflictors = this.findUniqueConflictors(id, index.asMap().get(value));
+            if (conflictors.isEmpty())
+                return null;
+            return new ValidationException(this.ptx.get(id), String.format(
+              "uniqueness constraint on %s failed for object %s: field value %s is also shared by object(s) %s",
+              pfield, id, value, conflictors));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void checkCompositeIndex(PermazenCompositeIndex pindex, List<Check> checks) {
+
+        // Gather (core API) values, skipping deleted objects and excluded value combinations
+        final int numFields = pindex.pfields.size();
+        final ArrayList<Entry> entries = new ArrayList<>(checks.size());
+    checkLoop:
+        for (Check check : checks) {
+            if (!this.ptx.tx.exists(check.id))
+                continue;
+            final List<Object> values = new ArrayList<>(numFields);
+            for (PermazenSimpleField pfield : pindex.pfields)
+                values.add(this.ptx.tx.readSimpleField(check.id, pfield.name, false));
+
+            // Is this combination of values excluded from the uniqueness constraint?
+            for (List<ValueMatch<?>> fieldMatches : pindex.uniqueExcludes) {
+                boolean allFieldsMatched = true;
+                for (int i = 0; i < numFields; i++) {
+                    if (!fieldMatches.get(i).matches(values.get(i))) {
+                        allFieldsMatched = false;
+                        break;
+                    }
+                }
+                if (allFieldsMatched)
+                    continue checkLoop;
+            }
+            entries.add(new Entry(check, values));
+        }
+
+        // Query core API index to find all objects with the same values in the fields
+        final IndexQuery info = this.ptx.pdb.getIndexQuery(new IndexQuery.Key(pindex));
+        final PermazenCompositeIndex index = (PermazenCompositeIndex)info.schemaItem;
+        final List<Encoding<?>> encodings;
+        final Probe probe;
+        switch (numFields) {
+        case 2:
+            final CoreIndex2<Object, Object, ObjId> coreIndex2 = info.applyFilters(
+              (CoreIndex2<Object, Object, ObjId>)this.ptx.tx.queryCompositeIndex2(index.storageId));
+            encodings = coreIndex2.getEncodings();
+            probe = values -> coreIndex2.asMap().get(new Tuple2<Object, Object>(values.get(0), values.get(1)));
+            break;
+        case 3:
+            final CoreIndex3<Object, Object, Object, ObjId> coreIndex3 = info.applyFilters(
+              (CoreIndex3<Object, Object, Object, ObjId>)this.ptx.tx.queryCompositeIndex3(index.storageId));
+            encodings = coreIndex3.getEncodings();
+            probe = values -> coreIndex3.asMap().get(
+              new Tuple3<Object, Object, Object>(values.get(0), values.get(1), values.get(2)));
+            break;
+        case 4:
+            final CoreIndex4<Object, Object, Object, Object, ObjId> coreIndex4 = info.applyFilters(
+              (CoreIndex4<Object, Object, Object, Object, ObjId>)this.ptx.tx.queryCompositeIndex4(index.storageId));
+            encodings = coreIndex4.getEncodings();
+            probe = values -> coreIndex4.asMap().get(
+              new Tuple4<Object, Object, Object, Object>(values.get(0), values.get(1), values.get(2), values.get(3)));
+            break;
+        // COMPOSITE-INDEX
+        default:
+            throw new RuntimeException("internal error");
+        }
+
+        // Probe the index once for each distinct combination of values, in index order
+        this.sweep(entries, encodings.subList(0, numFields), (id, values) -> {
+            final List<ObjId> conflictors = this.findUniqueConflictors(id, probe.get(values));
+            if (conflictors.isEmpty())
+                return null;
+            return new ValidationException(this.ptx.get(id), String.format(
+              "uniqueness constraint on composite index \"%s\" failed for object %s:"
+              + " field value combination %s is also shared by object(s) %s",
+              pindex.name, id, values, conflictors));
+        });
+    }
+
+    // Sort entries by value(s) and invoke the checker once for the first object having each distinct value(s), remembering
+    // the violation from the earliest added check. Checking only the first object suffices: it is the earliest added check
+    // (the sort is stable), and any other object with the same value(s) is necessarily one of its conflictors.
+    private void sweep(ArrayList<Entry> entries, List<Encoding<?>> encodings, EntryChecker checker) {
+        final Comparator<List<Object>> comparator = UniquenessChecker.valuesComparator(encodings);
+        entries.sort((entry1, entry2) -> comparator.compare(entry1.values, entry2.values));
+        Entry previous = null;
+        for (Entry entry : entries) {
+            if (previous != null && comparator.compare(previous.values, entry.values) == 0)
+                continue;
+            previous = entry;
+            if (entry.check.order >= this.firstViolationOrder)                  // can't be the first violation
+                continue;
+            final ValidationException violation = checker.check(entry.check.id, entry.values);
+            if (violation != null) {
+                this.firstViolation = violation;
+                this.firstViolationOrder = entry.check.order;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparator<List<Object>> valuesComparator(List<Encoding<?>> encodings) {
+        return (values1, values2) -> {
+            for (int i = 0; i < encodings.size(); i++) {
+                final int diff = ((Encoding<Object>)encodings.get(i)).compare(values1.get(i), values2.get(i));
+                if (diff != 0)
+                    return diff;
+            }
+            return 0;
+        };
+    }
+
+    // Find some duplicates that shouldn't be there, if any
+    private ArrayList<ObjId> findUniqueConflictors(ObjId id, NavigableSet<ObjId> ids) {
+        final ArrayList<ObjId> conflictors = new ArrayList<>(MAX_UNIQUE_CONFLICTORS);
+        if (ids == null)
+            return conflictors;
+        for (ObjId conflictor : ids) {
+            if (conflictor.equals(id))                          // ignore object's own index entry
+                continue;
+            conflictors.add(conflictor);
+            if (conflictors.size() >= MAX_UNIQUE_CONFLICTORS)
+                break;
+        }
+        return conflictors;
+    }
+
+// Batch
+
+    private static class Batch {
+
+        final PermazenSimpleField pfield;               // representative field, or null if composite index
+        final PermazenCompositeIndex pindex;            // representative composite index, or null if simple field
+        final ArrayList<Check> checks = new ArrayList<>();
+
+        Batch(PermazenSimpleField pfield, PermazenCompositeIndex pindex) {
+            assert (pfield != null) != (pindex != null);
+            this.pfield = pfield;
+            this.pindex = pindex;
+        }
+
+        void add(ObjId id, int order) {
+            this.checks.add(new Check(id, order));
+        }
+    }
+
+// Check
+
+    private static class Check {
+
+        final ObjId id;
+        final int order;                                // the order in which this check was added
+
+        Check(ObjId id, int order) {
+            this.id = id;
+            this.order = order;
+        }
+    }
+
+// Entry
+
+    private static class Entry {
+
+        final Check check;
+        final List<Object> values;
+
+        Entry(Check check, List<Object> values) {
+            this.check = check;
+            this.values = values;
+        }
+    }
+
+// Functional interfaces
+
+    @FunctionalInterface
+    private interface EntryChecker {
+        ValidationException check(ObjId id, List<Object> values);
+    }
+
+    @FunctionalInterface
+    private interface Probe {
+        NavigableSet<ObjId> get(List<Object> values);
+    }
+}
@@ -10,6 +10,7 @@ import com.google.common.base.Preconditions;
 import io.permazen.annotation.ValueRange;
 import io.permazen.annotation.Values;
 import io.permazen.encoding.Encoding;
+import io.permazen.schema.SimpleSchemaField;
 import io.permazen.util.BoundType;
 import io.permazen.util.Bounds;
 
@@ -140,6 +141,26 @@ final class ValueMatch<T> {
         return false;
     }
 
+    /**
+     * Configure the given schema field's index to exclude the values matched by this instance.
+     *
+     * @param schemaField schema field to configure
+     */
+    public void applyIndexExcludes(SimpleSchemaField schemaField) {
+        schemaField.setIndexExcludesNull(this.nulls && this.encoding.supportsNull());
+        if (this.nonNulls) {
+            schemaField.getIndexExcludes().add(new Bounds<>());
+            return;
+        }
+        for (T value : this.values)
+            schemaField.getIndexExcludes().add(Bounds.eq(this.encoding.toString(value)));
+        for (Bounds<T> range : this.ranges) {
+            schemaField.getIndexExcludes().add(new Bounds<>(
+              range.hasLowerBound() ? this.encoding.toString(range.getLowerBound()) : null, range.getLowerBoundType(),
+              range.hasUpperBound() ? this.encoding.toString(range.getUpperBound()) : null, range.getUpperBoundType()));
+        }
+    }
+
     /**
      * Create a new instance, also binding the generic type.
      */
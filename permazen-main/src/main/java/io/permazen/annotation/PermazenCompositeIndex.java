@@ -31,6 +31,15 @@ import java.lang.annotation.Target;
  * <p>
  * {@link PermazenCompositeIndex &#64;PermazenCompositeIndex} is a {@linkplain Repeatable repeatable annotation}.
  *
+ * <p><b>Included Fields</b></p>
+ *
+ * A composite index may also specify {@linkplain #includedFields included fields}, whose values are stored in each
+ * index entry but are not part of the index key. This allows queries that only need those fields to read them
+ * directly from the index, without loading each matching object; see
+ * {@link io.permazen.PermazenTransaction#queryCompositeIndexIncludedValues
+ * PermazenTransaction.queryCompositeIndexIncludedValues()}. The trade-off is that the index entry must be updated
+ * whenever an included field changes.
+ *
  * <p><b>Uniqueness Constraints</b></p>
  *
  * Uniqueness constraints are supported, and their enforcement is handled in the same way as for uniqueness constraints
@@ -78,6 +87,18 @@ public @interface PermazenCompositeIndex {
      */
     String[] fields();
 
+    /**
+     * The names of fields whose values should be stored in each index entry, without being part of the index key.
+     *
+     * <p>
+     * Included fields are subject to the same restrictions as indexed fields, and may not also be indexed fields.
+     * Changing the included fields changes the index's encoding, so the index is effectively replaced.
+     *
+     * @return the names of the included fields
+     * @see io.permazen.PermazenTransaction#queryCompositeIndexIncludedValues
+     */
+    String[] includedFields() default {};
+
     /**
      * Require each object's field combination to be unique among all types to which this annotation applies.
      *
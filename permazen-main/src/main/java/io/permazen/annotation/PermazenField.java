@@ -105,6 +105,12 @@ import java.lang.annotation.Target;
  * Two or more simple fields may be indexed together in a composite index; see
  * {@link PermazenCompositeIndex &#64;PermazenCompositeIndex}.
  *
+ * <p><b>Aggregate Counters</b></p>
+ *
+ * <p>
+ * A {@link Counter} field may be declared as an aggregate over the objects that refer to it, in which case Permazen
+ * maintains its value automatically; see {@link #aggregate}.
+ *
  * <p><b>Reference Cascades</b></p>
  *
  * <p>
@@ -417,6 +423,105 @@ public @interface PermazenField {
      */
     Values uniqueExcludes() default @Values;
 
+    /**
+     * Specify field value(s) that should be excluded from the field's index, making it a <i>partial index</i>.
+     *
+     * <p>
+     * Objects whose field value is excluded have no index entry, so the index costs nothing to maintain or store
+     * for them. This is useful for sparse fields, or fields whose value is almost always the same. Examples:
+     * <pre>
+     *  // Only index objects that have been deleted
+     *  &#64;PermazenField(indexed = true, <b>indexExcludes = &#64;Values(nulls = true))</b>
+     *  public abstract Instant getDeletedAt();
+     *
+     *  // Only index objects whose status is unusual
+     *  &#64;PermazenField(indexed = true, <b>indexExcludes = &#64;Values("ACTIVE"))</b>
+     *  public abstract Status getStatus();
+     * </pre>
+     *
+     * <p>
+     * Index queries never see objects having excluded values. Queries via {@link io.permazen.PermazenTransaction#query
+     * PermazenTransaction.query()} that could match excluded values are rejected, rather than silently returning
+     * incomplete results. Excluded values are also implicitly excluded from any {@linkplain #unique uniqueness constraint}.
+     *
+     * <p>
+     * Excluding every value generates an error. Reference fields may only exclude null values, because their index
+     * is also used to find referring objects. This property must be left empty for sub-fields of complex fields,
+     * and for any field that is not indexed.
+     *
+     * @return field values to be excluded from the field's index
+     * @see #indexed
+     */
+    Values indexExcludes() default @Values;
+
+    /**
+     * Declare a {@link Counter} field as an <i>aggregate counter</i> over the objects that refer to this object.
+     *
+     * <p>
+     * The value is an inverse reference path of the form {@code "<-Type.field"}, where {@code Type} is the name of a
+     * Permazen object type and {@code field} is a (non-sub-field) reference field in that type that refers back to this
+     * object's type. The counter then equals the number of such objects referring to this object or, if
+     * {@link #aggregateSum} is also specified, the sum of the given field in those objects.
+     *
+     * <p>
+     * Permazen maintains the counter transactionally in the core mutation path, so replacing hand-written
+     * {@link OnChange &#64;OnChange} and {@link OnDelete &#64;OnDelete} bookkeeping with an aggregate avoids
+     * listener invocations and read-modify-write cycles. Reading the aggregate is a single key lookup.
+     * Aggregate counters should not be adjusted manually. Example:
+     * <pre><code class="language-java">
+     *  &#64;PermazenType
+     *  public abstract class Order implements PermazenObject {
+     *
+     *      &#64;PermazenField(<b>aggregate = "&lt;-LineItem.order"</b>)
+     *      public abstract Counter getNumLineItems();
+     *
+     *      &#64;PermazenField(<b>aggregate = "&lt;-LineItem.order", aggregateSum = "amount"</b>)
+     *      public abstract Counter getTotalAmount();
+     *  }
+     *
+     *  &#64;PermazenType
+     *  public abstract class LineItem implements PermazenObject {
+     *
+     *      public abstract Order getOrder();
+     *      public abstract void setOrder(Order order);
+     *
+     *      public abstract long getAmount();
+     *      public abstract void setAmount(long amount);
+     *  }
+     * </code></pre>
+     *
+     * <p>
+     * Objects whose schema does not define the aggregate don't contribute to it. When adding an aggregate to an existing
+     * schema, existing counter values are not recomputed; use {@code jsck} to rebuild them.
+     *
+     * <p>
+     * Aggregate counters are read-only: attempts to {@linkplain Counter#set set} or {@linkplain Counter#adjust adjust}
+     * them directly throw {@link IllegalArgumentException}.
+     *
+     * <p>
+     * This property must be left empty for fields that are not {@link Counter} fields.
+     *
+     * @return inverse reference path to the aggregated objects, or empty string for none
+     * @see #aggregateSum
+     */
+    String aggregate() default "";
+
+    /**
+     * Specify the field whose values are summed by an {@linkplain #aggregate aggregate counter}.
+     *
+     * <p>
+     * This must name a non-sub-field simple field of type {@code byte}, {@code short}, {@code int}, or {@code long}
+     * (or the corresponding wrapper type, where null counts as zero) in the aggregated object type.
+     * If left empty, the aggregate counts objects instead.
+     *
+     * <p>
+     * This property must be left empty unless {@link #aggregate} is set.
+     *
+     * @return name of the summed field, or empty string to count objects
+     * @see #aggregate
+     */
+    String aggregateSum() default "";
+
     /**
      * Allow the field to reference non-existent objects in normal transactions.
      *
@@ -204,6 +204,25 @@ public @interface PermazenType {
      */
     boolean singleton() default false;
 
+    /**
+     * Whether automatic revalidation of instances of this type after a field change may be limited to the
+     * validation constraints involving that field.
+     *
+     * <p>
+     * Normally, when a field change causes an object to be automatically enqueued for revalidation, the entire object
+     * is validated. If this property is true, then only the JSR 303 constraints on the changed fields' properties,
+     * and only the uniqueness constraints involving the changed fields, are checked; constraints on other fields that
+     * were already violated may then go unreported. {@link OnValidate &#64;OnValidate} methods are always invoked.
+     *
+     * <p>
+     * This property has no effect, and the entire object is always validated, if the type has JSR 303 class-level
+     * constraints, cascaded properties, or constrained properties that don't correspond to a database field.
+     * Explicit {@linkplain PermazenObject#revalidate revalidation} always validates the entire object.
+     *
+     * @return whether automatic revalidation may be limited to the changed fields
+     */
+    boolean fieldLevelValidation() default false;
+
     /**
      * {@link SchemaModel} schema ID hash epoch.
      *
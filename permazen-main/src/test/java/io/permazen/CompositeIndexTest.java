@@ -12,13 +12,18 @@ import io.permazen.annotation.Values;
 import io.permazen.annotation.ValuesList;
 import io.permazen.core.Database;
 import io.permazen.core.DeleteAction;
+import io.permazen.index.Index2;
 import io.permazen.kv.simple.MemoryKVDatabase;
+import io.permazen.test.TestSupport;
+import io.permazen.tuple.Tuple;
 import io.permazen.tuple.Tuple2;
 import io.permazen.tuple.Tuple3;
 import io.permazen.tuple.Tuple4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
@@ -186,6 +191,17 @@ public class CompositeIndexTest extends MainTestSupport {
             Assert.assertEquals(view.get(new Tuple2<PermazenObject, Thread.State>(null, Thread.State.RUNNABLE)),
               buildSet(a));
 
+            // Aggregation
+            final Index2<PermazenObject, Thread.State, IndexedOn2> index
+              = ptx.queryCompositeIndex(IndexedOn2.class, "index2", PermazenObject.class, Thread.State.class);
+            Assert.assertEquals(index.count(), 3);
+            TestSupport.checkMap(index.countByValues(), buildMap(
+              new Tuple2<PermazenObject, Thread.State>(null, Thread.State.RUNNABLE), 1L,
+              new Tuple2<PermazenObject, Thread.State>(null, Thread.State.WAITING), 1L,
+              new Tuple2<PermazenObject, Thread.State>(a, Thread.State.RUNNABLE), 1L));
+            TestSupport.checkMap(index.countByValue1(), buildMap(null, 2L, a, 1L));
+            TestSupport.checkMap(index.asIndex1().countByValue(), buildMap(null, 2L, a, 1L));
+
             this.checkValid(true);
 
             ptx.commit();
@@ -553,6 +569,64 @@ public class CompositeIndexTest extends MainTestSupport {
         }
     }
 
+    @Test
+    public void testIncludedFields() throws Exception {
+        final Permazen pdb = BasicTest.newPermazen(E.class);
+        PermazenTransaction ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+
+            final E e1 = ptx.create(E.class);
+            final E e2 = ptx.create(E.class);
+            e1.setField2(Thread.State.NEW);
+            e1.setField3(123);
+            e1.setField4("abc");
+            e1.setField1(e2);
+            e2.setField2(Thread.State.BLOCKED);
+            e2.setField4("def");
+
+            final NavigableMap<Tuple, List<Object>> view = ptx.queryCompositeIndexIncludedValues(E.class, "covering");
+            Assert.assertEquals(view.size(), 2);
+            Assert.assertEquals(view.get(new Tuple3<>(Thread.State.NEW, 123, e1)), Arrays.asList("abc", e2));
+            Assert.assertEquals(view.get(new Tuple3<>(Thread.State.BLOCKED, 0, e2)), Arrays.asList("def", null));
+
+            // Included values track field changes
+            e1.setField4("xyz");
+            e2.setField1(e1);
+            Assert.assertEquals(view.get(new Tuple3<>(Thread.State.NEW, 123, e1)), Arrays.asList("xyz", e2));
+            Assert.assertEquals(view.get(new Tuple3<>(Thread.State.BLOCKED, 0, e2)), Arrays.asList("def", e1));
+
+            // Restrict by leading values
+            final NavigableMap<Tuple, List<Object>> view2
+              = ptx.queryCompositeIndexIncludedValues(E.class, "covering", Thread.State.BLOCKED);
+            Assert.assertEquals(view2.keySet(), buildSet(new Tuple3<>(Thread.State.BLOCKED, 0, e2)));
+            Assert.assertTrue(ptx.queryCompositeIndexIncludedValues(E.class, "covering", Thread.State.NEW, 456).isEmpty());
+
+            // Index without included fields
+            try {
+                ptx.queryCompositeIndexIncludedValues(IndexedOn2.class, "index2");
+                assert false : "expected exception";
+            } catch (IllegalArgumentException e) {
+                this.log.info("got expected {}", e.toString());
+            }
+
+            ptx.commit();
+
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+    }
+
+    @Test
+    public void testInvalidIncludedFields() throws Exception {
+        try {
+            BasicTest.newPermazen(InvalidIncluded.class);
+            assert false : "expected exception";
+        } catch (IllegalArgumentException e) {
+            this.log.info("got expected {}", e.toString());
+        }
+    }
+
     private void checkValid(boolean valid, Object... extra) {
         final PermazenTransaction ptx = PermazenTransaction.getCurrent();
         try {
@@ -718,4 +792,17 @@ public class CompositeIndexTest extends MainTestSupport {
     @PermazenType
     public abstract static class D implements Fields, Unique {
     }
+
+// Model Classes #5
+
+    @PermazenCompositeIndex(name = "covering", fields = { "field2", "field3" }, includedFields = { "field4", "field1" })
+    @PermazenType
+    public abstract static class E implements Fields {
+    }
+
+    // Invalid - included field is also indexed
+    @PermazenCompositeIndex(name = "covering", fields = { "field2", "field3" }, includedFields = { "field3" })
+    @PermazenType
+    public abstract static class InvalidIncluded implements Fields {
+    }
 }
@@ -51,6 +51,42 @@ public class CounterTest extends MainTestSupport {
         }
     }
 
+    @Test
+    public void testAggregateCounter() {
+
+        final Permazen pdb = BasicTest.newPermazen(Order.class, Item.class);
+        final PermazenTransaction tx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(tx);
+        try {
+
+            final Order order = tx.create(Order.class);
+            final Item item = tx.create(Item.class);
+            item.setOrder(order);
+
+            final Counter counter = order.getItemCount();
+
+            Assert.assertEquals(counter.get(), 1);
+
+            try {
+                counter.set(123);
+                assert false : "expected exception";
+            } catch (IllegalArgumentException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+            try {
+                counter.increment();
+                assert false : "expected exception";
+            } catch (IllegalArgumentException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+
+            Assert.assertEquals(counter.get(), 1);
+
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+    }
+
 // Model Classes
 
     @PermazenType(storageId = 100)
@@ -65,4 +101,18 @@ public class CounterTest extends MainTestSupport {
           encoding = "float"))
         public abstract NavigableMap<Person, Float> getRatings();
     }
+
+    @PermazenType
+    public abstract static class Order implements PermazenObject {
+
+        @PermazenField(aggregate = "<-Item.order")
+        public abstract Counter getItemCount();
+    }
+
+    @PermazenType
+    public abstract static class Item implements PermazenObject {
+
+        public abstract Order getOrder();
+        public abstract void setOrder(Order order);
+    }
 }
@@ -0,0 +1,191 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import io.permazen.annotation.OnValidate;
+import io.permazen.annotation.PermazenField;
+import io.permazen.annotation.PermazenType;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FieldLevelValidationTest extends MainTestSupport {
+
+    private static int onValidateCount;
+
+    @Test
+    public void testFieldLevelValidation() throws Exception {
+
+        final Permazen pdb = BasicTest.newPermazen(Person.class, Thing.class, Animal.class);
+
+        // Create objects with invalid "name" fields, without validation
+        final Person person1;
+        final Person person2;
+        final Thing thing;
+        final Animal animal;
+        PermazenTransaction ptx = pdb.createTransaction(ValidationMode.MANUAL);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            person1 = ptx.create(Person.class);
+            person1.setEmail("foo@example.com");
+            person2 = ptx.create(Person.class);
+            person2.setEmail("foo@example.com");
+            thing = ptx.create(Thing.class);
+            thing.setCount(1);
+            animal = ptx.create(Animal.class);
+            ptx.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+
+        // Changing only "age" should only validate constraints involving "age" (plus @OnValidate methods)
+        onValidateCount = 0;
+        ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            ptx.get(person1).setAge(10);
+            ptx.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+        Assert.assertEquals(onValidateCount, 1);
+
+        // Still detect violations involving the changed field
+        ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            ptx.get(person1).setAge(-1);
+            ptx.commit();
+            assert false : "expected validation failure";
+        } catch (ValidationException e) {
+            this.log.debug("got expected {}", e.toString());
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+
+        // Explicit revalidation still validates everything
+        ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            final Person person = ptx.get(person1);
+            person.setAge(20);
+            person.revalidate();
+            ptx.commit();
+            assert false : "expected validation failure";
+        } catch (ValidationException e) {
+            this.log.debug("got expected {}", e.toString());
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+
+        // Uniqueness constraints are only checked when the unique field changes
+        ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            final Person person = ptx.get(person2);
+            person.setName("Fred");
+            person.setAge(30);
+            ptx.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+        ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            final Person person = ptx.get(person2);
+            person.setEmail("bar@example.com");
+            person.setEmail("foo@example.com");
+            ptx.commit();
+            assert false : "expected validation failure";
+        } catch (ValidationException e) {
+            this.log.debug("got expected {}", e.toString());
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+
+        // Constraints on non-field properties require full validation
+        ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            ptx.get(thing).setCount(2);
+            ptx.commit();
+            assert false : "expected validation failure";
+        } catch (ValidationException e) {
+            this.log.debug("got expected {}", e.toString());
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+
+        // Without fieldLevelValidation(), a field change always triggers full validation
+        ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            ptx.get(animal).setAge(10);
+            ptx.commit();
+            assert false : "expected validation failure";
+        } catch (ValidationException e) {
+            this.log.debug("got expected {}", e.toString());
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+    }
+
+// Model Classes
+
+    @PermazenType(fieldLevelValidation = true)
+    public abstract static class Person implements PermazenObject {
+
+        @NotNull
+        public abstract String getName();
+        public abstract void setName(String name);
+
+        @PermazenField(indexed = true, unique = true)
+        public abstract String getEmail();
+        public abstract void setEmail(String email);
+
+        @Min(0)
+        public abstract int getAge();
+        public abstract void setAge(int age);
+
+        @OnValidate
+        private void onValidate() {
+            onValidateCount++;
+        }
+    }
+
+    @PermazenType(fieldLevelValidation = true)
+    public abstract static class Thing implements PermazenObject {
+
+        @NotNull
+        public abstract String getName();
+        public abstract void setName(String name);
+
+        @Min(0)
+        public abstract int getCount();
+        public abstract void setCount(int count);
+
+        @AssertTrue
+        public boolean isNamed() {
+            return this.getName() != null;
+        }
+    }
+
+    @PermazenType
+    public abstract static class Animal implements PermazenObject {
+
+        @NotNull
+        public abstract String getName();
+        public abstract void setName(String name);
+
+        @Min(0)
+        public abstract int getAge();
+        public abstract void setAge(int age);
+    }
+}
@@ -0,0 +1,101 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MethodInvokerTest extends MainTestSupport {
+
+    private static final List<Object> INVOCATIONS = new ArrayList<>();
+
+    @Test
+    public void testMethodInvoker() throws Exception {
+
+        final Target target = new Target();
+
+        // Private instance method
+        final MethodInvoker invoker1 = MethodInvoker.of(Target.class.getDeclaredMethod("method1", String.class));
+        Assert.assertNotSame(invoker1.getClass(), MethodInvoker.class, "direct invoker not generated");
+        invoker1.invoke(target, "foo");
+        Assert.assertEquals(target.values, List.of("foo"));
+
+        // Instance method with no parameters
+        final MethodInvoker invoker0 = MethodInvoker.of(Target.class.getDeclaredMethod("method0"));
+        invoker0.invoke(target);
+        Assert.assertEquals(target.values, List.of("foo", "zero"));
+
+        // Static method with three parameters
+        final MethodInvoker invoker3 = MethodInvoker.of(Target.class.getDeclaredMethod("method3", Object.class, Object.class,
+          Object.class));
+        INVOCATIONS.clear();
+        invoker3.invoke(null, 1, 2, 3);
+        Assert.assertEquals(INVOCATIONS, List.of(1, 2, 3));
+
+        // Checked exceptions are wrapped, unchecked exceptions are not
+        final MethodInvoker thrower = MethodInvoker.of(Target.class.getDeclaredMethod("thrower", Exception.class));
+        try {
+            thrower.invoke(target, new IOException("checked"));
+            assert false : "expected exception";
+        } catch (PermazenException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException, "wrong cause " + e.getCause());
+        }
+        try {
+            thrower.invoke(target, new IllegalStateException("unchecked"));
+            assert false : "expected exception";
+        } catch (IllegalStateException e) {
+            this.log.debug("got expected {}", e.toString());
+        }
+
+        // Wrong number of parameters
+        try {
+            invoker1.invoke(target, "foo", "bar");
+            assert false : "expected exception";
+        } catch (IllegalArgumentException e) {
+            this.log.debug("got expected {}", e.toString());
+        }
+
+        // Primitive parameters fall back to reflection
+        final MethodInvoker primitive = MethodInvoker.of(Target.class.getDeclaredMethod("primitive", int.class));
+        Assert.assertSame(primitive.getClass(), MethodInvoker.class);
+        primitive.method.setAccessible(true);
+        primitive.invoke(target, 123);
+        Assert.assertEquals(target.values, List.of("foo", "zero", 123));
+    }
+
+// Target
+
+    public static class Target {
+
+        final List<Object> values = new ArrayList<>();
+
+        private void method0() {
+            this.values.add("zero");
+        }
+
+        private void method1(String value) {
+            this.values.add(value);
+        }
+
+        private static void method3(Object value1, Object value2, Object value3) {
+            INVOCATIONS.add(value1);
+            INVOCATIONS.add(value2);
+            INVOCATIONS.add(value3);
+        }
+
+        private void thrower(Exception e) throws Exception {
+            throw e;
+        }
+
+        private void primitive(int value) {
+            this.values.add(value);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import io.permazen.annotation.PermazenField;
+import io.permazen.annotation.PermazenSetField;
+import io.permazen.annotation.PermazenType;
+import io.permazen.annotation.Values;
+import io.permazen.core.ObjId;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PartialIndexTest extends MainTestSupport {
+
+    @Test
+    public void testPartialIndex() throws Exception {
+        final Permazen pdb = BasicTest.newPermazen(Task.class);
+
+        // Verify schema
+        final PermazenClass<Task> pclass = pdb.getPermazenClass(Task.class);
+        Assert.assertNotNull(pclass.getField("deletedAt", PermazenSimpleField.class).getSchemaItem().getIndexExcludes());
+        Assert.assertNull(pclass.getField("name", PermazenSimpleField.class).getSchemaItem().getIndexExcludes());
+
+        // Populate
+        final ArrayList<ObjId> ids = new ArrayList<>();
+        final PermazenTransaction ptx1 = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx1);
+        try {
+            Task prev = null;
+            for (int i = 0; i < 50; i++) {
+                final Task task = ptx1.create(Task.class);
+                task.setName("task" + i);
+                task.setStatus(Status.values()[this.random.nextInt(Status.values().length)]);
+                if (this.random.nextInt(5) == 0)
+                    task.setDeletedAt(this.random.nextInt(100));
+                if (prev != null && this.random.nextInt(3) == 0)
+                    task.setParent(prev);
+                if (i % 2 == 0)
+                    task.setCode(i + 1);                // odd codes are zero, which is excluded from the index
+                ids.add(task.getObjId());
+                prev = task;
+            }
+            ptx1.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+
+        final PermazenTransaction ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            final List<Task> tasks = ids.stream().map(id -> ptx.get(id, Task.class)).collect(Collectors.toList());
+
+            // Verify index contents
+            Assert.assertFalse(ptx.querySimpleIndex(Task.class, "deletedAt", Integer.class).asMap().containsKey(null));
+            Assert.assertEquals(ptx.querySimpleIndex(Task.class, "deletedAt", Integer.class).asMap().values().stream()
+                .mapToInt(Set::size).sum(),
+              tasks.stream().filter(task -> task.getDeletedAt() != null).count());
+            Assert.assertFalse(ptx.querySimpleIndex(Task.class, "status", Status.class).asMap().containsKey(Status.ACTIVE));
+            Assert.assertFalse(ptx.querySimpleIndex(Task.class, "parent", Task.class).asMap().containsKey(null));
+            Assert.assertFalse(ptx.querySimpleIndex(Task.class, "code", Integer.class).asMap().containsKey(0));
+
+            // Index entries track changes
+            final Task task = tasks.get(0);
+            task.setDeletedAt(1000);
+            task.setStatus(Status.DONE);
+            Assert.assertTrue(ptx.querySimpleIndex(Task.class, "deletedAt", Integer.class).asMap().get(1000).contains(task));
+            task.setDeletedAt(null);
+            task.setStatus(Status.ACTIVE);
+            Assert.assertNull(ptx.querySimpleIndex(Task.class, "deletedAt", Integer.class).asMap().get(1000));
+            Assert.assertFalse(ptx.querySimpleIndex(Task.class, "status", Status.class).asMap().get(Status.DONE).contains(task));
+
+            // Queries on indexed values
+            this.check(ptx, tasks, QueryPredicate.ge("deletedAt", 50), t -> t.getDeletedAt() != null && t.getDeletedAt() >= 50);
+            this.check(ptx, tasks, QueryPredicate.in("status", Status.BLOCKED, Status.DONE), t -> t.getStatus() != Status.ACTIVE);
+            this.check(ptx, tasks, QueryPredicate.ge("status", Status.BLOCKED), t -> t.getStatus() != Status.ACTIVE);
+            this.check(ptx, tasks, QueryPredicate.gt("code", 10), t -> t.getCode() > 10);
+
+            // Ordering by a partial index field must sort
+            final PermazenQuery<Task> query = ptx.query(Task.class).orderBy("deletedAt", true);
+            Assert.assertTrue(query.explain().startsWith("sort"), query.explain());
+            final List<Task> expected = new ArrayList<>(tasks);
+            expected.sort(Comparator.comparing(Task::getObjId));
+            expected.sort(Comparator.comparing(Task::getDeletedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+            Assert.assertEquals(query.asList(), expected);
+
+            // Queries on excluded values are rejected
+            for (QueryPredicate predicate : new QueryPredicate[] {
+                QueryPredicate.eq("deletedAt", null),
+                QueryPredicate.eq("status", Status.ACTIVE),
+                QueryPredicate.lt("status", Status.DONE),
+                QueryPredicate.ge("code", 0),
+            }) {
+                try {
+                    ptx.query(Task.class).where(predicate).asList();
+                    assert false : "expected exception for " + predicate;
+                } catch (IllegalArgumentException e) {
+                    this.log.debug("got expected {}", e.toString());
+                }
+            }
+
+            // Excluded values are exempt from the uniqueness constraint
+            ptx.validate();
+            tasks.get(1).setCode(tasks.get(0).getCode());
+            try {
+                ptx.validate();
+                assert false : "expected exception";
+            } catch (ValidationException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+            tasks.get(1).setCode(0);
+            ptx.validate();
+
+            ptx.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        for (Class<?> type : List.of(PartialInvalid1.class, PartialInvalid2.class, PartialInvalid3.class)) {
+            try {
+                BasicTest.newPermazen(type);
+                assert false : "expected exception for " + type;
+            } catch (IllegalArgumentException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+        }
+    }
+
+    private void check(PermazenTransaction ptx, List<Task> tasks, QueryPredicate predicate,
+      Predicate<Task> filter) {
+        final PermazenQuery<Task> query = ptx.query(Task.class).where(predicate);
+        final NavigableSet<Task> actual = query.asSet();
+        final List<Task> expected = tasks.stream()
+          .filter(filter)
+          .sorted(Comparator.comparing(Task::getObjId))
+          .collect(Collectors.toList());
+        Assert.assertEquals(new ArrayList<>(actual), expected, "query " + query + " plan:\n" + query.explain());
+    }
+
+// Model Classes
+
+    public enum Status {
+        ACTIVE,
+        BLOCKED,
+        DONE;
+    }
+
+    @PermazenType
+    public abstract static class Task implements PermazenObject {
+
+        @PermazenField(indexed = true)
+        public abstract String getName();
+        public abstract void setName(String name);
+
+        @PermazenField(indexed = true, indexExcludes = @Values(nulls = true))
+        public abstract Integer getDeletedAt();
+        public abstract void setDeletedAt(Integer deletedAt);
+
+        @PermazenField(indexed = true, indexExcludes = @Values("ACTIVE"))
+        public abstract Status getStatus();
+        public abstract void setStatus(Status status);
+
+        @PermazenField(indexExcludes = @Values(nulls = true))
+        public abstract Task getParent();
+        public abstract void setParent(Task parent);
+
+        @PermazenField(indexed = true, unique = true, indexExcludes = @Values("0"))
+        public abstract int getCode();
+        public abstract void setCode(int code);
+
+        @Override
+        public String toString() {
+            return "Task[" + this.getObjId() + ",deletedAt=" + this.getDeletedAt() + "]";
+        }
+    }
+
+    // Not indexed
+    @PermazenType
+    public abstract static class PartialInvalid1 implements PermazenObject {
+
+        @PermazenField(indexExcludes = @Values(nulls = true))
+        public abstract String getName();
+        public abstract void setName(String name);
+    }
+
+    // Reference field excluding non-null values
+    @PermazenType
+    public abstract static class PartialInvalid2 implements PermazenObject {
+
+        @PermazenField(indexExcludes = @Values(nonNulls = true))
+        public abstract PartialInvalid2 getFriend();
+        public abstract void setFriend(PartialInvalid2 friend);
+    }
+
+    // Complex sub-field
+    @PermazenType
+    public abstract static class PartialInvalid3 implements PermazenObject {
+
+        @PermazenSetField(element = @PermazenField(indexed = true, indexExcludes = @Values("foo")))
+        public abstract Set<String> getNames();
+    }
+}
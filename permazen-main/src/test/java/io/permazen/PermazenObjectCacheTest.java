@@ -0,0 +1,78 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import io.permazen.annotation.PermazenType;
+import io.permazen.core.ObjId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PermazenObjectCacheTest extends MainTestSupport {
+
+    private static final int NUM_OBJECTS = 500;
+    private static final int NUM_THREADS = 8;
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+
+        final Permazen pdb = BasicTest.newPermazen(Thing.class);
+        final PermazenTransaction ptx = pdb.createDetachedTransaction(ValidationMode.DISABLED);
+
+        // Create objects
+        final ObjId[] ids = new ObjId[NUM_OBJECTS];
+        for (int i = 0; i < NUM_OBJECTS; i++)
+            ids[i] = ptx.create(Thing.class).getObjId();
+
+        // Use a fresh cache so all objects must be instantiated
+        final PermazenObjectCache cache = new PermazenObjectCache(ptx);
+        for (ObjId id : ids)
+            Assert.assertNull(cache.getIfExists(id));
+
+        // Look up objects concurrently from several threads, in different orders
+        final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        final PermazenObject[][] results = new PermazenObject[NUM_THREADS][];
+        try {
+            final List<Future<?>> futures = new ArrayList<>(NUM_THREADS);
+            for (int i = 0; i < NUM_THREADS; i++) {
+                final int thread = i;
+                futures.add(executor.submit(() -> {
+                    final PermazenObject[] pobjs = new PermazenObject[NUM_OBJECTS];
+                    for (int j = 0; j < NUM_OBJECTS; j++) {
+                        final int index = (thread % 2 == 0 ? j : NUM_OBJECTS - 1 - j);
+                        pobjs[index] = cache.get(ids[index]);
+                    }
+                    results[thread] = pobjs;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Verify every thread got the same unique instance for each object
+        for (int j = 0; j < NUM_OBJECTS; j++) {
+            final PermazenObject pobj = results[0][j];
+            Assert.assertEquals(pobj.getObjId(), ids[j]);
+            Assert.assertSame(cache.getIfExists(ids[j]), pobj);
+            for (int i = 1; i < NUM_THREADS; i++)
+                Assert.assertSame(results[i][j], pobj);
+        }
+    }
+
+// Model Classes
+
+    @PermazenType
+    public abstract static class Thing implements PermazenObject {
+    }
+}
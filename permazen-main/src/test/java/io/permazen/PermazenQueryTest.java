@@ -0,0 +1,275 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import io.permazen.annotation.PermazenField;
+import io.permazen.annotation.PermazenType;
+import io.permazen.core.ObjId;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PermazenQueryTest extends MainTestSupport {
+
+    private static final String[] NAMES = { "Adams", "Brown", "Clark", "Davis" };
+    private static final Comparator<Person> BY_AGE
+      = Comparator.comparing(Person::getAge, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @Test
+    public void testQuery() throws Exception {
+        final Permazen pdb = BasicTest.newPermazen(Person.class);
+
+        // Populate
+        final ArrayList<ObjId> ids = new ArrayList<>();
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            for (int i = 0; i < 100; i++) {
+                final Person person = ptx.create(Person.class);
+                person.setLastName(NAMES[this.random.nextInt(NAMES.length)]);
+                person.setAge(this.random.nextInt(10) == 0 ? null : this.random.nextInt(100));
+                person.setColor(Color.values()[this.random.nextInt(Color.values().length)]);
+                person.setCode(i);
+                if (!people.isEmpty() && this.random.nextBoolean())
+                    person.setFriend(people.get(this.random.nextInt(people.size())));
+                people.add(person);
+                ids.add(person.getObjId());
+            }
+        });
+
+        // Unordered queries
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            final Person friend = people.get(0);
+            this.check(ptx, people, null, p -> true);
+            this.check(ptx, people, QueryPredicate.eq("lastName", "Brown"), p -> p.getLastName().equals("Brown"));
+            this.check(ptx, people, QueryPredicate.eq("lastName", "Zed"), p -> false);
+            this.check(ptx, people, QueryPredicate.eq("age", null), p -> p.getAge() == null);
+            this.check(ptx, people, QueryPredicate.eq("color", Color.RED), p -> p.getColor() == Color.RED);
+            this.check(ptx, people, QueryPredicate.eq("friend", friend), p -> p.getFriend() == friend);
+            this.check(ptx, people, QueryPredicate.eq("code", 17), p -> p.getCode() == 17);
+            this.check(ptx, people, QueryPredicate.in("lastName", "Adams", "Davis", "Zed"),
+              p -> p.getLastName().equals("Adams") || p.getLastName().equals("Davis"));
+            this.check(ptx, people, QueryPredicate.lt("age", 30), p -> p.getAge() != null && p.getAge() < 30);
+            this.check(ptx, people, QueryPredicate.le("age", 30), p -> p.getAge() != null && p.getAge() <= 30);
+            this.check(ptx, people, QueryPredicate.gt("age", 30), p -> p.getAge() != null && p.getAge() > 30);
+            this.check(ptx, people, QueryPredicate.ge("age", 30), p -> p.getAge() != null && p.getAge() >= 30);
+            this.check(ptx, people, QueryPredicate.range("age", 20, 40),
+              p -> p.getAge() != null && p.getAge() >= 20 && p.getAge() < 40);
+            this.check(ptx, people,
+              QueryPredicate.and(QueryPredicate.gt("age", 20), QueryPredicate.le("age", 40), QueryPredicate.gt("age", 10)),
+              p -> p.getAge() != null && p.getAge() > 20 && p.getAge() <= 40);
+            this.check(ptx, people,
+              QueryPredicate.and(QueryPredicate.in("age", 5, 25, 35, 45), QueryPredicate.ge("age", 25)),
+              p -> p.getAge() != null && (p.getAge() == 25 || p.getAge() == 35 || p.getAge() == 45));
+            this.check(ptx, people,
+              QueryPredicate.and(QueryPredicate.in("lastName", "Adams", "Brown"), QueryPredicate.eq("lastName", "Brown")),
+              p -> p.getLastName().equals("Brown"));
+            this.check(ptx, people,
+              QueryPredicate.and(QueryPredicate.eq("lastName", "Clark"), QueryPredicate.ge("age", 50),
+                QueryPredicate.eq("color", Color.GREEN)),
+              p -> p.getLastName().equals("Clark") && p.getAge() != null && p.getAge() >= 50 && p.getColor() == Color.GREEN);
+            this.check(ptx, people,
+              QueryPredicate.or(QueryPredicate.eq("lastName", "Clark"), QueryPredicate.lt("age", 10)),
+              p -> p.getLastName().equals("Clark") || (p.getAge() != null && p.getAge() < 10));
+            this.check(ptx, people,
+              QueryPredicate.and(QueryPredicate.eq("color", Color.BLUE),
+                QueryPredicate.or(QueryPredicate.eq("lastName", "Adams"), QueryPredicate.ge("age", 90))),
+              p -> p.getColor() == Color.BLUE && (p.getLastName().equals("Adams") || (p.getAge() != null && p.getAge() >= 90)));
+            this.check(ptx, people,
+              QueryPredicate.and(QueryPredicate.ge("age", 30), QueryPredicate.range("code", 10, 60)),
+              p -> p.getAge() != null && p.getAge() >= 30 && p.getCode() >= 10 && p.getCode() < 60);
+        });
+
+        // Multiple where() calls
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            final List<Person> list = ptx.query(Person.class)
+              .where(QueryPredicate.eq("lastName", "Adams"))
+              .where(QueryPredicate.lt("age", 50))
+              .asList();
+            Assert.assertEquals(list,
+              this.filter(people, p -> p.getLastName().equals("Adams") && p.getAge() != null && p.getAge() < 50));
+        });
+
+        // Ordered queries
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            for (boolean ascending : new boolean[] { true, false }) {
+                final Comparator<Person> order = ascending ? BY_AGE : BY_AGE.reversed();
+                this.checkOrdered(ptx, people, null, ascending, order, p -> true);
+                this.checkOrdered(ptx, people, QueryPredicate.eq("lastName", "Davis"), ascending, order,
+                  p -> p.getLastName().equals("Davis"));
+                this.checkOrdered(ptx, people, QueryPredicate.eq("code", 23), ascending, order, p -> p.getCode() == 23);
+                this.checkOrdered(ptx, people, QueryPredicate.ge("age", 60), ascending, order,
+                  p -> p.getAge() != null && p.getAge() >= 60);
+                this.checkOrdered(ptx, people,
+                  QueryPredicate.and(QueryPredicate.ge("age", 20), QueryPredicate.eq("color", Color.RED)), ascending, order,
+                  p -> p.getAge() != null && p.getAge() >= 20 && p.getColor() == Color.RED);
+                this.checkOrdered(ptx, people, QueryPredicate.range("code", 10, 60), ascending, order,
+                  p -> p.getCode() >= 10 && p.getCode() < 60);
+            }
+        });
+
+        // Offset and limit
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            final List<Person> sorted = this.filter(people, p -> true);
+            sorted.sort(BY_AGE);
+            Assert.assertEquals(ptx.query(Person.class).orderBy("age", true).offset(10).limit(5).asList(), sorted.subList(10, 15));
+            Assert.assertEquals(ptx.query(Person.class).offset(95).limit(10).asList(),
+              this.filter(people, p -> true).subList(95, 100));
+            Assert.assertEquals(ptx.query(Person.class).limit(0).asList(), new ArrayList<>());
+            Assert.assertEquals(ptx.query(Person.class).orderBy("age", true).offset(10).limit(Long.MAX_VALUE).asList(),
+              sorted.subList(10, sorted.size()));
+        });
+
+        // Plan choice
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            final String explain1 = ptx.query(Person.class)
+              .where(QueryPredicate.ge("age", 50))
+              .where(QueryPredicate.eq("code", 5))
+              .where(QueryPredicate.eq("lastName", "Adams"))
+              .explain();
+            this.log.debug("plan1:\n{}", explain1);
+            Assert.assertTrue(explain1.indexOf("\"code\"") < explain1.indexOf("\"lastName\""), explain1);
+            Assert.assertTrue(explain1.indexOf("\"lastName\"") < explain1.indexOf("\"age\""), explain1);
+            final String explain2 = ptx.query(Person.class).where(QueryPredicate.eq("code", 5)).orderBy("age", true).explain();
+            this.log.debug("plan2:\n{}", explain2);
+            Assert.assertTrue(explain2.startsWith("sort"), explain2);
+            final String explain3 = ptx.query(Person.class).where(QueryPredicate.ge("age", 5)).orderBy("age", true).explain();
+            this.log.debug("plan3:\n{}", explain3);
+            Assert.assertTrue(explain3.startsWith("index scan"), explain3);
+        });
+
+        // Plan choice with index statistics
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            final int ageStorageId = pdb.getPermazenClass(Person.class).getField("age", PermazenSimpleField.class).getStorageId();
+            Assert.assertNull(ptx.getIndexStatistics(ageStorageId));
+            final QueryPredicate predicate = QueryPredicate.and(
+              QueryPredicate.eq("lastName", "Adams"), QueryPredicate.ge("age", 95));
+            final String explain1 = ptx.query(Person.class).where(predicate).explain();
+            Assert.assertTrue(explain1.indexOf("\"lastName\"") < explain1.indexOf("\"age\""), explain1);
+            Assert.assertTrue(ptx.updateIndexStatistics().containsKey(ageStorageId));
+            Assert.assertEquals(ptx.getIndexStatistics(ageStorageId).getEntryCount(), people.size());
+            final String explain2 = ptx.query(Person.class).where(predicate).explain();
+            this.log.debug("plan with statistics:\n{}", explain2);
+            Assert.assertTrue(explain2.indexOf("\"age\"") < explain2.indexOf("\"lastName\""), explain2);
+            this.check(ptx, people, predicate, p -> p.getLastName().equals("Adams") && p.getAge() != null && p.getAge() >= 95);
+
+            // A full scan is estimated from the statistics' entry counts
+            final String explain3 = ptx.query(Person.class).explain();
+            Assert.assertTrue(explain3.contains("(est. " + people.size() + ")"), explain3);
+        });
+
+        // Errors
+        this.inTransaction(pdb, ids, (ptx, people) -> {
+            try {
+                ptx.query(Person.class).where(QueryPredicate.eq("notIndexed", 3)).asList();
+                assert false : "expected exception";
+            } catch (IllegalArgumentException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+            try {
+                ptx.query(Person.class).where(QueryPredicate.eq("age", "foo")).asList();
+                assert false : "expected exception";
+            } catch (IllegalArgumentException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+            try {
+                ptx.query(Person.class).limit(10).asSet();
+                assert false : "expected exception";
+            } catch (IllegalStateException e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+        });
+    }
+
+    private void inTransaction(Permazen pdb, List<ObjId> ids, BiConsumer<PermazenTransaction, List<Person>> action) {
+        final PermazenTransaction ptx = pdb.createTransaction();
+        PermazenTransaction.setCurrent(ptx);
+        try {
+            final ArrayList<Person> people = new ArrayList<>();
+            for (ObjId id : ids)
+                people.add(ptx.get(id, Person.class));
+            action.accept(ptx, people);
+            ptx.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+    }
+
+    private void check(PermazenTransaction ptx, List<Person> people, QueryPredicate predicate, Predicate<Person> filter) {
+        final PermazenQuery<Person> query = ptx.query(Person.class);
+        if (predicate != null)
+            query.where(predicate);
+        final List<Person> expected = this.filter(people, filter);
+        final NavigableSet<Person> actual = query.asSet();
+        Assert.assertEquals(new ArrayList<>(actual), expected, "query " + query + " plan:\n" + query.explain());
+        Assert.assertEquals(query.asList(), expected);
+        for (Person person : people.subList(0, 20))
+            Assert.assertEquals(actual.contains(person), filter.test(person));
+    }
+
+    private void checkOrdered(PermazenTransaction ptx, List<Person> people, QueryPredicate predicate,
+      boolean ascending, Comparator<Person> order, Predicate<Person> filter) {
+        final PermazenQuery<Person> query = ptx.query(Person.class).orderBy("age", ascending);
+        if (predicate != null)
+            query.where(predicate);
+        final List<Person> expected = this.filter(people, filter);
+        expected.sort(order);
+        Assert.assertEquals(query.asList(), expected, "query " + query + " plan:\n" + query.explain());
+    }
+
+    // Returns matching people sorted by object ID
+    private List<Person> filter(List<Person> people, Predicate<Person> filter) {
+        return people.stream()
+          .filter(filter)
+          .sorted(Comparator.comparing(Person::getObjId))
+          .collect(Collectors.toList());
+    }
+
+// Model Classes
+
+    public enum Color {
+        RED,
+        GREEN,
+        BLUE;
+    }
+
+    @PermazenType
+    public abstract static class Person implements PermazenObject {
+
+        @PermazenField(indexed = true)
+        public abstract String getLastName();
+        public abstract void setLastName(String lastName);
+
+        @PermazenField(indexed = true)
+        public abstract Integer getAge();
+        public abstract void setAge(Integer age);
+
+        @PermazenField(indexed = true)
+        public abstract Color getColor();
+        public abstract void setColor(Color color);
+
+        @PermazenField(indexed = true, unique = true)
+        public abstract int getCode();
+        public abstract void setCode(int code);
+
+        public abstract Person getFriend();
+        public abstract void setFriend(Person friend);
+
+        public abstract int getNotIndexed();
+        public abstract void setNotIndexed(int notIndexed);
+
+        @Override
+        public String toString() {
+            return "Person[" + this.getObjId() + ",age=" + this.getAge() + "]";
+        }
+    }
+}
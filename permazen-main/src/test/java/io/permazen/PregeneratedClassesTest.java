@@ -0,0 +1,123 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import io.permazen.annotation.PermazenType;
+import io.permazen.core.Database;
+import io.permazen.encoding.DefaultEncodingRegistry;
+import io.permazen.kv.simple.MemoryKVDatabase;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PregeneratedClassesTest extends MainTestSupport {
+
+    @Test
+    public void testPregeneratedClasses() throws Exception {
+
+        // Write generated classes
+        final Path dir = Files.createTempDirectory("PregeneratedClassesTest");
+        try {
+            BasicTest.newPermazen(Person.class).writeGeneratedClasses(dir);
+            final String className = Person.class.getName() + Permazen.GENERATED_CLASS_NAME_SUFFIX;
+            final Path classFile = dir.resolve(className.replace('.', '/') + ".class");
+            final Path indexFile = dir.resolve(PregeneratedClasses.INDEX_RESOURCE);
+            Assert.assertTrue(Files.exists(classFile));
+            Assert.assertTrue(Files.exists(indexFile));
+
+            // Pre-generated classes should work
+            this.verifyPermazen(dir);
+
+            // Pre-generated classes should actually be used
+            Files.write(classFile, new byte[] { 1, 2, 3 });
+            try {
+                this.verifyPermazen(dir);
+                assert false : "expected error";
+            } catch (ClassFormatError e) {
+                this.log.debug("got expected {}", e.toString());
+            }
+
+            // Stale pre-generated classes should be ignored
+            this.updateIndex(indexFile, index -> index.setProperty(Person.class.getName(), "bogus"));
+            this.verifyPermazen(dir);
+
+            // Missing pre-generated class files should be ignored
+            final String fingerprint = PregeneratedClasses.fingerprint(this.getClassGenerator(BasicTest.newPermazen(Person.class)));
+            this.updateIndex(indexFile, index -> index.setProperty(Person.class.getName(), fingerprint));
+            Files.delete(classFile);
+            this.verifyPermazen(dir);
+
+            // Pre-generated classes depend on the encoding registry
+            final Database db = new Database(new MemoryKVDatabase());
+            db.setEncodingRegistry(new DefaultEncodingRegistry() { });
+            Assert.assertNotEquals(PregeneratedClasses.fingerprint(this.getClassGenerator(BasicTest.newPermazen(db, Person.class))),
+              fingerprint);
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private ClassGenerator<?> getClassGenerator(Permazen pdb) {
+        pdb.initialize();
+        return pdb.getPermazenClass(Person.class).classGenerator;
+    }
+
+    private void updateIndex(Path indexFile, Consumer<Properties> updater) throws Exception {
+        final Properties index = new Properties();
+        try (InputStream input = Files.newInputStream(indexFile)) {
+            index.load(input);
+        }
+        updater.accept(index);
+        try (OutputStream output = Files.newOutputStream(indexFile)) {
+            index.store(output, null);
+        }
+    }
+
+    private void verifyPermazen(Path dir) throws Exception {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader prevLoader = thread.getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, prevLoader)) {
+            thread.setContextClassLoader(loader);
+            final Permazen pdb = BasicTest.newPermazen(Person.class);
+            thread.setContextClassLoader(prevLoader);
+            final PermazenTransaction ptx = pdb.createTransaction();
+            PermazenTransaction.setCurrent(ptx);
+            try {
+                final Person person = ptx.create(Person.class);
+                person.setName("Fred");
+                Assert.assertEquals(person.getName(), "Fred");
+                Assert.assertNotSame(person.getClass().getClassLoader(), loader);
+                ptx.commit();
+            } finally {
+                PermazenTransaction.setCurrent(null);
+            }
+        } finally {
+            thread.setContextClassLoader(prevLoader);
+        }
+    }
+
+// Model Classes
+
+    @PermazenType
+    public abstract static class Person implements PermazenObject {
+
+        public abstract String getName();
+        public abstract void setName(String name);
+    }
+}
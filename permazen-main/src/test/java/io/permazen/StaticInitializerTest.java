@@ -0,0 +1,77 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen;
+
+import io.permazen.annotation.PermazenType;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class StaticInitializerTest extends MainTestSupport {
+
+    @Test
+    public void testStaticInitializers() {
+
+        // Model classes are initialized in the calling thread, even though they are analyzed in parallel
+        final PermazenConfig config = PermazenConfig.builder()
+          .modelClasses(Chicken.class, Egg.class)
+          .build();
+        Assert.assertTrue(config.isParallelAnalysis());
+        final Permazen pdb = config.newPermazen();
+        Assert.assertSame(Chicken.INIT_THREAD, Thread.currentThread());
+        Assert.assertSame(Egg.INIT_THREAD, Thread.currentThread());
+        Assert.assertEquals(Chicken.EGG_NAME, "Egg");
+        Assert.assertEquals(Egg.CHICKEN_NAME, "Chicken");
+
+        // Parallel analysis can be disabled
+        final PermazenConfig serialConfig = PermazenConfig.builder()
+          .modelClasses(Chicken.class, Egg.class)
+          .parallelAnalysis(false)
+          .build();
+        Assert.assertFalse(serialConfig.isParallelAnalysis());
+        final Permazen serialPdb = serialConfig.newPermazen();
+
+        // Both instances work
+        for (Permazen p : new Permazen[] { pdb, serialPdb }) {
+            final PermazenTransaction tx = p.createTransaction(ValidationMode.AUTOMATIC);
+            try {
+                final Chicken chicken = tx.create(Chicken.class);
+                final Egg egg = tx.create(Egg.class);
+                chicken.setEgg(egg);
+                egg.setChicken(chicken);
+                tx.commit();
+            } finally {
+                tx.rollback();
+            }
+        }
+    }
+
+// Model Classes
+
+    // The static initializers of these classes depend on each other
+
+    @PermazenType
+    public abstract static class Chicken implements PermazenObject {
+
+        static final Thread INIT_THREAD = Thread.currentThread();
+        static final String NAME = Chicken.class.getSimpleName();
+        static final String EGG_NAME = Egg.NAME;
+
+        public abstract Egg getEgg();
+        public abstract void setEgg(Egg egg);
+    }
+
+    @PermazenType
+    public abstract static class Egg implements PermazenObject {
+
+        static final Thread INIT_THREAD = Thread.currentThread();
+        static final String NAME = Egg.class.getSimpleName();
+        static final String CHICKEN_NAME = Chicken.NAME;
+
+        public abstract Chicken getChicken();
+        public abstract void setChicken(Chicken chicken);
+    }
+}
@@ -5,14 +5,17 @@
 
 package io.permazen;
 
+import io.permazen.annotation.OnValidate;
 import io.permazen.annotation.PermazenField;
 import io.permazen.annotation.PermazenType;
 import io.permazen.annotation.ValueRange;
 import io.permazen.annotation.Values;
 import io.permazen.core.ObjId;
 
+import java.util.ArrayList;
 import java.util.Date;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class UniqueConstraintTest extends MainTestSupport {
@@ -203,6 +206,98 @@ public class UniqueConstraintTest extends MainTestSupport {
         }
     }
 
+    @Test
+    public void testBulkUniqueConstraint() throws Exception {
+
+        Permazen pdb = BasicTest.newPermazen(UniqueName.class);
+        PermazenTransaction ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+
+        PermazenTransaction.setCurrent(ptx);
+        try {
+
+        // Create many objects with distinct names, in reverse order, plus some sharing the excluded value
+
+            final UniqueName[] objs = new UniqueName[200];
+            for (int i = objs.length - 1; i >= 0; i--) {
+                objs[i] = ptx.create(UniqueName.class);
+                objs[i].setName(i % 10 == 0 ? "frob" : String.format("name%04d", i));
+            }
+            ptx.validate();
+
+        // Duplicate one of the names; exactly that conflict should be reported
+
+            objs[199].setName("name0101");
+            objs[77].setName("name0077.1");
+            try {
+                ptx.validate();
+                assert false;
+            } catch (ValidationException e) {
+                this.log.debug("got expected {}", e.toString());
+                final ObjId id = e.getObject().getObjId();
+                assert id.equals(objs[101].getObjId()) || id.equals(objs[199].getObjId()) : "wrong object " + id;
+            }
+
+        // Fix the conflict
+
+            objs[199].setName("name0199");
+            ptx.validate();
+
+            ptx.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+    }
+
+    @Test
+    public void testViolationOrder() throws Exception {
+
+        Permazen pdb = BasicTest.newPermazen(UniqueOrdered.class);
+        PermazenTransaction ptx = pdb.createTransaction(ValidationMode.AUTOMATIC);
+
+        PermazenTransaction.setCurrent(ptx);
+        try {
+
+            final UniqueOrdered existing = ptx.create(UniqueOrdered.class);
+            existing.setName("dup");
+            ptx.validate();
+
+        // The violation reported should be the one found first when validating objects one at a time in queue order
+
+            for (int i = 0; i < 20; i++) {
+                final UniqueOrdered duplicate = ptx.create(UniqueOrdered.class);
+                duplicate.setName("dup");
+                final UniqueOrdered invalid = ptx.create(UniqueOrdered.class);
+                invalid.setName("name" + i);
+                invalid.setInvalid(true);
+                UniqueOrdered.VALIDATED.clear();
+                try {
+                    ptx.validate();
+                    assert false;
+                } catch (ValidationException e) {
+                    this.log.debug("got expected {}", e.toString());
+                    final UniqueOrdered first = (UniqueOrdered)UniqueOrdered.VALIDATED.get(0);
+                    Assert.assertSame(e.getObject(), first);
+                }
+
+            // The other object should still be queued for validation
+
+                try {
+                    ptx.validate();
+                    assert false;
+                } catch (ValidationException e) {
+                    this.log.debug("got expected {}", e.toString());
+                }
+                duplicate.delete();
+                invalid.delete();
+                ptx.validate();
+            }
+
+            ptx.commit();
+        } finally {
+            PermazenTransaction.setCurrent(null);
+        }
+    }
+
     @Test
     public void testDuplicateAfterCopyClone() throws Exception {
 
@@ -524,6 +619,26 @@ public class UniqueConstraintTest extends MainTestSupport {
         public abstract void setName(String name);
     }
 
+    @PermazenType
+    public abstract static class UniqueOrdered implements PermazenObject {
+
+        static final ArrayList<PermazenObject> VALIDATED = new ArrayList<>();
+
+        @PermazenField(indexed = true, unique = true)
+        public abstract String getName();
+        public abstract void setName(String name);
+
+        public abstract boolean isInvalid();
+        public abstract void setInvalid(boolean invalid);
+
+        @OnValidate(early = true)
+        private void checkInvalid() {
+            VALIDATED.add(this);
+            if (this.isInvalid())
+                throw new ValidationException(this, "invalid");
+        }
+    }
+
     @PermazenType
     public abstract static class UniqueName2 implements PermazenObject {
 
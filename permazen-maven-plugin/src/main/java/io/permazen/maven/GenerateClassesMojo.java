@@ -0,0 +1,46 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.maven;
+
+import java.io.File;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * Generate the Java subclasses of user-supplied model classes at build time.
+ *
+ * <p>
+ * At runtime, Permazen generates a concrete subclass of each model class. This goal performs that generation
+ * at build time instead, writing the generated class files (plus an index resource used to locate and verify them)
+ * into the project's class output directory, so they are included in the project's artifact. At runtime, Permazen
+ * then loads these classes instead of generating them, which reduces startup time.
+ *
+ * <p>
+ * Generated classes that no longer match their model classes (e.g., because a model class was recompiled without
+ * re-running this goal) are ignored at runtime, and the class is generated on the fly as usual.
+ */
+@Mojo(name = "generate-classes",
+  defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+  requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME,
+  threadSafe = true)
+public class GenerateClassesMojo extends AbstractMainSchemaMojo {
+
+    /**
+     * The directory into which generated classes are written. By default, this is the project's class output directory.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", property = "generatedClassesDirectory")
+    private File generatedClassesDirectory;
+
+    @Override
+    protected void execute(SchemaUtility schemaUtility) throws MojoExecutionException, MojoFailureException {
+        schemaUtility.generateClasses(this.generatedClassesDirectory);
+    }
+}
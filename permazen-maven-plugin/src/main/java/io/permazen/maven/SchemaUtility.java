@@ -44,6 +44,16 @@ public interface SchemaUtility {
      */
     void generateSchema(File file) throws MojoExecutionException, MojoFailureException;
 
+    /**
+     * Generate the Java classes for the model classes and write them, plus an index, into the specified directory.
+     *
+     * @param dir class output directory
+     * @throws MojoExecutionException if a fatal error occurs
+     * @throws IllegalArgumentException if {@code dir} is null
+     * @throws IllegalStateException if not configured
+     */
+    void generateClasses(File dir) throws MojoExecutionException;
+
     /**
      * Verify schema matches the specified file.
      *
@@ -41,4 +41,14 @@ public interface Index<T> {
      * @return {@link NavigableMap} from indexed value(s) to the corresponding set of target objects
      */
     NavigableMap<?, NavigableSet<T>> asMap();
+
+    /**
+     * Count the number of entries in this index, i.e., the size of {@link #asSet}.
+     *
+     * <p>
+     * Implementations should count entries without decoding indexed values or target values.
+     *
+     * @return number of index entries
+     */
+    long count();
 }
@@ -42,6 +42,22 @@ public interface Index1<V, T> extends Index<T> {
      */
     NavigableMap<V, NavigableSet<T>> asMap();
 
+    /**
+     * Count the number of entries in this index having each distinct indexed value.
+     *
+     * <p>
+     * The returned map is a snapshot having the same key ordering as {@link #asMap}, and is equivalent to
+     * (but more efficient than) mapping each key in {@link #asMap} to the size of the corresponding set.
+     *
+     * <p>
+     * To find just the distinct, first, or last indexed values, use {@link #asMap}'s
+     * {@link NavigableMap#navigableKeySet navigableKeySet()}, {@link NavigableMap#firstKey firstKey()}, or
+     * {@link NavigableMap#lastKey lastKey()}, which do not need to visit every index entry.
+     *
+     * @return immutable mapping from indexed value to number of index entries
+     */
+    NavigableMap<V, Long> countByValue();
+
     /**
      * Impose {@link Bounds} that restrict the range of the indexed value.
      *
@@ -44,6 +44,22 @@ public interface Index2<V1, V2, T> extends Index<T> {
      */
     NavigableMap<Tuple2<V1, V2>, NavigableSet<T>> asMap();
 
+    /**
+     * Count the number of entries in this index having each distinct indexed value tuple.
+     *
+     * @return immutable mapping from indexed value tuple to number of index entries
+     * @see Index1#countByValue
+     */
+    NavigableMap<Tuple2<V1, V2>, Long> countByValues();
+
+    /**
+     * Count the number of entries in this index having each distinct first value.
+     *
+     * @return immutable mapping from first value to number of index entries
+     * @see Index1#countByValue
+     */
+    NavigableMap<V1, Long> countByValue1();
+
     /**
      * View this index as a {@link NavigableMap} of {@link Index1}s keyed by the first value.
      *
@@ -5,6 +5,8 @@
 
 package io.permazen.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
@@ -13,7 +15,7 @@ import java.util.NoSuchElementException;
 
 /**
  * Provides a read-only view of the intersection of two or more {@link NavigableSet}s.
- * A complete iteration takes <i>O(N * M)</i> queries, where <i>N</i> is the number of
+ * A complete iteration takes <i>O(N * M)</i> seeks, where <i>N</i> is the number of
  * elements in the smallest set and <i>M</i> is the number of sets.
  */
 class IntersectionNavigableSet<E> extends AbstractMultiNavigableSet<E> {
@@ -62,14 +64,22 @@ class IntersectionNavigableSet<E> extends AbstractMultiNavigableSet<E> {
 
 // Iterator
 
-    private class Iterator implements CloseableIterator<E> {
+    /**
+     * Leapfrog join: the iterator having the smallest current element repeatedly seeks to the largest current element
+     * of the other iterators, so runs of non-matching elements are jumped over rather than scanned.
+     */
+    private class Iterator implements SeekableIterator<E> {
 
         private final Comparator<? super E> comparator = IntersectionNavigableSet.this.getComparator(false);
+        private final ArrayList<SeekableIterator<E>> iterators = new ArrayList<>();
+        private final ArrayList<E> elements = new ArrayList<>();        // current element of each iterator
 
-        private boolean firstTime = true;
+        private boolean initialized;
         private boolean finished = IntersectionNavigableSet.this.list.isEmpty();
         private boolean haveNext;
         private E next;
+        private boolean matched;                                        // current elements are all equal
+        private int position;                                           // the iterator having the smallest element
 
         @Override
         public boolean hasNext() {
@@ -89,81 +99,110 @@ class IntersectionNavigableSet<E> extends AbstractMultiNavigableSet<E> {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public void seek(E target) {
+            if (!this.initialize())
+                return;
+            if (this.haveNext) {
+                if (this.comparator.compare(this.next, target) >= 0)
+                    return;
+                this.haveNext = false;
+            }
+            if (this.comparator.compare(this.elements.get(this.position), target) < 0) {
+                this.matched = false;
+                final E max = this.elements.get((this.position + this.iterators.size() - 1) % this.iterators.size());
+                if (!this.step(this.comparator.compare(max, target) > 0 ? max : target, true))
+                    return;
+            } else if (this.matched) {
+                this.matched = false;
+                if (!this.step(null, false))
+                    return;
+            }
+            this.leapfrog();
+        }
+
         @Override
         public void close() {
+            this.finished = true;
+            this.iterators.forEach(CloseableIterator::close);
         }
 
         private boolean advance() {
-
-            // Finished?
-            if (this.finished)
-                return false;
             assert !this.haveNext;
-
-            // Get initial candidate for the next iteration element
-            E candidate;
-            final NavigableSet<E> firstSet = IntersectionNavigableSet.this.list.get(0);
-            if (this.firstTime) {
-                this.firstTime = false;
-                try {
-                    candidate = firstSet.first();
-                } catch (NoSuchElementException e) {
-                    this.finished = true;
-                    return false;
-                }
-            } else if ((candidate = firstSet.higher(this.next)) == null && !this.hasNullInTailSet(firstSet, this.next, false)) {
-                this.finished = true;
+            if (!this.initialize())
                 return false;
-            }
-
-            // Cycle through the sets until we have found the candidate in every set, moving candidate forward as we go
-            final int maxMatches = IntersectionNavigableSet.this.list.size();
-            int numMatches = 1;
-            for (int i = 1; numMatches < maxMatches; i = (i + 1) % maxMatches) {
-                final NavigableSet<E> set = IntersectionNavigableSet.this.list.get(i);
-
-                // Look for candidate in the next set, or else something higher
-                final E ceiling = set.ceiling(candidate);
-
-                // Distinguish between a normal but null element, and a null value meaning "no more elements"
-                if (ceiling == null && !this.hasNullInTailSet(set, candidate, true)) {
-                    this.finished = true;
+            if (this.matched) {
+                this.matched = false;
+                if (!this.step(null, false))
                     return false;
-                }
+            }
+            return this.leapfrog();
+        }
 
-                // Did we get the same candidate element back, or some higher element?
-                final int diff = this.comparator.compare(ceiling, candidate);
-                if (diff == 0) {
-                    numMatches++;
-                    continue;
-                }
+        // Create iterators and order them by their first elements; returns false if finished
+        private boolean initialize() {
+            if (this.finished)
+                return false;
+            if (this.initialized)
+                return true;
+            this.initialized = true;
+            for (NavigableSet<E> set : IntersectionNavigableSet.this.list) {
+                final SeekableIterator<E> iterator = SeekableIterator.of(set);
+                this.iterators.add(iterator);
+                if (!iterator.hasNext())
+                    return this.finish();
+                this.elements.add(iterator.next());
+            }
+            final Integer[] order = new Integer[this.iterators.size()];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, (i, j) -> this.comparator.compare(this.elements.get(i), this.elements.get(j)));
+            final ArrayList<SeekableIterator<E>> iteratorsCopy = new ArrayList<>(this.iterators);
+            final ArrayList<E> elementsCopy = new ArrayList<>(this.elements);
+            for (int i = 0; i < order.length; i++) {
+                this.iterators.set(i, iteratorsCopy.get(order[i]));
+                this.elements.set(i, elementsCopy.get(order[i]));
+            }
+            return true;
+        }
 
-                // If we got back an element greater than the current candidate, it becomes the new candidate
+        // Seek the iterator with the smallest element to the largest element until they are all equal
+        private boolean leapfrog() {
+            final int numIterators = this.iterators.size();
+            while (true) {
+                final E max = this.elements.get((this.position + numIterators - 1) % numIterators);
+                final int diff = this.comparator.compare(this.elements.get(this.position), max);
+                if (diff == 0)
+                    break;
                 if (diff > 0) {
-                    numMatches = 1;
-                    candidate = ceiling;
-                    continue;
+                    throw new IllegalStateException(String.format(
+                      "internal error: SeekableIterator.seek() returned a mis-ordered element %s > %s",
+                      this.elements.get(this.position), max));
                 }
-
-                // Oops, sets are not ordered properly
-                throw new IllegalStateException(String.format(
-                  "internal error: NavigableSet.ceiling() returned a mis-ordered element %s < %s", ceiling, candidate));
+                if (!this.step(max, true))
+                    return false;
             }
-
-            // We found candidate in all of the sets
-            this.next = candidate;
+            this.next = this.elements.get(this.position);
             this.haveNext = true;
+            this.matched = true;
             return true;
         }
 
-        private boolean hasNullInTailSet(NavigableSet<E> set, E elem, boolean inclusive) {
-            NavigableSet<E> tailSet;
-            try {
-                tailSet = set.tailSet(elem, inclusive);
-            } catch (IllegalArgumentException e) {              // "candidate" is out of set's range, so we're done
-                return false;
-            }
-            return !tailSet.isEmpty();
+        // Advance the iterator having the smallest element, optionally seeking first; it then has the largest element
+        private boolean step(E target, boolean seek) {
+            final SeekableIterator<E> iterator = this.iterators.get(this.position);
+            if (seek)
+                iterator.seek(target);
+            if (!iterator.hasNext())
+                return this.finish();
+            this.elements.set(this.position, iterator.next());
+            this.position = (this.position + 1) % this.iterators.size();
+            return true;
+        }
+
+        private boolean finish() {
+            this.close();
+            return false;
         }
     }
 }
@@ -0,0 +1,98 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.util;
+
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link SeekableIterator} implementation for arbitrary {@link NavigableSet}s.
+ *
+ * <p>
+ * Seeking first checks the next few elements, which is cheap when the target is close, and otherwise restarts
+ * the iteration using {@link NavigableSet#tailSet(Object, boolean) NavigableSet.tailSet()}.
+ *
+ * @see SeekableIterator#of
+ */
+class NavigableSetSeekableIterator<E> implements SeekableIterator<E> {
+
+    /**
+     * The maximum number of elements to step over before restarting the iteration from the target.
+     */
+    static final int MAX_SEEK_STEPS = 4;
+
+    private final NavigableSet<E> set;
+    private final Comparator<? super E> comparator;
+
+    private CloseableIterator<E> iterator;
+    private boolean haveNext;
+    private E next;
+
+    NavigableSetSeekableIterator(NavigableSet<E> set, CloseableIterator<E> iterator) {
+        assert set != null;
+        assert iterator != null;
+        this.set = set;
+        this.comparator = NavigableSets.getComparator(set.comparator(), false);
+        this.iterator = iterator;
+    }
+
+// Iterator
+
+    @Override
+    public boolean hasNext() {
+        if (this.haveNext)
+            return true;
+        if (!this.iterator.hasNext())
+            return false;
+        this.next = this.iterator.next();
+        this.haveNext = true;
+        return true;
+    }
+
+    @Override
+    public E next() {
+        if (!this.hasNext())
+            throw new NoSuchElementException();
+        this.haveNext = false;
+        return this.next;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+// Closeable
+
+    @Override
+    public void close() {
+        this.iterator.close();
+    }
+
+// SeekableIterator
+
+    @Override
+    public void seek(E target) {
+
+        // Step forward a little bit
+        for (int i = 0; i <= MAX_SEEK_STEPS; i++) {
+            if (!this.hasNext() || this.comparator.compare(this.next, target) >= 0)
+                return;
+            this.haveNext = false;
+        }
+
+        // Target must be farther away; restart iteration from there
+        NavigableSet<E> tailSet;
+        try {
+            tailSet = this.set.tailSet(target, true);
+        } catch (IllegalArgumentException e) {                  // target is past the end of the set's range
+            tailSet = new EmptyNavigableSet<>(this.set.comparator());
+        }
+        this.iterator.close();
+        this.iterator = CloseableIterator.wrap(tailSet.iterator());
+    }
+}
@@ -0,0 +1,57 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.NavigableSet;
+
+/**
+ * A {@link CloseableIterator} over a sorted set that can efficiently skip ahead to a target element.
+ *
+ * <p>
+ * Iterators of this type allow set operations such as {@link NavigableSets#intersection intersection} to jump over
+ * long runs of non-matching elements, instead of stepping through them one at a time.
+ *
+ * @param <E> iteration element type
+ */
+public interface SeekableIterator<E> extends CloseableIterator<E> {
+
+    /**
+     * Skip ahead to the given target element.
+     *
+     * <p>
+     * After this method returns, the next element returned by this iterator (if any) will be the first remaining
+     * element that is equal to or after {@code target} in iteration order. Elements that have already been returned
+     * are never returned again: if {@code target} does not come after the most recently returned element, the
+     * next element is the same as it would have been without invoking this method.
+     *
+     * @param target target element; may be null only if the iterated set supports null elements
+     */
+    void seek(E target);
+
+    /**
+     * Create a {@link SeekableIterator} over the given {@link NavigableSet}.
+     *
+     * <p>
+     * If the iterator returned by {@code set} already implements {@link SeekableIterator}, then it is returned.
+     * Otherwise, the iterator is wrapped so that a seek first checks the next few elements, and if the target
+     * is not found, restarts iteration from {@linkplain NavigableSet#tailSet(Object, boolean) the tail set}
+     * starting at the target.
+     *
+     * @param set sorted set
+     * @param <E> iteration element type
+     * @return {@link SeekableIterator} iterating {@code set}
+     * @throws IllegalArgumentException if {@code set} is null
+     */
+    static <E> SeekableIterator<E> of(NavigableSet<E> set) {
+        Preconditions.checkArgument(set != null, "null set");
+        final CloseableIterator<E> iterator = CloseableIterator.wrap(set.iterator());
+        if (iterator instanceof SeekableIterator)
+            return (SeekableIterator<E>)iterator;
+        return new NavigableSetSeekableIterator<>(set, iterator);
+    }
+}
@@ -5,13 +5,12 @@
 
 package io.permazen.util;
 
-import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
-
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 /**
  * Provides a read-only view of the union of two or more {@link NavigableSet}s.
@@ -56,9 +55,82 @@ class UnionNavigableSet<E> extends AbstractMultiNavigableSet<E> {
 
     @Override
     public CloseableIterator<E> iterator() {
-        final Comparator<? super E> comparator = this.getComparator(false);
-        return new UniqueIterator<E>(
-          Iterators.mergeSorted(Lists.transform(this.list, NavigableSet::iterator), comparator),
-          comparator);
+        return new Iterator();
+    }
+
+// Iterator
+
+    /**
+     * Merges the iterators of the nested sets. Seeks are forwarded only to those nested iterators that are behind the target.
+     */
+    private class Iterator implements SeekableIterator<E> {
+
+        private final Comparator<? super E> comparator = UnionNavigableSet.this.getComparator(false);
+        private final PriorityQueue<Head> queue = new PriorityQueue<>(Math.max(UnionNavigableSet.this.list.size(), 1),
+          (head1, head2) -> this.comparator.compare(head1.element, head2.element));
+
+        Iterator() {
+            for (NavigableSet<E> set : UnionNavigableSet.this.list)
+                this.advance(new Head(SeekableIterator.of(set)));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.queue.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            final Head head = this.queue.poll();
+            if (head == null)
+                throw new NoSuchElementException();
+            final E next = head.element;
+            this.advance(head);
+            Head duplicate;
+            while ((duplicate = this.queue.peek()) != null && this.comparator.compare(duplicate.element, next) == 0)
+                this.advance(this.queue.poll());
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void seek(E target) {
+            Head head;
+            while ((head = this.queue.peek()) != null && this.comparator.compare(head.element, target) < 0) {
+                this.queue.poll();
+                head.iterator.seek(target);
+                this.advance(head);
+            }
+        }
+
+        @Override
+        public void close() {
+            this.queue.forEach(head -> head.iterator.close());
+            this.queue.clear();
+        }
+
+        // Load the next element from the given nested iterator, if any, and (re)insert it into the queue
+        private void advance(Head head) {
+            if (!head.iterator.hasNext()) {
+                head.iterator.close();
+                return;
+            }
+            head.element = head.iterator.next();
+            this.queue.add(head);
+        }
+
+        private final class Head {
+
+            final SeekableIterator<E> iterator;
+            E element;
+
+            Head(SeekableIterator<E> iterator) {
+                this.iterator = iterator;
+            }
+        }
     }
 }
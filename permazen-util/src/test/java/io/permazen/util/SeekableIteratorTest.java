@@ -0,0 +1,148 @@
+
+/*
+ * Copyright (C) 2015 Archie L. Cobbs. All rights reserved.
+ */
+
+package io.permazen.util;
+
+import io.permazen.test.TestSupport;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SeekableIteratorTest extends TestSupport {
+
+    @Test
+    public void testRandomSeeks() {
+        for (int testNum = 0; testNum < 200; testNum++) {
+
+            // Generate sets
+            final int numSets = this.random.nextInt(5) + 1;
+            final boolean reverse = this.random.nextBoolean();
+            final ArrayList<NavigableSet<Integer>> sets = new ArrayList<>(numSets);
+            for (int i = 0; i < numSets; i++)
+                sets.add(this.randomSet(reverse));
+
+            // Seek through a plain set
+            SeekableIteratorTest.verifySeeks(this.random, sets.get(0), sets.get(0));
+
+            // Seek through intersection
+            final TreeSet<Integer> expectedIntersection = new TreeSet<>();
+            expectedIntersection.addAll(sets.get(0));
+            sets.forEach(expectedIntersection::retainAll);
+            SeekableIteratorTest.verifySeeks(this.random, NavigableSets.intersection(sets),
+              reverse ? expectedIntersection.descendingSet() : expectedIntersection);
+
+            // Seek through union
+            final TreeSet<Integer> expectedUnion = new TreeSet<>();
+            sets.forEach(expectedUnion::addAll);
+            SeekableIteratorTest.verifySeeks(this.random, NavigableSets.union(sets),
+              reverse ? expectedUnion.descendingSet() : expectedUnion);
+
+            // Seek through intersection of unions
+            final NavigableSet<Integer> union1 = NavigableSets.union(this.randomSet(reverse), this.randomSet(reverse));
+            final NavigableSet<Integer> union2 = NavigableSets.union(this.randomSet(reverse), this.randomSet(reverse));
+            final TreeSet<Integer> expected = new TreeSet<>();
+            expected.addAll(union1);
+            expected.retainAll(union2);
+            SeekableIteratorTest.verifySeeks(this.random, NavigableSets.intersection(union1, union2),
+              reverse ? expected.descendingSet() : expected);
+        }
+    }
+
+    @Test
+    public void testSparseIntersection() {
+
+        // Intersect a small set with a large set; iterating the large set should not be required
+        final TreeSet<Integer> small = new TreeSet<>(List.of(100, 50000, 99999));
+        final TreeSet<Integer> large = new TreeSet<>();
+        for (int i = 0; i < 100000; i++)
+            large.add(i);
+        final int[] count = new int[1];
+        final NavigableSet<Integer> counting = new CountingNavigableSet(large, count);
+        Assert.assertEquals(new ArrayList<>(NavigableSets.intersection(small, counting)), List.of(100, 50000, 99999));
+        Assert.assertTrue(count[0] < 100, "too many elements iterated: " + count[0]);
+    }
+
+    private NavigableSet<Integer> randomSet(boolean reverse) {
+        NavigableSet<Integer> set = new TreeSet<>();
+        final int numValues = this.random.nextInt(100);
+        for (int j = 0; j < numValues; j++)
+            set.add(this.random.nextInt(300));
+        if (this.random.nextInt(4) == 0)
+            set = set.subSet(this.random.nextInt(100), true, 200 + this.random.nextInt(100), this.random.nextBoolean());
+        return reverse ? set.descendingSet() : set;
+    }
+
+    // Iterate and seek randomly through "actual", verifying the elements found match "expected"
+    static void verifySeeks(Random random, NavigableSet<Integer> actual, NavigableSet<Integer> expected) {
+        final Comparator<? super Integer> comparator = NavigableSets.getComparator(expected.comparator(), false);
+        final ArrayList<Integer> list = new ArrayList<>(expected);
+        int index = 0;
+        try (SeekableIterator<Integer> i = SeekableIterator.of(actual)) {
+            while (true) {
+                if (random.nextInt(3) == 0) {
+                    final int target = random.nextInt(320) - 10;
+                    i.seek(target);
+                    while (index < list.size() && comparator.compare(list.get(index), target) < 0)
+                        index++;
+                }
+                Assert.assertEquals(i.hasNext(), index < list.size());
+                if (index == list.size())
+                    break;
+                Assert.assertEquals(i.next(), list.get(index++));
+            }
+        }
+    }
+
+// CountingNavigableSet
+
+    // Counts the number of elements iterated
+    private static class CountingNavigableSet extends AbstractNavigableSet<Integer> {
+
+        private final NavigableSet<Integer> set;
+        private final int[] count;
+
+        CountingNavigableSet(NavigableSet<Integer> set, int[] count) {
+            this(set, count, new Bounds<>());
+        }
+
+        CountingNavigableSet(NavigableSet<Integer> set, int[] count, Bounds<Integer> bounds) {
+            super(bounds);
+            this.set = set;
+            this.count = count;
+        }
+
+        @Override
+        public Comparator<? super Integer> comparator() {
+            return this.set.comparator();
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            return this.set.contains(obj);
+        }
+
+        @Override
+        public CloseableIterator<Integer> iterator() {
+            return CloseableIterator.wrap(this.set.stream().peek(x -> this.count[0]++).iterator());
+        }
+
+        @Override
+        protected NavigableSet<Integer> createSubSet(boolean reverse, Bounds<Integer> newBounds) {
+            NavigableSet<Integer> subSet = reverse ? this.set.descendingSet() : this.set;
+            if (newBounds.hasLowerBound())
+                subSet = subSet.tailSet(newBounds.getLowerBound(), newBounds.getLowerBoundType().isInclusive());
+            if (newBounds.hasUpperBound())
+                subSet = subSet.headSet(newBounds.getUpperBound(), newBounds.getUpperBoundType().isInclusive());
+            return new CountingNavigableSet(subSet, this.count, newBounds);
+        }
+    }
+}